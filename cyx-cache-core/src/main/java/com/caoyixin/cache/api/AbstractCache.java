@@ -1,25 +1,73 @@
 package com.caoyixin.cache.api;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 import com.caoyixin.cache.exception.CacheException;
+import com.caoyixin.cache.exception.CacheRejectedException;
+import com.caoyixin.cache.resilience.CacheCallGuard;
+import com.caoyixin.cache.resilience.CircuitBreaker;
+import com.caoyixin.cache.resilience.ErrorLogLimiter;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * 抽象缓存实现，处理通用逻辑和统计功能
+ * <p>
+ * 同时提供异步接口，默认在调用线程上执行同步实现，支持异步IO的子类覆盖doXxxAsync方法
  *
  * @param <K> 键类型
  * @param <V> 值类型
  */
 @Slf4j
-public abstract class AbstractCache<K, V> implements Cache<K, V> {
+public abstract class AbstractCache<K, V> implements Cache<K, V>, AsyncCache<K, V> {
+
+    /**
+     * 同一类错误记录日志的最小间隔，间隔内的错误只计数
+     */
+    private static final Duration ERROR_LOG_INTERVAL = Duration.ofSeconds(10);
+
+    /**
+     * 调用被拒绝时最多暂存的待删除键，超出后在恢复时清空整个缓存
+     */
+    private static final int MAX_PENDING_INVALIDATIONS = 10000;
 
     protected final String name;
     protected final CacheStats stats;
 
+    /**
+     * 正在异步加载的键，同一个键的并发加载共用一个结果
+     */
+    private final ConcurrentHashMap<K, CompletableFuture<V>> pendingLoads = new ConcurrentHashMap<>();
+
+    private final ErrorLogLimiter errorLogLimiter = new ErrorLogLimiter(ERROR_LOG_INTERVAL);
+
+    /**
+     * 调用保护，为null时不限制
+     */
+    private volatile CacheCallGuard callGuard;
+
+    /**
+     * 调用被拒绝期间暂存的删除操作，下一次调用成功后补发
+     */
+    private final Set<K> pendingInvalidations = ConcurrentHashMap.newKeySet();
+    private volatile boolean pendingClear;
+    private final AtomicBoolean replaying = new AtomicBoolean();
+
     /**
      * 创建抽象缓存
      *
@@ -30,21 +78,68 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
         this.stats = new CacheStats(name);
     }
 
+    /**
+     * 设置调用保护，如远程缓存的熔断器，调用被拒绝时读取返回null，写入被跳过，删除暂存到恢复后补发
+     *
+     * @param callGuard 调用保护，为null时不限制
+     */
+    public void setCallGuard(CacheCallGuard callGuard) {
+        this.callGuard = callGuard;
+    }
+
+    /**
+     * 获取调用保护
+     *
+     * @return 调用保护，未设置时返回null
+     */
+    public CacheCallGuard getCallGuard() {
+        return callGuard;
+    }
+
     @Override
     public V get(K key) {
+        return read(key, this::doGet);
+    }
+
+    @Override
+    public CacheValue<V> getWithTtl(K key) {
+        return read(key, this::doGetWithTtl);
+    }
+
+    /**
+     * 在调用保护下读取缓存，记录命中统计，读取失败时返回null
+     *
+     * @param key    缓存键
+     * @param reader 实际的读取方法
+     * @param <T>    读取结果类型
+     * @return 读取结果
+     */
+    private <T> T read(K key, Function<K, T> reader) {
         if (key == null) {
             return null;
         }
 
+        CacheCallGuard guard = callGuard;
+        if (!acquire(guard)) {
+            stats.recordMiss();
+            return null;
+        }
+        long start = System.nanoTime();
         try {
-            V value = doGet(key);
+            T value = reader.apply(key);
+            onCallSuccess(guard, start);
             if (value != null) {
                 stats.recordHit();
             } else {
                 stats.recordMiss();
             }
             return value;
+        } catch (CacheRejectedException e) {
+            // 下一级缓存拒绝了调用，原样抛出，由调用方决定降级方式
+            onCallIgnored(guard);
+            throw e;
         } catch (Exception e) {
+            onCallFailure(guard, start);
             stats.recordMiss();
             handleException("获取缓存值异常", e, key);
             return null;
@@ -53,15 +148,7 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 
     @Override
     public void put(K key, V value) {
-        if (key == null) {
-            return;
-        }
-
-        try {
-            doPut(key, value, null);
-        } catch (Exception e) {
-            handleException("存储缓存值异常", e, key);
-        }
+        put(key, value, null);
     }
 
     @Override
@@ -70,9 +157,20 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
             return;
         }
 
+        CacheCallGuard guard = callGuard;
+        if (!acquire(guard)) {
+            return;
+        }
+        long start = System.nanoTime();
         try {
             doPut(key, value, ttl);
+            onCallSuccess(guard, start);
+        } catch (CacheRejectedException e) {
+            // 下一级缓存拒绝了调用，原样抛出，由调用方决定降级方式
+            onCallIgnored(guard);
+            throw e;
         } catch (Exception e) {
+            onCallFailure(guard, start);
             handleException("存储缓存值异常", e, key);
         }
     }
@@ -83,9 +181,20 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
             return;
         }
 
+        CacheCallGuard guard = callGuard;
+        if (!acquire(guard)) {
+            return;
+        }
+        long start = System.nanoTime();
         try {
             doPutAll(map);
+            onCallSuccess(guard, start);
+        } catch (CacheRejectedException e) {
+            // 下一级缓存拒绝了调用，原样抛出，由调用方决定降级方式
+            onCallIgnored(guard);
+            throw e;
         } catch (Exception e) {
+            onCallFailure(guard, start);
             handleException("批量存储缓存值异常", e, null);
         }
     }
@@ -106,11 +215,15 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
             return value;
         }
 
+        CacheCallGuard guard = callGuard;
+        boolean permitted = acquire(guard);
+        LoadPermit permit = new LoadPermit(permitted ? guard : null);
         try {
             stats.recordLoadStart();
             long startTime = System.currentTimeMillis();
 
-            value = doComputeIfAbsent(key, loader, ttl);
+            // 调用被拒绝时直接加载，不访问缓存；加载函数开始执行时归还许可，慢加载不占用缓存的并发额度
+            value = permitted ? doComputeIfAbsent(key, permit.around(loader), ttl) : loader.apply(key);
 
             if (value != null) {
                 stats.recordLoadSuccess(System.currentTimeMillis() - startTime);
@@ -119,10 +232,16 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
             }
 
             return value;
+        } catch (CacheRejectedException e) {
+            stats.recordLoadFailure();
+            throw e;
         } catch (Exception e) {
             stats.recordLoadFailure();
             handleException("加载缓存值异常", e, key);
             throw new CacheException("加载缓存值异常", e);
+        } finally {
+            // 失败可能来自加载函数，不计入调用保护的统计
+            permit.release();
         }
     }
 
@@ -132,9 +251,22 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
             return false;
         }
 
+        CacheCallGuard guard = callGuard;
+        if (!acquire(guard)) {
+            deferInvalidation(key);
+            return false;
+        }
+        long start = System.nanoTime();
         try {
-            return doRemove(key);
+            boolean removed = doRemove(key);
+            onCallSuccess(guard, start);
+            return removed;
+        } catch (CacheRejectedException e) {
+            // 下一级缓存拒绝了调用，原样抛出，由调用方决定降级方式
+            onCallIgnored(guard);
+            throw e;
         } catch (Exception e) {
+            onCallFailure(guard, start);
             handleException("移除缓存值异常", e, key);
             return false;
         }
@@ -142,9 +274,21 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 
     @Override
     public void clear() {
+        CacheCallGuard guard = callGuard;
+        if (!acquire(guard)) {
+            pendingClear = true;
+            return;
+        }
+        long start = System.nanoTime();
         try {
             doClear();
+            onCallSuccess(guard, start);
+        } catch (CacheRejectedException e) {
+            // 下一级缓存拒绝了调用，原样抛出，由调用方决定降级方式
+            onCallIgnored(guard);
+            throw e;
         } catch (Exception e) {
+            onCallFailure(guard, start);
             handleException("清空缓存异常", e, null);
         }
     }
@@ -159,6 +303,274 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
         return stats;
     }
 
+    @Override
+    public AsyncCache<K, V> async() {
+        return this;
+    }
+
+    @Override
+    public Cache<K, V> sync() {
+        return this;
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        if (key == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CacheCallGuard guard = callGuard;
+        boolean permitted;
+        try {
+            permitted = acquire(guard);
+        } catch (CacheRejectedException e) {
+            return CacheFutures.failed(e);
+        }
+        if (!permitted) {
+            stats.recordMiss();
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        return CacheFutures.invoke(() -> doGetAsync(key)).handle((value, error) -> {
+            onCallComplete(guard, start, error);
+            rethrowIfRejected(error);
+            if (error != null) {
+                stats.recordMiss();
+                handleException("获取缓存值异常", CacheFutures.toException(error), key);
+                return null;
+            }
+            if (value != null) {
+                stats.recordHit();
+            } else {
+                stats.recordMiss();
+            }
+            return value;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+
+        CacheCallGuard guard = callGuard;
+        boolean permitted;
+        try {
+            permitted = acquire(guard);
+        } catch (CacheRejectedException e) {
+            return CacheFutures.failed(e);
+        }
+        if (!permitted) {
+            for (int i = 0; i < keys.size(); i++) {
+                stats.recordMiss();
+            }
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        long start = System.nanoTime();
+        return CacheFutures.invoke(() -> doGetAllAsync(keys)).handle((values, error) -> {
+            onCallComplete(guard, start, error);
+            rethrowIfRejected(error);
+            if (error != null) {
+                for (int i = 0; i < keys.size(); i++) {
+                    stats.recordMiss();
+                }
+                handleException("批量获取缓存值异常", CacheFutures.toException(error), null);
+                return Collections.emptyMap();
+            }
+            for (K key : keys) {
+                if (key != null && values.containsKey(key)) {
+                    stats.recordHit();
+                } else {
+                    stats.recordMiss();
+                }
+            }
+            return values;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(K key, V value) {
+        return putAsync(key, value, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(K key, V value, Duration ttl) {
+        if (key == null) {
+            return CacheFutures.completedVoid();
+        }
+
+        CacheCallGuard guard = callGuard;
+        boolean permitted;
+        try {
+            permitted = acquire(guard);
+        } catch (CacheRejectedException e) {
+            return CacheFutures.failed(e);
+        }
+        if (!permitted) {
+            return CacheFutures.completedVoid();
+        }
+        long start = System.nanoTime();
+        return CacheFutures.invoke(() -> doPutAsync(key, value, ttl)).handle((result, error) -> {
+            onCallComplete(guard, start, error);
+            rethrowIfRejected(error);
+            if (error != null) {
+                handleException("存储缓存值异常", CacheFutures.toException(error), key);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<V> computeIfAbsentAsync(K key, Function<K, CompletableFuture<V>> loader, Duration ttl) {
+        if (key == null || loader == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return getAsync(key).thenCompose(value -> value != null
+                ? CompletableFuture.completedFuture(value)
+                : loadAsync(key, loader, ttl));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> removeAsync(K key) {
+        if (key == null) {
+            return CacheFutures.completedBoolean(false);
+        }
+
+        CacheCallGuard guard = callGuard;
+        boolean permitted;
+        try {
+            permitted = acquire(guard);
+        } catch (CacheRejectedException e) {
+            return CacheFutures.failed(e);
+        }
+        if (!permitted) {
+            deferInvalidation(key);
+            return CacheFutures.completedBoolean(false);
+        }
+        long start = System.nanoTime();
+        return CacheFutures.invoke(() -> doRemoveAsync(key)).handle((removed, error) -> {
+            onCallComplete(guard, start, error);
+            rethrowIfRejected(error);
+            if (error != null) {
+                handleException("移除缓存值异常", CacheFutures.toException(error), key);
+                return false;
+            }
+            return Boolean.TRUE.equals(removed);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> writeAsync(K key, V value, Duration ttl) {
+        if (key == null) {
+            return CacheFutures.completedVoid();
+        }
+
+        CacheCallGuard guard = callGuard;
+        boolean permitted;
+        try {
+            permitted = acquire(guard);
+        } catch (CacheRejectedException e) {
+            return CacheFutures.failed(e);
+        }
+        if (!permitted) {
+            return CacheFutures.failed(new CacheRejectedException("缓存调用被拒绝: " + name));
+        }
+        long start = System.nanoTime();
+        CompletableFuture<?> write = value == null
+                ? CacheFutures.invoke(() -> doRemoveAsync(key))
+                : CacheFutures.invoke(() -> doPutAsync(key, value, ttl));
+        return write.handle((result, error) -> {
+            onCallComplete(guard, start, error);
+            if (error != null) {
+                Exception cause = CacheFutures.toException(error);
+                if (!(cause instanceof CacheRejectedException)) {
+                    handleException("写入缓存值异常", cause, key);
+                }
+                throw new CompletionException(cause);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 批量写入键值对，在调用线程上执行{@link #doPutAll(Map)}，写入失败时返回的Future以异常结束
+     *
+     * @param map 要缓存的键值对
+     * @return 已完成的Future
+     */
+    @Override
+    public CompletableFuture<Void> writeAllAsync(Map<? extends K, ? extends V> map) {
+        if (map == null || map.isEmpty()) {
+            return CacheFutures.completedVoid();
+        }
+
+        CacheCallGuard guard = callGuard;
+        boolean permitted;
+        try {
+            permitted = acquire(guard);
+        } catch (CacheRejectedException e) {
+            return CacheFutures.failed(e);
+        }
+        if (!permitted) {
+            return CacheFutures.failed(new CacheRejectedException("缓存调用被拒绝: " + name));
+        }
+        long start = System.nanoTime();
+        try {
+            doPutAll(map);
+            onCallSuccess(guard, start);
+            return CacheFutures.completedVoid();
+        } catch (CacheRejectedException e) {
+            onCallIgnored(guard);
+            return CacheFutures.failed(e);
+        } catch (Exception e) {
+            onCallFailure(guard, start);
+            handleException("批量存储缓存值异常", e, null);
+            return CacheFutures.failed(e);
+        }
+    }
+
+    /**
+     * 异步加载并缓存值，同一个键只有第一个调用方执行加载
+     *
+     * @param key    缓存键
+     * @param loader 异步值加载器
+     * @param ttl    过期时间
+     * @return 加载的值
+     */
+    private CompletableFuture<V> loadAsync(K key, Function<K, CompletableFuture<V>> loader, Duration ttl) {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        CompletableFuture<V> pending = pendingLoads.putIfAbsent(key, result);
+        if (pending != null) {
+            return pending;
+        }
+
+        stats.recordLoadStart();
+        long startTime = System.currentTimeMillis();
+        CacheFutures.invoke(() -> loader.apply(key))
+                .thenCompose(value -> value == null
+                        ? CompletableFuture.<V>completedFuture(null)
+                        : putAsync(key, value, ttl).thenApply(ignored -> value))
+                .whenComplete((value, error) -> {
+                    pendingLoads.remove(key, result);
+                    if (error != null) {
+                        stats.recordLoadFailure();
+                        Exception cause = CacheFutures.toException(error);
+                        handleException("加载缓存值异常", cause, key);
+                        result.completeExceptionally(new CacheException("加载缓存值异常", cause));
+                        return;
+                    }
+                    if (value != null) {
+                        stats.recordLoadSuccess(System.currentTimeMillis() - startTime);
+                    } else {
+                        stats.recordLoadFailure();
+                    }
+                    result.complete(value);
+                });
+        return result;
+    }
+
     /**
      * 处理异常
      *
@@ -167,13 +579,162 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
      * @param key     相关的键
      */
     protected void handleException(String message, Exception e, K key) {
+        stats.recordError();
+        // 远程缓存故障时每次调用都会失败，同一类错误在一个间隔内只记录一次完整堆栈
+        long suppressed = errorLogLimiter.tryLog(message);
+        if (suppressed < 0) {
+            return;
+        }
         if (key != null) {
-            log.error("{}, cacheName={}, key={}", message, name, key, e);
+            log.error("{}, cacheName={}, key={}, suppressed={}", message, name, key, suppressed, e);
         } else {
-            log.error("{}, cacheName={}", message, name, e);
+            log.error("{}, cacheName={}, suppressed={}", message, name, suppressed, e);
         }
     }
 
+    /**
+     * 获取调用许可，被拒绝时计入统计
+     *
+     * @throws CacheRejectedException 拒绝调用且配置为快速失败时抛出
+     */
+    private boolean acquire(CacheCallGuard guard) {
+        try {
+            if (guard == null || guard.tryAcquire()) {
+                return true;
+            }
+        } catch (CacheRejectedException e) {
+            stats.recordRejection();
+            throw e;
+        }
+        stats.recordRejection();
+        return false;
+    }
+
+    private void onCallSuccess(CacheCallGuard guard, long start) {
+        if (guard != null) {
+            guard.onSuccess(System.nanoTime() - start);
+            if ((pendingClear || !pendingInvalidations.isEmpty()) && isRecovered(guard)) {
+                scheduleReplay();
+            }
+        }
+    }
+
+    private void onCallFailure(CacheCallGuard guard, long start) {
+        if (guard != null) {
+            guard.onFailure(System.nanoTime() - start);
+        }
+    }
+
+    private void onCallIgnored(CacheCallGuard guard) {
+        if (guard != null) {
+            guard.onIgnored();
+        }
+    }
+
+    private void onCallComplete(CacheCallGuard guard, long start, Throwable error) {
+        if (error == null) {
+            onCallSuccess(guard, start);
+        } else if (CacheFutures.unwrap(error) instanceof CacheRejectedException) {
+            onCallIgnored(guard);
+        } else {
+            onCallFailure(guard, start);
+        }
+    }
+
+    /**
+     * 下一级缓存拒绝了调用时原样抛出，不作为普通异常吞掉
+     */
+    private static void rethrowIfRejected(Throwable error) {
+        Throwable cause = error != null ? CacheFutures.unwrap(error) : null;
+        if (cause instanceof CacheRejectedException) {
+            throw (CacheRejectedException) cause;
+        }
+    }
+
+    /**
+     * 暂存被拒绝的删除操作，避免恢复后读到已删除的旧值
+     */
+    private void deferInvalidation(K key) {
+        if (pendingInvalidations.size() >= MAX_PENDING_INVALIDATIONS) {
+            pendingClear = true;
+            pendingInvalidations.clear();
+        } else {
+            pendingInvalidations.add(key);
+        }
+    }
+
+    /**
+     * 判断调用保护是否已经恢复，有熔断器时等熔断器关闭后再补发，半开探测期间不补发
+     */
+    private static boolean isRecovered(CacheCallGuard guard) {
+        CircuitBreaker breaker = guard.unwrap(CircuitBreaker.class);
+        return breaker == null || breaker.getState() == CircuitBreaker.State.CLOSED;
+    }
+
+    /**
+     * 在后台线程补发暂存的删除操作，调用成功的线程可能是请求线程或异步IO的事件循环线程，不能在上面执行大量阻塞调用
+     */
+    private void scheduleReplay() {
+        if (!replaying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ReplayExecutorHolder.EXECUTOR.execute(this::replayInvalidations);
+        } catch (RejectedExecutionException e) {
+            replaying.set(false);
+        }
+    }
+
+    /**
+     * 补发暂存的删除操作，失败时保留剩余的操作等待下一次补发
+     */
+    private void replayInvalidations() {
+        try {
+            // 先取走暂存的操作再调用，补发期间新暂存的操作保留到下一次补发，调用失败时放回
+            if (pendingClear) {
+                pendingClear = false;
+                pendingInvalidations.clear();
+                try {
+                    doClear();
+                } catch (RuntimeException e) {
+                    pendingClear = true;
+                    throw e;
+                }
+                log.info("补发暂存的清空操作, cacheName={}", name);
+                return;
+            }
+            int replayed = 0;
+            for (K key : pendingInvalidations) {
+                if (!pendingInvalidations.remove(key)) {
+                    continue;
+                }
+                try {
+                    doRemove(key);
+                } catch (RuntimeException e) {
+                    deferInvalidation(key);
+                    throw e;
+                }
+                replayed++;
+            }
+            log.info("补发暂存的删除操作, cacheName={}, count={}", name, replayed);
+        } catch (Exception e) {
+            handleException("补发删除操作异常", e, null);
+        } finally {
+            replaying.set(false);
+        }
+    }
+
+    /**
+     * 补发删除操作的后台线程，所有缓存共用，每个缓存同时最多有一个补发任务
+     */
+    private static final class ReplayExecutorHolder {
+        private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "cyx-cache-invalidation-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     /**
      * 实际获取缓存值的实现
      *
@@ -182,6 +743,16 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
      */
     protected abstract V doGet(K key);
 
+    /**
+     * 实际获取缓存值及剩余过期时间的实现，默认调用{@link #doGet(Object)}，剩余过期时间为null
+     *
+     * @param key 缓存键
+     * @return 缓存值及剩余过期时间
+     */
+    protected CacheValue<V> doGetWithTtl(K key) {
+        return CacheValue.of(doGet(key), null);
+    }
+
     /**
      * 实际存储缓存值的实现
      *
@@ -220,4 +791,88 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
      * 实际清空缓存的实现
      */
     protected abstract void doClear();
-}
\ No newline at end of file
+
+    /**
+     * 异步获取缓存值的实现，默认在调用线程上执行{@link #doGet(Object)}
+     *
+     * @param key 缓存键
+     * @return 缓存值
+     */
+    protected CompletableFuture<V> doGetAsync(K key) {
+        return CompletableFuture.completedFuture(doGet(key));
+    }
+
+    /**
+     * 异步批量获取缓存值的实现，默认逐个调用{@link #doGetAsync(Object)}后合并结果
+     *
+     * @param keys 缓存键
+     * @return 存在的键值对
+     */
+    protected CompletableFuture<Map<K, V>> doGetAllAsync(Collection<? extends K> keys) {
+        Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        for (K key : keys) {
+            if (key != null && !futures.containsKey(key)) {
+                futures.put(key, doGetAsync(key));
+            }
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<K, V> values = new HashMap<>();
+            for (Map.Entry<K, CompletableFuture<V>> entry : futures.entrySet()) {
+                V value = entry.getValue().join();
+                if (value != null) {
+                    values.put(entry.getKey(), value);
+                }
+            }
+            return values;
+        });
+    }
+
+    /**
+     * 异步存储缓存值的实现，默认在调用线程上执行{@link #doPut(Object, Object, Duration)}
+     *
+     * @param key   缓存键
+     * @param value 缓存值
+     * @param ttl   过期时间
+     * @return 写入完成时结束的Future
+     */
+    protected CompletableFuture<Void> doPutAsync(K key, V value, Duration ttl) {
+        doPut(key, value, ttl);
+        return CacheFutures.completedVoid();
+    }
+
+    /**
+     * 异步移除缓存值的实现，默认在调用线程上执行{@link #doRemove(Object)}
+     *
+     * @param key 缓存键
+     * @return 是否成功移除
+     */
+    protected CompletableFuture<Boolean> doRemoveAsync(K key) {
+        return CacheFutures.completedBoolean(doRemove(key));
+    }
+
+    /**
+     * computeIfAbsent持有的调用许可，加载函数开始执行时归还，加载后的回填不再占用许可
+     */
+    private static final class LoadPermit {
+        private final AtomicReference<CacheCallGuard> guard;
+
+        private LoadPermit(CacheCallGuard guard) {
+            this.guard = new AtomicReference<>(guard);
+        }
+
+        private <K, V> Function<K, V> around(Function<K, V> loader) {
+            return key -> {
+                release();
+                return loader.apply(key);
+            };
+        }
+
+        private void release() {
+            CacheCallGuard held = guard.getAndSet(null);
+            if (held != null) {
+                held.onIgnored();
+            }
+        }
+    }
+}
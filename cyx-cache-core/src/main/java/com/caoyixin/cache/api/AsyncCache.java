@@ -0,0 +1,119 @@
+package com.caoyixin.cache.api;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 异步缓存接口，所有操作返回{@link CompletableFuture}，不阻塞调用线程
+ * <p>
+ * 本地缓存的结果在调用时已经完成；远程缓存使用客户端的异步接口，结果在IO线程上完成，
+ * 后续的非异步回调会在IO线程上执行，耗时操作应当切换到自己的线程池
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public interface AsyncCache<K, V> {
+
+    /**
+     * 异步获取缓存值
+     *
+     * @param key 缓存键
+     * @return 缓存值，不存在时结果为null
+     */
+    CompletableFuture<V> getAsync(K key);
+
+    /**
+     * 异步批量获取缓存值
+     *
+     * @param keys 缓存键
+     * @return 存在的键值对，不包含未命中的键
+     */
+    CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys);
+
+    /**
+     * 异步将键值对放入缓存
+     *
+     * @param key   缓存键
+     * @param value 缓存值
+     * @return 写入完成时结束的Future
+     */
+    CompletableFuture<Void> putAsync(K key, V value);
+
+    /**
+     * 异步将键值对放入缓存，并设置过期时间
+     *
+     * @param key   缓存键
+     * @param value 缓存值
+     * @param ttl   过期时间
+     * @return 写入完成时结束的Future
+     */
+    CompletableFuture<Void> putAsync(K key, V value, Duration ttl);
+
+    /**
+     * 如果缓存中不存在该键，则通过异步loader加载值并缓存，同一个键的并发加载只执行一次
+     *
+     * @param key    缓存键
+     * @param loader 异步值加载器
+     * @param ttl    过期时间
+     * @return 缓存中的值或新加载的值
+     */
+    CompletableFuture<V> computeIfAbsentAsync(K key, Function<K, CompletableFuture<V>> loader, Duration ttl);
+
+    /**
+     * 异步从缓存中移除指定键的值
+     *
+     * @param key 要移除的键
+     * @return 值存在并被移除时结果为true
+     */
+    CompletableFuture<Boolean> removeAsync(K key);
+
+    /**
+     * 异步写入或删除缓存值，与putAsync和removeAsync不同，写入失败或调用被拒绝时返回的Future以异常结束，
+     * 用于后台写入根据结果决定是否重试
+     * <p>
+     * 默认调用putAsync或removeAsync，会吞掉写入异常的实现覆盖此方法
+     *
+     * @param key   缓存键
+     * @param value 缓存值，为null表示删除
+     * @param ttl   过期时间
+     * @return 写入完成时结束的Future
+     */
+    default CompletableFuture<Void> writeAsync(K key, V value, Duration ttl) {
+        if (value == null) {
+            return removeAsync(key).thenApply(removed -> null);
+        }
+        return putAsync(key, value, ttl);
+    }
+
+    /**
+     * 异步批量写入未指定过期时间的键值对，写入失败或调用被拒绝时返回的Future以异常结束
+     * <p>
+     * 默认逐个调用{@link #writeAsync(Object, Object, Duration)}
+     *
+     * @param map 要缓存的键值对
+     * @return 全部写入完成时结束的Future
+     */
+    default CompletableFuture<Void> writeAllAsync(Map<? extends K, ? extends V> map) {
+        CompletableFuture<?>[] futures = map.entrySet().stream()
+                .map(entry -> writeAsync(entry.getKey(), entry.getValue(), null))
+                .toArray(CompletableFuture<?>[]::new);
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * 获取缓存名称
+     *
+     * @return 缓存名称
+     */
+    String getName();
+
+    /**
+     * 获取对应的同步缓存
+     *
+     * @return 同步缓存
+     */
+    Cache<K, V> sync();
+}
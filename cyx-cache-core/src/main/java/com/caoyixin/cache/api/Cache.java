@@ -19,6 +19,18 @@ public interface Cache<K, V> {
      */
     V get(K key);
 
+    /**
+     * 获取缓存值及其剩余过期时间和写入版本号，多级缓存从下一级缓存回填时用于计算本地缓存的过期时间和丢弃旧值
+     * <p>
+     * 默认调用{@link #get(Object)}，剩余过期时间为null、没有版本号，能在同一次请求中取得这些信息的实现会覆盖此方法
+     *
+     * @param key 缓存键
+     * @return 缓存值及剩余过期时间，如果不存在返回null
+     */
+    default CacheValue<V> getWithTtl(K key) {
+        return CacheValue.of(get(key), null);
+    }
+
     /**
      * 将键值对放入缓存
      *
@@ -88,4 +100,15 @@ public interface Cache<K, V> {
      * @return 缓存统计信息
      */
     CacheStats stats();
+
+    /**
+     * 获取缓存的异步视图
+     * <p>
+     * 默认在调用线程上执行同步操作并返回已完成的Future，支持异步IO的实现会覆盖此方法
+     *
+     * @return 异步缓存
+     */
+    default AsyncCache<K, V> async() {
+        return new SyncCacheAsyncView<>(this);
+    }
 }
\ No newline at end of file
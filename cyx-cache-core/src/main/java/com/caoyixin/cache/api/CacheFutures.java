@@ -0,0 +1,111 @@
+package com.caoyixin.cache.api;
+
+import com.caoyixin.cache.exception.CacheException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 异步缓存操作使用的Future工具方法
+ */
+public final class CacheFutures {
+
+    private static final CompletableFuture<Void> COMPLETED_VOID = CompletableFuture.completedFuture(null);
+    private static final CompletableFuture<Boolean> COMPLETED_TRUE = CompletableFuture.completedFuture(true);
+    private static final CompletableFuture<Boolean> COMPLETED_FALSE = CompletableFuture.completedFuture(false);
+
+    private CacheFutures() {
+    }
+
+    /**
+     * 获取已完成的空结果，返回共享实例，调用方不能再完成它
+     *
+     * @return 已完成的Future
+     */
+    public static CompletableFuture<Void> completedVoid() {
+        return COMPLETED_VOID;
+    }
+
+    /**
+     * 获取已完成的布尔结果，返回共享实例，调用方不能再完成它
+     *
+     * @param value 结果
+     * @return 已完成的Future
+     */
+    public static CompletableFuture<Boolean> completedBoolean(boolean value) {
+        return value ? COMPLETED_TRUE : COMPLETED_FALSE;
+    }
+
+    /**
+     * 创建以异常结束的Future
+     *
+     * @param error 异常
+     * @param <T>   结果类型
+     * @return 以异常结束的Future
+     */
+    public static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    /**
+     * 调用返回Future的操作，操作同步抛出的异常转换为以异常结束的Future，返回null时视为null结果
+     *
+     * @param action 异步操作
+     * @param <T>    结果类型
+     * @return 操作返回的Future
+     */
+    public static <T> CompletableFuture<T> invoke(Supplier<CompletableFuture<T>> action) {
+        try {
+            CompletableFuture<T> future = action.get();
+            return future != null ? future : CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            return failed(e);
+        }
+    }
+
+    /**
+     * 同步等待结果，抛出去掉包装的原始异常
+     *
+     * @param future 异步结果
+     * @param <T>    结果类型
+     * @return 结果
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new CacheException(cause);
+        }
+    }
+
+    /**
+     * 去掉CompletableFuture包装的异常
+     *
+     * @param error 异步回调收到的异常
+     * @return 原始异常
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * 将异步回调收到的异常转换为可以记录和抛出的异常
+     *
+     * @param error 异步回调收到的异常
+     * @return 原始异常，不是Exception时包装为缓存异常
+     */
+    public static Exception toException(Throwable error) {
+        Throwable cause = unwrap(error);
+        return cause instanceof Exception ? (Exception) cause : new CacheException(cause);
+    }
+}
@@ -18,6 +18,19 @@ public interface CacheManager {
      */
     <K, V> Cache<K, V> getCache(String name);
 
+    /**
+     * 获取指定名称缓存的异步视图
+     *
+     * @param name 缓存名称
+     * @param <K>  键类型
+     * @param <V>  值类型
+     * @return 异步缓存，如果缓存不存在则返回null
+     */
+    default <K, V> AsyncCache<K, V> getAsyncCache(String name) {
+        Cache<K, V> cache = getCache(name);
+        return cache != null ? cache.async() : null;
+    }
+
     /**
      * 创建缓存
      *
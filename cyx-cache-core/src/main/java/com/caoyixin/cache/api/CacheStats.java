@@ -20,6 +20,8 @@ public class CacheStats {
     private final LongAdder loadFailures = new LongAdder();
     private final LongAdder totalLoadTime = new LongAdder();
     private final LongAdder evictions = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
     private final AtomicLong size = new AtomicLong();
 
     /**
@@ -76,6 +78,20 @@ public class CacheStats {
         evictions.increment();
     }
 
+    /**
+     * 记录访问缓存出现异常
+     */
+    public void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * 记录调用被拒绝(如熔断器打开)，未访问缓存
+     */
+    public void recordRejection() {
+        rejections.increment();
+    }
+
     /**
      * 更新缓存大小
      *
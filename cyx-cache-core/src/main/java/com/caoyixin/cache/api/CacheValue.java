@@ -0,0 +1,62 @@
+package com.caoyixin.cache.api;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * 缓存值及其剩余过期时间和写入版本号
+ *
+ * @param <V> 值类型
+ */
+@Getter
+@ToString
+public final class CacheValue<V> {
+
+    /**
+     * 缓存值，不为null
+     */
+    private final V value;
+
+    /**
+     * 剩余过期时间，为null表示没有过期时间或缓存无法提供
+     */
+    private final Duration ttl;
+
+    /**
+     * 写入时的版本号，为0表示没有版本号
+     */
+    private final long version;
+
+    private CacheValue(V value, Duration ttl, long version) {
+        this.value = value;
+        this.ttl = ttl;
+        this.version = version;
+    }
+
+    /**
+     * 创建缓存值
+     *
+     * @param value 缓存值
+     * @param ttl   剩余过期时间，为null表示没有过期时间
+     * @param <V>   值类型
+     * @return 缓存值，value为null时返回null
+     */
+    public static <V> CacheValue<V> of(V value, Duration ttl) {
+        return of(value, ttl, 0);
+    }
+
+    /**
+     * 创建带版本号的缓存值
+     *
+     * @param value   缓存值
+     * @param ttl     剩余过期时间，为null表示没有过期时间
+     * @param version 写入时的版本号，为0表示没有版本号
+     * @param <V>     值类型
+     * @return 缓存值，value为null时返回null
+     */
+    public static <V> CacheValue<V> of(V value, Duration ttl, long version) {
+        return value != null ? new CacheValue<>(value, ttl, version) : null;
+    }
+}
@@ -1,11 +1,15 @@
 package com.caoyixin.cache.api;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 import com.caoyixin.cache.notification.CacheEvent;
+import com.caoyixin.cache.notification.CacheNotifier;
 
 /**
  * 缓存一致性策略接口
@@ -23,6 +27,26 @@ public interface ConsistencyStrategy<K, V> {
      */
     void initialize(List<Cache<K, V>> caches);
 
+    /**
+     * 绑定所属的多级缓存，在{@link #initialize(List)}之后调用
+     *
+     * @param cacheName 多级缓存名称
+     * @param notifier  缓存通知器，可能为null
+     */
+    default void bind(String cacheName, CacheNotifier notifier) {
+    }
+
+    /**
+     * 写入的通知是否由策略自行发送
+     * <p>
+     * 返回false时由多级缓存在每次写入后发送通知；异步写入远程缓存的策略需要在远程缓存写入后再通知其他节点，应返回true
+     *
+     * @return 是否由策略发送通知
+     */
+    default boolean handlesWriteNotification() {
+        return false;
+    }
+
     /**
      * 获取缓存值
      *
@@ -70,6 +94,60 @@ public interface ConsistencyStrategy<K, V> {
      */
     void clear();
 
+    /**
+     * 异步获取缓存值，默认在调用线程上执行{@link #get(Object)}
+     *
+     * @param key 缓存键
+     * @return 缓存值
+     */
+    default CompletableFuture<V> getAsync(K key) {
+        return CacheFutures.invoke(() -> CompletableFuture.completedFuture(get(key)));
+    }
+
+    /**
+     * 异步批量获取缓存值，默认在调用线程上逐个执行{@link #get(Object)}
+     *
+     * @param keys 缓存键
+     * @return 存在的键值对
+     */
+    default CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys) {
+        return CacheFutures.invoke(() -> {
+            Map<K, V> values = new HashMap<>();
+            for (K key : keys) {
+                V value = get(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+            return CompletableFuture.completedFuture(values);
+        });
+    }
+
+    /**
+     * 异步存储缓存值，默认在调用线程上执行{@link #put(Object, Object, Duration)}
+     *
+     * @param key   缓存键
+     * @param value 缓存值
+     * @param ttl   过期时间
+     * @return 写入完成时结束的Future
+     */
+    default CompletableFuture<Void> putAsync(K key, V value, Duration ttl) {
+        return CacheFutures.invoke(() -> {
+            put(key, value, ttl);
+            return CacheFutures.completedVoid();
+        });
+    }
+
+    /**
+     * 异步从缓存中移除值，默认在调用线程上执行{@link #remove(Object)}
+     *
+     * @param key 缓存键
+     * @return 是否成功移除
+     */
+    default CompletableFuture<Boolean> removeAsync(K key) {
+        return CacheFutures.invoke(() -> CacheFutures.completedBoolean(remove(key)));
+    }
+
     /**
      * 处理缓存更新事件
      *
@@ -77,6 +155,12 @@ public interface ConsistencyStrategy<K, V> {
      */
     void handleCacheUpdate(CacheEvent event);
 
+    /**
+     * 关闭策略，释放后台线程等资源，尚未写入远程缓存的数据应在此时写入
+     */
+    default void close() {
+    }
+
     /**
      * 获取策略名称
      * 
@@ -9,14 +9,30 @@ import java.time.Duration;
  */
 public interface DistributedLock<K> {
     /**
-     * 尝试获取分布式锁
+     * 尝试获取分布式锁，在等待时间内锁被释放时获取
+     * <p>
+     * 锁的租期由实现决定，持有期间自动续期，释放前不会因为加载耗时过长而过期
      *
      * @param key     锁的键
-     * @param timeout 超时时间
+     * @param timeout 最长等待时间，为null或0时只尝试一次
      * @return 获取成功返回true，否则返回false
      */
     boolean tryLock(K key, Duration timeout);
 
+    /**
+     * 尝试获取指定租期的分布式锁，到期后锁自动释放，不续期
+     * <p>
+     * 默认忽略租期，实现支持时覆盖此方法
+     *
+     * @param key       锁的键
+     * @param waitTime  最长等待时间，为null或0时只尝试一次
+     * @param leaseTime 租期
+     * @return 获取成功返回true，否则返回false
+     */
+    default boolean tryLock(K key, Duration waitTime, Duration leaseTime) {
+        return tryLock(key, waitTime);
+    }
+
     /**
      * 释放分布式锁
      *
@@ -28,7 +44,7 @@ public interface DistributedLock<K> {
      * 尝试获取锁并执行操作
      *
      * @param key     锁的键
-     * @param timeout 超时时间
+     * @param timeout 最长等待时间
      * @param action  要执行的操作
      * @return 获取锁并执行成功返回true，否则返回false
      */
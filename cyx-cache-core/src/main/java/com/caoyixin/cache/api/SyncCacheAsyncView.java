@@ -0,0 +1,101 @@
+package com.caoyixin.cache.api;
+
+import com.caoyixin.cache.exception.CacheException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 同步缓存的异步视图，在调用线程上执行同步操作并返回已完成的Future
+ * <p>
+ * 用于本地缓存等不涉及IO的实现，命中时不经过任何线程池
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+final class SyncCacheAsyncView<K, V> implements AsyncCache<K, V> {
+
+    private final Cache<K, V> cache;
+
+    SyncCacheAsyncView(Cache<K, V> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        return CacheFutures.invoke(() -> CompletableFuture.completedFuture(cache.get(key)));
+    }
+
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys) {
+        return CacheFutures.invoke(() -> {
+            Map<K, V> result = new HashMap<>();
+            if (keys != null) {
+                for (K key : keys) {
+                    V value = cache.get(key);
+                    if (value != null) {
+                        result.put(key, value);
+                    }
+                }
+            }
+            return CompletableFuture.completedFuture(result);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(K key, V value) {
+        return putAsync(key, value, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(K key, V value, Duration ttl) {
+        return CacheFutures.invoke(() -> {
+            cache.put(key, value, ttl);
+            return CacheFutures.completedVoid();
+        });
+    }
+
+    @Override
+    public CompletableFuture<V> computeIfAbsentAsync(K key, Function<K, CompletableFuture<V>> loader, Duration ttl) {
+        if (key == null || loader == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        V value = cache.get(key);
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+
+        CompletableFuture<V> result = new CompletableFuture<>();
+        CacheFutures.invoke(() -> loader.apply(key)).whenComplete((loaded, error) -> {
+            if (error != null) {
+                result.completeExceptionally(new CacheException("加载缓存值异常", CacheFutures.unwrap(error)));
+                return;
+            }
+            if (loaded != null) {
+                cache.put(key, loaded, ttl);
+            }
+            result.complete(loaded);
+        });
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> removeAsync(K key) {
+        return CacheFutures.invoke(() -> CacheFutures.completedBoolean(cache.remove(key)));
+    }
+
+    @Override
+    public String getName() {
+        return cache.getName();
+    }
+
+    @Override
+    public Cache<K, V> sync() {
+        return cache;
+    }
+}
@@ -0,0 +1,28 @@
+package com.caoyixin.cache.config;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 写同步策略异步写入远程缓存的配置
+ */
+@Data
+@Builder
+public class AsyncWriteConfig {
+    /**
+     * 写入队列数量，同一个键总是进入同一个队列，按写入顺序写入远程缓存。
+     * 队列共用所有缓存的后台线程，队列数量是本缓存同时写入远程缓存的最大并发数，不是线程数量
+     */
+    @Builder.Default
+    private int lanes = 4;
+    /**
+     * 每个队列的最大长度，队列已满时写入方等待
+     */
+    @Builder.Default
+    private int queueCapacity = 10000;
+    /**
+     * 每次从队列取出合并写入远程缓存的最大数量
+     */
+    @Builder.Default
+    private int batchSize = 64;
+}
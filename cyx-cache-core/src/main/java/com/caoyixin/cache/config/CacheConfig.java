@@ -2,9 +2,12 @@ package com.caoyixin.cache.config;
 
 import com.caoyixin.cache.api.CacheType;
 import com.caoyixin.cache.enums.ConsistencyType;
+import com.caoyixin.cache.enums.EvictionPolicy;
+import com.caoyixin.cache.enums.LeaseFallback;
 import lombok.Builder;
 import lombok.Data;
 
+import java.lang.reflect.Type;
 import java.time.Duration;
 
 /**
@@ -33,6 +36,11 @@ public class CacheConfig {
      * 本地缓存最大容量
      */
     private int localLimit = 200;
+    /**
+     * 本地缓存淘汰策略，用于long键的本地缓存
+     */
+    @Builder.Default
+    private EvictionPolicy localEvictionPolicy = EvictionPolicy.LRU;
     /**
      * 本地缓存过期时间
      */
@@ -46,17 +54,79 @@ public class CacheConfig {
      */
     private boolean syncLocal = true;
     /**
-     * 键转换器类型
+     * 键类型，为Long.class或long.class时本地缓存使用不装箱键的long键缓存
+     */
+    private Class<?> keyType;
+    /**
+     * 键转换器类型，hash64、hash128将转换后的键哈希为固定长度
      */
     private String keyConvertor = "fastjson";
+    /**
+     * 使用哈希键转换器时，是否在值中保存完整键，读取时校验以发现哈希冲突
+     */
+    @Builder.Default
+    private boolean verifyHashedKey = false;
+    /**
+     * 是否在远程缓存的值中保存写入版本号，回填本地缓存时据此丢弃比失效通知更旧的值。
+     * 旧版本节点无法读取带版本号的值，所有节点升级后才能开启
+     */
+    @Builder.Default
+    private boolean versionedValues = false;
     /**
      * 值编码器类型
      */
     private String valueEncoder = "java";
     /**
-     * 值解码器类型
+     * 值解码器类型，用于解码没有编码头的历史数据，带编码头的数据按头中的编解码器标识解码
      */
     private String valueDecoder = "java";
+    /**
+     * 值类型，设置后远程缓存按该类型解码(如jackson、smile、cbor)，可以是Class或泛型的Type
+     */
+    private Type valueType;
+    /**
+     * 读取到非当前值编码器写入的数据时，是否按当前编码器重写
+     */
+    @Builder.Default
+    private boolean rewriteOnRead = false;
+    /**
+     * 远程缓存单键读取的合并窗口，设置后窗口内并发的GET合并为一次MGET，为null时不合并
+     * <p>
+     * 仅在客户端支持异步操作时生效，同步客户端（如Jedis）忽略该配置
+     */
+    private Duration readBatchWindow;
+    /**
+     * 远程缓存单键读取合并的最大批量大小，达到后不等待窗口到期立即发出，不大于1时使用默认值64
+     */
+    private int readBatchSize;
+    /**
+     * 远程缓存加载租约的有效期，持有租约的节点在此期间内加载数据，为null时使用默认值10秒
+     */
+    private Duration loadLeaseTime;
+    /**
+     * 远程缓存未命中且其他节点持有加载租约时的最长等待时间，为null时使用默认值3秒
+     */
+    private Duration loadWaitTime;
+    /**
+     * 等待加载租约超时后的处理方式，为null时直接加载
+     */
+    private LeaseFallback leaseFallback;
+    /**
+     * 远程缓存熔断器配置，为null时不启用熔断
+     */
+    private CircuitBreakerConfig circuitBreaker;
+    /**
+     * 远程缓存自适应并发限制配置，为null时不限制
+     */
+    private ConcurrencyLimitConfig concurrencyLimit;
+    /**
+     * 写回策略配置，一致性策略为WRITE_BACK时使用，为null时使用默认配置
+     */
+    private WriteBackConfig writeBack;
+    /**
+     * 写同步策略异步写入远程缓存的配置，设置后写入本地缓存即返回，远程缓存和通知在后台按键顺序写入；为null时同步写入
+     */
+    private AsyncWriteConfig asyncWrite;
     /**
      * 是否启用缓存统计
      */
@@ -80,4 +150,13 @@ public class CacheConfig {
         return localLimit;
     }
 
+    /**
+     * 是否为long类型的键
+     *
+     * @return 键类型为Long或long时返回true
+     */
+    public boolean isLongKey() {
+        return keyType == Long.class || keyType == long.class;
+    }
+
 }
\ No newline at end of file
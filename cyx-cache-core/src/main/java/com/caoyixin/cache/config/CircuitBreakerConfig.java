@@ -0,0 +1,53 @@
+package com.caoyixin.cache.config;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 远程缓存熔断器配置
+ */
+@Data
+@Builder
+public class CircuitBreakerConfig {
+    /**
+     * 统计窗口包含的最近调用次数
+     */
+    @Builder.Default
+    private int windowSize = 100;
+    /**
+     * 窗口内至少有多少次调用才开始判断是否熔断
+     */
+    @Builder.Default
+    private int minimumCalls = 20;
+    /**
+     * 失败率阈值(0 - 1)，窗口内失败率达到该值时熔断
+     */
+    @Builder.Default
+    private double failureRateThreshold = 0.5;
+    /**
+     * 慢调用阈值，窗口内指定分位的耗时超过该值时熔断
+     */
+    @Builder.Default
+    private Duration slowCallDuration = Duration.ofSeconds(1);
+    /**
+     * 判断慢调用使用的耗时分位(0 - 1)
+     */
+    @Builder.Default
+    private double latencyPercentile = 0.9;
+    /**
+     * 熔断后等待多久开始探测恢复
+     */
+    @Builder.Default
+    private Duration openDuration = Duration.ofSeconds(5);
+    /**
+     * 探测恢复时允许通过的调用次数，全部成功后关闭熔断器
+     */
+    @Builder.Default
+    private int halfOpenProbes = 3;
+    /**
+     * 熔断期间写入本地缓存使用的过期时间，为null时不改变，设置后可以在远程缓存不可用时延长本地缓存的有效期
+     */
+    private Duration localTtlWhenOpen;
+}
@@ -0,0 +1,43 @@
+package com.caoyixin.cache.config;
+
+import com.caoyixin.cache.enums.OverloadPolicy;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 远程缓存自适应并发限制配置
+ */
+@Data
+@Builder
+public class ConcurrencyLimitConfig {
+    /**
+     * 初始并发限制
+     */
+    @Builder.Default
+    private int initialLimit = 20;
+    /**
+     * 最小并发限制，保证每个缓存至少能使用的并发数
+     */
+    @Builder.Default
+    private int minLimit = 4;
+    /**
+     * 最大并发限制，避免一个缓存占满连接
+     */
+    @Builder.Default
+    private int maxLimit = 200;
+    /**
+     * 每次调整时新限制所占的权重(0 - 1)
+     */
+    @Builder.Default
+    private double smoothing = 0.2;
+    /**
+     * 调用失败时限制的收缩比例(0 - 1)
+     */
+    @Builder.Default
+    private double backoffRatio = 0.9;
+    /**
+     * 超过限制时的处理方式
+     */
+    @Builder.Default
+    private OverloadPolicy overloadPolicy = OverloadPolicy.SHED;
+}
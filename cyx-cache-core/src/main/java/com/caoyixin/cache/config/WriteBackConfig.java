@@ -0,0 +1,34 @@
+package com.caoyixin.cache.config;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 写回策略配置
+ */
+@Data
+@Builder
+public class WriteBackConfig {
+    /**
+     * 后台刷写远程缓存的间隔
+     */
+    @Builder.Default
+    private Duration flushInterval = Duration.ofMillis(100);
+    /**
+     * 每批刷写的最大键数量，待写入的键达到该数量时不等待间隔到期立即刷写
+     */
+    @Builder.Default
+    private int batchSize = 256;
+    /**
+     * 待写入远程缓存的最大键数量，同一个键的多次写入只占用一个位置
+     */
+    @Builder.Default
+    private int maxPendingEntries = 10000;
+    /**
+     * 待写入的键已满时写入方的最长等待时间，超时后直接同步写入远程缓存
+     */
+    @Builder.Default
+    private Duration backpressureTimeout = Duration.ofMillis(500);
+}
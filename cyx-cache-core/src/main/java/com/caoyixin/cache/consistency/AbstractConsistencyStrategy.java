@@ -5,8 +5,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
+import com.caoyixin.cache.api.AsyncCache;
 import com.caoyixin.cache.api.Cache;
+import com.caoyixin.cache.api.CacheFutures;
+import com.caoyixin.cache.api.CacheValue;
 import com.caoyixin.cache.api.ConsistencyStrategy;
+import com.caoyixin.cache.exception.CacheRejectedException;
+import com.caoyixin.cache.notification.CacheBatchEvent;
 import com.caoyixin.cache.notification.CacheEvent;
 
 import lombok.extern.slf4j.Slf4j;
@@ -25,12 +30,59 @@ public abstract class AbstractConsistencyStrategy<K, V> implements ConsistencySt
      */
     protected List<Cache<K, V>> caches = new ArrayList<>();
 
+    /**
+     * 与caches一一对应的异步视图
+     */
+    protected List<AsyncCache<K, V>> asyncCaches = new ArrayList<>();
+
+    /**
+     * 本地缓存过期时间，从下一级缓存回填时作为过期时间的上限，为null时不限制
+     */
+    protected volatile Duration localExpire;
+
+    /**
+     * 本地缓存的失效记录，丢弃比失效通知更旧的回填
+     */
+    protected final VersionTracker<K> versions = new VersionTracker<>();
+
     @Override
     public void initialize(List<Cache<K, V>> caches) {
         if (caches == null || caches.isEmpty()) {
             throw new IllegalArgumentException("缓存列表不能为空");
         }
-        this.caches = new ArrayList<>(caches);
+        setCaches(new ArrayList<>(caches));
+    }
+
+    /**
+     * 设置缓存层次列表，并创建对应的异步视图
+     *
+     * @param caches 缓存列表，从L1到Ln顺序排列
+     */
+    protected void setCaches(List<Cache<K, V>> caches) {
+        List<AsyncCache<K, V>> views = new ArrayList<>(caches.size());
+        for (Cache<K, V> cache : caches) {
+            views.add(cache.async());
+        }
+        this.caches = caches;
+        this.asyncCaches = views;
+    }
+
+    /**
+     * 设置本地缓存过期时间
+     *
+     * @param localExpire 本地缓存过期时间，为null时回填的值只受下一级缓存剩余过期时间的限制
+     */
+    public void setLocalExpire(Duration localExpire) {
+        this.localExpire = localExpire;
+    }
+
+    /**
+     * 获取本地缓存的失效记录，可以从中读取丢弃的回填和通知次数
+     *
+     * @return 失效记录
+     */
+    public VersionTracker<K> getVersionTracker() {
+        return versions;
     }
 
     @Override
@@ -56,7 +108,7 @@ public abstract class AbstractConsistencyStrategy<K, V> implements ConsistencySt
 
     @Override
     public void handleCacheUpdate(CacheEvent event) {
-        if (event == null) {
+        if (event == null || !recordEvent(event)) {
             return;
         }
 
@@ -70,16 +122,62 @@ public abstract class AbstractConsistencyStrategy<K, V> implements ConsistencySt
                 invalidateLocalCaches(key);
                 break;
             case REMOVE:
-                remove(key);
+                // 其他节点已经删除了远程缓存，这里只处理本地缓存；清空缓存的通知以键为null的删除事件发送
+                if (key == null) {
+                    clearLocalCaches();
+                } else {
+                    invalidateLocalCaches(key);
+                }
                 break;
             case CLEAR:
-                clear();
+                clearLocalCaches();
+                break;
+            case BATCH:
+                for (Object batchKey : ((CacheBatchEvent) event).getKeys()) {
+                    @SuppressWarnings("unchecked")
+                    K updated = (K) batchKey;
+                    invalidateLocalCaches(updated);
+                }
                 break;
             default:
                 log.warn("未知的缓存事件类型: {}", event.getEventType());
         }
     }
 
+    /**
+     * 在处理失效通知之前记录通知的版本号
+     *
+     * @param event 缓存事件
+     * @return 通知是否需要处理，单个键的通知比已收到的通知更旧时返回false
+     */
+    protected boolean recordEvent(CacheEvent event) {
+        @SuppressWarnings("unchecked")
+        K key = (K) event.getKey();
+        switch (event.getEventType()) {
+            case PUT:
+            case UPDATE:
+                return key == null || versions.invalidate(key, event.getVersion());
+            case REMOVE:
+                if (key != null) {
+                    return versions.invalidate(key, event.getVersion());
+                }
+                versions.invalidateAll(event.getVersion());
+                return true;
+            case CLEAR:
+                versions.invalidateAll(event.getVersion());
+                return true;
+            case BATCH:
+                for (Object batchKey : ((CacheBatchEvent) event).getKeys()) {
+                    @SuppressWarnings("unchecked")
+                    K updated = (K) batchKey;
+                    versions.invalidate(updated, event.getVersion());
+                }
+                return true;
+            default:
+                return true;
+        }
+    }
+
     /**
      * 使本地缓存失效
      * 默认实现是使第一级缓存的对应键失效
@@ -93,6 +191,32 @@ public abstract class AbstractConsistencyStrategy<K, V> implements ConsistencySt
         }
     }
 
+    /**
+     * 清空除最后一级(远程)缓存以外的所有缓存
+     */
+    protected void clearLocalCaches() {
+        for (int i = caches.size() - 2; i >= 0; i--) {
+            Cache<K, V> cache = caches.get(i);
+            try {
+                cache.clear();
+            } catch (Exception e) {
+                log.error("清空缓存失败, cacheName={}", cache.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * 缓存拒绝调用且配置为快速失败时，原样抛出拒绝异常，不作为单级缓存的故障处理
+     *
+     * @param error 异步调用的异常
+     */
+    protected static void rethrowIfRejected(Throwable error) {
+        Throwable cause = CacheFutures.unwrap(error);
+        if (cause instanceof CacheRejectedException) {
+            throw (CacheRejectedException) cause;
+        }
+    }
+
     /**
      * 将值回填到低级别的缓存
      *
@@ -101,13 +225,80 @@ public abstract class AbstractConsistencyStrategy<K, V> implements ConsistencySt
      * @param foundIndex 找到值的缓存索引
      */
     protected void backfillToLowerLevelCaches(K key, V value, int foundIndex) {
+        backfillToLowerLevelCaches(key, CacheValue.of(value, null), versions.ticket(), foundIndex);
+    }
+
+    /**
+     * 将读到的值回填到低级别的缓存
+     * <p>
+     * 过期时间取找到值的缓存中的剩余过期时间和本地缓存过期时间中较小的一个。
+     * 读取期间收到了该键的失效通知，或读到的值比已收到的通知更旧时不回填；
+     * 写入后再检查一次：通知在写入之前到达时由这里删除，在写入之后到达时由通知删除
+     *
+     * @param key        缓存键
+     * @param found      读到的值及其剩余过期时间和版本号
+     * @param ticket     读取前从{@link VersionTracker#ticket()}取得的序号
+     * @param foundIndex 找到值的缓存索引
+     */
+    protected void backfillToLowerLevelCaches(K key, CacheValue<V> found, long ticket, int foundIndex) {
+        if (foundIndex == 0) {
+            return;
+        }
+        VersionClock.observe(found.getVersion());
+        if (versions.isStale(key, found.getVersion(), ticket)) {
+            return;
+        }
+
+        Duration ttl = backfillTtl(found.getTtl());
         // 将值回填到前面级别的缓存中
         for (int i = 0; i < foundIndex; i++) {
             try {
-                caches.get(i).put(key, value);
+                putLocal(caches.get(i), key, found.getValue(), ttl);
+            } catch (CacheRejectedException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("回填缓存值失败, cacheName={}, key={}", caches.get(i).getName(), key, e);
             }
         }
+
+        if (versions.isStale(key, found.getVersion(), ticket)) {
+            for (int i = 0; i < foundIndex; i++) {
+                try {
+                    caches.get(i).remove(key);
+                } catch (Exception e) {
+                    log.error("删除回填的缓存值失败, cacheName={}, key={}", caches.get(i).getName(), key, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 计算回填使用的过期时间
+     *
+     * @param remainingTtl 下一级缓存中的剩余过期时间，为null表示没有过期时间或未知
+     * @return 回填使用的过期时间，为null表示不过期
+     */
+    protected Duration backfillTtl(Duration remainingTtl) {
+        Duration limit = localExpire;
+        if (limit == null || limit.isZero() || limit.isNegative()) {
+            return remainingTtl;
+        }
+        return remainingTtl == null || remainingTtl.compareTo(limit) > 0 ? limit : remainingTtl;
+    }
+
+    /**
+     * 写入一级缓存，过期时间为null时使用缓存自身的过期设置
+     *
+     * @param cache 缓存
+     * @param key   缓存键
+     * @param value 缓存值
+     * @param ttl   过期时间
+     */
+    protected static <K, V> void putLocal(Cache<K, V> cache, K key, V value, Duration ttl) {
+        if (ttl != null) {
+            cache.put(key, value, ttl);
+        } else {
+            cache.put(key, value);
+        }
     }
-}
\ No newline at end of file
+}
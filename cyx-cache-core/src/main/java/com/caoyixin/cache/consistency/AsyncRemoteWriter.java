@@ -0,0 +1,497 @@
+package com.caoyixin.cache.consistency;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.caoyixin.cache.api.AsyncCache;
+import com.caoyixin.cache.api.Cache;
+import com.caoyixin.cache.api.CacheFutures;
+import com.caoyixin.cache.config.AsyncWriteConfig;
+import com.caoyixin.cache.notification.CacheNotifier;
+import com.caoyixin.cache.resilience.ErrorLogLimiter;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 远程缓存异步写入器
+ * <p>
+ * 写入按键的哈希分配到固定的队列，每个队列同一时间最多由一个后台线程按顺序取出，同一个键的写入不会乱序。
+ * 所有缓存的队列共用一组后台线程，队列有写入时才占用线程，缓存数量不影响线程数量。
+ * 后台线程每次取出一批写入，未指定过期时间的合并为一次批量写入，其余异步发出后一起等待，
+ * 写入完成后以一条批量消息通知其他节点。
+ * 写入在完成前记录为待写入，本节点读取未命中本地缓存时以待写入的数据为准，保证读到自己的写入。
+ * 写入失败的数据保留为待写入，由后台线程间隔一段时间后重试，失败的键不通知其他节点
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+@Slf4j
+public class AsyncRemoteWriter<K, V> {
+
+    private static final Duration ERROR_LOG_INTERVAL = Duration.ofSeconds(10);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+    private static final long MIN_RETRY_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_RETRY_DELAY_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * 一个队列每次占用后台线程最多写入的批次数，之后让出线程给其他队列
+     */
+    private static final int MAX_BATCHES_PER_RUN = 16;
+
+    private final AsyncCache<K, V> remoteAsync;
+    private final int batchSize;
+    private final List<Lane> lanes;
+
+    /**
+     * 尚未写入远程缓存的最新写入，值为null表示删除
+     */
+    private final ConcurrentHashMap<K, Pending<V>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 后台写入持有读锁，清空缓存时持有写锁，避免清空后又写入之前的数据
+     */
+    private final ReentrantReadWriteLock clearLock = new ReentrantReadWriteLock();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final ErrorLogLimiter errorLogLimiter = new ErrorLogLimiter(ERROR_LOG_INTERVAL);
+
+    /**
+     * 关闭时等待队列写完的信号
+     */
+    private final Object drained = new Object();
+
+    private volatile String cacheName;
+    private volatile CacheNotifier notifier;
+    private volatile boolean closed;
+    private volatile long replicationLagNanos;
+
+    /**
+     * 已写入远程缓存的数量
+     */
+    @Getter
+    private final LongAdder replicatedCount = new LongAdder();
+
+    /**
+     * 写入远程缓存失败的次数，失败的写入重试成功前每次失败都计数
+     */
+    @Getter
+    private final LongAdder failedCount = new LongAdder();
+
+    /**
+     * 创建远程缓存异步写入器
+     *
+     * @param remote      远程缓存
+     * @param remoteAsync 远程缓存的异步视图
+     * @param config      异步写入配置
+     */
+    public AsyncRemoteWriter(Cache<K, V> remote, AsyncCache<K, V> remoteAsync, AsyncWriteConfig config) {
+        if (config.getLanes() < 1 || config.getQueueCapacity() < 1 || config.getBatchSize() < 1) {
+            throw new IllegalArgumentException("异步写入的队列数量、队列长度和批量大小必须大于0");
+        }
+        this.remoteAsync = remoteAsync;
+        this.batchSize = config.getBatchSize();
+        this.cacheName = remote.getName();
+
+        this.lanes = new ArrayList<>(config.getLanes());
+        for (int i = 0; i < config.getLanes(); i++) {
+            lanes.add(new Lane(config.getQueueCapacity()));
+        }
+    }
+
+    /**
+     * 绑定所属的多级缓存
+     *
+     * @param cacheName 多级缓存名称
+     * @param notifier  缓存通知器，可能为null
+     */
+    public void bind(String cacheName, CacheNotifier notifier) {
+        this.cacheName = cacheName;
+        this.notifier = notifier;
+    }
+
+    /**
+     * 提交一次写入，队列已满时等待
+     *
+     * @param key   缓存键
+     * @param value 缓存值，为null表示删除
+     * @param ttl   过期时间
+     * @return 提交前待写入的数据中是否存在该键的值
+     */
+    public boolean submit(K key, V value, Duration ttl) {
+        Pending<V> entry = new Pending<>(value, ttl);
+        Pending<V> previous = pending.put(key, entry);
+        Task<K, V> task = new Task<>(key, entry, System.nanoTime());
+
+        queueDepth.incrementAndGet();
+        if (closed) {
+            writeNow(task);
+        } else {
+            Lane lane = lanes.get(lane(key));
+            try {
+                lane.queue.put(task);
+                lane.signal();
+            } catch (InterruptedException e) {
+                // 无法进入队列时在调用线程上写入，保证写入不丢失
+                Thread.currentThread().interrupt();
+                writeNow(task);
+            }
+        }
+        return previous != null && previous.value != null;
+    }
+
+    /**
+     * 在调用线程上写入，失败时不再重试，丢弃待写入的数据
+     */
+    private void writeNow(Task<K, V> task) {
+        List<Task<K, V>> batch = new ArrayList<>(1);
+        batch.add(task);
+        abandon(write(batch));
+    }
+
+    /**
+     * 获取键尚未写入远程缓存的最新写入
+     *
+     * @param key 缓存键
+     * @return 待写入的数据，不存在时返回null
+     */
+    Pending<V> pending(K key) {
+        return pending.get(key);
+    }
+
+    /**
+     * 丢弃尚未写入的数据并执行清空操作，期间后台不会写入远程缓存
+     *
+     * @param clearAction 清空操作
+     */
+    public void clear(Runnable clearAction) {
+        clearLock.writeLock().lock();
+        try {
+            for (Lane lane : lanes) {
+                List<Task<K, V>> dropped = new ArrayList<>();
+                lane.queue.drainTo(dropped);
+                queueDepth.addAndGet(-dropped.size());
+            }
+            pending.clear();
+            clearAction.run();
+        } finally {
+            clearLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 通知其他节点缓存已清空
+     */
+    public void notifyClear() {
+        CacheNotifier current = notifier;
+        if (current != null) {
+            current.notifyRemove(cacheName, null);
+        }
+    }
+
+    /**
+     * 停止接收新的写入，等待队列中的写入完成
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // 关闭后各队列写完剩余的数据，失败的写入不再等待重试间隔
+        lanes.forEach(Lane::signal);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        synchronized (drained) {
+            long remaining;
+            while (queueDepth.get() > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(drained, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (queueDepth.get() > 0) {
+            log.warn("关闭异步写入时仍有数据未写入远程缓存, cacheName={}, queueDepth={}", cacheName, queueDepth.get());
+        }
+    }
+
+    /**
+     * 获取已提交但尚未写入远程缓存的数量
+     *
+     * @return 队列深度
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * 获取最近一批写入从提交到写入远程缓存完成的耗时，按批次中最早提交的写入计算
+     *
+     * @return 复制延迟(毫秒)
+     */
+    public long getReplicationLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(replicationLagNanos);
+    }
+
+    /**
+     * 写入一批数据，一批写入的值和批量通知使用同一个版本号
+     *
+     * @param batch 写入批次，按提交顺序排列
+     * @return 写入失败、需要重试的写入
+     */
+    private List<Task<K, V>> write(List<Task<K, V>> batch) {
+        return VersionClock.callWith(VersionClock.next(), () -> writeBatch(batch));
+    }
+
+    /**
+     * 放弃写入失败的数据，不再保留为待写入
+     */
+    private void abandon(List<Task<K, V>> failed) {
+        if (failed.isEmpty()) {
+            return;
+        }
+        for (Task<K, V> task : failed) {
+            pending.remove(task.key, task.entry);
+        }
+        queueDepth.addAndGet(-failed.size());
+        log.warn("异步写入远程缓存失败，放弃写入, cacheName={}, count={}", cacheName, failed.size());
+    }
+
+    /**
+     * 写入一批数据
+     * <p>
+     * 只写入仍是该键最新写入的数据：同一个键更新的写入在同一个队列的后面，由它覆盖；
+     * 清空缓存后待写入的数据被丢弃，已取出的写入也不再写入远程缓存。
+     * 写入失败的数据仍保留为待写入，返回给调用方重试
+     *
+     * @param batch 写入批次，按提交顺序排列
+     * @return 写入失败、需要重试的写入
+     */
+    private List<Task<K, V>> writeBatch(List<Task<K, V>> batch) {
+        Map<K, Pending<V>> latest = new LinkedHashMap<>();
+        Set<K> failedKeys = new HashSet<>();
+        List<Task<K, V>> failed = new ArrayList<>();
+        Throwable error = null;
+        clearLock.readLock().lock();
+        try {
+            for (Task<K, V> task : batch) {
+                if (pending.get(task.key) == task.entry) {
+                    latest.put(task.key, task.entry);
+                }
+            }
+
+            Map<K, V> untimed = new HashMap<>();
+            Map<K, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+            for (Map.Entry<K, Pending<V>> entry : latest.entrySet()) {
+                Pending<V> value = entry.getValue();
+                if (value.value != null && value.ttl == null) {
+                    untimed.put(entry.getKey(), value.value);
+                } else {
+                    futures.put(entry.getKey(), CacheFutures.invoke(
+                            () -> remoteAsync.writeAsync(entry.getKey(), value.value, value.ttl)));
+                }
+            }
+            if (!untimed.isEmpty()) {
+                try {
+                    CacheFutures.join(remoteAsync.writeAllAsync(untimed));
+                } catch (Exception e) {
+                    error = e;
+                    failedKeys.addAll(untimed.keySet());
+                }
+            }
+            for (Map.Entry<K, CompletableFuture<Void>> entry : futures.entrySet()) {
+                try {
+                    CacheFutures.join(entry.getValue());
+                } catch (Exception e) {
+                    error = e;
+                    failedKeys.add(entry.getKey());
+                }
+            }
+        } finally {
+            int done = 0;
+            for (Task<K, V> task : batch) {
+                if (failedKeys.contains(task.key) && pending.get(task.key) == task.entry) {
+                    failed.add(task);
+                } else {
+                    // 已有更新的写入时保留，由更新的写入完成后移除
+                    pending.remove(task.key, task.entry);
+                    done++;
+                }
+            }
+            queueDepth.addAndGet(-done);
+            replicatedCount.add(done);
+            replicationLagNanos = System.nanoTime() - batch.get(0).submitNanos;
+            clearLock.readLock().unlock();
+        }
+
+        if (error != null) {
+            failedCount.add(failed.size());
+            long suppressed = errorLogLimiter.tryLog("async-write");
+            if (suppressed >= 0) {
+                log.error("异步写入远程缓存失败，稍后重试, cacheName={}, failed={}, suppressed={}", cacheName,
+                        failedKeys.size(), suppressed, CacheFutures.unwrap(error));
+            }
+        }
+
+        CacheNotifier current = notifier;
+        latest.keySet().removeAll(failedKeys);
+        if (current != null && !latest.isEmpty()) {
+            current.notifyUpdateAll(cacheName, latest.keySet());
+        }
+        return failed;
+    }
+
+    private int lane(K key) {
+        int h = key.hashCode();
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % lanes.size();
+    }
+
+    /**
+     * 一个写入队列，有写入时提交到共用的后台线程，同一时间最多在一个线程上运行
+     */
+    private final class Lane implements Runnable {
+        private final BlockingQueue<Task<K, V>> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /**
+         * 写入失败等待重试的数据，排在新取出的写入之前，只在运行时访问
+         */
+        private final List<Task<K, V>> retries = new ArrayList<>();
+        private long retryDelay = MIN_RETRY_DELAY_NANOS;
+        private long retryAt;
+
+        private Lane(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * 提交到后台线程运行，已提交时不重复提交
+         */
+        void signal() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                WorkerHolder.EXECUTOR.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                log.error("提交异步写入任务失败, cacheName={}", cacheName, e);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                drain();
+            } catch (Exception e) {
+                log.error("异步写入远程缓存异常, cacheName={}", cacheName, e);
+            } finally {
+                boolean hasRetries = !retries.isEmpty();
+                scheduled.set(false);
+                // 运行结束前进入队列的写入由这里重新提交，关闭后不再等待重试间隔
+                if (!queue.isEmpty() || (closed && hasRetries)) {
+                    signal();
+                }
+                if (closed) {
+                    synchronized (drained) {
+                        drained.notifyAll();
+                    }
+                }
+            }
+        }
+
+        private void drain() {
+            for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                List<Task<K, V>> batch = new ArrayList<>(batchSize);
+                if (!retries.isEmpty() && (closed || System.nanoTime() - retryAt >= 0)) {
+                    batch.addAll(retries);
+                    retries.clear();
+                }
+                queue.drainTo(batch, batchSize);
+                if (batch.isEmpty()) {
+                    return;
+                }
+
+                List<Task<K, V>> failed;
+                try {
+                    failed = write(batch);
+                } catch (Exception e) {
+                    log.error("异步写入远程缓存异常, cacheName={}", cacheName, e);
+                    failed = new ArrayList<>(batch);
+                }
+                if (failed.isEmpty()) {
+                    retryDelay = MIN_RETRY_DELAY_NANOS;
+                } else if (closed) {
+                    // 关闭后失败的写入只重试一次
+                    abandon(failed);
+                } else {
+                    retries.addAll(failed);
+                    retryAt = System.nanoTime() + retryDelay;
+                    WorkerHolder.EXECUTOR.schedule(this::signal, retryDelay, TimeUnit.NANOSECONDS);
+                    retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_NANOS);
+                    if (queue.isEmpty()) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 所有缓存的异步写入共用的后台线程，首次使用时创建
+     */
+    private static final class WorkerHolder {
+        private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+
+        private static ScheduledThreadPoolExecutor createExecutor() {
+            AtomicInteger index = new AtomicInteger();
+            return new ScheduledThreadPoolExecutor(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                Thread thread = new Thread(r, "cyx-cache-async-write-" + index.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * 待写入远程缓存的数据
+     */
+    static final class Pending<V> {
+        final V value;
+        final Duration ttl;
+
+        private Pending(V value, Duration ttl) {
+            this.value = value;
+            this.ttl = ttl;
+        }
+    }
+
+    private static final class Task<K, V> {
+        private final K key;
+        private final Pending<V> entry;
+        private final long submitNanos;
+
+        private Task(K key, Pending<V> entry, long submitNanos) {
+            this.key = key;
+            this.entry = entry;
+            this.submitNanos = submitNanos;
+        }
+    }
+}
@@ -22,4 +22,19 @@ public interface ConsistencyStrategyFactory {
      * @return 一致性策略实例
      */
     <K, V> ConsistencyStrategy<K, V> createStrategy(ConsistencyType type, List<Cache<K, V>> caches);
+
+    /**
+     * 按缓存配置创建一致性策略，默认忽略配置
+     *
+     * @param type   一致性策略类型
+     * @param caches 缓存列表
+     * @param config 缓存配置
+     * @param <K>    键类型
+     * @param <V>    值类型
+     * @return 一致性策略实例
+     */
+    default <K, V> ConsistencyStrategy<K, V> createStrategy(ConsistencyType type, List<Cache<K, V>> caches,
+                                                            CacheConfig config) {
+        return createStrategy(type, caches);
+    }
 }
\ No newline at end of file
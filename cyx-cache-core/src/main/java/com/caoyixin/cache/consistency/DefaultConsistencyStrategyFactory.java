@@ -2,6 +2,8 @@ package com.caoyixin.cache.consistency;
 
 import com.caoyixin.cache.api.Cache;
 import com.caoyixin.cache.api.ConsistencyStrategy;
+import com.caoyixin.cache.config.CacheConfig;
+import com.caoyixin.cache.config.WriteBackConfig;
 import com.caoyixin.cache.enums.ConsistencyType;
 
 import java.util.List;
@@ -13,6 +15,12 @@ public class DefaultConsistencyStrategyFactory implements ConsistencyStrategyFac
 
     @Override
     public <K, V> ConsistencyStrategy<K, V> createStrategy(ConsistencyType type, List<Cache<K, V>> caches) {
+        return createStrategy(type, caches, null);
+    }
+
+    @Override
+    public <K, V> ConsistencyStrategy<K, V> createStrategy(ConsistencyType type, List<Cache<K, V>> caches,
+                                                           CacheConfig config) {
         if (type == null) {
             throw new IllegalArgumentException("一致性策略类型不能为空");
         }
@@ -21,17 +29,27 @@ public class DefaultConsistencyStrategyFactory implements ConsistencyStrategyFac
             throw new IllegalArgumentException("缓存列表不能为空");
         }
 
+        AbstractConsistencyStrategy<K, V> strategy;
         switch (type) {
             case WRITE_THROUGH:
-                return new WriteThroughStrategy<>(caches);
+                strategy = new WriteThroughStrategy<>(caches, config != null ? config.getAsyncWrite() : null);
+                break;
             case WRITE_BACK:
-                // 暂未实现写回策略，后续可扩展
-                throw new UnsupportedOperationException("暂不支持写回策略");
+                WriteBackConfig writeBack = config != null ? config.getWriteBack() : null;
+                strategy = new WriteBackStrategy<>(caches, writeBack != null ? writeBack : WriteBackConfig.builder().build());
+                break;
             case READ_ONLY:
-                // 暂未实现只读策略，后续可扩展
-                throw new UnsupportedOperationException("暂不支持只读策略");
+                // 清空后重新加载的键数量不超过本地缓存容量
+                strategy = new ReadOnlyStrategy<>(caches, config != null ? config.getLocalLimit() : 0);
+                break;
             default:
                 throw new IllegalArgumentException("不支持的一致性策略类型: " + type);
         }
+
+        if (config != null) {
+            // 回填本地缓存的过期时间不超过本地缓存过期时间，未配置时不超过缓存过期时间
+            strategy.setLocalExpire(config.getLocalExpire() != null ? config.getLocalExpire() : config.getExpire());
+        }
+        return strategy;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,463 @@
+package com.caoyixin.cache.consistency;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+import com.caoyixin.cache.api.Cache;
+import com.caoyixin.cache.api.CacheFutures;
+import com.caoyixin.cache.api.CacheValue;
+import com.caoyixin.cache.exception.CacheRejectedException;
+import com.caoyixin.cache.notification.CacheBatchEvent;
+import com.caoyixin.cache.notification.CacheEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 只读策略实现，适用于由其他服务写入远程缓存的参考数据
+ * <p>
+ * 读取依次查找本地缓存和远程缓存，远程缓存命中时回填本地缓存；本地缓存主要依靠失效通知删除，
+ * 回填的值不会比远程缓存中的值存活更久。写操作直接写入远程缓存并使本地缓存失效。
+ * 收到清空通知时清空本地缓存，并通过批量读取重新加载之前已缓存的键
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+@Slf4j
+public class ReadOnlyStrategy<K, V> extends AbstractConsistencyStrategy<K, V> {
+
+    /**
+     * 失效版本号的分段数，必须是2的幂
+     */
+    private static final int STRIPES = 1024;
+
+    /**
+     * 重新加载时每次批量读取的键数量
+     */
+    private static final int RELOAD_BATCH_SIZE = 500;
+
+    /**
+     * 按键分段的失效版本号，失效时先增加版本号再删除本地缓存
+     * <p>
+     * 回填本地缓存前后版本号不一致说明读取远程缓存期间收到了失效通知，读到的可能是旧值，不保留回填的值
+     */
+    private final AtomicLongArray stamps = new AtomicLongArray(STRIPES);
+
+    /**
+     * 清空版本号，清空本地缓存时增加
+     */
+    private final AtomicLong epoch = new AtomicLong();
+
+    /**
+     * 已回填到本地缓存的键，用于清空后重新加载
+     */
+    private final Set<K> loadedKeys = ConcurrentHashMap.newKeySet();
+    private final int maxLoadedKeys;
+
+    /**
+     * 创建只读策略
+     *
+     * @param caches        所有缓存实例列表，顺序从L1到Ln，最后一个为远程缓存
+     * @param maxLoadedKeys 清空后重新加载的最大键数量，不大于0时不限制
+     */
+    public ReadOnlyStrategy(List<Cache<K, V>> caches, int maxLoadedKeys) {
+        if (caches == null || caches.isEmpty() || caches.size() < 2) {
+            throw new IllegalArgumentException("缓存列表必须包含至少两个缓存实例");
+        }
+        setCaches(caches);
+        this.maxLoadedKeys = maxLoadedKeys > 0 ? maxLoadedKeys : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public String getName() {
+        return "ReadOnly";
+    }
+
+    @Override
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        V value = getLocal(key);
+        if (value != null) {
+            return value;
+        }
+
+        long stamp = stamp(key);
+        Cache<K, V> remote = remote();
+        CacheValue<V> found;
+        try {
+            found = remote.getWithTtl(key);
+        } catch (CacheRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("从缓存读取失败, cacheName={}, key={}", remote.getName(), key, e);
+            return null;
+        }
+        if (found == null) {
+            return null;
+        }
+        backfill(key, found.getValue(), found.getTtl(), stamp);
+        return found.getValue();
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        if (key == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        V value = getLocal(key);
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+
+        long stamp = stamp(key);
+        Cache<K, V> remote = remote();
+        return CacheFutures.invoke(() -> asyncCaches.get(caches.size() - 1).getAsync(key))
+                .handle((result, error) -> {
+                    if (error != null) {
+                        rethrowIfRejected(error);
+                        log.error("从缓存读取失败, cacheName={}, key={}", remote.getName(), key,
+                                CacheFutures.unwrap(error));
+                        return null;
+                    }
+                    if (result != null) {
+                        backfill(key, result, null, stamp);
+                    }
+                    return result;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+
+        Map<K, V> found = new HashMap<>();
+        Map<K, Long> missing = new HashMap<>();
+        for (K key : keys) {
+            if (key == null) {
+                continue;
+            }
+            V value = getLocal(key);
+            if (value != null) {
+                found.put(key, value);
+            } else {
+                missing.put(key, stamp(key));
+            }
+        }
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(found);
+        }
+
+        Cache<K, V> remote = remote();
+        return CacheFutures.invoke(() -> asyncCaches.get(caches.size() - 1).getAllAsync(missing.keySet()))
+                .handle((values, error) -> {
+                    if (error != null) {
+                        rethrowIfRejected(error);
+                        log.error("从缓存批量读取失败, cacheName={}", remote.getName(), CacheFutures.unwrap(error));
+                        return found;
+                    }
+                    for (Map.Entry<K, V> entry : values.entrySet()) {
+                        backfill(entry.getKey(), entry.getValue(), null, missing.get(entry.getKey()));
+                        found.put(entry.getKey(), entry.getValue());
+                    }
+                    return found;
+                });
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<K, V> loader, Duration ttl) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+
+        long stamp = stamp(key);
+        try {
+            value = loader.apply(key);
+        } catch (Exception e) {
+            log.error("加载缓存值异常, key={}", key, e);
+            throw e;
+        }
+        if (value != null) {
+            putRemote(key, value, ttl);
+            backfill(key, value, ttl, stamp);
+        }
+        return value;
+    }
+
+    /**
+     * 直接写入远程缓存，并使本地缓存失效，下次读取时从远程缓存回填
+     */
+    @Override
+    public void put(K key, V value, Duration ttl) {
+        if (key == null || value == null) {
+            return;
+        }
+        putRemote(key, value, ttl);
+        invalidate(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        if (map == null || map.isEmpty()) {
+            return;
+        }
+        Cache<K, V> remote = remote();
+        try {
+            remote.putAll(map);
+        } catch (CacheRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("批量写入缓存失败, cacheName={}", remote.getName(), e);
+        }
+        for (K key : map.keySet()) {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public boolean remove(K key) {
+        if (key == null) {
+            return false;
+        }
+        Cache<K, V> remote = remote();
+        boolean removed = false;
+        try {
+            removed = remote.remove(key);
+        } catch (CacheRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("从缓存删除失败, cacheName={}, key={}", remote.getName(), key, e);
+        }
+        return invalidate(key) || removed;
+    }
+
+    @Override
+    public void clear() {
+        Cache<K, V> remote = remote();
+        try {
+            remote.clear();
+        } catch (CacheRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("清空缓存失败, cacheName={}", remote.getName(), e);
+        }
+        clearLocal();
+        loadedKeys.clear();
+    }
+
+    @Override
+    public void handleCacheUpdate(CacheEvent event) {
+        if (event == null) {
+            return;
+        }
+
+        switch (event.getEventType()) {
+            case PUT:
+            case UPDATE:
+                invalidateKey(event.getKey());
+                break;
+            case REMOVE:
+                // 清空缓存的通知以键为null的删除事件发送
+                if (event.getKey() == null) {
+                    reload();
+                } else {
+                    invalidateKey(event.getKey());
+                }
+                break;
+            case CLEAR:
+                reload();
+                break;
+            case BATCH:
+                for (Object key : ((CacheBatchEvent) event).getKeys()) {
+                    invalidateKey(key);
+                }
+                break;
+            default:
+                log.warn("未知的缓存更新事件类型: {}", event.getEventType());
+        }
+    }
+
+    /**
+     * 清空本地缓存，并从远程缓存批量重新加载之前已缓存的键
+     *
+     * @return 重新加载完成时结束的Future
+     */
+    public CompletableFuture<Void> reload() {
+        List<K> keys = new ArrayList<>(loadedKeys);
+        loadedKeys.clear();
+        clearLocal();
+        if (keys.isEmpty()) {
+            return CacheFutures.completedVoid();
+        }
+
+        // 分批顺序读取，避免一次MGET过大
+        CompletableFuture<Void> chain = CacheFutures.completedVoid();
+        for (int from = 0; from < keys.size(); from += RELOAD_BATCH_SIZE) {
+            List<K> batch = keys.subList(from, Math.min(from + RELOAD_BATCH_SIZE, keys.size()));
+            chain = chain.thenCompose(ignored -> reloadBatch(batch));
+        }
+        return chain.whenComplete((ignored, error) -> {
+            if (error != null) {
+                log.error("重新加载本地缓存失败, cacheName={}", caches.get(0).getName(), CacheFutures.unwrap(error));
+            } else {
+                log.info("重新加载本地缓存完成, cacheName={}, keys={}", caches.get(0).getName(), keys.size());
+            }
+        });
+    }
+
+    private CompletableFuture<Void> reloadBatch(List<K> batch) {
+        Map<K, Long> stamps = new HashMap<>();
+        for (K key : batch) {
+            stamps.put(key, stamp(key));
+        }
+        return CacheFutures.invoke(() -> asyncCaches.get(caches.size() - 1).getAllAsync(batch))
+                .thenAccept(values -> {
+                    for (Map.Entry<K, V> entry : values.entrySet()) {
+                        backfill(entry.getKey(), entry.getValue(), null, stamps.get(entry.getKey()));
+                    }
+                });
+    }
+
+    /**
+     * 获取已回填到本地缓存、清空后会重新加载的键数量
+     *
+     * @return 键数量
+     */
+    public int getLoadedKeyCount() {
+        return loadedKeys.size();
+    }
+
+    private V getLocal(K key) {
+        for (int i = 0; i < caches.size() - 1; i++) {
+            Cache<K, V> cache = caches.get(i);
+            try {
+                V value = cache.get(key);
+                if (value != null) {
+                    backfillToLowerLevelCaches(key, value, i);
+                    return value;
+                }
+            } catch (Exception e) {
+                log.error("从缓存读取失败, cacheName={}, key={}", cache.getName(), key, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 将远程缓存读到的值回填到本地缓存
+     * <p>
+     * 写入后再检查一次版本号：失效通知在写入之前到达时由这里删除，在写入之后到达时由失效通知删除
+     *
+     * @param key          缓存键
+     * @param value        缓存值
+     * @param remainingTtl 远程缓存中的剩余过期时间，为null表示没有过期时间或未知
+     * @param stamp        读取远程缓存前的版本号
+     */
+    private void backfill(K key, V value, Duration remainingTtl, long stamp) {
+        if (stamp(key) != stamp) {
+            return;
+        }
+        Duration ttl = backfillTtl(remainingTtl);
+        for (int i = caches.size() - 2; i >= 0; i--) {
+            Cache<K, V> cache = caches.get(i);
+            try {
+                putLocal(cache, key, value, ttl);
+            } catch (Exception e) {
+                log.error("回填缓存值失败, cacheName={}, key={}", cache.getName(), key, e);
+            }
+        }
+        if (stamp(key) != stamp) {
+            removeLocal(key);
+            return;
+        }
+        if (loadedKeys.size() < maxLoadedKeys) {
+            loadedKeys.add(key);
+        }
+    }
+
+    private void putRemote(K key, V value, Duration ttl) {
+        Cache<K, V> remote = remote();
+        try {
+            if (ttl != null) {
+                remote.put(key, value, ttl);
+            } else {
+                remote.put(key, value);
+            }
+        } catch (CacheRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("写入缓存失败, cacheName={}, key={}", remote.getName(), key, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invalidateKey(Object key) {
+        if (key != null) {
+            invalidate((K) key);
+        }
+    }
+
+    /**
+     * 使本地缓存失效
+     *
+     * @param key 缓存键
+     * @return 本地缓存中是否存在该键
+     */
+    private boolean invalidate(K key) {
+        stamps.incrementAndGet(stripe(key));
+        loadedKeys.remove(key);
+        return removeLocal(key);
+    }
+
+    private boolean removeLocal(K key) {
+        boolean removed = false;
+        for (int i = caches.size() - 2; i >= 0; i--) {
+            Cache<K, V> cache = caches.get(i);
+            try {
+                removed |= cache.remove(key);
+            } catch (Exception e) {
+                log.error("从缓存删除失败, cacheName={}, key={}", cache.getName(), key, e);
+            }
+        }
+        return removed;
+    }
+
+    private void clearLocal() {
+        epoch.incrementAndGet();
+        clearLocalCaches();
+    }
+
+    /**
+     * 获取键当前的版本号，两个版本号都只增不减，和不变说明两者都没有变化
+     *
+     * @param key 缓存键
+     * @return 版本号
+     */
+    private long stamp(Object key) {
+        return stamps.get(stripe(key)) + epoch.get();
+    }
+
+    private static int stripe(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    private Cache<K, V> remote() {
+        return caches.get(caches.size() - 1);
+    }
+}
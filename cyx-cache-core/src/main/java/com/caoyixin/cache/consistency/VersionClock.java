@@ -0,0 +1,103 @@
+package com.caoyixin.cache.consistency;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 缓存写入版本号的混合逻辑时钟
+ * <p>
+ * 版本号的高48位是毫秒时间戳，低16位是同一毫秒内的逻辑计数，本进程内严格递增；
+ * 收到其他节点的版本号时推进本地时钟，使之后的写入版本号大于已经看到的写入，减小节点间时钟偏差的影响。
+ * 多级缓存写入时在当前线程上绑定一个版本号，远程缓存保存的值和发出的通知使用同一个版本号。
+ * 版本号为0表示没有版本号
+ */
+public final class VersionClock {
+
+    private static final int LOGICAL_BITS = 16;
+
+    private static final AtomicLong LAST = new AtomicLong();
+
+    /**
+     * 当前线程正在进行的写入使用的版本号
+     */
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+    private VersionClock() {
+    }
+
+    /**
+     * 生成新的版本号
+     *
+     * @return 大于之前生成和看到的所有版本号
+     */
+    public static long next() {
+        long physical = System.currentTimeMillis() << LOGICAL_BITS;
+        return LAST.accumulateAndGet(physical, (last, now) -> Math.max(last + 1, now));
+    }
+
+    /**
+     * 看到其他节点的版本号，推进本地时钟
+     *
+     * @param version 版本号，为0时忽略
+     */
+    public static void observe(long version) {
+        if (version > 0) {
+            LAST.accumulateAndGet(version, Math::max);
+        }
+    }
+
+    /**
+     * 获取当前线程绑定的版本号
+     *
+     * @return 版本号，未绑定时返回0
+     */
+    public static long current() {
+        Long version = CURRENT.get();
+        return version != null ? version : 0;
+    }
+
+    /**
+     * 获取当前线程绑定的版本号，未绑定时生成新的版本号
+     *
+     * @return 版本号
+     */
+    public static long currentOrNext() {
+        Long version = CURRENT.get();
+        return version != null ? version : next();
+    }
+
+    /**
+     * 在当前线程上绑定版本号执行写入，写入的值和发出的通知使用同一个版本号
+     *
+     * @param version 版本号
+     * @param action  写入操作
+     * @param <T>     结果类型
+     * @return 写入操作的结果
+     */
+    public static <T> T callWith(long version, Supplier<T> action) {
+        Long previous = CURRENT.get();
+        CURRENT.set(version);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * 在当前线程上绑定版本号执行写入
+     *
+     * @param version 版本号
+     * @param action  写入操作
+     */
+    public static void runWith(long version, Runnable action) {
+        callWith(version, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,196 @@
+package com.caoyixin.cache.consistency;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * 本地缓存的失效记录，用于丢弃比失效通知更旧的回填和通知
+ * <p>
+ * 读取下一级缓存前取得一个序号，收到失效通知时为键记录通知的版本号和新的序号。回填时读到的值和通知都有版本号时，
+ * 值的版本号小于通知的版本号说明读到的是旧值；任何一方没有版本号时，通知的序号大于读取前的序号说明读取期间收到了通知，
+ * 读到的可能是旧值。两种情况都不回填。
+ * 失效记录只保留一段时间，超出保留时间或记录数量上限时移除，并把移除的序号计入下限：读取前的序号低于下限的回填一律丢弃，
+ * 移除记录不会放过读取期间收到的通知
+ *
+ * @param <K> 键类型
+ */
+public class VersionTracker<K> {
+
+    /**
+     * 失效记录的保留时间，远大于一次远程读取的耗时
+     */
+    private static final long RETENTION_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * 最多保留的失效记录数量
+     */
+    private static final int MAX_MARKS = 100000;
+
+    /**
+     * 每记录多少次失效检查一次过期的记录
+     */
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private final ConcurrentHashMap<K, Mark> marks = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 读取前的序号低于此值的回填一律丢弃
+     */
+    private volatile long floor;
+
+    /**
+     * 最近一次清空的版本号和时间，保留时间内版本号更小的值不回填
+     */
+    private volatile long clearVersion;
+    private volatile long clearNanos;
+
+    /**
+     * 因读到旧值而丢弃的回填次数
+     */
+    @Getter
+    private final LongAdder discardedBackfills = new LongAdder();
+
+    /**
+     * 因版本号比已收到的通知更旧而丢弃的通知次数
+     */
+    @Getter
+    private final LongAdder discardedEvents = new LongAdder();
+
+    /**
+     * 读取下一级缓存前取得序号
+     *
+     * @return 序号
+     */
+    public long ticket() {
+        return sequence.get();
+    }
+
+    /**
+     * 记录键的失效通知，需要在删除本地缓存之前调用
+     *
+     * @param key     缓存键
+     * @param version 通知的版本号，为0表示没有版本号
+     * @return 通知是否需要处理，通知的版本号小于已记录的版本号时返回false
+     */
+    public boolean invalidate(K key, long version) {
+        VersionClock.observe(version);
+        long seq = sequence.incrementAndGet();
+        long now = System.nanoTime();
+        boolean[] newer = {true};
+        marks.compute(key, (k, mark) -> {
+            if (mark == null) {
+                return new Mark(version, seq, now);
+            }
+            if (version > 0 && version < mark.version) {
+                newer[0] = false;
+            }
+            // 已处理过更新的通知时仍然推进序号，保守地丢弃正在进行的读取
+            return new Mark(Math.max(version, mark.version), seq, now);
+        });
+        if (seq % SWEEP_INTERVAL == 0 || marks.size() > MAX_MARKS) {
+            sweep(now);
+        }
+        if (!newer[0]) {
+            discardedEvents.increment();
+        }
+        return newer[0];
+    }
+
+    /**
+     * 记录清空通知，需要在清空本地缓存之前调用
+     *
+     * @param version 通知的版本号，为0表示没有版本号
+     */
+    public void invalidateAll(long version) {
+        VersionClock.observe(version);
+        floor = sequence.incrementAndGet();
+        if (version > clearVersion) {
+            clearVersion = version;
+        }
+        clearNanos = System.nanoTime();
+        marks.clear();
+    }
+
+    /**
+     * 判断读到的值是否比已收到的失效通知更旧
+     *
+     * @param key     缓存键
+     * @param version 读到的值的版本号，为0表示没有版本号
+     * @param ticket  读取前取得的序号
+     * @return 是否是旧值
+     */
+    public boolean isStale(K key, long version, long ticket) {
+        boolean stale = check(key, version, ticket);
+        if (stale) {
+            discardedBackfills.increment();
+        }
+        return stale;
+    }
+
+    /**
+     * 获取当前保留的失效记录数量
+     *
+     * @return 记录数量
+     */
+    public int size() {
+        return marks.size();
+    }
+
+    private boolean check(K key, long version, long ticket) {
+        if (ticket < floor) {
+            return true;
+        }
+        if (version > 0 && version < clearVersion && System.nanoTime() - clearNanos < RETENTION_NANOS) {
+            return true;
+        }
+        Mark mark = marks.get(key);
+        if (mark == null) {
+            return false;
+        }
+        if (version > 0 && mark.version > 0) {
+            return version < mark.version;
+        }
+        return mark.sequence > ticket;
+    }
+
+    /**
+     * 移除超出保留时间的记录，记录数量仍超出上限时全部移除
+     */
+    private void sweep(long now) {
+        long removedSequence = 0;
+        Iterator<Map.Entry<K, Mark>> iterator = marks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Mark mark = iterator.next().getValue();
+            if (now - mark.nanos > RETENTION_NANOS) {
+                removedSequence = Math.max(removedSequence, mark.sequence);
+                iterator.remove();
+            }
+        }
+        if (marks.size() > MAX_MARKS) {
+            removedSequence = sequence.get();
+            marks.clear();
+        }
+        if (removedSequence > floor) {
+            floor = removedSequence;
+        }
+    }
+
+    private static final class Mark {
+        private final long version;
+        private final long sequence;
+        private final long nanos;
+
+        private Mark(long version, long sequence, long nanos) {
+            this.version = version;
+            this.sequence = sequence;
+            this.nanos = nanos;
+        }
+    }
+}
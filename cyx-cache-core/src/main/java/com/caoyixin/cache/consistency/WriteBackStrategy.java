@@ -0,0 +1,643 @@
+package com.caoyixin.cache.consistency;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.caoyixin.cache.api.AsyncCache;
+import com.caoyixin.cache.api.Cache;
+import com.caoyixin.cache.api.CacheFutures;
+import com.caoyixin.cache.api.CacheValue;
+import com.caoyixin.cache.config.WriteBackConfig;
+import com.caoyixin.cache.exception.CacheRejectedException;
+import com.caoyixin.cache.notification.CacheBatchEvent;
+import com.caoyixin.cache.notification.CacheEvent;
+import com.caoyixin.cache.notification.CacheNotifier;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 写回策略实现，写操作只写入本地缓存并记录为待写入，由后台线程批量写入远程缓存
+ * <p>
+ * 同一个键在刷写前的多次写入只保留最后一次，删除以空值记录，与写入一样按顺序覆盖。
+ * 待写入的数据在远程缓存写入成功后才移除，期间读取未命中本地缓存时以待写入的数据为准。
+ * 每次刷写完成后以一条批量消息通知其他节点，其他节点收到通知时才使本地缓存失效，
+ * 不会在远程缓存写入之前读到旧值并回填。
+ * 待写入的键达到上限时写入方等待刷写，超时后直接同步写入远程缓存。
+ * 所有写回缓存共用一组后台刷写线程，缓存数量不影响线程数量
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+@Slf4j
+public class WriteBackStrategy<K, V> extends AbstractConsistencyStrategy<K, V> {
+
+    private final int batchSize;
+    private final int maxPendingEntries;
+    private final long backpressureTimeoutNanos;
+
+    /**
+     * 待写入远程缓存的数据，值为null表示删除
+     */
+    private final ConcurrentHashMap<K, Pending<V>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 刷写锁，保证同一时间只有一个刷写，清空缓存时等待进行中的刷写结束
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Object capacity = new Object();
+    private final ScheduledFuture<?> flushTask;
+
+    private volatile String cacheName;
+    private volatile CacheNotifier notifier;
+    private volatile boolean closed;
+
+    /**
+     * 已写入远程缓存的键数量
+     */
+    @Getter
+    private final LongAdder flushedCount = new LongAdder();
+
+    /**
+     * 待写入已满且等待超时后同步写入远程缓存的次数
+     */
+    @Getter
+    private final LongAdder directWriteCount = new LongAdder();
+
+    /**
+     * 创建写回策略
+     *
+     * @param caches 所有缓存实例列表，顺序从L1到Ln，最后一个为远程缓存
+     * @param config 写回策略配置
+     */
+    public WriteBackStrategy(List<Cache<K, V>> caches, WriteBackConfig config) {
+        if (caches == null || caches.isEmpty() || caches.size() < 2) {
+            throw new IllegalArgumentException("缓存列表必须包含至少两个缓存实例");
+        }
+        if (config.getBatchSize() < 1 || config.getMaxPendingEntries() < 1) {
+            throw new IllegalArgumentException("写回批量大小和待写入上限必须大于0");
+        }
+        setCaches(caches);
+        this.batchSize = config.getBatchSize();
+        this.maxPendingEntries = config.getMaxPendingEntries();
+        this.backpressureTimeoutNanos = config.getBackpressureTimeout() != null
+                ? config.getBackpressureTimeout().toNanos() : 0;
+        this.cacheName = caches.get(0).getName();
+
+        long interval = config.getFlushInterval().toNanos();
+        this.flushTask = FlusherHolder.EXECUTOR.scheduleWithFixedDelay(this::flushQuietly,
+                interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String getName() {
+        return "WriteBack";
+    }
+
+    @Override
+    public void bind(String cacheName, CacheNotifier notifier) {
+        this.cacheName = cacheName;
+        this.notifier = notifier;
+    }
+
+    @Override
+    public boolean handlesWriteNotification() {
+        return true;
+    }
+
+    @Override
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        V value = getLocal(key);
+        if (value != null) {
+            return value;
+        }
+        Pending<V> entry = pending.get(key);
+        if (entry != null) {
+            return fillLocal(key, entry);
+        }
+
+        Cache<K, V> remote = remote();
+        long ticket = versions.ticket();
+        CacheValue<V> found;
+        try {
+            found = remote.getWithTtl(key);
+        } catch (CacheRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("从缓存读取失败, cacheName={}, key={}", remote.getName(), key, e);
+            return null;
+        }
+        return afterRemoteRead(key, found, ticket);
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        if (key == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // 本地缓存和待写入的数据在调用线程上读取，只有远程缓存异步读取
+        V value = getLocal(key);
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        Pending<V> entry = pending.get(key);
+        if (entry != null) {
+            return CompletableFuture.completedFuture(fillLocal(key, entry));
+        }
+
+        Cache<K, V> remote = remote();
+        long ticket = versions.ticket();
+        return CacheFutures.invoke(() -> asyncCaches.get(caches.size() - 1).getAsync(key))
+                .handle((result, error) -> {
+                    if (error != null) {
+                        rethrowIfRejected(error);
+                        log.error("从缓存读取失败, cacheName={}, key={}", remote.getName(), key,
+                                CacheFutures.unwrap(error));
+                        return null;
+                    }
+                    return afterRemoteRead(key, CacheValue.of(result, null), ticket);
+                });
+    }
+
+    @Override
+    public void put(K key, V value, Duration ttl) {
+        if (key == null || value == null) {
+            return;
+        }
+        write(key, value, ttl);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        if (map == null || map.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue(), null);
+        }
+    }
+
+    /**
+     * 删除本地缓存并记录待删除的远程缓存
+     * <p>
+     * 远程缓存在刷写时才删除，返回值只反映本地缓存和待写入的数据中是否存在该键
+     *
+     * @param key 缓存键
+     * @return 是否成功移除
+     */
+    @Override
+    public boolean remove(K key) {
+        if (key == null) {
+            return false;
+        }
+        return write(key, null, null);
+    }
+
+    @Override
+    public void clear() {
+        // 等待进行中的刷写结束，避免刷写在清空后又写入远程缓存
+        flushLock.lock();
+        try {
+            pending.clear();
+            for (int i = caches.size() - 1; i >= 0; i--) {
+                Cache<K, V> cache = caches.get(i);
+                try {
+                    cache.clear();
+                } catch (CacheRejectedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    log.error("清空缓存失败, cacheName={}", cache.getName(), e);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        signalCapacity();
+
+        CacheNotifier current = notifier;
+        if (current != null) {
+            current.notifyRemove(cacheName, null);
+        }
+    }
+
+    @Override
+    public void handleCacheUpdate(CacheEvent event) {
+        if (event == null || !recordEvent(event)) {
+            return;
+        }
+
+        switch (event.getEventType()) {
+            case PUT:
+            case UPDATE:
+                invalidateLocal(event.getKey());
+                break;
+            case REMOVE:
+                // 清空缓存的通知以键为null的删除事件发送
+                if (event.getKey() == null) {
+                    clearLocalCaches();
+                } else {
+                    invalidateLocal(event.getKey());
+                }
+                break;
+            case CLEAR:
+                clearLocalCaches();
+                break;
+            case BATCH:
+                for (Object key : ((CacheBatchEvent) event).getKeys()) {
+                    invalidateLocal(key);
+                }
+                break;
+            default:
+                log.warn("未知的缓存更新事件类型: {}", event.getEventType());
+        }
+    }
+
+    /**
+     * 将待写入的数据写入远程缓存，写入完成后以一条批量消息通知其他节点
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            // 一次刷写的所有值和批量通知使用同一个版本号
+            VersionClock.runWith(VersionClock.next(), this::flushAll);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushAll() {
+        flushRequested.set(false);
+        Set<K> flushed = new LinkedHashSet<>();
+        // 刷写期间仍有新的写入，只处理开始时已有的数量，剩余的留到下一次刷写
+        int rounds = pending.size() / batchSize + 1;
+        for (int i = 0; i < rounds && !pending.isEmpty(); i++) {
+            if (!flushBatch(flushed)) {
+                break;
+            }
+        }
+
+        CacheNotifier current = notifier;
+        if (current != null && !flushed.isEmpty()) {
+            current.notifyUpdateAll(cacheName, flushed);
+        }
+    }
+
+    /**
+     * 获取待写入远程缓存的键数量
+     *
+     * @return 键数量
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 停止后台刷写，并将剩余的待写入数据写入远程缓存
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // 刷写持有刷写锁，进行中的定时刷写结束后再写入剩余的数据
+        flushTask.cancel(false);
+        flush();
+        if (!pending.isEmpty()) {
+            log.warn("关闭写回策略时仍有数据未写入远程缓存, cacheName={}, pending={}", cacheName, pending.size());
+        }
+        signalCapacity();
+    }
+
+    /**
+     * 刷写一批待写入的数据
+     *
+     * @param flushed 已写入的键
+     * @return 是否写入成功
+     */
+    private boolean flushBatch(Set<K> flushed) {
+        Map<K, Pending<V>> batch = new LinkedHashMap<>();
+        for (Map.Entry<K, Pending<V>> entry : pending.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() >= batchSize) {
+                break;
+            }
+        }
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        // 远程缓存的异常由缓存自身记录后吞掉，使用写入失败时以异常结束的接口得知本批每次写入的结果
+        AsyncCache<K, V> remote = asyncCaches.get(caches.size() - 1);
+        try {
+            Map<K, V> untimed = new HashMap<>();
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            for (Map.Entry<K, Pending<V>> entry : batch.entrySet()) {
+                K key = entry.getKey();
+                Pending<V> value = entry.getValue();
+                if (value.value != null && value.ttl == null) {
+                    untimed.put(key, value.value);
+                } else {
+                    futures.add(CacheFutures.invoke(() -> remote.writeAsync(key, value.value, value.ttl)));
+                }
+            }
+            // 未指定过期时间的写入合并为一次批量写入，其余的异步发出后一起等待
+            if (!untimed.isEmpty()) {
+                futures.add(CacheFutures.invoke(() -> remote.writeAllAsync(untimed)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (Exception e) {
+            log.warn("写回远程缓存失败，稍后重试, cacheName={}, batchSize={}", cacheName, batch.size(),
+                    CacheFutures.unwrap(e));
+            return false;
+        }
+
+        for (Map.Entry<K, Pending<V>> entry : batch.entrySet()) {
+            // 刷写期间被再次写入的键保留，下一批写入新值
+            pending.remove(entry.getKey(), entry.getValue());
+            flushed.add(entry.getKey());
+        }
+        flushedCount.add(batch.size());
+        signalCapacity();
+        return true;
+    }
+
+    /**
+     * 记录一次写入，本地缓存立即生效，远程缓存由后台刷写
+     *
+     * @param key   缓存键
+     * @param value 缓存值，为null表示删除
+     * @param ttl   过期时间
+     * @return 写入前本地缓存或待写入的数据中是否存在该键
+     */
+    private boolean write(K key, V value, Duration ttl) {
+        if (!awaitCapacity(key)) {
+            directWriteCount.increment();
+            return writeDirect(key, value, ttl);
+        }
+
+        // 先记录待写入再写本地缓存，读取远程缓存后回填的并发读取可以看到这次写入。
+        // 同一个键的记录和本地写入在待写入数据的锁内完成，并发写入不会使本地缓存和待写入的值不一致
+        Pending<V> entry = new Pending<>(value, ttl);
+        boolean[] existed = new boolean[1];
+        pending.compute(key, (k, previous) -> {
+            existed[0] = writeLocal(key, value, ttl) || (previous != null && previous.value != null);
+            return entry;
+        });
+
+        if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true) && !closed) {
+            try {
+                FlusherHolder.EXECUTOR.execute(this::flushQuietly);
+            } catch (Exception e) {
+                flushRequested.set(false);
+            }
+        }
+        return existed[0];
+    }
+
+    /**
+     * 待写入的数据已满且等待超时，直接同步写入远程缓存并通知其他节点
+     * <p>
+     * 等待进行中的刷写结束，并在该键的待写入数据的锁内写入远程缓存和本地缓存，同时移除该键较早的待写入数据，
+     * 之后的刷写不会以旧值覆盖这次写入
+     */
+    private boolean writeDirect(K key, V value, Duration ttl) {
+        Cache<K, V> remote = remote();
+        boolean[] existed = new boolean[1];
+        flushLock.lock();
+        try {
+            pending.compute(key, (k, previous) -> {
+                if (value == null) {
+                    existed[0] = remote.remove(key);
+                } else if (ttl != null) {
+                    remote.put(key, value, ttl);
+                } else {
+                    remote.put(key, value);
+                }
+                existed[0] = writeLocal(key, value, ttl) || existed[0] || (previous != null && previous.value != null);
+                return null;
+            });
+        } finally {
+            flushLock.unlock();
+        }
+        signalCapacity();
+
+        CacheNotifier current = notifier;
+        if (current != null) {
+            if (value == null) {
+                current.notifyRemove(cacheName, key);
+            } else {
+                current.notifyUpdate(cacheName, key);
+            }
+        }
+        return existed[0];
+    }
+
+    /**
+     * 等待待写入的数据低于上限，已在待写入数据中的键不占用新的位置
+     *
+     * @param key 缓存键
+     * @return 是否可以记录为待写入，超时返回false
+     */
+    private boolean awaitCapacity(K key) {
+        if (closed) {
+            return false;
+        }
+        if (pending.size() < maxPendingEntries || pending.containsKey(key)) {
+            return true;
+        }
+
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                FlusherHolder.EXECUTOR.execute(this::flushQuietly);
+            } catch (Exception e) {
+                flushRequested.set(false);
+            }
+        }
+        long deadline = System.nanoTime() + backpressureTimeoutNanos;
+        synchronized (capacity) {
+            while (pending.size() >= maxPendingEntries && !closed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(capacity, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return !closed;
+    }
+
+    private void signalCapacity() {
+        synchronized (capacity) {
+            capacity.notifyAll();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("写回远程缓存异常, cacheName={}", cacheName, e);
+        }
+    }
+
+    /**
+     * 从本地缓存读取
+     *
+     * @param key 缓存键
+     * @return 缓存值，未命中时返回null
+     */
+    private V getLocal(K key) {
+        for (int i = 0; i < caches.size() - 1; i++) {
+            Cache<K, V> cache = caches.get(i);
+            try {
+                V value = cache.get(key);
+                if (value != null) {
+                    backfillToLowerLevelCaches(key, value, i);
+                    return value;
+                }
+            } catch (Exception e) {
+                log.error("从缓存读取失败, cacheName={}, key={}", cache.getName(), key, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 远程缓存读取完成后回填本地缓存
+     * <p>
+     * 读取期间可能有新的写入，回填后再检查一次待写入的数据，以新写入的值为准
+     *
+     * @param key    缓存键
+     * @param found  远程缓存中的值
+     * @param ticket 读取前取得的失效记录序号
+     * @return 缓存值
+     */
+    private V afterRemoteRead(K key, CacheValue<V> found, long ticket) {
+        if (found == null) {
+            return null;
+        }
+        backfillToLowerLevelCaches(key, found, ticket, caches.size() - 1);
+        Pending<V> entry = pending.get(key);
+        return entry != null ? fillLocal(key, entry) : found.getValue();
+    }
+
+    /**
+     * 以待写入的数据回填本地缓存，在待写入数据的锁内以最新的写入回填，不会覆盖并发写入的新值
+     *
+     * @param key   缓存键
+     * @param entry 读取到的待写入数据
+     * @return 缓存值
+     */
+    private V fillLocal(K key, Pending<V> entry) {
+        Pending<V> current = pending.computeIfPresent(key, (k, latest) -> {
+            writeLocal(k, latest.value, latest.ttl);
+            return latest;
+        });
+        // 已经写入远程缓存时不回填，下次读取远程缓存
+        return current != null ? current.value : entry.value;
+    }
+
+    /**
+     * 写入或删除本地缓存
+     *
+     * @param key   缓存键
+     * @param value 缓存值，为null时删除
+     * @param ttl   过期时间
+     * @return 删除时本地缓存中是否存在该键
+     */
+    private boolean writeLocal(K key, V value, Duration ttl) {
+        boolean removed = false;
+        for (int i = caches.size() - 2; i >= 0; i--) {
+            Cache<K, V> cache = caches.get(i);
+            try {
+                if (value == null) {
+                    removed |= cache.remove(key);
+                } else if (ttl != null) {
+                    cache.put(key, value, ttl);
+                } else {
+                    cache.put(key, value);
+                }
+            } catch (Exception e) {
+                log.error("写入缓存失败, cacheName={}, key={}", cache.getName(), key, e);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 其他节点更新了远程缓存，本节点有未写入的数据时保留本地的值，由本节点的刷写覆盖
+     *
+     * @param key 缓存键
+     */
+    @SuppressWarnings("unchecked")
+    private void invalidateLocal(Object key) {
+        if (key == null || pending.containsKey(key)) {
+            return;
+        }
+        writeLocal((K) key, null, null);
+    }
+
+    private Cache<K, V> remote() {
+        return caches.get(caches.size() - 1);
+    }
+
+    /**
+     * 所有写回缓存共用的后台刷写线程，首次使用时创建。同一个缓存的刷写由刷写锁串行执行
+     */
+    private static final class FlusherHolder {
+        private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+
+        private static ScheduledThreadPoolExecutor createExecutor() {
+            AtomicInteger index = new AtomicInteger();
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                    Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                Thread thread = new Thread(r, "cyx-cache-write-back-" + index.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            // 缓存关闭时取消的定时刷写立即移除
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+
+    /**
+     * 待写入远程缓存的数据
+     */
+    private static final class Pending<V> {
+        private final V value;
+        private final Duration ttl;
+
+        private Pending(V value, Duration ttl) {
+            this.value = value;
+            this.ttl = ttl;
+        }
+    }
+}
@@ -1,16 +1,28 @@
 package com.caoyixin.cache.consistency;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.caoyixin.cache.api.Cache;
+import com.caoyixin.cache.api.CacheFutures;
+import com.caoyixin.cache.api.CacheValue;
+import com.caoyixin.cache.config.AsyncWriteConfig;
+import com.caoyixin.cache.exception.CacheRejectedException;
+import com.caoyixin.cache.notification.CacheBatchEvent;
 import com.caoyixin.cache.notification.CacheEvent;
+import com.caoyixin.cache.notification.CacheNotifier;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * 写同步策略实现，所有写操作同时写入所有级别的缓存
+ * <p>
+ * 配置了异步写入时，写操作写入本地缓存后即返回，远程缓存和通知由{@link AsyncRemoteWriter}在后台按键顺序写入
  *
  * @param <K> 键类型
  * @param <V> 值类型
@@ -18,16 +30,33 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class WriteThroughStrategy<K, V> extends AbstractConsistencyStrategy<K, V> {
 
+    /**
+     * 远程缓存异步写入器，同步写入时为null
+     */
+    private final AsyncRemoteWriter<K, V> remoteWriter;
+
     /**
      * 创建写同步策略
      *
      * @param caches 所有缓存实例列表，顺序从L1到Ln
      */
     public WriteThroughStrategy(List<Cache<K, V>> caches) {
+        this(caches, null);
+    }
+
+    /**
+     * 创建写同步策略
+     *
+     * @param caches     所有缓存实例列表，顺序从L1到Ln
+     * @param asyncWrite 异步写入配置，为null时同步写入所有级别的缓存
+     */
+    public WriteThroughStrategy(List<Cache<K, V>> caches, AsyncWriteConfig asyncWrite) {
         if (caches == null || caches.isEmpty() || caches.size() < 2) {
             throw new IllegalArgumentException("缓存列表必须包含至少两个缓存实例");
         }
-        this.caches = caches;
+        setCaches(caches);
+        Cache<K, V> remote = caches.get(caches.size() - 1);
+        this.remoteWriter = asyncWrite != null ? new AsyncRemoteWriter<>(remote, remote.async(), asyncWrite) : null;
     }
 
     @Override
@@ -35,6 +64,35 @@ public class WriteThroughStrategy<K, V> extends AbstractConsistencyStrategy<K, V
         return "WriteThrough";
     }
 
+    /**
+     * 获取远程缓存异步写入器，可以从中读取队列深度和复制延迟
+     *
+     * @return 异步写入器，同步写入时返回null
+     */
+    public AsyncRemoteWriter<K, V> getRemoteWriter() {
+        return remoteWriter;
+    }
+
+    @Override
+    public void bind(String cacheName, CacheNotifier notifier) {
+        if (remoteWriter != null) {
+            remoteWriter.bind(cacheName, notifier);
+        }
+    }
+
+    @Override
+    public boolean handlesWriteNotification() {
+        // 异步写入时远程缓存写入完成后才能通知其他节点
+        return remoteWriter != null;
+    }
+
+    @Override
+    public void close() {
+        if (remoteWriter != null) {
+            remoteWriter.close();
+        }
+    }
+
     @Override
     public V get(K key) {
         if (key == null || caches.isEmpty()) {
@@ -42,17 +100,32 @@ public class WriteThroughStrategy<K, V> extends AbstractConsistencyStrategy<K, V
         }
 
         V value = null;
+        long ticket = versions.ticket();
 
         // 从L1开始查找，直到找到值
         for (int i = 0; i < caches.size(); i++) {
             Cache<K, V> cache = caches.get(i);
+            AsyncRemoteWriter.Pending<V> pending = i == caches.size() - 1 ? pendingWrite(key) : null;
+            if (pending != null) {
+                // 本节点的写入尚未写入远程缓存，以待写入的数据为准
+                return applyPending(key, pending);
+            }
             try {
-                value = cache.get(key);
+                // 本地缓存之后的级别同时取回剩余过期时间，回填的值不会比下一级缓存中的值存活更久
+                CacheValue<V> found = i == 0 ? CacheValue.of(cache.get(key), null) : cache.getWithTtl(key);
+                value = found != null ? found.getValue() : null;
                 if (value != null) {
                     // 将值回填到前面级别的缓存
-                    backfillToLowerLevelCaches(key, value, i);
+                    backfillToLowerLevelCaches(key, found, ticket, i);
+                    pending = i == caches.size() - 1 ? pendingWrite(key) : null;
+                    if (pending != null) {
+                        // 读取远程缓存期间本节点有新的写入
+                        return applyPending(key, pending);
+                    }
                     return value;
                 }
+            } catch (CacheRejectedException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("从缓存读取失败, cacheName={}, key={}", cache.getName(), key, e);
             }
@@ -67,6 +140,13 @@ public class WriteThroughStrategy<K, V> extends AbstractConsistencyStrategy<K, V
             return;
         }
 
+        if (remoteWriter != null) {
+            // 先记录待写入再写本地缓存，本地缓存被淘汰时也能读到这次写入
+            remoteWriter.submit(key, value, ttl);
+            writeLocalCaches(key, value, ttl);
+            return;
+        }
+
         // 写入所有缓存，从后往前写入
         // 这样保证即使过程中出现故障，本地缓存也不会保存远程缓存没有的数据
         for (int i = caches.size() - 1; i >= 0; i--) {
@@ -77,6 +157,8 @@ public class WriteThroughStrategy<K, V> extends AbstractConsistencyStrategy<K, V
                 } else {
                     cache.put(key, value);
                 }
+            } catch (CacheRejectedException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("写入缓存失败, cacheName={}, key={}", cache.getName(), key, e);
             }
@@ -89,11 +171,20 @@ public class WriteThroughStrategy<K, V> extends AbstractConsistencyStrategy<K, V
             return;
         }
 
+        if (remoteWriter != null) {
+            for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                put(entry.getKey(), entry.getValue(), null);
+            }
+            return;
+        }
+
         // 写入所有缓存，从后往前写入
         for (int i = caches.size() - 1; i >= 0; i--) {
             Cache<K, V> cache = caches.get(i);
             try {
                 cache.putAll(map);
+            } catch (CacheRejectedException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("批量写入缓存失败, cacheName={}", cache.getName(), e);
             }
@@ -106,6 +197,12 @@ public class WriteThroughStrategy<K, V> extends AbstractConsistencyStrategy<K, V
             return false;
         }
 
+        if (remoteWriter != null) {
+            // 远程缓存在后台删除，返回值只反映本地缓存和待写入的数据中是否存在该键
+            boolean pendingValue = remoteWriter.submit(key, null, null);
+            return writeLocalCaches(key, null, null) || pendingValue;
+        }
+
         boolean removed = false;
 
         // 从所有缓存中删除，从后往前删除
@@ -116,6 +213,8 @@ public class WriteThroughStrategy<K, V> extends AbstractConsistencyStrategy<K, V
                 if (result) {
                     removed = true;
                 }
+            } catch (CacheRejectedException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("从缓存删除失败, cacheName={}, key={}", cache.getName(), key, e);
             }
@@ -130,20 +229,201 @@ public class WriteThroughStrategy<K, V> extends AbstractConsistencyStrategy<K, V
             return;
         }
 
+        if (remoteWriter != null) {
+            // 丢弃尚未写入的数据，避免清空后又写入远程缓存
+            remoteWriter.clear(this::clearAll);
+            remoteWriter.notifyClear();
+            return;
+        }
+        clearAll();
+    }
+
+    /**
+     * 清空所有级别的缓存
+     */
+    private void clearAll() {
         // 清空所有缓存，从后往前清空
         for (int i = caches.size() - 1; i >= 0; i--) {
             Cache<K, V> cache = caches.get(i);
             try {
                 cache.clear();
+            } catch (CacheRejectedException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("清空缓存失败, cacheName={}", cache.getName(), e);
             }
         }
     }
 
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        if (key == null || caches.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return getAsync(key, 0);
+    }
+
+    /**
+     * 从指定级别开始异步查找，本地缓存命中时结果已经完成，不经过任何线程池
+     *
+     * @param key   缓存键
+     * @param level 缓存级别
+     * @return 缓存值
+     */
+    private CompletableFuture<V> getAsync(K key, int level) {
+        Cache<K, V> cache = caches.get(level);
+        boolean remote = level == caches.size() - 1;
+        AsyncRemoteWriter.Pending<V> pending = remote ? pendingWrite(key) : null;
+        if (pending != null) {
+            return CompletableFuture.completedFuture(applyPending(key, pending));
+        }
+        long ticket = versions.ticket();
+        return CacheFutures.invoke(() -> asyncCaches.get(level).getAsync(key))
+                .handle((value, error) -> {
+                    if (error != null) {
+                        rethrowIfRejected(error);
+                        log.error("从缓存读取失败, cacheName={}, key={}", cache.getName(), key,
+                                CacheFutures.unwrap(error));
+                        return null;
+                    }
+                    return value;
+                })
+                .thenCompose(value -> {
+                    if (value != null) {
+                        // 将值回填到前面级别的缓存
+                        backfillToLowerLevelCaches(key, CacheValue.of(value, null), ticket, level);
+                        AsyncRemoteWriter.Pending<V> written = remote ? pendingWrite(key) : null;
+                        if (written != null) {
+                            return CompletableFuture.completedFuture(applyPending(key, written));
+                        }
+                        return CompletableFuture.completedFuture(value);
+                    }
+                    return level + 1 < caches.size()
+                            ? getAsync(key, level + 1)
+                            : CompletableFuture.<V>completedFuture(null);
+                });
+    }
+
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys) {
+        if (keys == null || keys.isEmpty() || caches.isEmpty()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+        return getAllAsync(keys, 0);
+    }
+
+    /**
+     * 从指定级别开始异步批量查找，只有未命中的键继续查找下一级缓存
+     *
+     * @param keys  缓存键
+     * @param level 缓存级别
+     * @return 存在的键值对
+     */
+    private CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys, int level) {
+        Cache<K, V> cache = caches.get(level);
+        long ticket = versions.ticket();
+        return CacheFutures.invoke(() -> asyncCaches.get(level).getAllAsync(keys))
+                .handle((values, error) -> {
+                    if (error != null) {
+                        rethrowIfRejected(error);
+                        log.error("从缓存批量读取失败, cacheName={}", cache.getName(), CacheFutures.unwrap(error));
+                        return new HashMap<K, V>();
+                    }
+                    return new HashMap<>(values);
+                })
+                .thenCompose(found -> {
+                    for (Map.Entry<K, V> entry : found.entrySet()) {
+                        backfillToLowerLevelCaches(entry.getKey(), CacheValue.of(entry.getValue(), null), ticket,
+                                level);
+                    }
+
+                    List<K> missing = new ArrayList<>();
+                    boolean beforeRemote = level + 1 == caches.size() - 1;
+                    for (K key : keys) {
+                        if (key == null || found.containsKey(key)) {
+                            continue;
+                        }
+                        AsyncRemoteWriter.Pending<V> pending = beforeRemote ? pendingWrite(key) : null;
+                        if (pending != null) {
+                            // 本节点的写入尚未写入远程缓存，以待写入的数据为准
+                            V pendingValue = applyPending(key, pending);
+                            if (pendingValue != null) {
+                                found.put(key, pendingValue);
+                            }
+                        } else {
+                            missing.add(key);
+                        }
+                    }
+                    if (missing.isEmpty() || level + 1 >= caches.size()) {
+                        return CompletableFuture.completedFuture(found);
+                    }
+                    return getAllAsync(missing, level + 1).thenApply(lower -> {
+                        found.putAll(lower);
+                        return found;
+                    });
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(K key, V value, Duration ttl) {
+        if (key == null || value == null || caches.isEmpty()) {
+            return CacheFutures.completedVoid();
+        }
+        if (remoteWriter != null) {
+            return CacheFutures.invoke(() -> {
+                put(key, value, ttl);
+                return CacheFutures.completedVoid();
+            });
+        }
+
+        // 与同步写入相同，从后往前依次写入，上一级写入完成后才写入下一级
+        CompletableFuture<Void> chain = CacheFutures.completedVoid();
+        for (int i = caches.size() - 1; i >= 0; i--) {
+            Cache<K, V> cache = caches.get(i);
+            int level = i;
+            chain = chain.thenCompose(ignored -> CacheFutures
+                    .invoke(() -> asyncCaches.get(level).putAsync(key, value, ttl))
+                    .exceptionally(error -> {
+                        rethrowIfRejected(error);
+                        log.error("写入缓存失败, cacheName={}, key={}", cache.getName(), key, CacheFutures.unwrap(error));
+                        return null;
+                    }));
+        }
+        return chain;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> removeAsync(K key) {
+        if (key == null || caches.isEmpty()) {
+            return CacheFutures.completedBoolean(false);
+        }
+        if (remoteWriter != null) {
+            return CacheFutures.invoke(() -> CacheFutures.completedBoolean(remove(key)));
+        }
+
+        // 从后往前依次删除
+        CompletableFuture<Boolean> chain = CacheFutures.completedBoolean(false);
+        for (int i = caches.size() - 1; i >= 0; i--) {
+            Cache<K, V> cache = caches.get(i);
+            int level = i;
+            chain = chain.thenCompose(removed -> CacheFutures
+                    .invoke(() -> asyncCaches.get(level).removeAsync(key))
+                    .handle((result, error) -> {
+                        if (error != null) {
+                            rethrowIfRejected(error);
+                            log.error("从缓存删除失败, cacheName={}, key={}", cache.getName(), key,
+                                    CacheFutures.unwrap(error));
+                            return removed;
+                        }
+                        return removed || Boolean.TRUE.equals(result);
+                    }));
+        }
+        return chain;
+    }
+
     @Override
     public void handleCacheUpdate(CacheEvent event) {
-        if (event == null) {
+        if (event == null || !recordEvent(event)) {
             return;
         }
 
@@ -154,20 +434,81 @@ public class WriteThroughStrategy<K, V> extends AbstractConsistencyStrategy<K, V
         switch (event.getEventType()) {
             case PUT:
             case UPDATE:
-                // 本地缓存也需要删除，因为无法获取远程缓存的值
-                remove(key);
+                // 事件不携带值，删除本地缓存，下次读取时从远程缓存回填
+                invalidateLocalCaches(key);
                 break;
             case REMOVE:
-                remove(key);
+                // 其他节点已经删除了远程缓存，这里只处理本地缓存；清空缓存的通知以键为null的删除事件发送
+                if (key == null) {
+                    clearLocalCaches();
+                } else {
+                    invalidateLocalCaches(key);
+                }
                 break;
             case CLEAR:
-                clear();
+                clearLocalCaches();
+                break;
+            case BATCH:
+                for (Object batchKey : ((CacheBatchEvent) event).getKeys()) {
+                    @SuppressWarnings("unchecked")
+                    K updated = (K) batchKey;
+                    invalidateLocalCaches(updated);
+                }
                 break;
             default:
                 log.warn("未知的缓存更新事件类型: {}", event.getEventType());
         }
     }
 
+    /**
+     * 获取本节点尚未写入远程缓存的写入
+     *
+     * @param key 缓存键
+     * @return 待写入的数据，同步写入或不存在时返回null
+     */
+    private AsyncRemoteWriter.Pending<V> pendingWrite(K key) {
+        return remoteWriter != null ? remoteWriter.pending(key) : null;
+    }
+
+    /**
+     * 以待写入的数据作为读取结果，并回填本地缓存
+     *
+     * @param key     缓存键
+     * @param pending 待写入的数据
+     * @return 待写入的值，删除时返回null
+     */
+    private V applyPending(K key, AsyncRemoteWriter.Pending<V> pending) {
+        writeLocalCaches(key, pending.value, pending.ttl);
+        return pending.value;
+    }
+
+    /**
+     * 写入或删除除最后一级(远程)缓存以外的所有缓存
+     *
+     * @param key   缓存键
+     * @param value 缓存值，为null时删除
+     * @param ttl   过期时间
+     * @return 删除时缓存中是否存在该键
+     */
+    private boolean writeLocalCaches(K key, V value, Duration ttl) {
+        boolean removed = false;
+        for (int i = caches.size() - 2; i >= 0; i--) {
+            Cache<K, V> cache = caches.get(i);
+            try {
+                if (value == null) {
+                    removed |= cache.remove(key);
+                } else if (ttl != null) {
+                    cache.put(key, value, ttl);
+                } else {
+                    cache.put(key, value);
+                }
+            } catch (Exception e) {
+                log.error("写入缓存失败, cacheName={}, key={}", cache.getName(), key, e);
+            }
+        }
+        return removed;
+    }
+
     /**
      * 将值回填到低级别的缓存中
      *
@@ -175,14 +516,8 @@ public class WriteThroughStrategy<K, V> extends AbstractConsistencyStrategy<K, V
      * @param value      缓存值
      * @param foundIndex 找到值的缓存索引
      */
+    @Override
     public void backfillToLowerLevelCaches(K key, V value, int foundIndex) {
-        // 将值回填到前面级别的缓存中
-        for (int j = 0; j < foundIndex; j++) {
-            try {
-                caches.get(j).put(key, value);
-            } catch (Exception e) {
-                log.error("回填缓存值失败, cacheName={}, key={}", caches.get(j).getName(), key, e);
-            }
-        }
+        super.backfillToLowerLevelCaches(key, value, foundIndex);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package com.caoyixin.cache.enums;
+
+/**
+ * 本地缓存淘汰策略枚举
+ */
+public enum EvictionPolicy {
+    /**
+     * 近似LRU - 记录访问时钟，淘汰时抽样若干条目，淘汰最久未访问的条目
+     */
+    LRU,
+
+    /**
+     * CLOCK - 访问时设置引用位，淘汰时指针扫描，淘汰引用位已清除的条目
+     */
+    CLOCK
+}
@@ -0,0 +1,21 @@
+package com.caoyixin.cache.enums;
+
+/**
+ * 远程缓存加载租约等待超时后的处理方式枚举
+ */
+public enum LeaseFallback {
+    /**
+     * 直接调用加载函数并写入缓存，保证调用方拿到数据，但可能有多个节点同时访问数据源
+     */
+    LOAD,
+
+    /**
+     * 返回null，数据源不被重复访问，调用方需要处理空值
+     */
+    RETURN_NULL,
+
+    /**
+     * 抛出CacheException，由调用方决定重试或降级
+     */
+    THROW
+}
@@ -0,0 +1,16 @@
+package com.caoyixin.cache.enums;
+
+/**
+ * 远程缓存并发超过限制时的处理方式枚举
+ */
+public enum OverloadPolicy {
+    /**
+     * 丢弃 - 读取视为未命中，写入被跳过；多级缓存中只使用本地缓存
+     */
+    SHED,
+
+    /**
+     * 快速失败 - 抛出CacheRejectedException，由调用方决定降级方式
+     */
+    FAIL_FAST
+}
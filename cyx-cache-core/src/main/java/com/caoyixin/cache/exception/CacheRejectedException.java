@@ -0,0 +1,16 @@
+package com.caoyixin.cache.exception;
+
+/**
+ * 缓存调用被拒绝异常，调用保护(如并发限制)拒绝调用且配置为快速失败时抛出
+ */
+public class CacheRejectedException extends CacheException {
+
+    /**
+     * 创建缓存调用被拒绝异常
+     *
+     * @param message 异常信息
+     */
+    public CacheRejectedException(String message) {
+        super(message);
+    }
+}
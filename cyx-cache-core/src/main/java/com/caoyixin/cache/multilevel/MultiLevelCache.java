@@ -5,15 +5,23 @@ import com.caoyixin.cache.api.Cache;
 import com.caoyixin.cache.api.ConsistencyStrategy;
 import com.caoyixin.cache.api.DistributedLock;
 import com.caoyixin.cache.config.CacheConfig;
+import com.caoyixin.cache.consistency.VersionClock;
 import com.caoyixin.cache.notification.CacheEvent;
 import com.caoyixin.cache.notification.CacheNotifier;
+import com.caoyixin.cache.resilience.CacheCallGuard;
+import com.caoyixin.cache.resilience.CircuitBreaker;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -23,7 +31,7 @@ import java.util.function.Function;
  * @param <V> 值类型
  */
 @Slf4j
-public class MultiLevelCache<K, V> extends AbstractCache<K, V> {
+public class MultiLevelCache<K, V> extends AbstractCache<K, V> implements AutoCloseable {
 
     private final List<Cache<K, V>> caches;
     private final ConsistencyStrategy<K, V> consistencyStrategy;
@@ -31,6 +39,10 @@ public class MultiLevelCache<K, V> extends AbstractCache<K, V> {
     private final String instanceId;
     private final DistributedLock<K> distributedLock;
     private final CacheNotifier notifier;
+    /**
+     * 最后一级(远程)缓存的熔断器，未启用时为null
+     */
+    private final CircuitBreaker remoteBreaker;
 
     /**
      * 创建多级缓存
@@ -57,10 +69,24 @@ public class MultiLevelCache<K, V> extends AbstractCache<K, V> {
         this.caches = new ArrayList<>(caches);
         this.consistencyStrategy = consistencyStrategy;
         this.consistencyStrategy.initialize(this.caches);
+        this.consistencyStrategy.bind(name, cacheNotifier);
         this.config = config;
         this.instanceId = UUID.randomUUID().toString();
         this.distributedLock = distributedLock;
         this.notifier = cacheNotifier;
+
+        Cache<K, V> remote = this.caches.get(this.caches.size() - 1);
+        CacheCallGuard guard = remote instanceof AbstractCache ? ((AbstractCache<K, V>) remote).getCallGuard() : null;
+        this.remoteBreaker = guard != null ? guard.unwrap(CircuitBreaker.class) : null;
+    }
+
+    /**
+     * 获取远程缓存的熔断器
+     *
+     * @return 熔断器，未启用时返回null
+     */
+    public CircuitBreaker getRemoteCircuitBreaker() {
+        return remoteBreaker;
     }
 
     @Override
@@ -70,14 +96,26 @@ public class MultiLevelCache<K, V> extends AbstractCache<K, V> {
 
     @Override
     protected void doPut(K key, V value, Duration ttl) {
-        consistencyStrategy.put(key, value, ttl);
+        // 远程缓存保存的值和发出的通知使用同一个版本号，其他节点据此丢弃读到的旧值
+        VersionClock.runWith(VersionClock.next(), () -> {
+            consistencyStrategy.put(key, value, localTtl(ttl));
 
-        notifier.notifyAdd(getName(), key);
+            if (shouldNotify()) {
+                notifier.notifyAdd(getName(), key);
+            }
+        });
     }
 
     @Override
     protected void doPutAll(Map<? extends K, ? extends V> map) {
-        consistencyStrategy.putAll(map);
+        VersionClock.runWith(VersionClock.next(), () -> {
+            consistencyStrategy.putAll(map);
+
+            if (shouldNotify()) {
+                // 一批键合并为一条通知
+                notifier.notifyUpdateAll(getName(), map.keySet());
+            }
+        });
     }
 
     @Override
@@ -87,17 +125,129 @@ public class MultiLevelCache<K, V> extends AbstractCache<K, V> {
 
     @Override
     protected boolean doRemove(K key) {
-        boolean remove = consistencyStrategy.remove(key);
-        if (remove) {
-            notifier.notifyRemove(getName(), key);
-        }
-        return remove;
+        return VersionClock.callWith(VersionClock.next(), () -> {
+            boolean remove = consistencyStrategy.remove(key);
+            if (remove && shouldNotify()) {
+                notifier.notifyRemove(getName(), key);
+            }
+            return remove;
+        });
     }
 
     @Override
     protected void doClear() {
-        consistencyStrategy.clear();
-        notifier.notifyRemove(getName(), null);
+        VersionClock.runWith(VersionClock.next(), () -> {
+            consistencyStrategy.clear();
+            if (shouldNotify()) {
+                notifier.notifyRemove(getName(), null);
+            }
+        });
+    }
+
+    @Override
+    protected CompletableFuture<V> doGetAsync(K key) {
+        return consistencyStrategy.getAsync(key);
+    }
+
+    @Override
+    protected CompletableFuture<Map<K, V>> doGetAllAsync(Collection<? extends K> keys) {
+        return consistencyStrategy.getAllAsync(keys);
+    }
+
+    @Override
+    protected CompletableFuture<Void> doPutAsync(K key, V value, Duration ttl) {
+        long version = VersionClock.next();
+        return afterWrite(version,
+                VersionClock.callWith(version, () -> consistencyStrategy.putAsync(key, value, localTtl(ttl))),
+                ignored -> notifier.notifyAdd(getName(), key));
+    }
+
+    /**
+     * 写入后是否发送通知
+     * <p>
+     * 一致性策略自行发送通知时不重复发送；远程缓存熔断期间不发送，避免每次写入都阻塞在不可用的Redis上
+     *
+     * @return 是否发送通知
+     */
+    private boolean shouldNotify() {
+        if (consistencyStrategy.handlesWriteNotification()) {
+            return false;
+        }
+        return remoteBreaker == null || remoteBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * 远程缓存熔断期间只有本地缓存可用，按配置延长写入本地缓存的过期时间
+     *
+     * @param ttl 指定的过期时间
+     * @return 实际使用的过期时间
+     */
+    private Duration localTtl(Duration ttl) {
+        if (remoteBreaker == null || remoteBreaker.getState() == CircuitBreaker.State.CLOSED) {
+            return ttl;
+        }
+        Duration extended = config.getCircuitBreaker().getLocalTtlWhenOpen();
+        return extended != null ? extended : ttl;
+    }
+
+    @Override
+    protected CompletableFuture<Boolean> doRemoveAsync(K key) {
+        long version = VersionClock.next();
+        return afterWrite(version, VersionClock.callWith(version, () -> consistencyStrategy.removeAsync(key)), removed -> {
+            if (removed) {
+                notifier.notifyRemove(getName(), key);
+            }
+        });
+    }
+
+    /**
+     * 写入完成后发送通知
+     * <p>
+     * 发送通知可能阻塞在Redis连接上，写入在IO线程上完成时改到通知线程中发送，避免阻塞IO线程，
+     * 也不占用调用方和其他组件共用的公共线程池
+     *
+     * @param version      写入的版本号，通知使用同一个版本号
+     * @param write        写入操作
+     * @param notification 通知
+     * @param <T>          写入结果类型
+     * @return 通知发送完成时结束的Future，结果与写入操作相同
+     */
+    private <T> CompletableFuture<T> afterWrite(long version, CompletableFuture<T> write, Consumer<T> notification) {
+        Function<T, T> notify = result -> {
+            if (shouldNotify()) {
+                VersionClock.runWith(version, () -> notification.accept(result));
+            }
+            return result;
+        };
+        return write.isDone() ? write.thenApply(notify) : write.thenApplyAsync(notify, NotifyExecutorHolder.EXECUTOR);
+    }
+
+    /**
+     * 异步写入完成后发送通知的线程，首次使用时创建
+     */
+    private static final class NotifyExecutorHolder {
+        private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "cyx-cache-notify");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 获取一致性策略
+     *
+     * @return 一致性策略
+     */
+    public ConsistencyStrategy<K, V> getConsistencyStrategy() {
+        return consistencyStrategy;
+    }
+
+    /**
+     * 关闭多级缓存，一致性策略中尚未写入远程缓存的数据在此时写入
+     */
+    @Override
+    public void close() {
+        consistencyStrategy.close();
     }
 
     /**
@@ -5,8 +5,11 @@ import com.caoyixin.cache.config.CacheConfig;
 import com.caoyixin.cache.consistency.ConsistencyStrategyFactory;
 import com.caoyixin.cache.enums.ConsistencyType;
 import com.caoyixin.cache.notification.CacheEvent;
+import com.caoyixin.cache.notification.CacheEventListener;
 import com.caoyixin.cache.notification.CacheEventType;
 import com.caoyixin.cache.notification.CacheNotifier;
+import com.caoyixin.cache.resilience.CircuitBreaker;
+import com.caoyixin.cache.resilience.CompositeCallGuard;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
@@ -25,7 +28,10 @@ public class MultiLevelCacheManager implements CacheManager {
     private final ConsistencyStrategyFactory strategyFactory;
     private final CacheNotifier notifier;
     private final DistributedLock lock;
-
+    /**
+     * 所有多级缓存共用的事件监听器，重复订阅同一个缓存时不会重复注册
+     */
+    private final CacheEventListener eventListener = this::handleCacheUpdateEvent;
 
     /**
      * 创建多级缓存管理器
@@ -97,6 +103,7 @@ public class MultiLevelCacheManager implements CacheManager {
     public void removeCache(String name) {
         Cache<?, ?> cache = caches.remove(name);
         if (cache != null) {
+            closeCache(cache);
             // 从本地和远程缓存管理器中也移除
             localCacheManager.removeCache(name + ":local");
             if (remoteCacheManager != null) {
@@ -114,7 +121,13 @@ public class MultiLevelCacheManager implements CacheManager {
 
     @Override
     public void close() {
+        // 先关闭多级缓存，写回策略需要在远程缓存管理器关闭前写入剩余的数据
+        for (Cache<?, ?> cache : caches.values()) {
+            closeCache(cache);
+        }
         caches.clear();
+        // 缓存关闭时的最后一次刷写也会发出通知，之后再关闭通知器，发出后台等待发送的通知
+        closeNotifier();
         localCacheManager.close();
         if (remoteCacheManager != null) {
             remoteCacheManager.close();
@@ -164,7 +177,7 @@ public class MultiLevelCacheManager implements CacheManager {
             if (remoteCacheManager == null) {
                 throw new IllegalArgumentException("未配置远程缓存管理器，无法创建REMOTE类型的缓存");
             }
-            return (Cache<K, V>) remoteCacheManager.createCache(name, config);
+            return guardRemote((Cache<K, V>) remoteCacheManager.createCache(name, config), name, config);
         } else if (cacheType == CacheType.BOTH) {
             if (remoteCacheManager == null) {
                 throw new IllegalArgumentException("未配置远程缓存管理器，无法创建BOTH类型的缓存");
@@ -173,8 +186,8 @@ public class MultiLevelCacheManager implements CacheManager {
             // 创建本地和远程缓存
             Cache<K, V> localCache = (Cache<K, V>) localCacheManager.createCache(
                     name + ":local", config);
-            Cache<K, V> remoteCache = (Cache<K, V>) remoteCacheManager.createCache(
-                    name + ":remote", config);
+            Cache<K, V> remoteCache = guardRemote((Cache<K, V>) remoteCacheManager.createCache(
+                    name + ":remote", config), name + ":remote", config);
 
             // 创建缓存列表，按L1到Ln的顺序
             List<Cache<K, V>> caches = new ArrayList<>(Arrays.asList(localCache, remoteCache));
@@ -184,16 +197,71 @@ public class MultiLevelCacheManager implements CacheManager {
                     : ConsistencyType.WRITE_THROUGH;
 
             ConsistencyStrategy<K, V> strategy = strategyFactory.createStrategy(
-                    consistencyType, caches);
+                    consistencyType, caches, config);
 
 
-            // 创建多级缓存
-            return new MultiLevelCache<>(name, caches, strategy, config, lock, notifier);
+            // 创建多级缓存，并订阅其他节点发出的失效通知
+            MultiLevelCache<K, V> cache = new MultiLevelCache<>(name, caches, strategy, config, lock, notifier);
+            if (notifier != null) {
+                notifier.subscribe(name, eventListener);
+            }
+            return cache;
         } else {
             throw new IllegalArgumentException("不支持的缓存类型: " + cacheType);
         }
     }
 
+    /**
+     * 配置了熔断器时为远程缓存添加熔断保护
+     *
+     * @param remoteCache 远程缓存
+     * @param name        熔断器名称
+     * @param config      缓存配置
+     * @return 远程缓存
+     */
+    private <K, V> Cache<K, V> guardRemote(Cache<K, V> remoteCache, String name, CacheConfig config) {
+        if (config.getCircuitBreaker() == null) {
+            return remoteCache;
+        }
+        if (remoteCache instanceof AbstractCache) {
+            // 熔断器放在远程缓存已有的调用保护(如并发限制)之前，熔断期间不占用并发许可
+            AbstractCache<K, V> guarded = (AbstractCache<K, V>) remoteCache;
+            guarded.setCallGuard(CompositeCallGuard.of(new CircuitBreaker(name, config.getCircuitBreaker()),
+                    guarded.getCallGuard()));
+        } else {
+            log.warn("远程缓存不支持熔断保护, name={}, type={}", name, remoteCache.getClass().getName());
+        }
+        return remoteCache;
+    }
+
+    /**
+     * 关闭多级缓存
+     *
+     * @param cache 缓存
+     */
+    private void closeCache(Cache<?, ?> cache) {
+        if (cache instanceof MultiLevelCache) {
+            try {
+                ((MultiLevelCache<?, ?>) cache).close();
+            } catch (Exception e) {
+                log.error("关闭多级缓存异常, name={}", cache.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * 关闭通知器，不需要关闭的通知器跳过
+     */
+    private void closeNotifier() {
+        if (notifier instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) notifier).close();
+            } catch (Exception e) {
+                log.error("关闭缓存通知器异常", e);
+            }
+        }
+    }
+
     /**
      * 验证缓存配置
      *
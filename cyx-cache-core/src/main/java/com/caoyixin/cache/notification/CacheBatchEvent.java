@@ -0,0 +1,42 @@
+package com.caoyixin.cache.notification;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * 缓存批量更新事件，一条消息携带一批已更新的键
+ */
+@NoArgsConstructor
+public class CacheBatchEvent extends CacheEvent {
+    /**
+     * 构造函数
+     *
+     * @param cacheName  缓存名称
+     * @param keys       缓存键
+     * @param instanceId 实例ID
+     */
+    @JsonCreator
+    public CacheBatchEvent(
+            @JsonProperty("cacheName") String cacheName,
+            @JsonProperty("key") Collection<?> keys,
+            @JsonProperty("instanceId") String instanceId) {
+        super(cacheName, keys != null ? new ArrayList<>(keys) : new ArrayList<>(), CacheEventType.BATCH, instanceId);
+    }
+
+    /**
+     * 获取本次更新的键
+     *
+     * @return 缓存键
+     */
+    @JsonIgnore
+    public Collection<?> getKeys() {
+        Object key = getKey();
+        return key instanceof Collection ? (Collection<?>) key : Collections.emptyList();
+    }
+}
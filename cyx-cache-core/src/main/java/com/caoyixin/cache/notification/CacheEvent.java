@@ -1,11 +1,14 @@
 package com.caoyixin.cache.notification;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.ToString;
 
 /**
@@ -14,10 +17,12 @@ import lombok.ToString;
 @Getter
 @ToString
 @NoArgsConstructor // 添加无参构造函数，用于Jackson反序列化
+@JsonIgnoreProperties(ignoreUnknown = true) // 忽略新版本增加的字段，新旧版本的节点可以同时运行
 @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "eventType", visible = true)
 @JsonSubTypes({
         @JsonSubTypes.Type(value = CacheUpdateEvent.class, name = "UPDATE"),
-        @JsonSubTypes.Type(value = CacheRemoveEvent.class, name = "REMOVE")
+        @JsonSubTypes.Type(value = CacheRemoveEvent.class, name = "REMOVE"),
+        @JsonSubTypes.Type(value = CacheBatchEvent.class, name = "BATCH")
 })
 public abstract class CacheEvent {
     /**
@@ -40,6 +45,23 @@ public abstract class CacheEvent {
      */
     private String instanceId;
 
+    /**
+     * 引起事件的写入的版本号，与远程缓存中保存的值的版本号相同，为0表示没有版本号。
+     * 旧版本节点无法解析带有该字段的JSON消息，发送方需要在所有节点升级后才能发送
+     */
+    @Setter
+    @JsonProperty("version")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private long version;
+
+    /**
+     * 发送节点上本缓存的通知序号，从1开始连续递增，接收方据此发现丢失的通知；为0表示发送方不提供序号
+     */
+    @Setter
+    @JsonProperty("sequence")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private long sequence;
+
     /**
      * 构造函数
      *
@@ -25,4 +25,9 @@ public enum CacheEventType {
     PUT,
 
     CLEAR,
+
+    /**
+     * 批量更新事件，键为本次更新的键列表
+     */
+    BATCH,
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.caoyixin.cache.notification;
 
+import java.util.Collection;
+
 /**
  * 缓存通知接口，用于在分布式环境中同步缓存变更
  */
@@ -25,6 +27,18 @@ public interface CacheNotifier {
      */
     void notifyRemove(String cacheName, Object key);
 
+    /**
+     * 通知一批键已更新，默认逐个调用{@link #notifyUpdate(String, Object)}，实现可以合并为一条消息发送
+     *
+     * @param cacheName 缓存名称
+     * @param keys      缓存键
+     */
+    default void notifyUpdateAll(String cacheName, Collection<?> keys) {
+        for (Object key : keys) {
+            notifyUpdate(cacheName, key);
+        }
+    }
+
     /**
      * 订阅缓存事件
      *
@@ -0,0 +1,171 @@
+package com.caoyixin.cache.resilience;
+
+import com.caoyixin.cache.config.ConcurrencyLimitConfig;
+import com.caoyixin.cache.enums.OverloadPolicy;
+import com.caoyixin.cache.exception.CacheRejectedException;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于耗时梯度的自适应并发限制
+ * <p>
+ * 分别以短期和长期的指数移动平均跟踪调用耗时，短期耗时明显高于长期耗时说明请求开始排队，按两者的比值收缩限制；
+ * 耗时平稳时限制以约等于其平方根的余量增长。调用失败时按比例收缩(AIMD)。
+ * 每个缓存使用独立的实例，一个缓存的拥堵不会占满其他缓存可用的并发
+ */
+public class AdaptiveConcurrencyLimiter implements CacheCallGuard {
+
+    /**
+     * 短期和长期移动平均的样本窗口
+     */
+    private static final int SHORT_WINDOW = 10;
+    private static final int LONG_WINDOW = 600;
+
+    @Getter
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double backoffRatio;
+    private final OverloadPolicy overloadPolicy;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int limit;
+
+    /**
+     * 以下字段由this保护
+     */
+    private double estimatedLimit;
+    private double shortRtt;
+    private double longRtt;
+    private long samples;
+
+    @Getter
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * 创建自适应并发限制
+     *
+     * @param name   名称，通常为被保护的缓存名称
+     * @param config 并发限制配置
+     */
+    public AdaptiveConcurrencyLimiter(String name, ConcurrencyLimitConfig config) {
+        if (config.getMinLimit() < 1 || config.getMaxLimit() < config.getMinLimit()) {
+            throw new IllegalArgumentException("并发限制范围不合法: " + config.getMinLimit() + " - " + config.getMaxLimit());
+        }
+        this.name = name;
+        this.minLimit = config.getMinLimit();
+        this.maxLimit = config.getMaxLimit();
+        this.smoothing = config.getSmoothing();
+        this.backoffRatio = config.getBackoffRatio();
+        this.overloadPolicy = config.getOverloadPolicy() != null ? config.getOverloadPolicy() : OverloadPolicy.SHED;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, config.getInitialLimit()));
+        this.limit = (int) estimatedLimit;
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        if (inflight.incrementAndGet() <= limit) {
+            return true;
+        }
+        inflight.decrementAndGet();
+        rejectedCount.increment();
+        if (overloadPolicy == OverloadPolicy.FAIL_FAST) {
+            throw new CacheRejectedException("远程缓存并发超过限制, name=" + name + ", limit=" + limit);
+        }
+        return false;
+    }
+
+    @Override
+    public void onSuccess(long elapsedNanos) {
+        int current = inflight.getAndDecrement();
+        update(elapsedNanos, current);
+    }
+
+    @Override
+    public void onFailure(long elapsedNanos) {
+        inflight.decrementAndGet();
+        synchronized (this) {
+            setLimit(estimatedLimit * backoffRatio);
+        }
+    }
+
+    @Override
+    public void onIgnored() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * 获取当前的并发限制
+     *
+     * @return 并发限制
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 获取正在进行的调用数
+     *
+     * @return 调用数
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * 获取短期平均耗时
+     *
+     * @return 耗时(毫秒)
+     */
+    public synchronized double getShortRttMillis() {
+        return shortRtt / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * 获取长期平均耗时
+     *
+     * @return 耗时(毫秒)
+     */
+    public synchronized double getLongRttMillis() {
+        return longRtt / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private synchronized void update(long rtt, int inflightAtCompletion) {
+        if (samples++ == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+            return;
+        }
+        shortRtt += (rtt - shortRtt) / Math.min(samples, SHORT_WINDOW);
+        longRtt += (rtt - longRtt) / Math.min(samples, LONG_WINDOW);
+        // 负载长期偏高后长期平均会被拉高，耗时恢复时让长期平均更快回落，避免限制长时间偏大
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // 并发远未达到限制时耗时不能说明限制是否合适，不增长限制
+        if (inflightAtCompletion < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, longRtt / shortRtt));
+        double queueSize = Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queueSize;
+        setLimit(estimatedLimit * (1 - smoothing) + newLimit * smoothing);
+    }
+
+    private void setLimit(double newLimit) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveConcurrencyLimiter(name=" + name + ", limit=" + limit + ", inflight=" + inflight.get()
+                + ", rejectedCount=" + rejectedCount.sum() + ")";
+    }
+}
@@ -0,0 +1,48 @@
+package com.caoyixin.cache.resilience;
+
+/**
+ * 缓存调用保护
+ * <p>
+ * 每次调用前通过{@link #tryAcquire()}获取许可，获取成功后必须以{@link #onSuccess(long)}、
+ * {@link #onFailure(long)}或{@link #onIgnored()}之一报告调用结果
+ */
+public interface CacheCallGuard {
+
+    /**
+     * 尝试获取调用许可
+     *
+     * @return 是否允许调用，为false时调用方不应访问被保护的缓存
+     * @throws com.caoyixin.cache.exception.CacheRejectedException 拒绝调用且配置为快速失败时抛出
+     */
+    boolean tryAcquire();
+
+    /**
+     * 报告调用成功
+     *
+     * @param elapsedNanos 调用耗时(纳秒)
+     */
+    void onSuccess(long elapsedNanos);
+
+    /**
+     * 报告调用失败
+     *
+     * @param elapsedNanos 调用耗时(纳秒)
+     */
+    void onFailure(long elapsedNanos);
+
+    /**
+     * 归还许可，不计入统计，用于无法判断结果的调用(如失败可能来自加载函数)
+     */
+    void onIgnored();
+
+    /**
+     * 查找指定类型的调用保护，用于从组合的调用保护中取出熔断器等具体实现
+     *
+     * @param type 调用保护类型
+     * @param <T>  调用保护类型
+     * @return 找到的调用保护，不存在时返回null
+     */
+    default <T extends CacheCallGuard> T unwrap(Class<T> type) {
+        return type.isInstance(this) ? type.cast(this) : null;
+    }
+}
@@ -0,0 +1,239 @@
+package com.caoyixin.cache.resilience;
+
+import com.caoyixin.cache.config.CircuitBreakerConfig;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 远程缓存熔断器
+ * <p>
+ * 在最近若干次调用的滑动窗口上统计失败率和耗时分位，失败率或慢调用超过阈值时打开，
+ * 打开期间拒绝所有调用；等待一段时间后进入半开状态，放行少量探测调用，全部成功后关闭，任何一次失败重新打开
+ */
+@Slf4j
+public class CircuitBreaker implements CacheCallGuard {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        /**
+         * 关闭 - 正常放行调用
+         */
+        CLOSED,
+
+        /**
+         * 打开 - 拒绝所有调用
+         */
+        OPEN,
+
+        /**
+         * 半开 - 放行少量探测调用
+         */
+        HALF_OPEN
+    }
+
+    @Getter
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final double latencyPercentile;
+    private final long openNanos;
+    private final int halfOpenProbes;
+
+    /**
+     * 滑动窗口，环形记录最近调用的耗时和结果，由this保护
+     */
+    private final long[] latencies;
+    private final boolean[] failures;
+    private int index;
+    private int count;
+    private int failureCount;
+
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    @Getter
+    private final LongAdder successCount = new LongAdder();
+    @Getter
+    private final LongAdder failureTotal = new LongAdder();
+    @Getter
+    private final LongAdder rejectedCount = new LongAdder();
+    @Getter
+    private final LongAdder openCount = new LongAdder();
+
+    /**
+     * 创建熔断器
+     *
+     * @param name   名称，通常为被保护的缓存名称
+     * @param config 熔断器配置
+     */
+    public CircuitBreaker(String name, CircuitBreakerConfig config) {
+        if (config.getWindowSize() < 1 || config.getHalfOpenProbes() < 1) {
+            throw new IllegalArgumentException("熔断器窗口大小和探测次数必须大于0");
+        }
+        this.name = name;
+        this.windowSize = config.getWindowSize();
+        this.minimumCalls = Math.max(1, Math.min(config.getMinimumCalls(), windowSize));
+        this.failureRateThreshold = config.getFailureRateThreshold();
+        this.slowCallNanos = config.getSlowCallDuration() != null ? config.getSlowCallDuration().toNanos() : Long.MAX_VALUE;
+        this.latencyPercentile = config.getLatencyPercentile();
+        this.openNanos = config.getOpenDuration().toNanos();
+        this.halfOpenProbes = config.getHalfOpenProbes();
+        this.latencies = new long[windowSize];
+        this.failures = new boolean[windowSize];
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        synchronized (this) {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.HALF_OPEN && probesInFlight < halfOpenProbes) {
+                probesInFlight++;
+                return true;
+            }
+        }
+        rejectedCount.increment();
+        return false;
+    }
+
+    @Override
+    public void onSuccess(long elapsedNanos) {
+        successCount.increment();
+        record(elapsedNanos, false);
+    }
+
+    @Override
+    public void onFailure(long elapsedNanos) {
+        failureTotal.increment();
+        record(elapsedNanos, true);
+    }
+
+    @Override
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    /**
+     * 获取当前状态
+     *
+     * @return 熔断器状态
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 获取窗口内的失败率
+     *
+     * @return 失败率(0 - 1)
+     */
+    public synchronized double getFailureRate() {
+        return count == 0 ? 0.0 : (double) failureCount / count;
+    }
+
+    /**
+     * 获取窗口内的耗时分位
+     *
+     * @return 配置的分位对应的耗时(毫秒)
+     */
+    public synchronized double getLatencyPercentileMillis() {
+        return count == 0 ? 0.0 : percentile() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private synchronized void record(long elapsedNanos, boolean failed) {
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight == 0) {
+                // 进入半开之前发出的调用，不作为探测结果
+                return;
+            }
+            probesInFlight--;
+            if (failed || elapsedNanos > slowCallNanos) {
+                transitionTo(State.OPEN);
+            } else if (++probeSuccesses >= halfOpenProbes) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+
+        if (count == windowSize && failures[index]) {
+            failureCount--;
+        }
+        latencies[index] = elapsedNanos;
+        failures[index] = failed;
+        if (failed) {
+            failureCount++;
+        }
+        index = (index + 1) % windowSize;
+        if (count < windowSize) {
+            count++;
+        }
+        if (count < minimumCalls) {
+            return;
+        }
+
+        double failureRate = (double) failureCount / count;
+        if (failureRate >= failureRateThreshold) {
+            log.warn("远程缓存熔断器打开, name={}, failureRate={}", name, failureRate);
+            transitionTo(State.OPEN);
+        } else if (elapsedNanos > slowCallNanos && percentile() > slowCallNanos) {
+            // 只有新的慢调用才可能使分位超过阈值
+            log.warn("远程缓存熔断器打开, name={}, latencyPercentileMillis={}", name,
+                    TimeUnit.NANOSECONDS.toMillis(percentile()));
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private long percentile() {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(latencyPercentile * count) - 1;
+        return sorted[Math.max(0, Math.min(rank, count - 1))];
+    }
+
+    private void transitionTo(State newState) {
+        State oldState = state;
+        state = newState;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (newState == State.OPEN) {
+            openedAt = System.nanoTime();
+            openCount.increment();
+        } else if (newState == State.CLOSED) {
+            Arrays.fill(failures, false);
+            index = 0;
+            count = 0;
+            failureCount = 0;
+        }
+        log.info("熔断器状态变化, name={}, {} -> {}", name, oldState, newState);
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker(name=" + name + ", state=" + state + ", successCount=" + successCount.sum()
+                + ", failureCount=" + failureTotal.sum() + ", rejectedCount=" + rejectedCount.sum()
+                + ", openCount=" + openCount.sum() + ")";
+    }
+}
@@ -0,0 +1,104 @@
+package com.caoyixin.cache.resilience;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 组合调用保护，按顺序依次获取许可，全部获取成功才允许调用
+ * <p>
+ * 通常把开销小、拒绝率高的调用保护(如熔断器)放在前面
+ */
+public class CompositeCallGuard implements CacheCallGuard {
+
+    private final CacheCallGuard[] guards;
+
+    private CompositeCallGuard(List<CacheCallGuard> guards) {
+        this.guards = guards.toArray(new CacheCallGuard[0]);
+    }
+
+    /**
+     * 组合多个调用保护，忽略null
+     *
+     * @param guards 调用保护
+     * @return 组合后的调用保护，只有一个时直接返回，全部为null时返回null
+     */
+    public static CacheCallGuard of(CacheCallGuard... guards) {
+        List<CacheCallGuard> list = new ArrayList<>();
+        for (CacheCallGuard guard : guards) {
+            if (guard instanceof CompositeCallGuard) {
+                list.addAll(Arrays.asList(((CompositeCallGuard) guard).guards));
+            } else if (guard != null) {
+                list.add(guard);
+            }
+        }
+        if (list.isEmpty()) {
+            return null;
+        }
+        return list.size() == 1 ? list.get(0) : new CompositeCallGuard(list);
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        for (int i = 0; i < guards.length; i++) {
+            boolean acquired;
+            try {
+                acquired = guards[i].tryAcquire();
+            } catch (RuntimeException e) {
+                release(i);
+                throw e;
+            }
+            if (!acquired) {
+                release(i);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onSuccess(long elapsedNanos) {
+        for (CacheCallGuard guard : guards) {
+            guard.onSuccess(elapsedNanos);
+        }
+    }
+
+    @Override
+    public void onFailure(long elapsedNanos) {
+        for (CacheCallGuard guard : guards) {
+            guard.onFailure(elapsedNanos);
+        }
+    }
+
+    @Override
+    public void onIgnored() {
+        for (CacheCallGuard guard : guards) {
+            guard.onIgnored();
+        }
+    }
+
+    @Override
+    public <T extends CacheCallGuard> T unwrap(Class<T> type) {
+        for (CacheCallGuard guard : guards) {
+            T found = guard.unwrap(type);
+            if (found != null) {
+                return found;
+            }
+        }
+        return CacheCallGuard.super.unwrap(type);
+    }
+
+    /**
+     * 归还已经获取的许可
+     */
+    private void release(int acquiredCount) {
+        for (int i = 0; i < acquiredCount; i++) {
+            guards[i].onIgnored();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompositeCallGuard" + Arrays.toString(guards);
+    }
+}
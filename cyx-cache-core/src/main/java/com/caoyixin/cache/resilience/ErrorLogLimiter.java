@@ -0,0 +1,46 @@
+package com.caoyixin.cache.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 错误日志限流器，同一类错误在一个间隔内只记录一次，其余只计数
+ */
+public class ErrorLogLimiter {
+
+    private final long intervalNanos;
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * 创建错误日志限流器
+     *
+     * @param interval 同一类错误记录日志的最小间隔
+     */
+    public ErrorLogLimiter(Duration interval) {
+        this.intervalNanos = interval.toNanos();
+    }
+
+    /**
+     * 判断是否应该记录日志
+     *
+     * @param category 错误类别
+     * @return 应该记录时返回上次记录以来被忽略的次数，否则返回-1
+     */
+    public long tryLog(String category) {
+        Window window = windows.computeIfAbsent(category, c -> new Window());
+        long now = System.nanoTime();
+        long next = window.nextLogTime.get();
+        if (now - next >= 0 && window.nextLogTime.compareAndSet(next, now + intervalNanos)) {
+            return window.suppressed.sumThenReset();
+        }
+        window.suppressed.increment();
+        return -1;
+    }
+
+    private static final class Window {
+        private final AtomicLong nextLogTime = new AtomicLong(System.nanoTime());
+        private final LongAdder suppressed = new LongAdder();
+    }
+}
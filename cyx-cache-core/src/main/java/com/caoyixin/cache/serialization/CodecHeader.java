@@ -0,0 +1,228 @@
+package com.caoyixin.cache.serialization;
+
+/**
+ * 值编码头，用于在远程缓存中标识值的编码格式
+ * <p>
+ * 格式为两个字节：第一个字节高4位固定为0xC、低4位为头格式版本号，第二个字节为编解码器标识。
+ * 版本2在编解码器标识后追加varint长度和完整键，用于校验哈希键的冲突。
+ * 版本3在编解码器标识后追加8字节的写入版本号，随后是varint长度和完整键，不保存完整键时长度为0。
+ * 没有编码头的数据视为历史数据，由缓存配置的值解码器解码
+ */
+public final class CodecHeader {
+
+    /**
+     * 版本1的头字节
+     */
+    public static final byte MAGIC_V1 = (byte) 0xC1;
+
+    /**
+     * 版本1的头长度
+     */
+    public static final int V1_LENGTH = 2;
+
+    /**
+     * 版本2的头字节，头中带有完整键
+     */
+    public static final byte MAGIC_V2 = (byte) 0xC2;
+
+    /**
+     * 版本3的头字节，头中带有写入版本号
+     */
+    public static final byte MAGIC_V3 = (byte) 0xC3;
+
+    /**
+     * 版本3中完整键长度的位置，也是版本3头的最小长度减1
+     */
+    private static final int V3_KEY_OFFSET = V1_LENGTH + 8;
+
+    private CodecHeader() {
+    }
+
+    /**
+     * 为编码后的数据添加编码头
+     *
+     * @param codecId 编解码器标识
+     * @param payload 编码后的数据
+     * @return 带编码头的数据
+     */
+    public static byte[] write(int codecId, byte[] payload) {
+        int length = payload == null ? 0 : payload.length;
+        byte[] result = new byte[V1_LENGTH + length];
+        result[0] = MAGIC_V1;
+        result[1] = (byte) codecId;
+        if (length > 0) {
+            System.arraycopy(payload, 0, result, V1_LENGTH, length);
+        }
+        return result;
+    }
+
+    /**
+     * 将编码头写入输出流，随后由编码器直接写入编码数据
+     *
+     * @param codecId 编解码器标识
+     * @param out     输出流
+     */
+    public static void writeTo(int codecId, PooledByteArrayOutputStream out) {
+        out.write(MAGIC_V1);
+        out.write(codecId);
+    }
+
+    /**
+     * 将带完整键的编码头写入输出流
+     *
+     * @param codecId 编解码器标识
+     * @param key     完整键所在的数组
+     * @param offset  完整键的起始位置
+     * @param length  完整键的长度
+     * @param out     输出流
+     */
+    public static void writeTo(int codecId, byte[] key, int offset, int length, PooledByteArrayOutputStream out) {
+        out.write(MAGIC_V2);
+        out.write(codecId);
+        int value = length;
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+        out.write(key, offset, length);
+    }
+
+    /**
+     * 将带写入版本号的编码头写入输出流
+     *
+     * @param codecId 编解码器标识
+     * @param version 写入版本号
+     * @param key     完整键所在的数组，不保存完整键时为null
+     * @param offset  完整键的起始位置
+     * @param length  完整键的长度
+     * @param out     输出流
+     */
+    public static void writeTo(int codecId, long version, byte[] key, int offset, int length,
+                               PooledByteArrayOutputStream out) {
+        out.write(MAGIC_V3);
+        out.write(codecId);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (version >>> shift));
+        }
+        int value = key != null ? length : 0;
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+        if (key != null) {
+            out.write(key, offset, length);
+        }
+    }
+
+    /**
+     * 判断数据是否带有编码头
+     *
+     * @param bytes 数据
+     * @return 是否带有编码头
+     */
+    public static boolean hasHeader(byte[] bytes) {
+        if (bytes == null || bytes.length < V1_LENGTH) {
+            return false;
+        }
+        return bytes[0] == MAGIC_V1 || bytes[0] == MAGIC_V2 || (bytes[0] == MAGIC_V3 && bytes.length > V3_KEY_OFFSET);
+    }
+
+    /**
+     * 判断编码头中是否带有完整键
+     *
+     * @param bytes 带编码头的数据
+     * @return 是否带有完整键
+     */
+    public static boolean hasKey(byte[] bytes) {
+        return bytes[0] == MAGIC_V2 || (bytes[0] == MAGIC_V3 && bytes[V3_KEY_OFFSET] != 0);
+    }
+
+    /**
+     * 读取写入版本号
+     *
+     * @param bytes 数据
+     * @return 写入版本号，没有编码头或编码头中没有版本号时返回0
+     */
+    public static long version(byte[] bytes) {
+        if (!hasHeader(bytes) || bytes[0] != MAGIC_V3) {
+            return 0;
+        }
+        long version = 0;
+        for (int i = V1_LENGTH; i < V3_KEY_OFFSET; i++) {
+            version = (version << 8) | (bytes[i] & 0xFF);
+        }
+        return version;
+    }
+
+    /**
+     * 比较编码头中的完整键
+     *
+     * @param bytes  带完整键的数据
+     * @param key    期望的完整键所在的数组
+     * @param offset 期望的完整键的起始位置
+     * @param length 期望的完整键的长度
+     * @return 是否一致
+     */
+    public static boolean keyEquals(byte[] bytes, byte[] key, int offset, int length) {
+        int position = keyLengthOffset(bytes);
+        int keyLength = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (position >= bytes.length || shift > 28) {
+                return false;
+            }
+            b = bytes[position++];
+            keyLength |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        if (keyLength != length || position + keyLength > bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[position + i] != key[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读取编解码器标识
+     *
+     * @param bytes 带编码头的数据
+     * @return 编解码器标识
+     */
+    public static int codecId(byte[] bytes) {
+        return bytes[1] & 0xFF;
+    }
+
+    /**
+     * 获取编码数据的起始位置
+     *
+     * @param bytes 带编码头的数据
+     * @return 起始位置
+     */
+    public static int payloadOffset(byte[] bytes) {
+        if (bytes[0] != MAGIC_V2 && bytes[0] != MAGIC_V3) {
+            return V1_LENGTH;
+        }
+        int position = keyLengthOffset(bytes);
+        int keyLength = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position++];
+            keyLength |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return position + keyLength;
+    }
+
+    private static int keyLengthOffset(byte[] bytes) {
+        return bytes[0] == MAGIC_V3 ? V3_KEY_OFFSET : V1_LENGTH;
+    }
+}
@@ -0,0 +1,115 @@
+package com.caoyixin.cache.serialization;
+
+import com.caoyixin.cache.exception.CacheException;
+
+import java.lang.reflect.Type;
+
+/**
+ * 压缩值解码器，与{@link CompressingValueEncoder}配合使用
+ * <p>
+ * 根据头字节选择解压算法，未压缩和已压缩的数据可以混合存在
+ *
+ * @param <V> 值类型
+ */
+public class CompressingValueDecoder<V> implements TypedValueDecoder<V> {
+
+    private final ValueDecoder<V> delegate;
+    private final Compressor[] compressors;
+    private final CompressionStats stats;
+
+    /**
+     * 创建压缩值解码器
+     *
+     * @param delegate   实际的值解码器
+     * @param compressor 压缩算法
+     * @param stats      压缩统计信息
+     */
+    public CompressingValueDecoder(ValueDecoder<V> delegate, Compressor compressor, CompressionStats stats) {
+        if (delegate == null || compressor == null) {
+            throw new IllegalArgumentException("值解码器和压缩算法不能为空");
+        }
+        this.delegate = delegate;
+        this.compressors = new Compressor[256];
+        this.stats = stats != null ? stats : new CompressionStats();
+        registerCompressor(compressor);
+    }
+
+    /**
+     * 创建与已有解码器共享解压算法和统计信息的解码器
+     */
+    private CompressingValueDecoder(ValueDecoder<V> delegate, Compressor[] compressors, CompressionStats stats) {
+        this.delegate = delegate;
+        this.compressors = compressors;
+        this.stats = stats;
+    }
+
+    /**
+     * 注册额外的解压算法，用于读取以其他算法压缩的历史数据
+     *
+     * @param compressor 压缩算法
+     * @return 当前对象
+     */
+    public CompressingValueDecoder<V> registerCompressor(Compressor compressor) {
+        if (compressor.id() == CompressingValueEncoder.UNCOMPRESSED) {
+            throw new IllegalArgumentException("压缩算法标识不能为0");
+        }
+        compressors[compressor.id() & 0xFF] = compressor;
+        return this;
+    }
+
+    @Override
+    public V decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        return decode(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public V decode(byte[] bytes, int offset, int length) {
+        if (bytes == null || length == 0) {
+            return null;
+        }
+
+        byte header = bytes[offset];
+        if (header == CompressingValueEncoder.UNCOMPRESSED) {
+            return delegate.decode(bytes, offset + 1, length - 1);
+        }
+
+        Compressor compressor = compressors[header & 0xFF];
+        if (compressor == null) {
+            throw new CacheException("未知的压缩算法: " + (header & 0xFF));
+        }
+
+        long start = System.nanoTime();
+        byte[] raw = compressor.decompress(bytes, offset + 1, length - 1);
+        stats.recordDecompress(System.nanoTime() - start);
+        return delegate.decode(raw);
+    }
+
+    /**
+     * 实际的值解码器支持绑定值类型时，创建外层同样带解压的类型化解码器
+     *
+     * @param valueType 值类型
+     * @return 解码器
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public ValueDecoder<?> forType(Type valueType) {
+        if (!(delegate instanceof TypedValueDecoder)) {
+            return this;
+        }
+        ValueDecoder<V> typed = (ValueDecoder<V>) ((TypedValueDecoder<V>) delegate).forType(valueType);
+        return typed == delegate ? this : new CompressingValueDecoder<>(typed, compressors, stats);
+    }
+
+    /**
+     * 获取压缩统计信息
+     *
+     * @return 压缩统计信息
+     */
+    public CompressionStats getStats() {
+        return stats;
+    }
+}
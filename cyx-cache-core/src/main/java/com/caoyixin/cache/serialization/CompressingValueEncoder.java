@@ -0,0 +1,128 @@
+package com.caoyixin.cache.serialization;
+
+import com.caoyixin.cache.exception.CacheException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 压缩值编码器，装饰任意值编码器，仅压缩超过阈值的数据
+ * <p>
+ * 输出格式为一个头字节加数据：头字节为0表示未压缩，否则为压缩算法标识。
+ * 压缩后体积没有减小时按未压缩写出，保证不会因压缩放大数据
+ *
+ * @param <V> 值类型
+ */
+public class CompressingValueEncoder<V> implements ValueEncoder<V> {
+
+    /**
+     * 未压缩数据的头字节
+     */
+    public static final byte UNCOMPRESSED = 0;
+
+    private final ValueEncoder<V> delegate;
+    private final Compressor compressor;
+    private final int threshold;
+    private final CompressionStats stats;
+
+    /**
+     * 创建压缩值编码器
+     *
+     * @param delegate   实际的值编码器
+     * @param compressor 压缩算法
+     * @param threshold  压缩阈值(字节)，小于该大小的数据不压缩
+     * @param stats      压缩统计信息
+     */
+    public CompressingValueEncoder(ValueEncoder<V> delegate, Compressor compressor, int threshold, CompressionStats stats) {
+        if (delegate == null || compressor == null) {
+            throw new IllegalArgumentException("值编码器和压缩算法不能为空");
+        }
+        if (compressor.id() == UNCOMPRESSED) {
+            throw new IllegalArgumentException("压缩算法标识不能为0");
+        }
+        this.delegate = delegate;
+        this.compressor = compressor;
+        this.threshold = Math.max(0, threshold);
+        this.stats = stats != null ? stats : new CompressionStats();
+    }
+
+    @Override
+    public byte[] encode(V value) {
+        if (value == null) {
+            return new byte[0];
+        }
+
+        PooledByteArrayOutputStream raw = PooledByteArrayOutputStream.acquire();
+        try {
+            delegate.encode(value, raw);
+            if (raw.size() == 0) {
+                return new byte[0];
+            }
+
+            byte[] compressed = compress(raw);
+            byte[] payload = compressed != null ? compressed : raw.buffer();
+            int length = compressed != null ? compressed.length : raw.size();
+            byte[] result = new byte[length + 1];
+            result[0] = compressed != null ? compressor.id() : UNCOMPRESSED;
+            System.arraycopy(payload, 0, result, 1, length);
+            return result;
+        } catch (IOException e) {
+            throw new CacheException("压缩值编码失败", e);
+        } finally {
+            raw.release();
+        }
+    }
+
+    @Override
+    public void encode(V value, OutputStream out) throws IOException {
+        PooledByteArrayOutputStream raw = PooledByteArrayOutputStream.acquire();
+        try {
+            delegate.encode(value, raw);
+            if (raw.size() == 0) {
+                return;
+            }
+
+            byte[] compressed = compress(raw);
+            if (compressed != null) {
+                out.write(compressor.id());
+                out.write(compressed);
+            } else {
+                out.write(UNCOMPRESSED);
+                out.write(raw.buffer(), 0, raw.size());
+            }
+        } finally {
+            raw.release();
+        }
+    }
+
+    /**
+     * 压缩数据
+     *
+     * @param raw 原始数据
+     * @return 压缩后的数据，低于阈值或压缩无收益时返回null
+     */
+    private byte[] compress(PooledByteArrayOutputStream raw) {
+        int rawSize = raw.size();
+        if (rawSize >= threshold) {
+            long start = System.nanoTime();
+            byte[] compressed = compressor.compress(raw.buffer(), 0, rawSize);
+            long nanos = System.nanoTime() - start;
+            if (compressed.length < rawSize) {
+                stats.recordCompress(rawSize, compressed.length, nanos);
+                return compressed;
+            }
+        }
+
+        stats.recordSkip();
+        return null;
+    }
+
+    /**
+     * 获取压缩统计信息
+     *
+     * @return 压缩统计信息
+     */
+    public CompressionStats getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,82 @@
+package com.caoyixin.cache.serialization;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压缩统计信息，由同一组压缩编码器和解码器共享
+ */
+@Getter
+@ToString
+public class CompressionStats {
+    private final LongAdder compressCount = new LongAdder();
+    private final LongAdder skipCount = new LongAdder();
+    private final LongAdder decompressCount = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    /**
+     * 记录一次压缩
+     *
+     * @param rawSize        原始大小
+     * @param compressedSize 压缩后大小
+     * @param nanos          耗时(纳秒)
+     */
+    public void recordCompress(int rawSize, int compressedSize, long nanos) {
+        compressCount.increment();
+        rawBytes.add(rawSize);
+        compressedBytes.add(compressedSize);
+        compressNanos.add(nanos);
+    }
+
+    /**
+     * 记录一次因低于阈值或压缩无收益而跳过的压缩
+     */
+    public void recordSkip() {
+        skipCount.increment();
+    }
+
+    /**
+     * 记录一次解压
+     *
+     * @param nanos 耗时(纳秒)
+     */
+    public void recordDecompress(long nanos) {
+        decompressCount.increment();
+        decompressNanos.add(nanos);
+    }
+
+    /**
+     * 获取压缩率(压缩后大小/原始大小)，仅统计实际压缩过的数据
+     *
+     * @return 压缩率(0 - 1)，越小越好
+     */
+    public double compressionRatio() {
+        long raw = rawBytes.sum();
+        return raw == 0 ? 1.0 : (double) compressedBytes.sum() / raw;
+    }
+
+    /**
+     * 获取平均压缩耗时
+     *
+     * @return 平均压缩耗时(微秒)
+     */
+    public double avgCompressMicros() {
+        long count = compressCount.sum();
+        return count == 0 ? 0.0 : compressNanos.sum() / 1000.0 / count;
+    }
+
+    /**
+     * 获取平均解压耗时
+     *
+     * @return 平均解压耗时(微秒)
+     */
+    public double avgDecompressMicros() {
+        long count = decompressCount.sum();
+        return count == 0 ? 0.0 : decompressNanos.sum() / 1000.0 / count;
+    }
+}
@@ -0,0 +1,35 @@
+package com.caoyixin.cache.serialization;
+
+/**
+ * 压缩算法扩展点，供{@link CompressingValueEncoder}和{@link CompressingValueDecoder}使用
+ * <p>
+ * 每种算法需要一个唯一的非零标识，写入压缩数据的头字节，解码时据此选择算法
+ */
+public interface Compressor {
+    /**
+     * 获取算法标识，取值范围1-255，0保留给未压缩数据
+     *
+     * @return 算法标识
+     */
+    byte id();
+
+    /**
+     * 压缩数据
+     *
+     * @param src    源数据
+     * @param offset 起始位置
+     * @param length 数据长度
+     * @return 压缩后的数据
+     */
+    byte[] compress(byte[] src, int offset, int length);
+
+    /**
+     * 解压数据
+     *
+     * @param src    压缩数据
+     * @param offset 起始位置
+     * @param length 数据长度
+     * @return 解压后的数据
+     */
+    byte[] decompress(byte[] src, int offset, int length);
+}
@@ -0,0 +1,128 @@
+package com.caoyixin.cache.serialization;
+
+import com.caoyixin.cache.exception.CacheException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 基于JDK Deflater的压缩算法实现
+ */
+public class DeflateCompressor implements Compressor {
+
+    /**
+     * 算法标识
+     */
+    public static final byte ID = 1;
+
+    /**
+     * 默认解压后的最大大小(字节)
+     */
+    public static final int DEFAULT_MAX_DECOMPRESSED_SIZE = 64 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final int level;
+    private final int maxDecompressedSize;
+
+    /**
+     * 使用默认压缩级别创建
+     */
+    public DeflateCompressor() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * 创建Deflate压缩算法
+     *
+     * @param level 压缩级别，0-9，越大压缩率越高、CPU消耗越大
+     */
+    public DeflateCompressor(int level) {
+        this(level, DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+
+    /**
+     * 创建Deflate压缩算法
+     *
+     * @param level               压缩级别，0-9，越大压缩率越高、CPU消耗越大
+     * @param maxDecompressedSize 解压后的最大大小(字节)，超过时解压失败，防止异常数据解压后耗尽内存
+     */
+    public DeflateCompressor(int level, int maxDecompressedSize) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("非法的压缩级别: " + level);
+        }
+        if (maxDecompressedSize <= 0) {
+            throw new IllegalArgumentException("解压后的最大大小必须大于0");
+        }
+        this.level = level;
+        this.maxDecompressedSize = maxDecompressedSize;
+    }
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public byte[] compress(byte[] src, int offset, int length) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(src, offset, length);
+            deflater.finish();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64, length / 2));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                bos.write(buffer, 0, n);
+            }
+            return bos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] src, int offset, int length) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(src, offset, length);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream((int) Math.min(length * 3L, maxDecompressedSize));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new CacheException("Deflate压缩数据不完整");
+                }
+                if (n > maxDecompressedSize - bos.size()) {
+                    throw new CacheException("Deflate解压后的大小超过上限: " + maxDecompressedSize);
+                }
+                bos.write(buffer, 0, n);
+            }
+            return bos.toByteArray();
+        } catch (DataFormatException e) {
+            throw new CacheException("Deflate解压失败", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 获取压缩级别
+     *
+     * @return 压缩级别
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * 获取解压后的最大大小
+     *
+     * @return 解压后的最大大小(字节)
+     */
+    public int getMaxDecompressedSize() {
+        return maxDecompressedSize;
+    }
+}
@@ -32,4 +32,21 @@ public class FastjsonKeyConvertor<K> implements KeyConvertor<K> {
             throw new CacheException("使用Fastjson序列化键失败: " + key, e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void convert(K key, PooledByteArrayOutputStream out) {
+        if (KeyConvertor.writeSimpleKey(key, out)) {
+            return;
+        }
+        if (key == null || key instanceof Number || key instanceof Boolean) {
+            out.writeUtf8(convert(key));
+        } else {
+            try {
+                byte[] bytes = JSON.toJSONBytes(key);
+                out.write(bytes, 0, bytes.length);
+            } catch (Exception e) {
+                throw new CacheException("使用Fastjson序列化键失败: " + key, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.caoyixin.cache.serialization;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 哈希键转换器，先用被包装的转换器转换键，再输出其64位或128位MurmurHash3哈希
+ * <p>
+ * 哈希以不带填充的Base64URL字符输出，64位为11个字符，128位为22个字符，
+ * 适合组合键转换后的字符串较长的缓存。不同键哈希相同时会互相覆盖，
+ * 需要时可通过缓存配置在值中保存完整键进行校验
+ *
+ * @param <K> 键类型
+ */
+public class HashedKeyConvertor<K> implements KeyConvertor<K> {
+
+    private static final byte[] BASE64_URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private final KeyConvertor<K> delegate;
+    private final int bits;
+    private final long seed;
+
+    /**
+     * 创建哈希键转换器
+     *
+     * @param delegate 被包装的键转换器
+     * @param bits     哈希位数，64或128
+     */
+    public HashedKeyConvertor(KeyConvertor<K> delegate, int bits) {
+        this(delegate, bits, 0);
+    }
+
+    /**
+     * 创建哈希键转换器
+     *
+     * @param delegate 被包装的键转换器
+     * @param bits     哈希位数，64或128
+     * @param seed     哈希种子，所有节点必须一致
+     */
+    public HashedKeyConvertor(KeyConvertor<K> delegate, int bits, long seed) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("被包装的键转换器不能为空");
+        }
+        if (bits != 64 && bits != 128) {
+            throw new IllegalArgumentException("哈希位数只能是64或128: " + bits);
+        }
+        this.delegate = delegate;
+        this.bits = bits;
+        this.seed = seed;
+    }
+
+    @Override
+    public String convert(K key) {
+        PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire();
+        try {
+            convert(key, out);
+            return new String(out.buffer(), 0, out.size(), StandardCharsets.US_ASCII);
+        } finally {
+            out.release();
+        }
+    }
+
+    @Override
+    public void convert(K key, PooledByteArrayOutputStream out) {
+        PooledByteArrayOutputStream source = PooledByteArrayOutputStream.acquire();
+        try {
+            delegate.convert(key, source);
+            long[] hash = MurmurHash3.hash128x64(source.buffer(), 0, source.size(), seed);
+            writeBase64(hash[0], hash[1], out);
+        } finally {
+            source.release();
+        }
+    }
+
+    /**
+     * 写出哈希前的完整键，用于校验哈希冲突
+     *
+     * @param key 源键
+     * @param out 输出缓冲区
+     */
+    public void convertSource(K key, PooledByteArrayOutputStream out) {
+        delegate.convert(key, out);
+    }
+
+    /**
+     * 获取哈希位数
+     *
+     * @return 64或128
+     */
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * 按小端字节序将哈希值编码为Base64URL字符
+     */
+    private void writeBase64(long low, long high, PooledByteArrayOutputStream out) {
+        int length = bits >>> 3;
+        int buffer = 0;
+        int bufferedBits = 0;
+        for (int i = 0; i < length; i++) {
+            long word = i < 8 ? low : high;
+            buffer = (buffer << 8) | (int) ((word >>> ((i & 7) << 3)) & 0xFF);
+            bufferedBits += 8;
+            while (bufferedBits >= 6) {
+                bufferedBits -= 6;
+                out.write(BASE64_URL[(buffer >>> bufferedBits) & 0x3F]);
+            }
+        }
+        if (bufferedBits > 0) {
+            out.write(BASE64_URL[(buffer << (6 - bufferedBits)) & 0x3F]);
+        }
+    }
+}
@@ -1,16 +1,23 @@
 package com.caoyixin.cache.serialization;
 
 import com.caoyixin.cache.exception.CacheException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
 
 /**
- * 基于Jackson2的值解码器
+ * 基于Jackson2的值解码器，ObjectMapper的数据格式决定解码JSON、Smile或CBOR
  */
-public class Jackson2ValueDecoder<T> implements ValueDecoder<T> {
+public class Jackson2ValueDecoder<T> implements TypedValueDecoder<T> {
 
     private final ObjectMapper objectMapper;
     private final JavaType javaType;
+    private final ObjectReader reader;
 
     /**
      * 创建Jackson2值解码器
@@ -19,8 +26,19 @@ public class Jackson2ValueDecoder<T> implements ValueDecoder<T> {
      * @param valueType    值类型
      */
     public Jackson2ValueDecoder(ObjectMapper objectMapper, Class<T> valueType) {
+        this(objectMapper, objectMapper.getTypeFactory().constructType(valueType));
+    }
+
+    /**
+     * 创建Jackson2值解码器，创建时即解析根类型的反序列化器
+     *
+     * @param objectMapper 对象映射器
+     * @param javaType     值类型
+     */
+    public Jackson2ValueDecoder(ObjectMapper objectMapper, JavaType javaType) {
         this.objectMapper = objectMapper;
-        this.javaType = objectMapper.getTypeFactory().constructType(valueType);
+        this.javaType = javaType;
+        this.reader = objectMapper.readerFor(javaType).without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
     }
 
     /**
@@ -44,10 +62,39 @@ public class Jackson2ValueDecoder<T> implements ValueDecoder<T> {
             return null;
         }
 
+        return decode(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public T decode(byte[] bytes, int offset, int length) {
+        if (bytes == null || length == 0) {
+            return null;
+        }
+
         try {
-            return objectMapper.readValue(bytes, javaType);
+            return reader.readValue(bytes, offset, length);
         } catch (Exception e) {
             throw new CacheException("使用Jackson2反序列化值失败", e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public T decode(InputStream in) throws IOException {
+        return reader.readValue(in);
+    }
+
+    /**
+     * 创建共享同一ObjectMapper、绑定指定值类型的解码器
+     *
+     * @param valueType 值类型
+     * @return 解码器
+     */
+    @Override
+    public ValueDecoder<?> forType(Type valueType) {
+        JavaType type = objectMapper.getTypeFactory().constructType(valueType);
+        if (type.equals(javaType)) {
+            return this;
+        }
+        return new Jackson2ValueDecoder<>(objectMapper, type);
+    }
+}
@@ -1,7 +1,12 @@
 package com.caoyixin.cache.serialization;
 
 import com.caoyixin.cache.exception.CacheException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * 基于Jackson2的值编码器
@@ -11,12 +16,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 public class Jackson2ValueEncoder<T> implements ValueEncoder<T> {
 
     private final ObjectMapper objectMapper;
+    private final ObjectWriter streamWriter;
 
     /**
      * 创建Jackson2值编码器
      */
     public Jackson2ValueEncoder() {
-        this.objectMapper = new ObjectMapper();
+        this(new ObjectMapper());
     }
 
     /**
@@ -26,6 +32,7 @@ public class Jackson2ValueEncoder<T> implements ValueEncoder<T> {
      */
     public Jackson2ValueEncoder(ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
+        this.streamWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     /**
@@ -46,4 +53,20 @@ public class Jackson2ValueEncoder<T> implements ValueEncoder<T> {
             throw new CacheException("使用Jackson2序列化值失败: " + value, e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 将值对象直接写入输出流，不关闭输出流
+     *
+     * @param value 值对象
+     * @param out   输出流
+     * @throws IOException 写出异常
+     */
+    @Override
+    public void encode(T value, OutputStream out) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        streamWriter.writeValue(out, value);
+    }
+}
@@ -4,6 +4,8 @@ import com.caoyixin.cache.exception.CacheException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+
 /**
  * 基于Jackson的键转换器
  *
@@ -51,4 +53,20 @@ public class JacksonKeyConvertor<K> implements KeyConvertor<K> {
             throw new CacheException("使用Jackson序列化键失败: " + key, e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void convert(K key, PooledByteArrayOutputStream out) {
+        if (KeyConvertor.writeSimpleKey(key, out)) {
+            return;
+        }
+        if (key == null || key instanceof Number || key instanceof Boolean) {
+            out.writeUtf8(convert(key));
+        } else {
+            try {
+                objectMapper.writeValue(out, key);
+            } catch (IOException e) {
+                throw new CacheException("使用Jackson序列化键失败: " + key, e);
+            }
+        }
+    }
+}
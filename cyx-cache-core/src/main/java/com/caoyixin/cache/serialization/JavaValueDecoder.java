@@ -4,6 +4,7 @@ import com.caoyixin.cache.exception.CacheException;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 
 /**
@@ -23,11 +24,29 @@ public class JavaValueDecoder implements ValueDecoder<Object> {
             return null;
         }
 
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
-             ObjectInputStream ois = new ObjectInputStream(bis)) {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public Object decode(byte[] bytes, int offset, int length) {
+        if (bytes == null || length == 0) {
+            return null;
+        }
+
+        try {
+            return decode(new ByteArrayInputStream(bytes, offset, length));
+        } catch (IOException e) {
+            throw new CacheException("使用Java反序列化值失败", e);
+        }
+    }
+
+    @Override
+    public Object decode(InputStream in) throws IOException {
+        ObjectInputStream ois = new ObjectInputStream(in);
+        try {
             return ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (ClassNotFoundException e) {
             throw new CacheException("使用Java反序列化值失败", e);
         }
     }
-}
\ No newline at end of file
+}
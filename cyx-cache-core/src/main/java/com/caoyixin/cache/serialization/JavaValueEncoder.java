@@ -2,9 +2,9 @@ package com.caoyixin.cache.serialization;
 
 import com.caoyixin.cache.exception.CacheException;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 
 /**
@@ -24,17 +24,37 @@ public class JavaValueEncoder implements ValueEncoder<Object> {
             return new byte[0];
         }
 
+        PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire();
+        try {
+            encode(value, out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new CacheException("使用Java序列化值失败: " + value, e);
+        } finally {
+            out.release();
+        }
+    }
+
+    /**
+     * 将值对象直接序列化到输出流
+     *
+     * @param value 值对象
+     * @param out   输出流
+     * @throws IOException 写出异常
+     */
+    @Override
+    public void encode(Object value, OutputStream out) throws IOException {
+        if (value == null) {
+            return;
+        }
+
         if (!(value instanceof Serializable)) {
             throw new CacheException("值对象不可序列化: " + value.getClass().getName());
         }
 
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
-             ObjectOutputStream oos = new ObjectOutputStream(bos)) {
-            oos.writeObject(value);
-            oos.flush();
-            return bos.toByteArray();
-        } catch (IOException e) {
-            throw new CacheException("使用Java序列化值失败: " + value, e);
-        }
+        // 不关闭ObjectOutputStream，输出流由调用方管理
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(value);
+        oos.flush();
     }
-}
\ No newline at end of file
+}
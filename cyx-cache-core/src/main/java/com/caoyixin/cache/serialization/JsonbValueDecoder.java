@@ -0,0 +1,108 @@
+package com.caoyixin.cache.serialization;
+
+import com.alibaba.fastjson2.JSONReader;
+import com.caoyixin.cache.exception.CacheException;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于fastjson2 JSONB二进制格式的值解码器
+ * <p>
+ * 不启用fastjson2的autoType。配置了允许的类名前缀时，数据需由写入类名的{@link JsonbValueEncoder}编码，
+ * 只有类名匹配前缀的值会被实例化为该类型，值内部的字段仍按声明类型解码
+ *
+ * @param <T> 值类型
+ */
+public class JsonbValueDecoder<T> implements TypedValueDecoder<T> {
+
+    private final Type valueType;
+    private final String[] acceptNames;
+    private final Map<String, Class<?>> acceptedClasses = new ConcurrentHashMap<>();
+
+    /**
+     * 创建读取不带类名数据的JSONB值解码器
+     *
+     * @param valueType 值类型
+     */
+    public JsonbValueDecoder(Type valueType) {
+        this(valueType, new String[0]);
+    }
+
+    /**
+     * 创建JSONB值解码器
+     *
+     * @param valueType   值类型，数据不带类名时使用
+     * @param acceptNames 允许实例化的类名前缀，不为空时数据必须带有类名
+     */
+    public JsonbValueDecoder(Type valueType, String... acceptNames) {
+        this.valueType = valueType;
+        this.acceptNames = acceptNames != null ? acceptNames : new String[0];
+    }
+
+    /**
+     * 将字节数组解码为值对象
+     *
+     * @param bytes 字节数组
+     * @return 值对象
+     */
+    @Override
+    public T decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        return decode(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public T decode(byte[] bytes, int offset, int length) {
+        if (bytes == null || length == 0) {
+            return null;
+        }
+
+        try (JSONReader reader = JSONReader.ofJSONB(bytes, offset, length)) {
+            Type type = acceptNames.length == 0 ? valueType : resolveClass(reader.readString());
+            return reader.read(type);
+        } catch (CacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CacheException("使用JSONB反序列化值失败", e);
+        }
+    }
+
+    /**
+     * 创建绑定指定值类型、允许类名相同的解码器
+     *
+     * @param valueType 值类型
+     * @return 解码器
+     */
+    @Override
+    public ValueDecoder<?> forType(Type valueType) {
+        return valueType.equals(this.valueType) ? this : new JsonbValueDecoder<>(valueType, acceptNames);
+    }
+
+    private Class<?> resolveClass(String className) throws ClassNotFoundException {
+        Class<?> clazz = acceptedClasses.get(className);
+        if (clazz != null) {
+            return clazz;
+        }
+        if (className == null || !isAccepted(className)) {
+            throw new CacheException("JSONB数据中的类型不在允许列表中: " + className);
+        }
+
+        clazz = Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+        acceptedClasses.put(className, clazz);
+        return clazz;
+    }
+
+    private boolean isAccepted(String className) {
+        for (String acceptName : acceptNames) {
+            if (className.startsWith(acceptName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,82 @@
+package com.caoyixin.cache.serialization;
+
+import com.alibaba.fastjson2.JSONWriter;
+import com.caoyixin.cache.exception.CacheException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 基于fastjson2 JSONB二进制格式的值编码器
+ * <p>
+ * 写入类型信息时，先以JSONB字符串写入值的类名，再写入值本身，由{@link JsonbValueDecoder}按允许列表校验后还原
+ *
+ * @param <T> 值类型
+ */
+public class JsonbValueEncoder<T> implements ValueEncoder<T> {
+
+    private final boolean writeClassName;
+
+    /**
+     * 创建不写入类型信息的JSONB值编码器
+     */
+    public JsonbValueEncoder() {
+        this(false);
+    }
+
+    /**
+     * 创建JSONB值编码器
+     *
+     * @param writeClassName 是否写入值的类名，缓存中存放多态的值时需要写入类名才能还原为原类型，
+     *                       解码器需要配置允许的类名前缀
+     */
+    public JsonbValueEncoder(boolean writeClassName) {
+        this.writeClassName = writeClassName;
+    }
+
+    /**
+     * 将值对象编码为字节数组
+     *
+     * @param value 值对象
+     * @return 字节数组
+     */
+    @Override
+    public byte[] encode(T value) {
+        if (value == null) {
+            return new byte[0];
+        }
+
+        try (JSONWriter writer = JSONWriter.ofJSONB()) {
+            write(writer, value);
+            return writer.getBytes();
+        } catch (Exception e) {
+            throw new CacheException("使用JSONB序列化值失败: " + value, e);
+        }
+    }
+
+    /**
+     * 将值对象直接写入输出流，不关闭输出流
+     *
+     * @param value 值对象
+     * @param out   输出流
+     * @throws IOException 写出异常
+     */
+    @Override
+    public void encode(T value, OutputStream out) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        try (JSONWriter writer = JSONWriter.ofJSONB()) {
+            write(writer, value);
+            writer.flushTo(out);
+        }
+    }
+
+    private void write(JSONWriter writer, T value) {
+        if (writeClassName) {
+            writer.writeString(value.getClass().getName());
+        }
+        writer.writeAny(value);
+    }
+}
@@ -13,4 +13,36 @@ public interface KeyConvertor<K> {
      * @return 转换后的字符串
      */
     String convert(K key);
+
+    /**
+     * 将键以UTF-8字节写入缓冲区，结果与{@link #convert(Object)}的UTF-8编码相同
+     * <p>
+     * 远程缓存直接使用字节形式的键，避免拼接字符串再编码。默认实现先转换为字符串，
+     * 可以直接写出字节的实现应覆盖此方法
+     *
+     * @param key 源键
+     * @param out 输出缓冲区
+     */
+    default void convert(K key, PooledByteArrayOutputStream out) {
+        out.writeUtf8(convert(key));
+    }
+
+    /**
+     * 写出String、整数等无需序列化的键
+     *
+     * @param key 源键
+     * @param out 输出缓冲区
+     * @return 是否已写出
+     */
+    static boolean writeSimpleKey(Object key, PooledByteArrayOutputStream out) {
+        if (key instanceof String) {
+            out.writeUtf8((String) key);
+            return true;
+        }
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            out.writeAscii(((Number) key).longValue());
+            return true;
+        }
+        return false;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.caoyixin.cache.serialization;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Pool;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Kryo实例池，Kryo实例非线程安全，编码和解码时从池中借用
+ * <p>
+ * 每个Kryo实例与读写缓冲区一起池化，编码和解码不再为每次调用分配缓冲区
+ */
+public class KryoPool {
+
+    /**
+     * 读写流时使用的缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    /**
+     * 默认的Kryo池，不要求注册类
+     */
+    public static final KryoPool DEFAULT = new KryoPool(kryo -> {
+    });
+
+    private final Pool<Context> pool;
+
+    /**
+     * 创建Kryo池
+     *
+     * @param customizer 对新建的Kryo实例做额外配置，例如注册类
+     */
+    public KryoPool(Consumer<Kryo> customizer) {
+        this.pool = new Pool<Context>(true, false, 64) {
+            @Override
+            protected Context create() {
+                Kryo kryo = new Kryo();
+                kryo.setRegistrationRequired(false);
+                kryo.setReferences(true);
+                kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+                customizer.accept(kryo);
+                return new Context(kryo);
+            }
+        };
+    }
+
+    /**
+     * 借用Kryo实例及其缓冲区
+     *
+     * @return Kryo实例及其缓冲区
+     */
+    public Context obtain() {
+        return pool.obtain();
+    }
+
+    /**
+     * 归还Kryo实例及其缓冲区，归还前解除与调用方的流和字节数组的关联
+     *
+     * @param context Kryo实例及其缓冲区
+     */
+    public void free(Context context) {
+        context.output.setOutputStream(null);
+        context.streamInput.setInputStream(null);
+        context.arrayInput.setBuffer(EMPTY_BYTES);
+        pool.free(context);
+    }
+
+    /**
+     * 池化的Kryo实例，与只能被同一个线程使用的读写缓冲区绑定
+     */
+    public static final class Context {
+        private final Kryo kryo;
+        private final Output output = new Output(BUFFER_SIZE);
+        /**
+         * 读取字节数组时直接使用调用方的数组，与读取流的缓冲区分开，避免流读取写入调用方的数组
+         */
+        private final Input arrayInput = new Input();
+        private final Input streamInput = new Input(BUFFER_SIZE);
+
+        private Context(Kryo kryo) {
+            this.kryo = kryo;
+        }
+
+        /**
+         * 获取Kryo实例
+         *
+         * @return Kryo实例
+         */
+        public Kryo kryo() {
+            return kryo;
+        }
+
+        /**
+         * 获取写入指定输出流的Output
+         *
+         * @param out 输出流
+         * @return 复用缓冲区的Output
+         */
+        public Output output(OutputStream out) {
+            output.setOutputStream(out);
+            return output;
+        }
+
+        /**
+         * 获取读取指定字节数组的Input
+         *
+         * @param bytes  字节数组
+         * @param offset 起始位置
+         * @param length 长度
+         * @return 复用的Input
+         */
+        public Input input(byte[] bytes, int offset, int length) {
+            arrayInput.setBuffer(bytes, offset, length);
+            return arrayInput;
+        }
+
+        /**
+         * 获取读取指定输入流的Input
+         *
+         * @param in 输入流
+         * @return 复用缓冲区的Input
+         */
+        public Input input(InputStream in) {
+            streamInput.setInputStream(in);
+            return streamInput;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.caoyixin.cache.serialization;
+
+import com.caoyixin.cache.exception.CacheException;
+import java.io.InputStream;
+
+/**
+ * 基于Kryo的值解码器
+ */
+public class KryoValueDecoder implements ValueDecoder<Object> {
+
+    private final KryoPool kryoPool;
+
+    /**
+     * 使用默认的Kryo池创建
+     */
+    public KryoValueDecoder() {
+        this(KryoPool.DEFAULT);
+    }
+
+    /**
+     * 创建Kryo值解码器
+     *
+     * @param kryoPool Kryo实例池
+     */
+    public KryoValueDecoder(KryoPool kryoPool) {
+        this.kryoPool = kryoPool;
+    }
+
+    /**
+     * 将字节数组解码为值对象
+     *
+     * @param bytes 字节数组
+     * @return 值对象
+     */
+    @Override
+    public Object decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        return decode(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public Object decode(byte[] bytes, int offset, int length) {
+        if (bytes == null || length == 0) {
+            return null;
+        }
+
+        KryoPool.Context context = kryoPool.obtain();
+        try {
+            return context.kryo().readClassAndObject(context.input(bytes, offset, length));
+        } catch (Exception e) {
+            throw new CacheException("使用Kryo反序列化值失败", e);
+        } finally {
+            kryoPool.free(context);
+        }
+    }
+
+    @Override
+    public Object decode(InputStream in) {
+        KryoPool.Context context = kryoPool.obtain();
+        try {
+            return context.kryo().readClassAndObject(context.input(in));
+        } catch (Exception e) {
+            throw new CacheException("使用Kryo反序列化值失败", e);
+        } finally {
+            kryoPool.free(context);
+        }
+    }
+}
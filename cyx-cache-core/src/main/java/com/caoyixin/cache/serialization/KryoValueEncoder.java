@@ -0,0 +1,75 @@
+package com.caoyixin.cache.serialization;
+
+import com.caoyixin.cache.exception.CacheException;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.io.OutputStream;
+
+/**
+ * 基于Kryo的值编码器
+ */
+public class KryoValueEncoder implements ValueEncoder<Object> {
+
+    private final KryoPool kryoPool;
+
+    /**
+     * 使用默认的Kryo池创建
+     */
+    public KryoValueEncoder() {
+        this(KryoPool.DEFAULT);
+    }
+
+    /**
+     * 创建Kryo值编码器
+     *
+     * @param kryoPool Kryo实例池
+     */
+    public KryoValueEncoder(KryoPool kryoPool) {
+        this.kryoPool = kryoPool;
+    }
+
+    /**
+     * 将值对象编码为字节数组
+     *
+     * @param value 值对象
+     * @return 字节数组
+     */
+    @Override
+    public byte[] encode(Object value) {
+        if (value == null) {
+            return new byte[0];
+        }
+
+        PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire();
+        try {
+            encode(value, out);
+            return out.toByteArray();
+        } finally {
+            out.release();
+        }
+    }
+
+    /**
+     * 将值对象直接写入输出流
+     *
+     * @param value 值对象
+     * @param out   输出流
+     */
+    @Override
+    public void encode(Object value, OutputStream out) {
+        if (value == null) {
+            return;
+        }
+
+        KryoPool.Context context = kryoPool.obtain();
+        try {
+            Output output = context.output(out);
+            context.kryo().writeClassAndObject(output, value);
+            output.flush();
+        } catch (Exception e) {
+            throw new CacheException("使用Kryo序列化值失败: " + value, e);
+        } finally {
+            kryoPool.free(context);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.caoyixin.cache.serialization;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 可复用的字节数组输出流，每个线程缓存一个实例，避免每次编码都分配新的缓冲区
+ * <p>
+ * 使用方式：
+ * <pre>
+ * PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire();
+ * try {
+ *     encoder.encode(value, out);
+ *     return out.toByteArray();
+ * } finally {
+ *     out.release();
+ * }
+ * </pre>
+ * 每个线程最多缓存{@value #POOL_DEPTH}个实例以支持编码器嵌套使用，超过时返回不缓存的新实例
+ */
+public final class PooledByteArrayOutputStream extends OutputStream {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * 归还时超过该容量的缓冲区不再缓存，避免偶发的大对象长期占用内存
+     */
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    /**
+     * 每个线程缓存的实例数量
+     */
+    private static final int POOL_DEPTH = 4;
+
+    private static final ThreadLocal<PooledByteArrayOutputStream[]> POOL =
+            ThreadLocal.withInitial(() -> new PooledByteArrayOutputStream[POOL_DEPTH]);
+
+    private final boolean pooled;
+    private byte[] buf;
+    private int count;
+    private boolean inUse;
+
+    private PooledByteArrayOutputStream(boolean pooled) {
+        this.pooled = pooled;
+        this.buf = new byte[INITIAL_CAPACITY];
+    }
+
+    /**
+     * 获取当前线程的缓冲区
+     *
+     * @return 已清空的输出流
+     */
+    public static PooledByteArrayOutputStream acquire() {
+        PooledByteArrayOutputStream[] pool = POOL.get();
+        for (int i = 0; i < pool.length; i++) {
+            PooledByteArrayOutputStream out = pool[i];
+            if (out == null) {
+                out = new PooledByteArrayOutputStream(true);
+                pool[i] = out;
+            }
+            if (!out.inUse) {
+                out.inUse = true;
+                out.count = 0;
+                return out;
+            }
+        }
+        return new PooledByteArrayOutputStream(false);
+    }
+
+    /**
+     * 归还缓冲区，归还后不能再使用
+     */
+    public void release() {
+        if (!pooled) {
+            return;
+        }
+        if (buf.length > MAX_RETAINED_CAPACITY) {
+            buf = new byte[INITIAL_CAPACITY];
+        }
+        count = 0;
+        inUse = false;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    /**
+     * 以UTF-8编码写入字符串，不生成中间字节数组
+     *
+     * @param s 字符串
+     */
+    public void writeUtf8(CharSequence s) {
+        int length = s.length();
+        ensureCapacity(count + length);
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                ensureCapacity(count + 1);
+                buf[count++] = (byte) c;
+            } else if (c < 0x800) {
+                ensureCapacity(count + 2);
+                buf[count++] = (byte) (0xC0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                ensureCapacity(count + 4);
+                buf[count++] = (byte) (0xF0 | (cp >> 18));
+                buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符，与String.getBytes(UTF_8)一致替换为'?'
+                ensureCapacity(count + 1);
+                buf[count++] = '?';
+            } else {
+                ensureCapacity(count + 3);
+                buf[count++] = (byte) (0xE0 | (c >> 12));
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * 以十进制ASCII写入整数，结果与Long.toString相同
+     *
+     * @param value 整数
+     */
+    public void writeAscii(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeUtf8("-9223372036854775808");
+            return;
+        }
+        ensureCapacity(count + 20);
+        if (value < 0) {
+            buf[count++] = '-';
+            value = -value;
+        }
+        int start = count;
+        do {
+            buf[count++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        // 反转数字
+        for (int i = start, j = count - 1; i < j; i++, j--) {
+            byte tmp = buf[i];
+            buf[i] = buf[j];
+            buf[j] = tmp;
+        }
+    }
+
+    /**
+     * 已写入的字节数
+     *
+     * @return 字节数
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 获取内部缓冲区，有效数据为[0, size())，仅在归还前有效
+     *
+     * @return 内部缓冲区
+     */
+    public byte[] buffer() {
+        return buf;
+    }
+
+    /**
+     * 以ByteBuffer形式包装已写入的数据，不复制，仅在归还前有效
+     *
+     * @return ByteBuffer
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buf, 0, count);
+    }
+
+    /**
+     * 复制已写入的数据
+     *
+     * @return 字节数组
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    @Override
+    public void close() {
+        // 由release管理生命周期
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > buf.length) {
+            int newCapacity = Math.max(buf.length << 1, minCapacity);
+            buf = Arrays.copyOf(buf, newCapacity);
+        }
+    }
+}
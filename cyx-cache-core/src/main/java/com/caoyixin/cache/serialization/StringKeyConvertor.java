@@ -17,4 +17,13 @@ public class StringKeyConvertor<K> implements KeyConvertor<K> {
     public String convert(K key) {
         return key == null ? "null" : key.toString();
     }
-}
\ No newline at end of file
+
+    @Override
+    public void convert(K key, PooledByteArrayOutputStream out) {
+        if (key == null) {
+            out.writeUtf8("null");
+        } else if (!KeyConvertor.writeSimpleKey(key, out)) {
+            out.writeUtf8(key.toString());
+        }
+    }
+}
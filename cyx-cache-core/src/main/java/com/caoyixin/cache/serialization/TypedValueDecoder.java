@@ -0,0 +1,22 @@
+package com.caoyixin.cache.serialization;
+
+import java.lang.reflect.Type;
+
+/**
+ * 可以按具体值类型创建解码器的值解码器
+ * <p>
+ * 缓存配置了值类型时，远程缓存通过此接口为每个缓存获取绑定了值类型的解码器，
+ * 解码结果直接是目标类型，而不是Map等通用结构
+ *
+ * @param <T> 值类型
+ */
+public interface TypedValueDecoder<T> extends ValueDecoder<T> {
+
+    /**
+     * 创建绑定了指定值类型的解码器
+     *
+     * @param valueType 值类型
+     * @return 解码器
+     */
+    ValueDecoder<?> forType(Type valueType);
+}
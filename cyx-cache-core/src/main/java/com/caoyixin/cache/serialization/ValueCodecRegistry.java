@@ -0,0 +1,130 @@
+package com.caoyixin.cache.serialization;
+
+import com.caoyixin.cache.exception.CacheException;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 值编解码器注册表，按名称和编解码器标识两种方式查找编解码器
+ * <p>
+ * 编解码器标识会写入远程缓存的编码头，必须在所有节点上保持一致，需要长期保存的数据应显式指定标识
+ */
+public class ValueCodecRegistry {
+
+    /**
+     * 未显式指定标识时，按名称哈希分配标识的起始值
+     */
+    private static final int DERIVED_ID_BASE = 0x80;
+
+    private final Map<String, Codec> codecsByName = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Codec> codecsById = new AtomicReferenceArray<>(256);
+
+    /**
+     * 注册编解码器，标识由名称哈希得出
+     * <p>
+     * 仅作为未指定标识时的兜底：哈希标识只有128个取值，不同名称可能冲突而注册失败，
+     * 修改名称也会改变标识，已写入的数据将无法按原编解码器解码
+     *
+     * @param name    编解码器名称
+     * @param encoder 值编码器
+     * @param decoder 值解码器
+     * @return 编解码器标识
+     */
+    public int register(String name, ValueEncoder<?> encoder, ValueDecoder<?> decoder) {
+        Codec existing = codecsByName.get(name);
+        int id = existing != null ? existing.getId() : DERIVED_ID_BASE | (name.hashCode() & 0x7F);
+        register(name, id, encoder, decoder);
+        return id;
+    }
+
+    /**
+     * 注册编解码器
+     *
+     * @param name    编解码器名称
+     * @param id      编解码器标识，取值范围1-255
+     * @param encoder 值编码器
+     * @param decoder 值解码器
+     */
+    public synchronized void register(String name, int id, ValueEncoder<?> encoder, ValueDecoder<?> decoder) {
+        if (id < 1 || id > 255) {
+            throw new IllegalArgumentException("编解码器标识超出范围(1-255): " + id);
+        }
+        Codec occupied = codecsById.get(id);
+        if (occupied != null && !occupied.getName().equals(name)) {
+            throw new CacheException("编解码器标识冲突: " + id + ", 已被" + occupied.getName() + "占用, 请为" + name + "显式指定标识");
+        }
+        Codec previous = codecsByName.get(name);
+        if (previous != null && previous.getId() != id) {
+            codecsById.set(previous.getId(), null);
+        }
+
+        Codec codec = new Codec(name, id, encoder, decoder);
+        codecsByName.put(name, codec);
+        codecsById.set(id, codec);
+    }
+
+    /**
+     * 按名称获取编解码器
+     *
+     * @param name 编解码器名称
+     * @return 编解码器，不存在时返回null
+     */
+    public Codec get(String name) {
+        return name == null ? null : codecsByName.get(name);
+    }
+
+    /**
+     * 按标识获取编解码器
+     *
+     * @param id 编解码器标识
+     * @return 编解码器，不存在时返回null
+     */
+    public Codec get(int id) {
+        return id < 0 || id > 255 ? null : codecsById.get(id);
+    }
+
+    /**
+     * 已注册的编解码器
+     */
+    @Getter
+    public static class Codec {
+        private final String name;
+        private final int id;
+        private final ValueEncoder<?> encoder;
+        private final ValueDecoder<?> decoder;
+        /**
+         * 按值类型缓存的解码器，同一值类型的缓存共享同一个已预热的解码器
+         */
+        @Getter(AccessLevel.NONE)
+        private final Map<Type, ValueDecoder<?>> typedDecoders = new ConcurrentHashMap<>();
+
+        Codec(String name, int id, ValueEncoder<?> encoder, ValueDecoder<?> decoder) {
+            this.name = name;
+            this.id = id;
+            this.encoder = encoder;
+            this.decoder = decoder;
+        }
+
+        /**
+         * 获取绑定了值类型的解码器，解码器不支持绑定类型时返回通用解码器
+         *
+         * @param valueType 值类型，为null时返回通用解码器
+         * @return 解码器
+         */
+        public ValueDecoder<?> getDecoder(Type valueType) {
+            if (valueType == null || !(decoder instanceof TypedValueDecoder)) {
+                return decoder;
+            }
+            ValueDecoder<?> typed = typedDecoders.get(valueType);
+            if (typed == null) {
+                typed = typedDecoders.computeIfAbsent(valueType, ((TypedValueDecoder<?>) decoder)::forType);
+            }
+            return typed;
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.caoyixin.cache.serialization;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 /**
  * 值解码器，将字节数组解码为缓存值
  *
@@ -13,4 +18,59 @@ public interface ValueDecoder<V> {
      * @return 解码后的原始值
      */
     V decode(byte[] bytes);
-}
\ No newline at end of file
+
+    /**
+     * 解码字节数组的一部分，避免为跳过头信息而复制数据
+     * <p>
+     * 默认实现复制后调用{@link #decode(byte[])}，支持偏移量解码的实现应覆盖此方法
+     *
+     * @param bytes  字节数组
+     * @param offset 起始位置
+     * @param length 数据长度
+     * @return 解码后的原始值
+     */
+    default V decode(byte[] bytes, int offset, int length) {
+        if (offset == 0 && length == bytes.length) {
+            return decode(bytes);
+        }
+        return decode(Arrays.copyOfRange(bytes, offset, offset + length));
+    }
+
+    /**
+     * 解码ByteBuffer中剩余的数据，不改变其position
+     *
+     * @param buffer 数据
+     * @return 解码后的原始值
+     */
+    default V decode(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return decode(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return decode(bytes);
+    }
+
+    /**
+     * 从输入流解码
+     * <p>
+     * 默认实现读取全部数据后解码，支持流式解码的实现应覆盖此方法
+     *
+     * @param in 输入流，调用方负责关闭
+     * @return 解码后的原始值
+     * @throws IOException 读取异常
+     */
+    default V decode(InputStream in) throws IOException {
+        PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire();
+        try {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.size() == 0 ? null : decode(out.buffer(), 0, out.size());
+        } finally {
+            out.release();
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.caoyixin.cache.serialization;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 /**
  * 值编码器，将缓存值编码为字节数组
  *
@@ -13,4 +16,20 @@ public interface ValueEncoder<V> {
      * @return 编码后的字节数组
      */
     byte[] encode(V value);
-}
\ No newline at end of file
+
+    /**
+     * 将值直接编码到输出流，避免中间字节数组
+     * <p>
+     * 默认实现调用{@link #encode(Object)}后写出，支持流式编码的实现应覆盖此方法
+     *
+     * @param value 原始值
+     * @param out   输出流，调用方负责关闭
+     * @throws IOException 写出异常
+     */
+    default void encode(V value, OutputStream out) throws IOException {
+        byte[] bytes = encode(value);
+        if (bytes != null && bytes.length > 0) {
+            out.write(bytes);
+        }
+    }
+}
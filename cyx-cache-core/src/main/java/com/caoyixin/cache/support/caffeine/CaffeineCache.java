@@ -4,6 +4,8 @@ import com.caoyixin.cache.api.Cache;
 import com.caoyixin.cache.api.CacheStats;
 import com.caoyixin.cache.exception.CacheException;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
 import com.github.benmanes.caffeine.cache.RemovalCause;
 import lombok.extern.slf4j.Slf4j;
 
@@ -15,6 +17,9 @@ import java.util.function.Function;
 
 /**
  * 基于Caffeine的本地缓存实现
+ * <p>
+ * 构建器使用{@link #expireAfterWrite(Duration)}配置过期时间时支持为单个键指定过期时间，
+ * 否则写入时指定的过期时间被忽略，使用构建器的过期配置
  *
  * @param <K> 键类型
  * @param <V> 值类型
@@ -26,6 +31,10 @@ public class CaffeineCache<K, V> implements Cache<K, V> {
     private final com.github.benmanes.caffeine.cache.Cache<K, V> cache;
     private final CacheStats stats;
     private final Map<K, Lock> lockMap = new ConcurrentHashMap<>();
+    /**
+     * 可变过期时间的操作入口，构建器未启用可变过期时间时为null
+     */
+    private final Policy.VarExpiration<K, V> varExpiration;
 
     /**
      * 创建Caffeine缓存
@@ -46,11 +55,8 @@ public class CaffeineCache<K, V> implements Cache<K, V> {
                     }
                 });
 
-        if (expireAfterWrite != null) {
-            builder.expireAfterWrite(expireAfterWrite);
-        }
-
-        this.cache = builder.build();
+        this.cache = builder.expireAfter(expireAfterWrite(expireAfterWrite)).build();
+        this.varExpiration = cache.policy().expireVariably().orElse(null);
     }
 
     /**
@@ -71,6 +77,35 @@ public class CaffeineCache<K, V> implements Cache<K, V> {
         });
 
         this.cache = builder.build();
+        this.varExpiration = cache.policy().expireVariably().orElse(null);
+    }
+
+    /**
+     * 创建写入后过期的可变过期策略，写入时未指定过期时间的键使用默认过期时间，读取不延长过期时间
+     *
+     * @param defaultTtl 默认过期时间，为null时不过期
+     * @param <K>        键类型
+     * @param <V>        值类型
+     * @return 过期策略
+     */
+    public static <K, V> Expiry<K, V> expireAfterWrite(Duration defaultTtl) {
+        long nanos = isPositive(defaultTtl) ? defaultTtl.toNanos() : Long.MAX_VALUE;
+        return new Expiry<K, V>() {
+            @Override
+            public long expireAfterCreate(K key, V value, long currentTime) {
+                return nanos;
+            }
+
+            @Override
+            public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+                return nanos;
+            }
+
+            @Override
+            public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
     }
 
     @Override
@@ -105,9 +140,12 @@ public class CaffeineCache<K, V> implements Cache<K, V> {
             return;
         }
 
-        // Caffeine不支持单独为每个键设置过期时间
-        // 这里简单地忽略ttl参数，使用全局配置
-        cache.put(key, value);
+        if (varExpiration != null && isPositive(ttl)) {
+            varExpiration.put(key, value, ttl);
+        } else {
+            // 未启用可变过期时间时忽略ttl参数，使用全局配置
+            cache.put(key, value);
+        }
         updateStats();
     }
 
@@ -154,8 +192,7 @@ public class CaffeineCache<K, V> implements Cache<K, V> {
 
     @Override
     public V computeIfAbsent(K key, Function<K, V> loader, Duration ttl) {
-        // Caffeine不支持单独为每个键设置过期时间
-        // 这里简单地忽略ttl参数，使用全局配置
+        // 加载的值使用全局配置的过期时间
         return computeIfAbsent(key, loader);
     }
 
@@ -194,6 +231,10 @@ public class CaffeineCache<K, V> implements Cache<K, V> {
         stats.updateSize(cache.estimatedSize());
     }
 
+    private static boolean isPositive(Duration ttl) {
+        return ttl != null && !ttl.isZero() && !ttl.isNegative();
+    }
+
     /**
      * 获取原始的Caffeine缓存对象
      *
@@ -5,9 +5,11 @@ import com.caoyixin.cache.api.CacheManager;
 import com.caoyixin.cache.api.CacheType;
 import com.caoyixin.cache.config.CacheConfig;
 import com.caoyixin.cache.exception.CacheException;
+import com.caoyixin.cache.support.longkey.LongKeyCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -72,19 +74,26 @@ public class CaffeineCacheManager implements CacheManager {
      * @param <V>    值类型
      * @return 缓存实例
      */
+    @SuppressWarnings("unchecked")
     private <K, V> Cache<K, V> doCreateCache(CacheConfig config) {
-        if (config.getCacheType() != CacheType.LOCAL) {
-            throw new CacheException("CaffeineCacheManager只支持LOCAL类型的缓存");
+        // BOTH类型由多级缓存管理器创建其中的本地缓存
+        if (config.getCacheType() != CacheType.LOCAL && config.getCacheType() != CacheType.BOTH) {
+            throw new CacheException("CaffeineCacheManager只支持LOCAL、BOTH类型的缓存");
+        }
+
+        if (config.isLongKey()) {
+            Duration ttl = config.getLocalExpire() != null ? config.getLocalExpire() : config.getExpire();
+            int maxSize = config.getLocalLimit() > 0 ? config.getLocalLimit() : 100;
+            return (Cache<K, V>) new LongKeyCache<V>(config.getName(), maxSize, config.getLocalEvictionPolicy(), ttl);
         }
 
         // 使用Caffeine构建器
         Caffeine<Object, Object> builder = Caffeine.newBuilder()
                 .maximumSize(config.getLocalLimit());
 
-        // 设置过期时间
-        if (config.getExpire() != null) {
-            builder.expireAfterWrite(config.getExpire());
-        }
+        // 设置过期时间，使用可变过期时间，多级缓存回填时可以为单个键指定较短的过期时间
+        Duration ttl = config.getLocalExpire() != null ? config.getLocalExpire() : config.getExpire();
+        builder.expireAfter(CaffeineCache.expireAfterWrite(ttl));
 
         // 刷新策略
         if (config.getRefreshPolicy() != null && config.getRefreshPolicy().isEnabled()) {
@@ -0,0 +1,451 @@
+package com.caoyixin.cache.support.longkey;
+
+import com.caoyixin.cache.api.Cache;
+import com.caoyixin.cache.api.CacheStats;
+import com.caoyixin.cache.enums.EvictionPolicy;
+import com.caoyixin.cache.exception.CacheException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * 以long为键的本地缓存实现
+ * <p>
+ * 使用开放寻址(线性探测)的并行数组保存键、值、过期时间和访问信息，不装箱键，也不为每个条目分配包装对象。
+ * 表容量固定为最大条目数的两倍以上，不需要扩容；删除使用后移删除，不留墓碑。
+ * 读取使用StampedLock的乐观读，命中路径不分配对象，写入使用写锁。
+ * 不装箱的方法以Long结尾(如{@link #getLong(long)})，与{@link Cache}接口的方法区分，值类型为Long时不会产生重载歧义
+ *
+ * @param <V> 值类型
+ */
+@Slf4j
+public class LongKeyCache<V> implements Cache<Long, V> {
+
+    /**
+     * 近似LRU淘汰时抽样的条目数
+     */
+    private static final int LRU_SAMPLES = 8;
+
+    /**
+     * 加载锁的分段数，必须是2的幂
+     */
+    private static final int LOAD_LOCK_STRIPES = 64;
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private final String name;
+    private final int maxSize;
+    private final EvictionPolicy evictionPolicy;
+    private final long defaultTtlMillis;
+    private final CacheStats stats;
+    private final StampedLock lock = new StampedLock();
+    private final Object[] loadLocks = new Object[LOAD_LOCK_STRIPES];
+
+    private final int mask;
+    private final long[] keys;
+    private final Object[] values;
+    /**
+     * 过期时间戳(毫秒)，0表示不过期
+     */
+    private final long[] expireAt;
+    /**
+     * CLOCK策略下为引用位，LRU策略下为最近访问的时钟值
+     */
+    private final long[] access;
+
+    private int size;
+    private int clockHand;
+    /**
+     * LRU访问时钟，允许并发读取时的竞争写入，只影响淘汰顺序的精确度
+     */
+    private long tick;
+
+    /**
+     * 创建long键缓存
+     *
+     * @param name           缓存名称
+     * @param maxSize        最大条目数
+     * @param evictionPolicy 淘汰策略
+     * @param defaultTtl     默认过期时间，为null时不过期
+     */
+    public LongKeyCache(String name, int maxSize, EvictionPolicy evictionPolicy, Duration defaultTtl) {
+        this.name = name;
+        this.maxSize = maxSize > 0 ? maxSize : 100;
+        this.evictionPolicy = evictionPolicy != null ? evictionPolicy : EvictionPolicy.LRU;
+        this.defaultTtlMillis = defaultTtl != null && !defaultTtl.isNegative() ? defaultTtl.toMillis() : 0;
+        this.stats = new CacheStats(name);
+
+        int capacity = Integer.highestOneBit(Math.max(16, this.maxSize * 2 - 1)) << 1;
+        this.mask = capacity - 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.expireAt = new long[capacity];
+        this.access = new long[capacity];
+        for (int i = 0; i < LOAD_LOCK_STRIPES; i++) {
+            loadLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * 获取缓存值
+     *
+     * @param key 缓存键
+     * @return 缓存值，不存在或已过期时返回null
+     */
+    public V getLong(long key) {
+        V value = lookup(key);
+        if (value == null) {
+            stats.recordMiss();
+        } else {
+            stats.recordHit();
+        }
+        return value;
+    }
+
+    /**
+     * 放入缓存值，使用默认过期时间
+     *
+     * @param key   缓存键
+     * @param value 缓存值，为null时删除该键
+     */
+    public void putLong(long key, V value) {
+        putLong(key, value, null);
+    }
+
+    /**
+     * 放入缓存值
+     *
+     * @param key   缓存键
+     * @param value 缓存值，为null时删除该键
+     * @param ttl   过期时间，为null时使用默认过期时间
+     */
+    public void putLong(long key, V value, Duration ttl) {
+        if (value == null) {
+            removeLong(key);
+            return;
+        }
+
+        long expire = expireTime(ttl);
+        long stamp = lock.writeLock();
+        try {
+            int index = find(key);
+            if (index < 0) {
+                if (size >= maxSize) {
+                    evict();
+                }
+                index = emptySlot(key);
+                keys[index] = key;
+                size++;
+            }
+            values[index] = value;
+            expireAt[index] = expire;
+            access[index] = evictionPolicy == EvictionPolicy.LRU ? ++tick : 0;
+            stats.updateSize(size);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 获取缓存值，不存在时加载，同一分段的键串行加载
+     *
+     * @param key    缓存键
+     * @param loader 加载函数
+     * @param ttl    过期时间，为null时使用默认过期时间
+     * @return 缓存值
+     */
+    public V computeIfAbsentLong(long key, LongFunction<V> loader, Duration ttl) {
+        V value = getLong(key);
+        if (value != null) {
+            return value;
+        }
+
+        synchronized (loadLocks[indexFor(key) & (LOAD_LOCK_STRIPES - 1)]) {
+            // 再次查找缓存（可能在获取锁的过程中被其他线程加载）
+            value = lookup(key);
+            if (value != null) {
+                stats.recordHit();
+                return value;
+            }
+
+            stats.recordLoadStart();
+            long startTime = System.currentTimeMillis();
+            try {
+                value = loader.apply(key);
+                if (value != null) {
+                    putLong(key, value, ttl);
+                    stats.recordLoadSuccess(System.currentTimeMillis() - startTime);
+                } else {
+                    stats.recordLoadFailure();
+                }
+                return value;
+            } catch (Exception e) {
+                stats.recordLoadFailure();
+                log.error("加载缓存值异常, cacheName={}, key={}", name, key, e);
+                throw new CacheException("加载缓存值异常: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 删除缓存值
+     *
+     * @param key 缓存键
+     * @return 是否删除成功
+     */
+    public boolean removeLong(long key) {
+        long stamp = lock.writeLock();
+        try {
+            int index = find(key);
+            if (index < 0) {
+                return false;
+            }
+            deleteAt(index);
+            stats.updateSize(size);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 获取当前条目数，包括已过期但尚未清理的条目
+     *
+     * @return 条目数
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public V get(Long key) {
+        return key == null ? null : getLong(key);
+    }
+
+    @Override
+    public void put(Long key, V value) {
+        if (key != null) {
+            putLong(key, value, null);
+        }
+    }
+
+    @Override
+    public void put(Long key, V value, Duration ttl) {
+        if (key != null) {
+            putLong(key, value, ttl);
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends Long, ? extends V> map) {
+        if (map == null || map.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<? extends Long, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public V computeIfAbsent(Long key, Function<Long, V> loader) {
+        return computeIfAbsent(key, loader, null);
+    }
+
+    @Override
+    public V computeIfAbsent(Long key, Function<Long, V> loader, Duration ttl) {
+        if (key == null) {
+            return null;
+        }
+        return computeIfAbsentLong(key, loader::apply, ttl);
+    }
+
+    @Override
+    public boolean remove(Long key) {
+        return key != null && removeLong(key);
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            Arrays.fill(values, null);
+            Arrays.fill(keys, 0L);
+            Arrays.fill(expireAt, 0L);
+            Arrays.fill(access, 0L);
+            size = 0;
+            clockHand = 0;
+            stats.updateSize(0);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public CacheStats stats() {
+        return stats;
+    }
+
+    /**
+     * 查找未过期的缓存值，不记录命中统计
+     */
+    @SuppressWarnings("unchecked")
+    private V lookup(long key) {
+        long stamp = lock.tryOptimisticRead();
+        int index = find(key);
+        Object value = index < 0 ? null : values[index];
+        long expire = index < 0 ? 0 : expireAt[index];
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                index = find(key);
+                value = index < 0 ? null : values[index];
+                expire = index < 0 ? 0 : expireAt[index];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        if (value == null || (expire != 0 && expire <= System.currentTimeMillis())) {
+            // 过期条目留到写入或淘汰时清理，读取路径不升级为写锁
+            return null;
+        }
+
+        // 访问信息在锁外更新，条目被并发移动时只影响淘汰顺序，不影响正确性
+        if (evictionPolicy == EvictionPolicy.LRU) {
+            access[index] = ++tick;
+        } else if (access[index] == 0) {
+            access[index] = 1;
+        }
+        return (V) value;
+    }
+
+    /**
+     * 查找键所在的槽位，乐观读时可能读到不一致的数据，由调用方校验
+     */
+    private int find(long key) {
+        int index = indexFor(key);
+        for (int probes = 0; probes <= mask; probes++) {
+            if (values[index] == null) {
+                return -1;
+            }
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * 查找插入位置，调用方持有写锁且键不存在
+     */
+    private int emptySlot(long key) {
+        int index = indexFor(key);
+        while (values[index] != null) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * 删除槽位中的条目，并将后续探测链上的条目前移，保证查找不会提前遇到空槽
+     */
+    private void deleteAt(int slot) {
+        int hole = slot;
+        int index = (slot + 1) & mask;
+        while (values[index] != null) {
+            // 条目到理想位置的距离不小于到空槽的距离时，可以前移到空槽
+            int ideal = indexFor(keys[index]);
+            if (((index - ideal) & mask) >= ((index - hole) & mask)) {
+                keys[hole] = keys[index];
+                values[hole] = values[index];
+                expireAt[hole] = expireAt[index];
+                access[hole] = access[index];
+                hole = index;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[hole] = 0;
+        values[hole] = null;
+        expireAt[hole] = 0;
+        access[hole] = 0;
+        size--;
+    }
+
+    /**
+     * 淘汰一个条目，优先淘汰已过期的条目
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        int victim = evictionPolicy == EvictionPolicy.CLOCK ? clockVictim(now) : sampledLruVictim(now);
+        deleteAt(victim);
+        stats.recordEviction();
+    }
+
+    private int clockVictim(long now) {
+        while (true) {
+            int index = clockHand;
+            clockHand = (clockHand + 1) & mask;
+            if (values[index] == null) {
+                continue;
+            }
+            long expire = expireAt[index];
+            if ((expire != 0 && expire <= now) || access[index] == 0) {
+                return index;
+            }
+            access[index] = 0;
+        }
+    }
+
+    private int sampledLruVictim(long now) {
+        int index = ThreadLocalRandom.current().nextInt(mask + 1);
+        int victim = -1;
+        long oldest = Long.MAX_VALUE;
+        int sampled = 0;
+        for (int probes = 0; probes <= mask && sampled < LRU_SAMPLES; probes++) {
+            if (values[index] != null) {
+                long expire = expireAt[index];
+                if (expire != 0 && expire <= now) {
+                    return index;
+                }
+                if (access[index] < oldest) {
+                    oldest = access[index];
+                    victim = index;
+                }
+                sampled++;
+            }
+            index = (index + 1) & mask;
+        }
+        return victim;
+    }
+
+    private long expireTime(Duration ttl) {
+        if (ttl != null && !ttl.isZero() && !ttl.isNegative()) {
+            return System.currentTimeMillis() + ttl.toMillis();
+        }
+        return defaultTtlMillis > 0 ? System.currentTimeMillis() + defaultTtlMillis : 0;
+    }
+
+    private int indexFor(long key) {
+        long h = key * GOLDEN_RATIO;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
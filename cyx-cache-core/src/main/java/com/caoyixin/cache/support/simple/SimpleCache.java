@@ -2,6 +2,8 @@ package com.caoyixin.cache.support.simple;
 
 import com.caoyixin.cache.api.Cache;
 import com.caoyixin.cache.api.CacheStats;
+import com.caoyixin.cache.api.CacheValue;
+import com.caoyixin.cache.consistency.VersionClock;
 import com.caoyixin.cache.exception.CacheException;
 import lombok.extern.slf4j.Slf4j;
 
@@ -56,6 +58,23 @@ public class SimpleCache<K, V> implements Cache<K, V> {
 
     @Override
     public V get(K key) {
+        CacheEntry<V> entry = getEntry(key);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    @Override
+    public CacheValue<V> getWithTtl(K key) {
+        CacheEntry<V> entry = getEntry(key);
+        return entry != null ? CacheValue.of(entry.getValue(), entry.remainingTtl(), entry.version) : null;
+    }
+
+    /**
+     * 获取未过期的缓存条目，过期的条目被移除
+     *
+     * @param key 缓存键
+     * @return 缓存条目，不存在或已过期时返回null
+     */
+    private CacheEntry<V> getEntry(K key) {
         if (key == null) {
             return null;
         }
@@ -84,7 +103,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
             }
 
             stats.recordHit();
-            return entry.getValue();
+            return entry;
         } finally {
             rwLock.readLock().unlock();
         }
@@ -108,7 +127,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
 
         rwLock.writeLock().lock();
         try {
-            cacheMap.put(key, new CacheEntry<>(value, expireTime));
+            cacheMap.put(key, new CacheEntry<>(value, expireTime, VersionClock.current()));
             updateStats();
         } finally {
             rwLock.writeLock().unlock();
@@ -124,7 +143,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
         rwLock.writeLock().lock();
         try {
             for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
-                cacheMap.put(entry.getKey(), new CacheEntry<>(entry.getValue(), -1));
+                cacheMap.put(entry.getKey(), new CacheEntry<>(entry.getValue(), -1, VersionClock.current()));
             }
             updateStats();
         } finally {
@@ -170,7 +189,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
                         expireTime = System.currentTimeMillis() + ttl.toMillis();
                     }
 
-                    cacheMap.put(key, new CacheEntry<>(value, expireTime));
+                    cacheMap.put(key, new CacheEntry<>(value, expireTime, VersionClock.current()));
                     long loadTime = System.currentTimeMillis() - startTime;
                     stats.recordLoadSuccess(loadTime);
                     updateStats();
@@ -244,10 +263,15 @@ public class SimpleCache<K, V> implements Cache<K, V> {
     private static class CacheEntry<V> {
         private final V value;
         private final long expireTime;
+        /**
+         * 多级缓存写入时绑定的版本号，为0表示没有版本号
+         */
+        private final long version;
 
-        public CacheEntry(V value, long expireTime) {
+        public CacheEntry(V value, long expireTime, long version) {
             this.value = value;
             this.expireTime = expireTime;
+            this.version = version;
         }
 
         public V getValue() {
@@ -257,5 +281,9 @@ public class SimpleCache<K, V> implements Cache<K, V> {
         public boolean isExpired() {
             return expireTime > 0 && System.currentTimeMillis() >= expireTime;
         }
+
+        public Duration remainingTtl() {
+            return expireTime > 0 ? Duration.ofMillis(Math.max(expireTime - System.currentTimeMillis(), 1)) : null;
+        }
     }
 }
\ No newline at end of file
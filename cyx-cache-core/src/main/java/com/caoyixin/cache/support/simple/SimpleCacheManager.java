@@ -4,8 +4,10 @@ import com.caoyixin.cache.api.Cache;
 import com.caoyixin.cache.api.CacheManager;
 import com.caoyixin.cache.api.CacheType;
 import com.caoyixin.cache.config.CacheConfig;
+import com.caoyixin.cache.support.longkey.LongKeyCache;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -92,6 +94,10 @@ public class SimpleCacheManager implements CacheManager {
     @SuppressWarnings("unchecked")
     private <K, V> Cache<K, V> doCreateCache(String name, CacheConfig config) {
         int maxSize = config.getMaxSize() > 0 ? config.getMaxSize() : 100;
+        if (config.isLongKey()) {
+            Duration ttl = config.getLocalExpire() != null ? config.getLocalExpire() : config.getExpire();
+            return (Cache<K, V>) new LongKeyCache<V>(name, maxSize, config.getLocalEvictionPolicy(), ttl);
+        }
         return (Cache<K, V>) new SimpleCache<>(name, maxSize);
     }
 
@@ -101,8 +107,9 @@ public class SimpleCacheManager implements CacheManager {
      * @param config 缓存配置
      */
     private void validateCacheType(CacheConfig config) {
-        if (config.getCacheType() != CacheType.LOCAL) {
-            throw new IllegalArgumentException("SimpleCacheManager仅支持LOCAL类型的缓存，不支持: " + config.getCacheType());
+        // BOTH类型由多级缓存管理器创建其中的本地缓存
+        if (config.getCacheType() != CacheType.LOCAL && config.getCacheType() != CacheType.BOTH) {
+            throw new IllegalArgumentException("SimpleCacheManager仅支持LOCAL、BOTH类型的缓存，不支持: " + config.getCacheType());
         }
     }
 }
\ No newline at end of file
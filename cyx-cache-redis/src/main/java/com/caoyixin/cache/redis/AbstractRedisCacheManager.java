@@ -0,0 +1,320 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.api.AbstractCache;
+import com.caoyixin.cache.api.Cache;
+import com.caoyixin.cache.api.CacheManager;
+import com.caoyixin.cache.api.CacheType;
+import com.caoyixin.cache.config.CacheConfig;
+import com.caoyixin.cache.exception.CacheException;
+import com.caoyixin.cache.resilience.AdaptiveConcurrencyLimiter;
+import com.caoyixin.cache.serialization.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+/**
+ * Redis缓存管理器的公共实现，管理缓存实例、键转换器和值编解码器
+ * <p>
+ * 不同的Redis客户端实现只负责创建具体的缓存，键和值的格式由{@link RedisCacheCodec}统一处理
+ */
+@Slf4j
+public abstract class AbstractRedisCacheManager implements CacheManager {
+
+    /**
+     * 读取合并的默认最大批量大小
+     */
+    public static final int DEFAULT_READ_BATCH_SIZE = 64;
+
+    protected final String keyPrefix;
+    protected final Map<String, Cache<?, ?>> caches = new ConcurrentHashMap<>();
+    /**
+     * 所有读取合并器共享的调度器，首次创建合并器时创建
+     */
+    private volatile ScheduledExecutorService batchScheduler;
+    private final Map<String, KeyConvertor<?>> keyConvertors = new ConcurrentHashMap<>();
+    private final ValueCodecRegistry codecRegistry = new ValueCodecRegistry();
+
+    /**
+     * 创建Redis缓存管理器，并注册默认的键转换器和值编解码器
+     *
+     * @param keyPrefix 键前缀，用于区分不同应用的缓存
+     */
+    protected AbstractRedisCacheManager(String keyPrefix) {
+        this.keyPrefix = keyPrefix == null ? "" : keyPrefix;
+
+        // 注册默认的键转换器
+        registerKeyConvertor("string", new StringKeyConvertor<Object>());
+        registerKeyConvertor("fastjson", new FastjsonKeyConvertor<Object>());
+        registerKeyConvertor("jackson", new JacksonKeyConvertor<Object>());
+        registerKeyConvertor("hash64", new HashedKeyConvertor<Object>(new FastjsonKeyConvertor<Object>(), 64));
+        registerKeyConvertor("hash128", new HashedKeyConvertor<Object>(new FastjsonKeyConvertor<Object>(), 128));
+
+        // 注册默认的值编码器和解码器，标识会写入编码头，不能修改
+        registerValueCodec("java", 1, new JavaValueEncoder(), new JavaValueDecoder());
+        registerValueCodec("jackson", 2, new Jackson2ValueEncoder<>(), new Jackson2ValueDecoder<>(Object.class));
+        registerValueCodec("kryo", 3, new KryoValueEncoder(), new KryoValueDecoder());
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        registerValueCodec("smile", 4, new Jackson2ValueEncoder<>(smileMapper), new Jackson2ValueDecoder<>(smileMapper, Object.class));
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        registerValueCodec("cbor", 5, new Jackson2ValueEncoder<>(cborMapper), new Jackson2ValueDecoder<>(cborMapper, Object.class));
+        registerValueCodec("jsonb", 6, new JsonbValueEncoder<>(), new JsonbValueDecoder<>(Object.class));
+    }
+
+    /**
+     * 注册键转换器
+     *
+     * @param name         转换器名称
+     * @param keyConvertor 键转换器
+     */
+    public void registerKeyConvertor(String name, KeyConvertor<?> keyConvertor) {
+        keyConvertors.put(name, keyConvertor);
+        log.info("注册键转换器: {}", name);
+    }
+
+    /**
+     * 注册值编码器和解码器，编解码器标识由名称哈希得出
+     * <p>
+     * 仅作为未指定标识时的兜底：哈希标识只有128个取值，不同名称可能冲突，修改名称也会改变写入编码头的标识，
+     * 导致已写入远程缓存的数据无法识别。数据需要长期保存时应使用{@link #registerValueCodec(String, int, ValueEncoder, ValueDecoder)}显式指定标识
+     *
+     * @param name    编解码器名称
+     * @param encoder 值编码器
+     * @param decoder 值解码器
+     */
+    public void registerValueCodec(String name, ValueEncoder<?> encoder, ValueDecoder<?> decoder) {
+        int id = codecRegistry.register(name, encoder, decoder);
+        log.warn("注册值编解码器未指定标识，按名称哈希分配: {}, id={}", name, id);
+    }
+
+    /**
+     * 注册值编码器和解码器
+     *
+     * @param name    编解码器名称
+     * @param id      编解码器标识，写入编码头，所有节点必须一致
+     * @param encoder 值编码器
+     * @param decoder 值解码器
+     */
+    public void registerValueCodec(String name, int id, ValueEncoder<?> encoder, ValueDecoder<?> decoder) {
+        codecRegistry.register(name, id, encoder, decoder);
+        log.info("注册值编解码器: {}, id={}", name, id);
+    }
+
+    /**
+     * 在已注册的值编解码器外层叠加压缩，注册为新的编解码器
+     *
+     * @param name       新编解码器名称
+     * @param id         新编解码器标识，取值范围1-255，写入编码头，所有节点必须一致
+     * @param baseCodec  已注册的编解码器名称
+     * @param threshold  压缩阈值(字节)，小于该大小的数据不压缩
+     * @param compressor 压缩算法
+     * @return 压缩统计信息
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public CompressionStats registerCompressedValueCodec(String name, int id, String baseCodec, int threshold,
+                                                         Compressor compressor) {
+        ValueCodecRegistry.Codec base = codecRegistry.get(baseCodec);
+        if (base == null) {
+            throw new CacheException("未知的值编解码器: " + baseCodec);
+        }
+
+        CompressionStats stats = new CompressionStats();
+        ValueEncoder<?> encoder = new CompressingValueEncoder(base.getEncoder(), compressor, threshold, stats);
+        ValueDecoder<?> decoder = new CompressingValueDecoder(base.getDecoder(), compressor, stats);
+        registerValueCodec(name, id, encoder, decoder);
+        return stats;
+    }
+
+    @Override
+    public <K, V> Cache<K, V> getCache(String name) {
+        @SuppressWarnings("unchecked")
+        Cache<K, V> cache = (Cache<K, V>) caches.get(name);
+        return cache;
+    }
+
+    @Override
+    public <K, V> Cache<K, V> createCache(String name, CacheConfig config) {
+        validateCacheType(config);
+
+        if (caches.containsKey(name)) {
+            throw new CacheException("缓存已存在: " + name);
+        }
+
+        Cache<K, V> cache = doCreateCache(name, config);
+        if (config.getConcurrencyLimit() != null && cache instanceof AbstractCache) {
+            // 每个缓存使用独立的并发限制，一个缓存拥堵时不会占满其他缓存可用的连接
+            ((AbstractCache<K, V>) cache).setCallGuard(
+                    new AdaptiveConcurrencyLimiter(name, config.getConcurrencyLimit()));
+        }
+        caches.put(name, cache);
+
+        log.info("创建Redis缓存: {} with config: {}", name, config);
+        return cache;
+    }
+
+    @Override
+    public <K, V> Cache<K, V> getOrCreateCache(String name, CacheConfig config) {
+        @SuppressWarnings("unchecked")
+        Cache<K, V> cache = (Cache<K, V>) caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+
+        synchronized (this) {
+            @SuppressWarnings("unchecked")
+            Cache<K, V> existingCache = (Cache<K, V>) caches.get(name);
+            if (existingCache != null) {
+                return existingCache;
+            }
+
+            return createCache(name, config);
+        }
+    }
+
+    @Override
+    public void removeCache(String name) {
+        Cache<?, ?> cache = caches.remove(name);
+        if (cache != null) {
+            log.info("移除Redis缓存: {}", name);
+        }
+    }
+
+    @Override
+    public Set<String> getCacheNames() {
+        return caches.keySet();
+    }
+
+    @Override
+    public void close() {
+        caches.clear();
+        ScheduledExecutorService scheduler = batchScheduler;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 验证缓存类型
+     *
+     * @param config 缓存配置
+     */
+    protected void validateCacheType(CacheConfig config) {
+        if (config.getCacheType() != CacheType.REMOTE && config.getCacheType() != CacheType.BOTH) {
+            throw new IllegalArgumentException(getClass().getSimpleName() + "仅支持REMOTE、BOTH类型的缓存，当前类型: " + config.getCacheType());
+        }
+    }
+
+    /**
+     * 创建具体的Redis缓存
+     *
+     * @param name   缓存名称
+     * @param config 缓存配置
+     * @param <K>    键类型
+     * @param <V>    值类型
+     * @return Redis缓存
+     */
+    protected abstract <K, V> Cache<K, V> doCreateCache(String name, CacheConfig config);
+
+    /**
+     * 按缓存配置创建单键读取合并器
+     *
+     * @param name   缓存名称
+     * @param config 缓存配置
+     * @param mget   执行MGET的函数，结果与键的顺序一致，不存在的键为null
+     * @return 读取合并器，未配置合并窗口时返回null
+     */
+    protected RedisGetBatcher createBatcher(String name, CacheConfig config,
+                                            Function<byte[][], CompletableFuture<List<byte[]>>> mget) {
+        Duration window = config.getReadBatchWindow();
+        if (window == null || window.isZero() || window.isNegative()) {
+            return null;
+        }
+
+        int batchSize = config.getReadBatchSize() > 1 ? config.getReadBatchSize() : DEFAULT_READ_BATCH_SIZE;
+        log.info("启用读取合并, cacheName={}, window={}us, batchSize={}", name, window.toNanos() / 1000, batchSize);
+        return new RedisGetBatcher(name, mget, batchScheduler(), window, batchSize, commandTimeout());
+    }
+
+    /**
+     * 获取客户端的命令超时时间，用于限制读取合并等不经过客户端超时控制的等待
+     *
+     * @return 命令超时时间，无法确定时返回null
+     */
+    protected Duration commandTimeout() {
+        return null;
+    }
+
+    private ScheduledExecutorService batchScheduler() {
+        ScheduledExecutorService scheduler = batchScheduler;
+        if (scheduler == null) {
+            synchronized (this) {
+                scheduler = batchScheduler;
+                if (scheduler == null) {
+                    // 窗口到期的批次在调度线程上发出，所有缓存共享该线程，MGET必须异步执行
+                    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread thread = new Thread(r, "cyx-cache-read-batch");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    batchScheduler = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * 按缓存配置创建键值编解码
+     *
+     * @param name   缓存名称
+     * @param config 缓存配置
+     * @param <K>    键类型
+     * @param <V>    值类型
+     * @return 键值编解码
+     */
+    @SuppressWarnings("unchecked")
+    protected <K, V> RedisCacheCodec<K, V> createCodec(String name, CacheConfig config) {
+        // 获取键转换器
+        String keyConvertorName = config.getKeyConvertor() != null ? config.getKeyConvertor() : "fastjson";
+        KeyConvertor<K> keyConvertor = (KeyConvertor<K>) keyConvertors.get(keyConvertorName);
+        if (keyConvertor == null) {
+            throw new CacheException("未知的键转换器: " + keyConvertorName);
+        }
+
+        // 获取写入使用的编解码器，读取时按编码头选择解码器
+        String valueEncoderName = config.getValueEncoder() != null ? config.getValueEncoder() : "java";
+        ValueCodecRegistry.Codec codec = codecRegistry.get(valueEncoderName);
+        if (codec == null) {
+            throw new CacheException("未知的值编码器: " + valueEncoderName);
+        }
+
+        // 没有编码头的历史数据使用配置的值解码器
+        String valueDecoderName = config.getValueDecoder() != null ? config.getValueDecoder() : "java";
+        ValueCodecRegistry.Codec legacyCodec = codecRegistry.get(valueDecoderName);
+        if (legacyCodec == null) {
+            throw new CacheException("未知的值解码器: " + valueDecoderName);
+        }
+
+        return new RedisCacheCodec<>(
+                name,
+                keyPrefix,
+                keyConvertor,
+                codecRegistry,
+                codec,
+                config.getValueType(),
+                (ValueDecoder<V>) legacyCodec.getDecoder(config.getValueType()),
+                config.isRewriteOnRead(),
+                config.isVerifyHashedKey(),
+                config.isVersionedValues());
+    }
+}
@@ -0,0 +1,98 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.notification.CacheBatchEvent;
+import com.caoyixin.cache.notification.CacheEvent;
+import com.caoyixin.cache.notification.CacheEventType;
+import com.caoyixin.cache.notification.CacheRemoveEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 一个缓存的一批通知的合并结果，发送前合并一段时间内的通知，接收后合并一次读到的通知
+ * <p>
+ * 清空之前的键被清空覆盖，其余的键去重后放入批量事件。合并后的事件对应多次写入，不带版本号；
+ * 只有一条通知时保留原来的事件和版本号
+ */
+final class CacheEventBatch {
+
+    private final String cacheName;
+    private final Set<Object> keys = new LinkedHashSet<>();
+    private CacheEvent single;
+    private int count;
+    private boolean clear;
+
+    CacheEventBatch(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    /**
+     * 加入一条通知
+     *
+     * @param event 缓存事件
+     */
+    void add(CacheEvent event) {
+        single = ++count == 1 ? event : null;
+        if (isClear(event)) {
+            clear = true;
+            keys.clear();
+        } else if (event instanceof CacheBatchEvent) {
+            keys.addAll(((CacheBatchEvent) event).getKeys());
+        } else {
+            keys.add(event.getKey());
+        }
+    }
+
+    /**
+     * 获取合并后的键数量
+     *
+     * @return 键数量
+     */
+    int keyCount() {
+        return keys.size();
+    }
+
+    /**
+     * 转换为要发送或分发的事件：先清空，再按批量大小拆分剩余的键
+     *
+     * @param instanceId 合并事件使用的实例ID
+     * @param maxKeys    每个批量事件最多携带的键数量
+     * @return 缓存事件
+     */
+    List<CacheEvent> toEvents(String instanceId, int maxKeys) {
+        if (single != null) {
+            return Collections.singletonList(single);
+        }
+        List<CacheEvent> events = new ArrayList<>();
+        if (clear) {
+            // 清空缓存的通知以键为null的删除事件发送
+            events.add(new CacheRemoveEvent(cacheName, null, instanceId));
+        }
+        List<Object> chunk = new ArrayList<>(Math.min(keys.size(), maxKeys));
+        for (Object key : keys) {
+            chunk.add(key);
+            if (chunk.size() == maxKeys) {
+                events.add(new CacheBatchEvent(cacheName, chunk, instanceId));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            events.add(new CacheBatchEvent(cacheName, chunk, instanceId));
+        }
+        return events;
+    }
+
+    /**
+     * 判断事件是否清空整个缓存
+     *
+     * @param event 缓存事件
+     * @return 是否清空
+     */
+    static boolean isClear(CacheEvent event) {
+        return event.getEventType() == CacheEventType.CLEAR
+                || (event.getEventType() == CacheEventType.REMOVE && event.getKey() == null);
+    }
+}
@@ -0,0 +1,360 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.exception.CacheException;
+import com.caoyixin.cache.notification.CacheBatchEvent;
+import com.caoyixin.cache.notification.CacheEvent;
+import com.caoyixin.cache.notification.CacheEventType;
+import com.caoyixin.cache.notification.CacheRemoveEvent;
+import com.caoyixin.cache.notification.CacheUpdateEvent;
+import com.caoyixin.cache.serialization.MurmurHash3;
+import com.caoyixin.cache.serialization.PooledByteArrayOutputStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * 缓存事件的二进制编码
+ * <p>
+ * 格式：魔数、格式版本、事件类型、标志位、varint节点ID、4字节缓存ID、可选的varint序号和8字节版本号、
+ * varint键数量，随后是每个键的类型标记和内容。
+ * 节点ID在启动时随机分配，缓存ID是缓存名称的哈希，接收方按自己创建的缓存查表还原名称，未知的缓存不解码键。
+ * 常见的键类型按原类型编码，解码后类型不变，其他类型的键按JSON编码，解码结果与JSON消息相同
+ */
+final class CacheEventCodec {
+
+    /**
+     * 二进制消息的首字节，JSON消息以'{'开头，两种消息可以在同一主题上共存
+     */
+    static final byte MAGIC = (byte) 0xCE;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte TYPE_UPDATE = 1;
+    private static final byte TYPE_REMOVE = 2;
+    private static final byte TYPE_BATCH = 3;
+
+    private static final int FLAG_SEQUENCE = 1;
+    private static final int FLAG_VERSION = 1 << 1;
+
+    private static final byte KEY_NULL = 0;
+    private static final byte KEY_STRING = 1;
+    private static final byte KEY_LONG = 2;
+    private static final byte KEY_INTEGER = 3;
+    private static final byte KEY_SHORT = 4;
+    private static final byte KEY_BYTE = 5;
+    private static final byte KEY_TRUE = 6;
+    private static final byte KEY_FALSE = 7;
+    private static final byte KEY_DOUBLE = 8;
+    private static final byte KEY_FLOAT = 9;
+    private static final byte KEY_CHAR = 10;
+    private static final byte KEY_UUID = 11;
+    private static final byte KEY_JSON = 12;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private CacheEventCodec() {
+    }
+
+    /**
+     * 判断消息是否是二进制编码
+     *
+     * @param data 消息
+     * @return 是否是二进制编码
+     */
+    static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC;
+    }
+
+    /**
+     * 计算缓存名称对应的缓存ID
+     *
+     * @param cacheName 缓存名称
+     * @return 缓存ID
+     */
+    static int cacheId(String cacheName) {
+        byte[] bytes = cacheName.getBytes(StandardCharsets.UTF_8);
+        return (int) MurmurHash3.hash128x64(bytes, 0, bytes.length, 0)[0];
+    }
+
+    /**
+     * 编码缓存事件
+     *
+     * @param event  缓存事件
+     * @param nodeId 发送节点ID
+     * @return 二进制消息
+     */
+    static byte[] encode(CacheEvent event, long nodeId) {
+        Collection<?> keys;
+        byte type;
+        if (event instanceof CacheBatchEvent) {
+            type = TYPE_BATCH;
+            keys = ((CacheBatchEvent) event).getKeys();
+        } else {
+            // 清空缓存以键为null的删除事件表示
+            type = event.getEventType() == CacheEventType.REMOVE || event.getEventType() == CacheEventType.CLEAR
+                    ? TYPE_REMOVE : TYPE_UPDATE;
+            keys = Collections.singletonList(event.getEventType() == CacheEventType.CLEAR ? null : event.getKey());
+        }
+        int flags = (event.getSequence() > 0 ? FLAG_SEQUENCE : 0) | (event.getVersion() != 0 ? FLAG_VERSION : 0);
+
+        PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire();
+        try {
+            out.write(MAGIC);
+            out.write(FORMAT_VERSION);
+            out.write(type);
+            out.write(flags);
+            writeVarLong(nodeId, out);
+            writeInt(cacheId(event.getCacheName()), out);
+            if (event.getSequence() > 0) {
+                writeVarLong(event.getSequence(), out);
+            }
+            if (event.getVersion() != 0) {
+                writeLong(event.getVersion(), out);
+            }
+            writeVarLong(keys.size(), out);
+            for (Object key : keys) {
+                writeKey(key, out);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new CacheException("编码缓存事件失败, cacheName=" + event.getCacheName(), e);
+        } finally {
+            out.release();
+        }
+    }
+
+    /**
+     * 解码缓存事件
+     *
+     * @param data       二进制消息
+     * @param cacheNames 按缓存ID查找缓存名称，本节点没有该缓存时返回null
+     * @return 缓存事件，缓存未知时返回null
+     */
+    static CacheEvent decode(byte[] data, IntFunction<String> cacheNames) {
+        Reader reader = new Reader(data);
+        byte type = reader.skipHeader();
+        int flags = data[3];
+        String instanceId = Long.toString(reader.readVarLong());
+        String cacheName = cacheNames.apply(reader.readInt());
+        if (cacheName == null) {
+            return null;
+        }
+        long sequence = (flags & FLAG_SEQUENCE) != 0 ? reader.readVarLong() : 0;
+        long version = (flags & FLAG_VERSION) != 0 ? reader.readLong() : 0;
+        int count = (int) reader.readVarLong();
+
+        CacheEvent event;
+        if (type == TYPE_BATCH) {
+            List<Object> keys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                keys.add(reader.readKey());
+            }
+            event = new CacheBatchEvent(cacheName, keys, instanceId);
+        } else {
+            Object key = count > 0 ? reader.readKey() : null;
+            event = type == TYPE_REMOVE ? new CacheRemoveEvent(cacheName, key, instanceId)
+                    : new CacheUpdateEvent(cacheName, key, instanceId);
+        }
+        event.setSequence(sequence);
+        event.setVersion(version);
+        return event;
+    }
+
+    private static void writeKey(Object key, PooledByteArrayOutputStream out) throws IOException {
+        if (key == null) {
+            out.write(KEY_NULL);
+        } else if (key instanceof String) {
+            out.write(KEY_STRING);
+            writeBytes(((String) key).getBytes(StandardCharsets.UTF_8), out);
+        } else if (key instanceof Long) {
+            out.write(KEY_LONG);
+            writeVarLong(zigZag((Long) key), out);
+        } else if (key instanceof Integer) {
+            out.write(KEY_INTEGER);
+            writeVarLong(zigZag((Integer) key), out);
+        } else if (key instanceof Short) {
+            out.write(KEY_SHORT);
+            writeVarLong(zigZag((Short) key), out);
+        } else if (key instanceof Byte) {
+            out.write(KEY_BYTE);
+            out.write((Byte) key);
+        } else if (key instanceof Boolean) {
+            out.write((Boolean) key ? KEY_TRUE : KEY_FALSE);
+        } else if (key instanceof Double) {
+            out.write(KEY_DOUBLE);
+            writeLong(Double.doubleToLongBits((Double) key), out);
+        } else if (key instanceof Float) {
+            out.write(KEY_FLOAT);
+            writeInt(Float.floatToIntBits((Float) key), out);
+        } else if (key instanceof Character) {
+            out.write(KEY_CHAR);
+            writeVarLong((Character) key, out);
+        } else if (key instanceof UUID) {
+            out.write(KEY_UUID);
+            writeLong(((UUID) key).getMostSignificantBits(), out);
+            writeLong(((UUID) key).getLeastSignificantBits(), out);
+        } else {
+            out.write(KEY_JSON);
+            writeBytes(OBJECT_MAPPER.writeValueAsBytes(key), out);
+        }
+    }
+
+    private static void writeBytes(byte[] bytes, PooledByteArrayOutputStream out) {
+        writeVarLong(bytes.length, out);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarLong(long value, PooledByteArrayOutputStream out) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeInt(int value, PooledByteArrayOutputStream out) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            out.write(value >>> shift);
+        }
+    }
+
+    private static void writeLong(long value, PooledByteArrayOutputStream out) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 顺序读取二进制消息
+     */
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        private Reader(byte[] data) {
+            this.data = data;
+        }
+
+        /**
+         * 校验并跳过魔数、版本、类型和标志位
+         *
+         * @return 事件类型
+         */
+        byte skipHeader() {
+            if (data.length < 4 || data[0] != MAGIC) {
+                throw new CacheException("不是二进制缓存事件");
+            }
+            if (data[1] != FORMAT_VERSION) {
+                throw new CacheException("不支持的缓存事件格式版本: " + data[1]);
+            }
+            position = 4;
+            return data[2];
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new CacheException("缓存事件中的varint过长");
+        }
+
+        int readInt() {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+
+        byte readByte() {
+            if (position >= data.length) {
+                throw new CacheException("缓存事件数据不完整");
+            }
+            return data[position++];
+        }
+
+        byte[] readBytes() {
+            int length = (int) readVarLong();
+            if (length < 0 || length > data.length - position) {
+                throw new CacheException("缓存事件数据不完整");
+            }
+            byte[] bytes = new byte[length];
+            System.arraycopy(data, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+
+        Object readKey() {
+            byte tag = readByte();
+            switch (tag) {
+                case KEY_NULL:
+                    return null;
+                case KEY_STRING: {
+                    int length = (int) readVarLong();
+                    if (length < 0 || length > data.length - position) {
+                        throw new CacheException("缓存事件数据不完整");
+                    }
+                    String value = new String(data, position, length, StandardCharsets.UTF_8);
+                    position += length;
+                    return value;
+                }
+                case KEY_LONG:
+                    return unZigZag(readVarLong());
+                case KEY_INTEGER:
+                    return (int) unZigZag(readVarLong());
+                case KEY_SHORT:
+                    return (short) unZigZag(readVarLong());
+                case KEY_BYTE:
+                    return readByte();
+                case KEY_TRUE:
+                    return Boolean.TRUE;
+                case KEY_FALSE:
+                    return Boolean.FALSE;
+                case KEY_DOUBLE:
+                    return Double.longBitsToDouble(readLong());
+                case KEY_FLOAT:
+                    return Float.intBitsToFloat(readInt());
+                case KEY_CHAR:
+                    return (char) readVarLong();
+                case KEY_UUID:
+                    return new UUID(readLong(), readLong());
+                case KEY_JSON:
+                    try {
+                        return OBJECT_MAPPER.readValue(readBytes(), Object.class);
+                    } catch (IOException e) {
+                        throw new CacheException("解码缓存事件的键失败", e);
+                    }
+                default:
+                    throw new CacheException("未知的键类型: " + tag);
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.api.CacheFutures;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import org.springframework.data.redis.core.script.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 基于Lettuce的命令执行器，所有缓存共享
+ * <p>
+ * 普通命令通过同一个多路复用连接异步发送；批量命令使用单独的连接，关闭自动刷新后一次写出，
+ * 避免影响共享连接上的其他命令。每个命令都有独立的超时时间。
+ * 首次等待{@link RedisLock#RELEASE_CHANNEL}释放消息时建立单独的订阅连接
+ */
+public class LettuceCommandExecutor implements AutoCloseable {
+
+    private static final byte[] RELEASE_CHANNEL = RedisLock.RELEASE_CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+    private final RedisClient client;
+    private final StatefulRedisConnection<byte[], byte[]> connection;
+    private final StatefulRedisConnection<byte[], byte[]> pipelineConnection;
+    private final RedisAsyncCommands<byte[], byte[]> commands;
+    private final RedisAsyncCommands<byte[], byte[]> pipelineCommands;
+    private final ReentrantLock pipelineLock = new ReentrantLock();
+    private final Timer timer;
+    private final long timeoutMillis;
+    /**
+     * 等待加载租约的唤醒信号
+     */
+    private final RedisReleaseSignals releaseSignals = new RedisReleaseSignals(this::subscribeReleases);
+    private volatile StatefulRedisPubSubConnection<byte[], byte[]> pubSubConnection;
+
+    /**
+     * 创建命令执行器
+     *
+     * @param client         Redis客户端
+     * @param commandTimeout 单个命令的超时时间
+     */
+    public LettuceCommandExecutor(RedisClient client, Duration commandTimeout) {
+        if (commandTimeout == null || commandTimeout.isZero() || commandTimeout.isNegative()) {
+            throw new IllegalArgumentException("命令超时时间必须大于0");
+        }
+        this.client = client;
+        this.connection = client.connect(ByteArrayCodec.INSTANCE);
+        this.pipelineConnection = client.connect(ByteArrayCodec.INSTANCE);
+        this.pipelineConnection.setAutoFlushCommands(false);
+        this.commands = connection.async();
+        this.pipelineCommands = pipelineConnection.async();
+        this.timer = client.getResources().timer();
+        this.timeoutMillis = commandTimeout.toMillis();
+    }
+
+    /**
+     * 获取共享连接上的异步命令
+     *
+     * @return 异步命令
+     */
+    public RedisAsyncCommands<byte[], byte[]> commands() {
+        return commands;
+    }
+
+    /**
+     * 获取释放消息的唤醒信号，首次等待时订阅{@link RedisLock#RELEASE_CHANNEL}
+     *
+     * @return 唤醒信号
+     */
+    public RedisReleaseSignals releaseSignals() {
+        return releaseSignals;
+    }
+
+    /**
+     * 同步等待命令结果，超时后取消命令
+     *
+     * @param future 命令
+     * @param <T>    结果类型
+     * @return 命令结果
+     */
+    public <T> T await(RedisFuture<T> future) {
+        return LettuceFutures.awaitOrCancel(future, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 为命令添加超时，超时后取消命令并以{@link RedisCommandTimeoutException}结束
+     *
+     * @param future 命令
+     * @param <T>    结果类型
+     * @return 带超时的结果
+     */
+    public <T> CompletableFuture<T> withTimeout(RedisFuture<T> future) {
+        CompletableFuture<T> result = future.toCompletableFuture();
+        if (result.isDone()) {
+            return result;
+        }
+
+        Timeout timeout = timer.newTimeout(t -> {
+            if (result.completeExceptionally(
+                    new RedisCommandTimeoutException("命令执行超时(" + timeoutMillis + "ms)"))) {
+                future.cancel(true);
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        result.whenComplete((value, error) -> timeout.cancel());
+        return result;
+    }
+
+    /**
+     * 在批量连接上发送一组命令，全部写入后一次刷新
+     *
+     * @param batch 发送命令的函数，返回各命令的结果
+     * @param <T>   结果类型
+     * @return 各命令的结果
+     */
+    public <T> List<RedisFuture<T>> pipeline(Function<RedisAsyncCommands<byte[], byte[]>, List<RedisFuture<T>>> batch) {
+        pipelineLock.lock();
+        try {
+            List<RedisFuture<T>> futures = batch.apply(pipelineCommands);
+            pipelineConnection.flushCommands();
+            return futures;
+        } finally {
+            pipelineLock.unlock();
+        }
+    }
+
+    /**
+     * 同步等待一组命令全部完成
+     *
+     * @param futures 命令
+     * @param <T>     结果类型
+     * @return 各命令的结果
+     */
+    public <T> List<T> awaitAll(List<RedisFuture<T>> futures) {
+        RedisFuture<?>[] array = futures.toArray(new RedisFuture<?>[0]);
+        if (!LettuceFutures.awaitAll(timeoutMillis, TimeUnit.MILLISECONDS, array)) {
+            for (RedisFuture<T> future : futures) {
+                future.cancel(true);
+            }
+            throw new RedisCommandTimeoutException("批量命令执行超时(" + timeoutMillis + "ms)");
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        for (RedisFuture<T> future : futures) {
+            results.add(future.toCompletableFuture().join());
+        }
+        return results;
+    }
+
+    /**
+     * 执行Lua脚本，优先使用EVALSHA，脚本未加载时回退到EVAL
+     *
+     * @param script     脚本
+     * @param outputType 返回值类型
+     * @param keys       键
+     * @param args       参数
+     * @param <T>        结果类型
+     * @return 脚本结果
+     */
+    public <T> CompletableFuture<T> eval(Script script, ScriptOutputType outputType, byte[][] keys, byte[]... args) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        RedisFuture<T> evalsha = commands.evalsha(script.sha1, outputType, keys, args);
+        withTimeout(evalsha).whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else if (CacheFutures.unwrap(error) instanceof RedisNoScriptException) {
+                // EVAL会同时把脚本加载到脚本缓存，之后的调用走EVALSHA
+                RedisFuture<T> eval = commands.eval(script.source, outputType, keys, args);
+                withTimeout(eval).whenComplete((v, e) -> {
+                    if (e == null) {
+                        result.complete(v);
+                    } else {
+                        result.completeExceptionally(CacheFutures.unwrap(e));
+                    }
+                });
+            } else {
+                result.completeExceptionally(CacheFutures.unwrap(error));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 首次等待时订阅释放消息，收到消息时唤醒等待该键的线程
+     */
+    private void subscribeReleases() {
+        if (pubSubConnection != null) {
+            return;
+        }
+        synchronized (this) {
+            if (pubSubConnection != null) {
+                return;
+            }
+            StatefulRedisPubSubConnection<byte[], byte[]> pubSub = client.connectPubSub(ByteArrayCodec.INSTANCE);
+            pubSub.addListener(new RedisPubSubAdapter<byte[], byte[]>() {
+                @Override
+                public void message(byte[] channel, byte[] message) {
+                    releaseSignals.wakeUp(new String(message, StandardCharsets.UTF_8));
+                }
+            });
+            try {
+                await(pubSub.async().subscribe(RELEASE_CHANNEL));
+            } catch (RuntimeException e) {
+                pubSub.close();
+                throw e;
+            }
+            pubSubConnection = pubSub;
+        }
+    }
+
+    @Override
+    public void close() {
+        StatefulRedisPubSubConnection<byte[], byte[]> pubSub = pubSubConnection;
+        if (pubSub != null) {
+            pubSub.close();
+        }
+        pipelineConnection.close();
+        connection.close();
+    }
+
+    /**
+     * 预先计算SHA1的Lua脚本
+     */
+    public static final class Script {
+        private final byte[] source;
+        private final String sha1;
+
+        /**
+         * 创建Lua脚本
+         *
+         * @param source 脚本内容
+         */
+        public Script(String source) {
+            this.source = source.getBytes(StandardCharsets.UTF_8);
+            this.sha1 = DigestUtils.sha1DigestAsHex(source);
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.api.AbstractCache;
+import com.caoyixin.cache.api.CacheFutures;
+import com.caoyixin.cache.api.CacheValue;
+import com.caoyixin.cache.exception.CacheException;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 直接基于Lettuce异步API的Redis缓存实现
+ * <p>
+ * 键和值以字节数组收发，不经过RedisTemplate；命令在共享的多路复用连接上发送，
+ * 同步方法等待带超时的结果，异步方法直接返回{@link CompletableFuture}，结果在Lettuce的IO线程上完成。
+ * computeIfAbsent与{@link RedisCache}使用相同的加载租约脚本，同一个键在整个集群中只有一个节点访问数据源
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+@Slf4j
+public class LettuceRedisCache<K, V> extends AbstractCache<K, V> {
+
+    private static final LettuceCommandExecutor.Script REWRITE_SCRIPT =
+            new LettuceCommandExecutor.Script(RedisCacheCodec.REWRITE_SCRIPT);
+    /**
+     * 在一次调用中读取值及剩余过期时间
+     */
+    private static final LettuceCommandExecutor.Script GET_WITH_TTL_SCRIPT =
+            new LettuceCommandExecutor.Script(RedisCacheCodec.GET_WITH_TTL_SCRIPT);
+
+    private static final LettuceCommandExecutor.Script LEASE_GET_SCRIPT =
+            new LettuceCommandExecutor.Script(RedisCacheCodec.LEASE_GET_SCRIPT);
+    private static final LettuceCommandExecutor.Script LEASE_FILL_SCRIPT =
+            new LettuceCommandExecutor.Script(RedisCacheCodec.LEASE_FILL_SCRIPT);
+    private static final LettuceCommandExecutor.Script LEASE_RELEASE_SCRIPT =
+            new LettuceCommandExecutor.Script(RedisCacheCodec.LEASE_RELEASE_SCRIPT);
+    /**
+     * 删除值并作废正在进行的加载
+     */
+    private static final LettuceCommandExecutor.Script REMOVE_SCRIPT =
+            new LettuceCommandExecutor.Script(RedisCacheCodec.REMOVE_SCRIPT);
+
+    private static final byte[] LEASE_SUFFIX = RedisCacheCodec.LEASE_SUFFIX.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RELEASE_CHANNEL = RedisLock.RELEASE_CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+    private final LettuceCommandExecutor executor;
+    private final RedisAsyncCommands<byte[], byte[]> commands;
+    private final RedisCacheCodec<K, V> codec;
+    private final Duration defaultExpiration;
+    /**
+     * 单键读取合并器，为null时每次读取单独发送GET
+     */
+    private final RedisGetBatcher batcher;
+    private final RedisLoadLease lease;
+
+    /**
+     * 创建Lettuce Redis缓存
+     *
+     * @param name              缓存名称
+     * @param executor          命令执行器
+     * @param codec             键值编解码
+     * @param defaultExpiration 默认过期时间
+     */
+    public LettuceRedisCache(String name,
+                             LettuceCommandExecutor executor,
+                             RedisCacheCodec<K, V> codec,
+                             Duration defaultExpiration) {
+        this(name, executor, codec, defaultExpiration, null);
+    }
+
+    /**
+     * 创建Lettuce Redis缓存，并发的单键读取合并为MGET
+     *
+     * @param name              缓存名称
+     * @param executor          命令执行器
+     * @param codec             键值编解码
+     * @param defaultExpiration 默认过期时间
+     * @param batcher           单键读取合并器，为null时不合并
+     */
+    public LettuceRedisCache(String name,
+                             LettuceCommandExecutor executor,
+                             RedisCacheCodec<K, V> codec,
+                             Duration defaultExpiration,
+                             RedisGetBatcher batcher) {
+        this(name, executor, codec, defaultExpiration, batcher, RedisLoadLease.defaults());
+    }
+
+    /**
+     * 创建Lettuce Redis缓存，并发的单键读取合并为MGET
+     *
+     * @param name              缓存名称
+     * @param executor          命令执行器
+     * @param codec             键值编解码
+     * @param defaultExpiration 默认过期时间
+     * @param batcher           单键读取合并器，为null时不合并
+     * @param lease             加载租约配置
+     */
+    public LettuceRedisCache(String name,
+                             LettuceCommandExecutor executor,
+                             RedisCacheCodec<K, V> codec,
+                             Duration defaultExpiration,
+                             RedisGetBatcher batcher,
+                             RedisLoadLease lease) {
+        super(name);
+        this.executor = executor;
+        this.commands = executor.commands();
+        this.codec = codec;
+        this.defaultExpiration = defaultExpiration;
+        this.batcher = batcher;
+        this.lease = lease;
+    }
+
+    /**
+     * 获取读取合并统计信息
+     *
+     * @return 统计信息，未启用读取合并时返回null
+     */
+    public RedisGetBatchStats batchStats() {
+        return batcher != null ? batcher.getStats() : null;
+    }
+
+    @Override
+    protected CompletableFuture<V> doGetAsync(K key) {
+        byte[] redisKey = codec.buildKey(key);
+        CompletableFuture<byte[]> raw = batcher != null
+                ? batcher.get(redisKey)
+                : executor.withTimeout(commands.get(redisKey));
+        return raw.thenApply(value -> decodeValue(key, redisKey, value));
+    }
+
+    @Override
+    protected CompletableFuture<Map<K, V>> doGetAllAsync(Collection<? extends K> keys) {
+        List<K> keyList = new ArrayList<>(keys.size());
+        List<byte[]> redisKeys = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            if (key != null) {
+                keyList.add(key);
+                redisKeys.add(codec.buildKey(key));
+            }
+        }
+        if (keyList.isEmpty()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+
+        // 一次MGET取回全部键，结果与键的顺序一致
+        return executor.withTimeout(commands.mget(redisKeys.toArray(new byte[0][]))).thenApply(pairs -> {
+            Map<K, V> values = new HashMap<>();
+            for (int i = 0; i < pairs.size(); i++) {
+                KeyValue<byte[], byte[]> pair = pairs.get(i);
+                if (pair.hasValue()) {
+                    V value = decodeValue(keyList.get(i), redisKeys.get(i), pair.getValue());
+                    if (value != null) {
+                        values.put(keyList.get(i), value);
+                    }
+                }
+            }
+            return values;
+        });
+    }
+
+    @Override
+    protected CompletableFuture<Void> doPutAsync(K key, V value, Duration ttl) {
+        return executor.withTimeout(set(commands, key, value, ttl)).thenApply(result -> null);
+    }
+
+    @Override
+    protected CompletableFuture<Boolean> doRemoveAsync(K key) {
+        byte[][] keys = {codec.buildKey(key), codec.buildKey(key, LEASE_SUFFIX)};
+        return executor.<Long>eval(REMOVE_SCRIPT, ScriptOutputType.INTEGER, keys, RELEASE_CHANNEL)
+                .thenApply(result -> result != null && result > 0);
+    }
+
+    @Override
+    protected V doGet(K key) {
+        byte[] redisKey = codec.buildKey(key);
+        byte[] raw = batcher != null
+                ? CacheFutures.join(batcher.get(redisKey))
+                : executor.await(commands.get(redisKey));
+        return decodeValue(key, redisKey, raw);
+    }
+
+    /**
+     * 读取值及剩余过期时间
+     * <p>
+     * 启用读取合并时仍使用合并的GET，不读取剩余过期时间，回填本地缓存时使用本地缓存自身的过期时间；
+     * 否则在一次调用中读取值及剩余过期时间
+     */
+    @Override
+    protected CacheValue<V> doGetWithTtl(K key) {
+        byte[] redisKey = codec.buildKey(key);
+        if (batcher != null) {
+            byte[] raw = CacheFutures.join(batcher.get(redisKey));
+            return raw == null ? null : CacheValue.of(decodeValue(key, redisKey, raw), null, codec.version(raw));
+        }
+        byte[][] keys = {redisKey};
+        List<Object> result = CacheFutures.join(executor.<List<Object>>eval(GET_WITH_TTL_SCRIPT,
+                ScriptOutputType.MULTI, keys));
+        if (result == null || result.size() < 2) {
+            return null;
+        }
+
+        byte[] raw = (byte[]) result.get(0);
+        long pttl = result.get(1) instanceof Number ? ((Number) result.get(1)).longValue() : -1;
+        return CacheValue.of(decodeValue(key, redisKey, raw), RedisCacheCodec.remainingTtl(pttl), codec.version(raw));
+    }
+
+    @Override
+    protected void doPut(K key, V value, Duration ttl) {
+        executor.await(set(commands, key, value, ttl));
+    }
+
+    @Override
+    protected void doPutAll(Map<? extends K, ? extends V> map) {
+        // 在批量连接上一次写出全部SET命令，只等待一次网络往返
+        List<RedisFuture<String>> futures = executor.pipeline(pipeline -> {
+            List<RedisFuture<String>> sets = new ArrayList<>(map.size());
+            for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                sets.add(set(pipeline, entry.getKey(), entry.getValue(), null));
+            }
+            return sets;
+        });
+        executor.awaitAll(futures);
+    }
+
+    @Override
+    protected V doComputeIfAbsent(K key, Function<K, V> loader, Duration ttl) {
+        byte[] redisKey = codec.buildKey(key);
+        byte[] leaseKey = codec.buildKey(key, LEASE_SUFFIX);
+        byte[] token = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+
+        // 读取值和获取租约在一个脚本中完成，同一个键在整个集群中只有租约持有者访问数据源
+        List<Object> result = leaseGet(redisKey, leaseKey, token);
+        if (!isWaiting(result)) {
+            return onLeaseResult(key, redisKey, leaseKey, token, result, loader, ttl);
+        }
+
+        long deadline = System.nanoTime() + lease.getWaitTime().toNanos();
+        try (RedisReleaseSignals.Waiter waiter =
+                     executor.releaseSignals().waiter(new String(leaseKey, StandardCharsets.UTF_8))) {
+            while (true) {
+                long seen = waiter.version();
+                result = leaseGet(redisKey, leaseKey, token);
+                if (!isWaiting(result)) {
+                    return onLeaseResult(key, redisKey, leaseKey, token, result, loader, ttl);
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                // 等待持有者写入，最多等到租约到期，到期后重新获取租约
+                waiter.await(seen, Math.min(remaining, waiter.slice(toLong(result.get(1)))));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException("等待加载租约被中断", e);
+        }
+
+        return onLeaseTimeout(key, loader, ttl);
+    }
+
+    /**
+     * 执行读取值或获取租约的脚本
+     */
+    private List<Object> leaseGet(byte[] redisKey, byte[] leaseKey, byte[] token) {
+        byte[][] keys = {redisKey, leaseKey};
+        byte[] leaseMillis = String.valueOf(lease.getLeaseTime().toMillis()).getBytes(StandardCharsets.UTF_8);
+        return CacheFutures.join(executor.<List<Object>>eval(LEASE_GET_SCRIPT, ScriptOutputType.MULTI, keys,
+                token, leaseMillis));
+    }
+
+    private boolean isWaiting(List<Object> result) {
+        long status = toLong(result.get(0));
+        return status != RedisCacheCodec.LEASE_VALUE && status != RedisCacheCodec.LEASE_GRANTED;
+    }
+
+    /**
+     * 处理命中或取得租约的结果
+     */
+    private V onLeaseResult(K key, byte[] redisKey, byte[] leaseKey, byte[] token, List<Object> result,
+            Function<K, V> loader, Duration ttl) {
+        if (toLong(result.get(0)) == RedisCacheCodec.LEASE_VALUE) {
+            return decodeValue(key, redisKey, (byte[]) result.get(1));
+        }
+        return loadWithLease(key, redisKey, leaseKey, token, loader, ttl);
+    }
+
+    /**
+     * 持有租约时加载数据，写入后唤醒所有节点的等待者
+     */
+    private V loadWithLease(K key, byte[] redisKey, byte[] leaseKey, byte[] token, Function<K, V> loader,
+            Duration ttl) {
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException e) {
+            releaseLease(leaseKey, token);
+            throw e;
+        }
+        if (value == null) {
+            releaseLease(leaseKey, token);
+            return null;
+        }
+
+        byte[][] keys = {redisKey, leaseKey};
+        Duration expiration = expirationFor(ttl);
+        byte[] expireMillis = String.valueOf(expiration != null ? expiration.toMillis() : 0)
+                .getBytes(StandardCharsets.UTF_8);
+        Long filled = CacheFutures.join(executor.<Long>eval(LEASE_FILL_SCRIPT, ScriptOutputType.INTEGER, keys,
+                token, codec.encode(key, value), expireMillis, RELEASE_CHANNEL));
+        executor.releaseSignals().wakeUp(new String(leaseKey, StandardCharsets.UTF_8));
+        if (filled == null || filled == 0) {
+            log.debug("加载租约已失效或值已被写入，加载结果未写入缓存, cacheName={}, key={}", name, key);
+        }
+        return value;
+    }
+
+    private void releaseLease(byte[] leaseKey, byte[] token) {
+        try {
+            byte[][] keys = {leaseKey};
+            CacheFutures.join(executor.<Long>eval(LEASE_RELEASE_SCRIPT, ScriptOutputType.INTEGER, keys,
+                    token, RELEASE_CHANNEL));
+            executor.releaseSignals().wakeUp(new String(leaseKey, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            // 租约到期后自动失效
+            log.warn("释放加载租约失败, cacheName={}", name, e);
+        }
+    }
+
+    /**
+     * 等待超时，租约持有者仍未写入，按配置处理
+     */
+    private V onLeaseTimeout(K key, Function<K, V> loader, Duration ttl) {
+        switch (lease.getFallback()) {
+            case RETURN_NULL:
+                log.warn("等待加载租约超时，返回null, cacheName={}, key={}", name, key);
+                return null;
+            case THROW:
+                throw new CacheException("等待加载租约超时, cacheName=" + name + ", key=" + key);
+            case LOAD:
+            default:
+                log.warn("等待加载租约超时，直接加载, cacheName={}, key={}", name, key);
+                V value = loader.apply(key);
+                if (value != null) {
+                    doPut(key, value, ttl);
+                }
+                return value;
+        }
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : -1;
+    }
+
+    @Override
+    protected boolean doRemove(K key) {
+        byte[][] keys = {codec.buildKey(key), codec.buildKey(key, LEASE_SUFFIX)};
+        Long result = CacheFutures.join(executor.<Long>eval(REMOVE_SCRIPT, ScriptOutputType.INTEGER, keys,
+                RELEASE_CHANNEL));
+        return result != null && result > 0;
+    }
+
+    @Override
+    protected void doClear() {
+        List<byte[]> keys = executor.await(commands.keys(codec.keyPattern()));
+        if (keys != null && !keys.isEmpty()) {
+            executor.await(commands.del(keys.toArray(new byte[0][])));
+        }
+    }
+
+    /**
+     * 发送SET命令，未指定过期时间时使用默认过期时间
+     */
+    private RedisFuture<String> set(RedisAsyncCommands<byte[], byte[]> target, K key, V value, Duration ttl) {
+        byte[] redisKey = codec.buildKey(key);
+        byte[] encodedValue = codec.encode(key, value);
+
+        Duration expiration = expirationFor(ttl);
+        if (expiration != null) {
+            return target.set(redisKey, encodedValue, SetArgs.Builder.px(expiration.toMillis()));
+        }
+        return target.set(redisKey, encodedValue);
+    }
+
+    /**
+     * 计算写入时的过期时间，未指定时使用默认过期时间
+     *
+     * @return 过期时间，不过期时返回null
+     */
+    private Duration expirationFor(Duration ttl) {
+        Duration expiration = ttl;
+        if ((expiration == null || expiration.isZero() || expiration.isNegative())
+                && defaultExpiration != null && !defaultExpiration.isZero()) {
+            expiration = defaultExpiration;
+        }
+        return expiration != null && !expiration.isZero() && !expiration.isNegative() ? expiration : null;
+    }
+
+    /**
+     * 解码读取到的数据，必要时异步将数据重写为当前格式
+     */
+    private V decodeValue(K key, byte[] redisKey, byte[] raw) {
+        V value = codec.decode(key, raw);
+        if (codec.needsRewrite(raw, value)) {
+            byte[][] keys = {redisKey};
+            executor.<Long>eval(REWRITE_SCRIPT, ScriptOutputType.INTEGER, keys, raw,
+                            codec.encode(key, value, codec.version(raw)))
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            log.warn("重写缓存值格式失败, cacheName={}, key={}", name, key, error);
+                        } else {
+                            log.debug("重写缓存值格式, cacheName={}, key={}, rewritten={}", name, key, result);
+                        }
+                    });
+        }
+        return value;
+    }
+}
@@ -0,0 +1,103 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.api.Cache;
+import com.caoyixin.cache.config.CacheConfig;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 基于Lettuce异步API的Redis缓存管理器
+ * <p>
+ * 所有缓存共享同一个多路复用连接和一个批量连接，键转换器、值编解码器与{@link RedisCacheManager}一致，
+ * 两种实现写入的数据可以互相读取
+ */
+@Slf4j
+public class LettuceRedisCacheManager extends AbstractRedisCacheManager {
+
+    /**
+     * 默认的命令超时时间
+     */
+    public static final Duration DEFAULT_COMMAND_TIMEOUT = Duration.ofSeconds(2);
+
+    private final RedisClient client;
+    private final boolean ownsClient;
+    private final LettuceCommandExecutor executor;
+    private final Duration commandTimeout;
+
+    /**
+     * 创建Lettuce Redis缓存管理器，客户端由管理器创建并在关闭时释放
+     *
+     * @param redisUri       Redis地址
+     * @param keyPrefix      键前缀，用于区分不同应用的缓存
+     * @param commandTimeout 单个命令的超时时间，为null时使用默认值
+     */
+    public LettuceRedisCacheManager(RedisURI redisUri, String keyPrefix, Duration commandTimeout) {
+        this(RedisClient.create(redisUri), true, keyPrefix, commandTimeout);
+    }
+
+    /**
+     * 使用已有的客户端创建Lettuce Redis缓存管理器，关闭时不释放客户端
+     *
+     * @param client         Redis客户端
+     * @param keyPrefix      键前缀，用于区分不同应用的缓存
+     * @param commandTimeout 单个命令的超时时间，为null时使用默认值
+     */
+    public LettuceRedisCacheManager(RedisClient client, String keyPrefix, Duration commandTimeout) {
+        this(client, false, keyPrefix, commandTimeout);
+    }
+
+    private LettuceRedisCacheManager(RedisClient client, boolean ownsClient, String keyPrefix, Duration commandTimeout) {
+        super(keyPrefix);
+        this.client = client;
+        this.ownsClient = ownsClient;
+        this.commandTimeout = commandTimeout != null ? commandTimeout : DEFAULT_COMMAND_TIMEOUT;
+        this.executor = new LettuceCommandExecutor(client, this.commandTimeout);
+
+        log.info("初始化LettuceRedisCacheManager, keyPrefix={}", this.keyPrefix);
+    }
+
+    @Override
+    protected Duration commandTimeout() {
+        return commandTimeout;
+    }
+
+    @Override
+    protected <K, V> Cache<K, V> doCreateCache(String name, CacheConfig config) {
+        RedisCacheCodec<K, V> codec = createCodec(name, config);
+        RedisGetBatcher batcher = createBatcher(name, config, this::mget);
+        return new LettuceRedisCache<>(name, executor, codec, config.getExpire(), batcher, RedisLoadLease.of(config));
+    }
+
+    /**
+     * 在共享连接上异步执行MGET
+     *
+     * @param keys Redis键
+     * @return 与键顺序一致的原始数据，不存在的键为null
+     */
+    private CompletableFuture<List<byte[]>> mget(byte[][] keys) {
+        return executor.withTimeout(executor.commands().mget(keys)).thenApply(pairs -> {
+            List<byte[]> values = new ArrayList<>(pairs.size());
+            for (KeyValue<byte[], byte[]> pair : pairs) {
+                values.add(pair.getValueOrElse(null));
+            }
+            return values;
+        });
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        executor.close();
+        if (ownsClient) {
+            client.shutdown();
+        }
+        log.info("关闭LettuceRedisCacheManager");
+    }
+}
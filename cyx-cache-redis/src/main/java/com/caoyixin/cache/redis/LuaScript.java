@@ -0,0 +1,63 @@
+package com.caoyixin.cache.redis;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.script.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 直接在原始连接上执行的Lua脚本，优先使用EVALSHA，脚本未加载时回退到EVAL
+ */
+public class LuaScript {
+
+    private final byte[] script;
+    private final String sha1;
+    private final ReturnType returnType;
+
+    /**
+     * 创建Lua脚本
+     *
+     * @param script     脚本内容
+     * @param returnType 返回值类型
+     */
+    public LuaScript(String script, ReturnType returnType) {
+        this.script = script.getBytes(StandardCharsets.UTF_8);
+        this.sha1 = DigestUtils.sha1DigestAsHex(script);
+        this.returnType = returnType;
+    }
+
+    /**
+     * 执行脚本
+     *
+     * @param connection   Redis连接
+     * @param numKeys      键的数量
+     * @param keysAndArgs  键和参数，键在前
+     * @param <T>          返回值类型
+     * @return 脚本返回值
+     */
+    public <T> T eval(RedisConnection connection, int numKeys, byte[]... keysAndArgs) {
+        try {
+            return connection.scriptingCommands().evalSha(sha1, returnType, numKeys, keysAndArgs);
+        } catch (RuntimeException e) {
+            if (!isNoScript(e)) {
+                throw e;
+            }
+            // EVAL会同时把脚本加载到脚本缓存，之后的调用走EVALSHA
+            return connection.scriptingCommands().eval(script, returnType, numKeys, keysAndArgs);
+        }
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            String message = t.getMessage();
+            if (message != null && message.contains("NOSCRIPT")) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -1,25 +1,45 @@
 package com.caoyixin.cache.redis;
 
 import com.caoyixin.cache.api.AbstractCache;
+import com.caoyixin.cache.api.CacheFutures;
+import com.caoyixin.cache.api.CacheValue;
 import com.caoyixin.cache.exception.CacheException;
-import com.caoyixin.cache.serialization.KeyConvertor;
-import com.caoyixin.cache.serialization.ValueDecoder;
-import com.caoyixin.cache.serialization.ValueEncoder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReactiveRedisConnection;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisConnectionUtils;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.util.ByteUtils;
+import reactor.core.publisher.Mono;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * 基于Redis的缓存实现，继承AbstractCache以复用通用逻辑
+ * <p>
+ * 连接工厂支持响应式连接(Lettuce)时，异步方法通过响应式连接直接使用客户端的异步接口；
+ * 否则异步方法在调用线程上执行同步实现。
+ * computeIfAbsent未命中时通过加载租约保证同一个键在整个集群中只有一个节点访问数据源，
+ * 其他节点等待租约持有者写入后被唤醒，最长等待时间和超时后的处理方式见{@link RedisLoadLease}
  *
  * @param <K> 键类型
  * @param <V> 值类型
@@ -27,13 +47,55 @@ import java.util.function.Function;
 @Slf4j
 public class RedisCache<K, V> extends AbstractCache<K, V> {
 
+    /**
+     * 值未被并发修改时按新格式重写，保留剩余过期时间
+     */
+    private static final LuaScript REWRITE_SCRIPT = new LuaScript(RedisCacheCodec.REWRITE_SCRIPT, ReturnType.INTEGER);
+    private static final byte[] REWRITE_SCRIPT_SOURCE = RedisCacheCodec.REWRITE_SCRIPT.getBytes(StandardCharsets.UTF_8);
+
+    private static final LuaScript LEASE_GET_SCRIPT = new LuaScript(RedisCacheCodec.LEASE_GET_SCRIPT,
+            ReturnType.MULTI);
+    private static final LuaScript LEASE_FILL_SCRIPT = new LuaScript(RedisCacheCodec.LEASE_FILL_SCRIPT,
+            ReturnType.INTEGER);
+    private static final LuaScript LEASE_RELEASE_SCRIPT = new LuaScript(RedisCacheCodec.LEASE_RELEASE_SCRIPT,
+            ReturnType.INTEGER);
+
+    /**
+     * 在一次调用中读取值及剩余过期时间
+     */
+    private static final LuaScript GET_WITH_TTL_SCRIPT = new LuaScript(RedisCacheCodec.GET_WITH_TTL_SCRIPT,
+            ReturnType.MULTI);
+
+    /**
+     * 删除值并作废正在进行的加载
+     */
+    private static final LuaScript REMOVE_SCRIPT = new LuaScript(RedisCacheCodec.REMOVE_SCRIPT, ReturnType.INTEGER);
+    private static final byte[] REMOVE_SCRIPT_BYTES = RedisCacheCodec.REMOVE_SCRIPT.getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] LEASE_SUFFIX = RedisCacheCodec.LEASE_SUFFIX.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RELEASE_CHANNEL = RedisLock.RELEASE_CHANNEL.getBytes(StandardCharsets.UTF_8);
+
     private final RedisTemplate<String, byte[]> redisTemplate;
     private final RedisConnectionFactory connectionFactory;
-    private final KeyConvertor<K> keyConvertor;
-    private final ValueEncoder<V> valueEncoder;
-    private final ValueDecoder<V> valueDecoder;
+    private final RedisCacheCodec<K, V> codec;
     private final Duration defaultExpiration;
-    private final String keyPrefix;
+    /**
+     * 响应式连接，为null时异步方法在调用线程上执行同步实现
+     */
+    private final Supplier<ReactiveRedisConnection> reactiveConnection;
+    /**
+     * 单键读取合并器，为null时每次读取单独发送GET
+     */
+    private final RedisGetBatcher batcher;
+    /**
+     * 提供加载租约的释放消息订阅
+     */
+    private final RedisLock lock;
+    private final RedisLoadLease lease;
+    /**
+     * 响应式命令的超时时间，为null时不限制
+     */
+    private final Duration commandTimeout;
 
     /**
      * 创建Redis缓存
@@ -41,142 +103,485 @@ public class RedisCache<K, V> extends AbstractCache<K, V> {
      * @param name              缓存名称
      * @param redisTemplate     Redis模板
      * @param connectionFactory Redis连接工厂
-     * @param keyConvertor      键转换器
-     * @param valueEncoder      值编码器
-     * @param valueDecoder      值解码器
+     * @param codec             键值编解码
      * @param defaultExpiration 默认过期时间
-     * @param keyPrefix         键前缀
      */
     public RedisCache(String name,
             RedisTemplate<String, byte[]> redisTemplate,
             RedisConnectionFactory connectionFactory,
-            KeyConvertor<K> keyConvertor,
-            ValueEncoder<V> valueEncoder,
-            ValueDecoder<V> valueDecoder,
+            RedisCacheCodec<K, V> codec,
+            Duration defaultExpiration) {
+        this(name, redisTemplate, connectionFactory, null, codec, defaultExpiration, null,
+                new RedisLock(connectionFactory), RedisLoadLease.defaults());
+    }
+
+    /**
+     * 创建Redis缓存，异步方法使用响应式连接
+     *
+     * @param name               缓存名称
+     * @param redisTemplate      Redis模板
+     * @param connectionFactory  Redis连接工厂
+     * @param reactiveConnection 响应式连接的提供者，可以为null
+     * @param codec              键值编解码
+     * @param defaultExpiration  默认过期时间
+     * @param batcher            单键读取合并器，为null时不合并
+     * @param lock               等待加载租约时用于接收释放消息
+     * @param lease              加载租约配置
+     */
+    public RedisCache(String name,
+            RedisTemplate<String, byte[]> redisTemplate,
+            RedisConnectionFactory connectionFactory,
+            Supplier<ReactiveRedisConnection> reactiveConnection,
+            RedisCacheCodec<K, V> codec,
+            Duration defaultExpiration,
+            RedisGetBatcher batcher,
+            RedisLock lock,
+            RedisLoadLease lease) {
+        this(name, redisTemplate, connectionFactory, reactiveConnection, codec, defaultExpiration, batcher, lock, lease,
+                null);
+    }
+
+    /**
+     * 创建Redis缓存，异步方法使用响应式连接，响应式命令超过超时时间后以异常结束
+     *
+     * @param name               缓存名称
+     * @param redisTemplate      Redis模板
+     * @param connectionFactory  Redis连接工厂
+     * @param reactiveConnection 响应式连接的提供者，可以为null
+     * @param codec              键值编解码
+     * @param defaultExpiration  默认过期时间
+     * @param batcher            单键读取合并器，为null时不合并
+     * @param lock               等待加载租约时用于接收释放消息
+     * @param lease              加载租约配置
+     * @param commandTimeout     响应式命令的超时时间，为null时不限制
+     */
+    public RedisCache(String name,
+            RedisTemplate<String, byte[]> redisTemplate,
+            RedisConnectionFactory connectionFactory,
+            Supplier<ReactiveRedisConnection> reactiveConnection,
+            RedisCacheCodec<K, V> codec,
             Duration defaultExpiration,
-            String keyPrefix) {
+            RedisGetBatcher batcher,
+            RedisLock lock,
+            RedisLoadLease lease,
+            Duration commandTimeout) {
         super(name);
         this.redisTemplate = redisTemplate;
         this.connectionFactory = connectionFactory;
-        this.keyConvertor = keyConvertor;
-        this.valueEncoder = valueEncoder;
-        this.valueDecoder = valueDecoder;
+        this.reactiveConnection = reactiveConnection;
+        this.codec = codec;
         this.defaultExpiration = defaultExpiration;
-        this.keyPrefix = keyPrefix;
+        this.batcher = batcher;
+        this.lock = lock;
+        this.lease = lease;
+        this.commandTimeout = commandTimeout;
+    }
+
+    /**
+     * 获取读取合并统计信息
+     *
+     * @return 统计信息，未启用读取合并时返回null
+     */
+    public RedisGetBatchStats batchStats() {
+        return batcher != null ? batcher.getStats() : null;
     }
 
     @Override
     protected V doGet(K key) {
-        String redisKey = buildRedisKey(key);
-        byte[] value = redisTemplate.opsForValue().get(redisKey);
+        byte[] redisKey = codec.buildKey(key);
+        byte[] value = batcher != null
+                ? CacheFutures.join(batcher.get(redisKey))
+                : redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(redisKey));
         if (value == null || value.length == 0) {
             return null;
         }
 
-        return valueDecoder.decode(value);
+        return decodeValue(key, redisKey, value);
     }
 
+    /**
+     * 读取值及剩余过期时间
+     * <p>
+     * 启用读取合并时仍使用合并的GET，不读取剩余过期时间，回填本地缓存时使用本地缓存自身的过期时间；
+     * 否则在一次调用中读取值及剩余过期时间
+     */
     @Override
-    protected void doPut(K key, V value, Duration ttl) {
-        String redisKey = buildRedisKey(key);
-        byte[] encodedValue = valueEncoder.encode(value);
-
-        Duration expiration = ttl;
-        if ((expiration == null || expiration.isZero() || expiration.isNegative())
-                && defaultExpiration != null && !defaultExpiration.isZero()) {
-            expiration = defaultExpiration;
+    protected CacheValue<V> doGetWithTtl(K key) {
+        byte[] redisKey = codec.buildKey(key);
+        if (batcher != null) {
+            byte[] raw = CacheFutures.join(batcher.get(redisKey));
+            return raw == null || raw.length == 0 ? null
+                    : CacheValue.of(decodeValue(key, redisKey, raw), null, codec.version(raw));
+        }
+        List<Object> result = redisTemplate.execute((RedisCallback<List<Object>>) connection ->
+                GET_WITH_TTL_SCRIPT.eval(connection, 1, redisKey));
+        if (result == null || result.size() < 2) {
+            return null;
         }
 
-        if (expiration != null && !expiration.isZero() && !expiration.isNegative()) {
-            redisTemplate.opsForValue().set(redisKey, encodedValue, expiration);
-        } else {
-            redisTemplate.opsForValue().set(redisKey, encodedValue);
+        byte[] raw = (byte[]) result.get(0);
+        if (raw == null || raw.length == 0) {
+            return null;
         }
+        return CacheValue.of(decodeValue(key, redisKey, raw), RedisCacheCodec.remainingTtl(toLong(result.get(1))),
+                codec.version(raw));
+    }
+
+    @Override
+    protected void doPut(K key, V value, Duration ttl) {
+        byte[] redisKey = codec.buildKey(key);
+        byte[] encodedValue = codec.encode(key, value);
+        Expiration redisExpiration = expirationFor(ttl);
+        redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                .set(redisKey, encodedValue, redisExpiration, RedisStringCommands.SetOption.UPSERT));
     }
 
     @Override
     protected void doPutAll(Map<? extends K, ? extends V> map) {
         try (RedisConnection connection = RedisConnectionUtils.getConnection(connectionFactory)) {
-            for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
-                String redisKey = buildRedisKey(entry.getKey());
-                byte[] encodedValue = valueEncoder.encode(entry.getValue());
-                byte[] keyBytes = redisKey.getBytes();
-
-                if (defaultExpiration != null && !defaultExpiration.isZero()) {
-                    connection.set(keyBytes, encodedValue,
-                            Expiration.from(defaultExpiration.toMillis(), TimeUnit.MILLISECONDS),
-                            RedisStringCommands.SetOption.UPSERT);
-                } else {
-                    connection.set(keyBytes, encodedValue);
+            // 以管道一次写出全部SET命令，只等待一次网络往返
+            connection.openPipeline();
+            try {
+                for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                    byte[] keyBytes = codec.buildKey(entry.getKey());
+                    byte[] encodedValue = codec.encode(entry.getKey(), entry.getValue());
+
+                    if (defaultExpiration != null && !defaultExpiration.isZero()) {
+                        connection.stringCommands().set(keyBytes, encodedValue,
+                                Expiration.from(defaultExpiration.toMillis(), TimeUnit.MILLISECONDS),
+                                RedisStringCommands.SetOption.UPSERT);
+                    } else {
+                        connection.stringCommands().set(keyBytes, encodedValue);
+                    }
                 }
+            } finally {
+                connection.closePipeline();
             }
         }
     }
 
     @Override
     protected V doComputeIfAbsent(K key, Function<K, V> loader, Duration ttl) {
-        V value = doGet(key);
-        if (value != null) {
-            return value;
+        byte[] redisKey = codec.buildKey(key);
+        byte[] leaseKey = codec.buildKey(key, LEASE_SUFFIX);
+        byte[] token = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+
+        // 读取值和获取租约在一个脚本中完成，同一个键在整个集群中只有租约持有者访问数据源
+        List<Object> result = leaseGet(redisKey, leaseKey, token);
+        if (!isWaiting(result)) {
+            return onLeaseResult(key, redisKey, leaseKey, token, result, loader, ttl);
         }
 
-        // 使用分布式锁保证并发安全
-        String lockKey = buildRedisKey(key) + ":lock";
-        boolean locked = false;
-        try {
-            // 尝试获取锁
-            Boolean success = redisTemplate.opsForValue().setIfAbsent(lockKey, new byte[0], Duration.ofSeconds(30));
-            locked = Boolean.TRUE.equals(success);
+        long deadline = System.nanoTime() + lease.getWaitTime().toNanos();
+        try (RedisReleaseSignals.Waiter waiter = lock.waiter(new String(leaseKey, StandardCharsets.UTF_8))) {
+            while (true) {
+                long seen = waiter.version();
+                result = leaseGet(redisKey, leaseKey, token);
+                if (!isWaiting(result)) {
+                    return onLeaseResult(key, redisKey, leaseKey, token, result, loader, ttl);
+                }
 
-            if (locked) {
-                // 二次检查
-                value = doGet(key);
-                if (value != null) {
-                    return value;
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
                 }
+                // 等待持有者写入，最多等到租约到期，到期后重新获取租约
+                waiter.await(seen, Math.min(remaining, waiter.slice(toLong(result.get(1)))));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException("等待加载租约被中断", e);
+        }
+
+        return onLeaseTimeout(key, loader, ttl);
+    }
+
+    /**
+     * 执行读取值或获取租约的脚本
+     */
+    private List<Object> leaseGet(byte[] redisKey, byte[] leaseKey, byte[] token) {
+        byte[] leaseMillis = String.valueOf(lease.getLeaseTime().toMillis()).getBytes(StandardCharsets.UTF_8);
+        return redisTemplate.execute((RedisCallback<List<Object>>) connection ->
+                LEASE_GET_SCRIPT.eval(connection, 2, redisKey, leaseKey, token, leaseMillis));
+    }
+
+    private boolean isWaiting(List<Object> result) {
+        long status = toLong(result.get(0));
+        return status != RedisCacheCodec.LEASE_VALUE && status != RedisCacheCodec.LEASE_GRANTED;
+    }
+
+    /**
+     * 处理命中或取得租约的结果
+     */
+    private V onLeaseResult(K key, byte[] redisKey, byte[] leaseKey, byte[] token, List<Object> result,
+            Function<K, V> loader, Duration ttl) {
+        if (toLong(result.get(0)) == RedisCacheCodec.LEASE_VALUE) {
+            return decodeValue(key, redisKey, (byte[]) result.get(1));
+        }
+        return loadWithLease(key, redisKey, leaseKey, token, loader, ttl);
+    }
 
-                // 加载数据
-                value = loader.apply(key);
+    /**
+     * 持有租约时加载数据，写入后唤醒所有节点的等待者
+     */
+    private V loadWithLease(K key, byte[] redisKey, byte[] leaseKey, byte[] token, Function<K, V> loader,
+            Duration ttl) {
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException e) {
+            releaseLease(leaseKey, token);
+            throw e;
+        }
+        if (value == null) {
+            releaseLease(leaseKey, token);
+            return null;
+        }
+
+        byte[] encodedValue = codec.encode(key, value);
+        Expiration expiration = expirationFor(ttl);
+        byte[] expireMillis = String.valueOf(expiration.isPersistent() ? 0 : expiration.getExpirationTimeInMilliseconds())
+                .getBytes(StandardCharsets.UTF_8);
+        Long filled = redisTemplate.execute((RedisCallback<Long>) connection -> LEASE_FILL_SCRIPT.eval(connection, 2,
+                redisKey, leaseKey, token, encodedValue, expireMillis, RELEASE_CHANNEL));
+        lock.wakeUp(new String(leaseKey, StandardCharsets.UTF_8));
+        if (filled == null || filled == 0) {
+            log.debug("加载租约已失效或值已被写入，加载结果未写入缓存, cacheName={}, key={}", name, key);
+        }
+        return value;
+    }
+
+    private void releaseLease(byte[] leaseKey, byte[] token) {
+        try {
+            redisTemplate.execute((RedisCallback<Long>) connection -> LEASE_RELEASE_SCRIPT.eval(connection, 1,
+                    leaseKey, token, RELEASE_CHANNEL));
+            lock.wakeUp(new String(leaseKey, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            // 租约到期后自动失效
+            log.warn("释放加载租约失败, cacheName={}", name, e);
+        }
+    }
+
+    /**
+     * 等待超时，租约持有者仍未写入，按配置处理
+     */
+    private V onLeaseTimeout(K key, Function<K, V> loader, Duration ttl) {
+        switch (lease.getFallback()) {
+            case RETURN_NULL:
+                log.warn("等待加载租约超时，返回null, cacheName={}, key={}", name, key);
+                return null;
+            case THROW:
+                throw new CacheException("等待加载租约超时, cacheName=" + name + ", key=" + key);
+            case LOAD:
+            default:
+                log.warn("等待加载租约超时，直接加载, cacheName={}, key={}", name, key);
+                V value = loader.apply(key);
                 if (value != null) {
                     doPut(key, value, ttl);
                 }
                 return value;
-            } else {
-                // 等待一段时间后再次尝试获取数据
-                Thread.sleep(100);
-                return doGet(key);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new CacheException("获取分布式锁被中断", e);
-        } finally {
-            if (locked) {
-                redisTemplate.delete(lockKey);
-            }
         }
     }
 
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : -1;
+    }
+
     @Override
     protected boolean doRemove(K key) {
-        String redisKey = buildRedisKey(key);
-        Boolean result = redisTemplate.delete(redisKey);
-        return Boolean.TRUE.equals(result);
+        byte[] redisKey = codec.buildKey(key);
+        byte[] leaseKey = codec.buildKey(key, LEASE_SUFFIX);
+        Long result = redisTemplate.execute((RedisCallback<Long>) connection ->
+                REMOVE_SCRIPT.eval(connection, 2, redisKey, leaseKey, RELEASE_CHANNEL));
+        return result != null && result > 0;
     }
 
     @Override
     protected void doClear() {
-        String pattern = keyPrefix + name + ":*";
-        redisTemplate.delete(redisTemplate.keys(pattern));
+        byte[] pattern = codec.keyPattern();
+        redisTemplate.execute((RedisCallback<Long>) connection -> {
+            Set<byte[]> keys = connection.keyCommands().keys(pattern);
+            return keys == null || keys.isEmpty() ? 0L : connection.keyCommands().del(keys.toArray(new byte[0][]));
+        });
+    }
+
+    @Override
+    protected CompletableFuture<V> doGetAsync(K key) {
+        if (reactiveConnection == null) {
+            return super.doGetAsync(key);
+        }
+
+        byte[] redisKey = codec.buildKey(key);
+        if (batcher != null) {
+            return batcher.get(redisKey).thenApply(raw ->
+                    raw == null || raw.length == 0 ? null : decodeValueAsync(key, redisKey, raw));
+        }
+        return toFuture(reactiveConnection.get().stringCommands().get(ByteBuffer.wrap(redisKey)), commandTimeout)
+                .thenApply(buffer -> {
+                    byte[] raw = buffer != null ? ByteUtils.getBytes(buffer) : null;
+                    return raw == null || raw.length == 0 ? null : decodeValueAsync(key, redisKey, raw);
+                });
+    }
+
+    @Override
+    protected CompletableFuture<Map<K, V>> doGetAllAsync(Collection<? extends K> keys) {
+        if (reactiveConnection == null) {
+            return super.doGetAllAsync(keys);
+        }
+
+        List<K> keyList = new ArrayList<>(keys.size());
+        List<byte[]> redisKeys = new ArrayList<>(keys.size());
+        List<ByteBuffer> buffers = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            if (key != null) {
+                byte[] redisKey = codec.buildKey(key);
+                keyList.add(key);
+                redisKeys.add(redisKey);
+                buffers.add(ByteBuffer.wrap(redisKey));
+            }
+        }
+        if (keyList.isEmpty()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+
+        // 一次MGET取回全部键，结果与键的顺序一致，不存在的键为空数据
+        return toFuture(reactiveConnection.get().stringCommands().mGet(buffers), commandTimeout).thenApply(results -> {
+            Map<K, V> values = new HashMap<>();
+            for (int i = 0; i < results.size(); i++) {
+                ByteBuffer buffer = results.get(i);
+                byte[] raw = buffer != null ? ByteUtils.getBytes(buffer) : null;
+                if (raw != null && raw.length > 0) {
+                    V value = decodeValueAsync(keyList.get(i), redisKeys.get(i), raw);
+                    if (value != null) {
+                        values.put(keyList.get(i), value);
+                    }
+                }
+            }
+            return values;
+        });
+    }
+
+    @Override
+    protected CompletableFuture<Void> doPutAsync(K key, V value, Duration ttl) {
+        if (reactiveConnection == null) {
+            return super.doPutAsync(key, value, ttl);
+        }
+
+        ByteBuffer redisKey = ByteBuffer.wrap(codec.buildKey(key));
+        ByteBuffer encodedValue = ByteBuffer.wrap(codec.encode(key, value));
+        return toFuture(reactiveConnection.get().stringCommands()
+                        .set(redisKey, encodedValue, expirationFor(ttl), RedisStringCommands.SetOption.UPSERT),
+                commandTimeout)
+                .thenApply(result -> null);
+    }
+
+    @Override
+    protected CompletableFuture<Boolean> doRemoveAsync(K key) {
+        if (reactiveConnection == null) {
+            return super.doRemoveAsync(key);
+        }
+
+        return toFuture(reactiveConnection.get().scriptingCommands()
+                        .<Long>eval(ByteBuffer.wrap(REMOVE_SCRIPT_BYTES), ReturnType.INTEGER, 2,
+                                ByteBuffer.wrap(codec.buildKey(key)), ByteBuffer.wrap(codec.buildKey(key, LEASE_SUFFIX)),
+                                ByteBuffer.wrap(RELEASE_CHANNEL))
+                        .next(), commandTimeout)
+                .thenApply(result -> result != null && result > 0);
+    }
+
+    /**
+     * 将响应式命令转换为Future，超过超时时间未完成时取消命令并以{@link CacheException}结束
+     *
+     * @param command 响应式命令
+     * @param timeout 超时时间，为null时不限制
+     * @param <T>     结果类型
+     * @return 命令结果
+     */
+    static <T> CompletableFuture<T> toFuture(Mono<T> command, Duration timeout) {
+        if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+            return command.toFuture();
+        }
+        return command.timeout(timeout)
+                .onErrorMap(TimeoutException.class,
+                        e -> new CacheException("Redis命令执行超时(" + timeout.toMillis() + "ms)", e))
+                .toFuture();
     }
 
     /**
-     * 构建Redis键
+     * 计算写入使用的过期时间，未指定时使用默认过期时间
      *
-     * @param key 缓存键
-     * @return Redis键
+     * @param ttl 指定的过期时间
+     * @return Redis过期时间
      */
-    private String buildRedisKey(K key) {
-        String keyStr = keyConvertor.convert(key);
-        return keyPrefix + name + ":" + keyStr;
+    private Expiration expirationFor(Duration ttl) {
+        Duration expiration = ttl;
+        if ((expiration == null || expiration.isZero() || expiration.isNegative())
+                && defaultExpiration != null && !defaultExpiration.isZero()) {
+            expiration = defaultExpiration;
+        }
+
+        return expiration != null && !expiration.isZero() && !expiration.isNegative()
+                ? Expiration.from(expiration.toMillis(), TimeUnit.MILLISECONDS)
+                : Expiration.persistent();
+    }
+
+    /**
+     * 在异步回调中解码数据，需要重写时通过响应式连接发送脚本，不阻塞IO线程
+     *
+     * @param key      缓存键
+     * @param redisKey Redis键
+     * @param raw      Redis中的原始数据
+     * @return 缓存值
+     */
+    private V decodeValueAsync(K key, byte[] redisKey, byte[] raw) {
+        V value = codec.decode(key, raw);
+        if (codec.needsRewrite(raw, value)) {
+            byte[] encodedValue = codec.encode(key, value, codec.version(raw));
+            reactiveConnection.get().scriptingCommands()
+                    .<Long>eval(ByteBuffer.wrap(REWRITE_SCRIPT_SOURCE), ReturnType.INTEGER, 1,
+                            ByteBuffer.wrap(redisKey), ByteBuffer.wrap(raw), ByteBuffer.wrap(encodedValue))
+                    .subscribe(
+                            result -> log.debug("重写缓存值格式, cacheName={}, rewritten={}", name, result),
+                            error -> log.warn("重写缓存值格式失败, cacheName={}, key={}", name, key, error));
+        }
+        return value;
+    }
+
+    /**
+     * 解码读取到的数据，必要时将数据重写为当前格式
+     *
+     * @param key      缓存键
+     * @param redisKey Redis键
+     * @param raw      Redis中的原始数据
+     * @return 缓存值
+     */
+    private V decodeValue(K key, byte[] redisKey, byte[] raw) {
+        V value = codec.decode(key, raw);
+        if (codec.needsRewrite(raw, value)) {
+            rewrite(key, redisKey, raw, value);
+        }
+        return value;
+    }
+
+    /**
+     * 将数据重写为当前格式，数据已被其他写操作覆盖时放弃重写
+     *
+     * @param key      缓存键
+     * @param redisKey Redis键
+     * @param raw      读取到的原始数据
+     * @param value    解码后的值
+     */
+    private void rewrite(K key, byte[] redisKey, byte[] raw, V value) {
+        try {
+            byte[] encodedValue = codec.encode(key, value, codec.version(raw));
+            Long result = redisTemplate.execute((RedisCallback<Long>) connection ->
+                    REWRITE_SCRIPT.eval(connection, 1, redisKey, raw, encodedValue));
+            if (log.isDebugEnabled()) {
+                log.debug("重写缓存值格式, cacheName={}, key={}, rewritten={}", name,
+                        new String(redisKey, StandardCharsets.UTF_8), result);
+            }
+        } catch (Exception e) {
+            log.warn("重写缓存值格式失败, cacheName={}, key={}", name, new String(redisKey, StandardCharsets.UTF_8), e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,343 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.consistency.VersionClock;
+import com.caoyixin.cache.exception.CacheException;
+import com.caoyixin.cache.serialization.CodecHeader;
+import com.caoyixin.cache.serialization.HashedKeyConvertor;
+import com.caoyixin.cache.serialization.KeyConvertor;
+import com.caoyixin.cache.serialization.PooledByteArrayOutputStream;
+import com.caoyixin.cache.serialization.ValueCodecRegistry;
+import com.caoyixin.cache.serialization.ValueDecoder;
+import com.caoyixin.cache.serialization.ValueEncoder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Redis缓存的键值编解码，负责构建字节形式的Redis键、写入编码头以及按编码头解码
+ * <p>
+ * 不同的Redis客户端实现共用此类，保证写入Redis的数据格式一致
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+@Slf4j
+public class RedisCacheCodec<K, V> {
+
+    /**
+     * 值未被并发修改时按新格式重写，保留剩余过期时间
+     */
+    public static final String REWRITE_SCRIPT =
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "local ttl = redis.call('PTTL', KEYS[1]) "
+                    + "if ttl > 0 then redis.call('SET', KEYS[1], ARGV[2], 'PX', ttl) "
+                    + "else redis.call('SET', KEYS[1], ARGV[2]) end "
+                    + "return 1 end "
+                    + "return 0";
+
+    /**
+     * 读取值及剩余过期时间，值存在时返回{值, 剩余毫秒数}，不存在时返回空列表
+     */
+    public static final String GET_WITH_TTL_SCRIPT =
+            "local v = redis.call('GET', KEYS[1]) "
+                    + "if not v then return {} end "
+                    + "return {v, redis.call('PTTL', KEYS[1])}";
+
+    /**
+     * 加载租约的键后缀，与值的键只差后缀
+     */
+    public static final String LEASE_SUFFIX = ":lease";
+
+    /**
+     * {@link #LEASE_GET_SCRIPT}的结果：值存在
+     */
+    public static final long LEASE_VALUE = 1;
+
+    /**
+     * {@link #LEASE_GET_SCRIPT}的结果：取得加载租约
+     */
+    public static final long LEASE_GRANTED = 2;
+
+    /**
+     * 读取值或获取加载租约：值存在时返回{1, 值}，取得租约时返回{2}，其他节点持有租约时返回{3, 租约剩余毫秒数}
+     */
+    public static final String LEASE_GET_SCRIPT =
+            "local v = redis.call('GET', KEYS[1]) "
+                    + "if v then return {1, v} end "
+                    + "if redis.call('SET', KEYS[2], ARGV[1], 'NX', 'PX', ARGV[2]) then return {2} end "
+                    + "return {3, redis.call('PTTL', KEYS[2])}";
+
+    /**
+     * 租约仍由本节点持有时写入值、删除租约并唤醒等待者；值已被其他写操作写入时不覆盖。
+     * 租约已失效(过期或被删除操作作废)时不写入，避免覆盖加载期间发生的修改
+     */
+    public static final String LEASE_FILL_SCRIPT =
+            "if redis.call('GET', KEYS[2]) ~= ARGV[1] then return 0 end "
+                    + "redis.call('DEL', KEYS[2]) "
+                    + "local ok "
+                    + "if ARGV[3] == '0' then ok = redis.call('SET', KEYS[1], ARGV[2], 'NX') "
+                    + "else ok = redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3], 'NX') end "
+                    + "redis.call('PUBLISH', ARGV[4], KEYS[2]) "
+                    + "if ok then return 1 end "
+                    + "return 0";
+
+    /**
+     * 加载失败或结果为null时释放租约并唤醒等待者，由等待者重新获取租约
+     */
+    public static final String LEASE_RELEASE_SCRIPT =
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "redis.call('DEL', KEYS[1]) "
+                    + "redis.call('PUBLISH', ARGV[2], KEYS[1]) "
+                    + "return 1 end "
+                    + "return 0";
+
+    /**
+     * 删除值并作废正在进行的加载，返回删除的值的数量
+     */
+    public static final String REMOVE_SCRIPT = "local n = redis.call('DEL', KEYS[1]) "
+            + "if redis.call('DEL', KEYS[2]) == 1 then redis.call('PUBLISH', ARGV[1], KEYS[2]) end "
+            + "return n";
+
+    /**
+     * 将PTTL的结果转换为剩余过期时间
+     *
+     * @param pttl PTTL返回的剩余毫秒数，负数表示没有过期时间
+     * @return 剩余过期时间，没有过期时间时返回null
+     */
+    public static Duration remainingTtl(long pttl) {
+        // 即将过期的键剩余时间可能为0，按1毫秒处理，避免被当作没有过期时间
+        return pttl >= 0 ? Duration.ofMillis(Math.max(pttl, 1)) : null;
+    }
+
+    private final String cacheName;
+    private final KeyConvertor<K> keyConvertor;
+    private final ValueCodecRegistry codecRegistry;
+    private final int codecId;
+    private final ValueEncoder<V> valueEncoder;
+    private final ValueDecoder<V> legacyDecoder;
+    /**
+     * 值类型，不为null时按类型解码
+     */
+    private final Type valueType;
+    private final boolean rewriteOnRead;
+    /**
+     * 预先编码的键前缀: keyPrefix + name + ":"
+     */
+    private final byte[] prefixBytes;
+    /**
+     * 需要在值中保存完整键校验哈希冲突时不为null
+     */
+    private final HashedKeyConvertor<K> verifyingConvertor;
+
+    /**
+     * 是否在编码头中保存写入版本号
+     */
+    private final boolean versioned;
+
+    /**
+     * 创建Redis缓存编解码
+     *
+     * @param cacheName       缓存名称
+     * @param keyPrefix       键前缀
+     * @param keyConvertor    键转换器
+     * @param codecRegistry   值编解码器注册表，用于按编码头解码
+     * @param codec           写入时使用的值编解码器
+     * @param valueType       值类型，为null时使用编解码器的通用解码器
+     * @param legacyDecoder   没有编码头的历史数据使用的值解码器
+     * @param rewriteOnRead   读取到其他格式的数据时是否按当前格式重写
+     * @param verifyHashedKey 使用哈希键转换器时是否在值中保存完整键并在读取时校验
+     * @param versioned       是否在值中保存写入版本号
+     */
+    @SuppressWarnings("unchecked")
+    public RedisCacheCodec(String cacheName,
+                           String keyPrefix,
+                           KeyConvertor<K> keyConvertor,
+                           ValueCodecRegistry codecRegistry,
+                           ValueCodecRegistry.Codec codec,
+                           Type valueType,
+                           ValueDecoder<V> legacyDecoder,
+                           boolean rewriteOnRead,
+                           boolean verifyHashedKey,
+                           boolean versioned) {
+        this.cacheName = cacheName;
+        this.keyConvertor = keyConvertor;
+        this.codecRegistry = codecRegistry;
+        this.codecId = codec.getId();
+        this.valueEncoder = (ValueEncoder<V>) codec.getEncoder();
+        this.legacyDecoder = legacyDecoder;
+        this.valueType = valueType;
+        // 预先创建写入格式的类型化解码器，避免首次读取时解析类型
+        codec.getDecoder(valueType);
+        this.rewriteOnRead = rewriteOnRead;
+        this.prefixBytes = (keyPrefix + cacheName + ":").getBytes(StandardCharsets.UTF_8);
+        this.verifyingConvertor = verifyHashedKey && keyConvertor instanceof HashedKeyConvertor
+                ? (HashedKeyConvertor<K>) keyConvertor : null;
+        this.versioned = versioned;
+    }
+
+    /**
+     * 构建Redis键，预先编码的前缀和键转换器的输出写入同一个复用缓冲区
+     *
+     * @param key 缓存键
+     * @return Redis键
+     */
+    public byte[] buildKey(K key) {
+        return buildKey(key, null);
+    }
+
+    /**
+     * 构建带后缀的Redis键
+     *
+     * @param key    缓存键
+     * @param suffix 预先编码的后缀，可以为null
+     * @return Redis键
+     */
+    public byte[] buildKey(K key, byte[] suffix) {
+        PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire();
+        try {
+            out.write(prefixBytes, 0, prefixBytes.length);
+            keyConvertor.convert(key, out);
+            if (suffix != null) {
+                out.write(suffix, 0, suffix.length);
+            }
+            return out.toByteArray();
+        } finally {
+            out.release();
+        }
+    }
+
+    /**
+     * 构建匹配本缓存全部键的模式
+     *
+     * @return 键模式
+     */
+    public byte[] keyPattern() {
+        byte[] pattern = new byte[prefixBytes.length + 1];
+        System.arraycopy(prefixBytes, 0, pattern, 0, prefixBytes.length);
+        pattern[prefixBytes.length] = '*';
+        return pattern;
+    }
+
+    /**
+     * 编码值，并写入当前编解码器的编码头，需要校验哈希键时在头中写入完整键
+     *
+     * @param key   缓存键
+     * @param value 缓存值
+     * @return 带编码头的数据
+     */
+    public byte[] encode(K key, V value) {
+        return encode(key, value, versioned ? VersionClock.currentOrNext() : 0);
+    }
+
+    /**
+     * 编码值，保存写入版本号时使用指定的版本号，用于重写数据时保留原来的版本号
+     *
+     * @param key     缓存键
+     * @param value   缓存值
+     * @param version 写入版本号，不保存版本号时忽略
+     * @return 带编码头的数据
+     */
+    public byte[] encode(K key, V value, long version) {
+        PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire();
+        try {
+            if (verifyingConvertor != null) {
+                PooledByteArrayOutputStream source = PooledByteArrayOutputStream.acquire();
+                try {
+                    verifyingConvertor.convertSource(key, source);
+                    if (versioned) {
+                        CodecHeader.writeTo(codecId, version, source.buffer(), 0, source.size(), out);
+                    } else {
+                        CodecHeader.writeTo(codecId, source.buffer(), 0, source.size(), out);
+                    }
+                } finally {
+                    source.release();
+                }
+            } else if (versioned) {
+                CodecHeader.writeTo(codecId, version, null, 0, 0, out);
+            } else {
+                CodecHeader.writeTo(codecId, out);
+            }
+            valueEncoder.encode(value, out);
+            // 连接API只接受精确长度的数组，这是写入路径上唯一的一次复制
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new CacheException("编码缓存值失败, cacheName=" + cacheName, e);
+        } finally {
+            out.release();
+        }
+    }
+
+    /**
+     * 按编码头选择解码器解码
+     *
+     * @param key 缓存键
+     * @param raw Redis中的原始数据
+     * @return 缓存值，哈希键冲突时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V decode(K key, byte[] raw) {
+        if (raw == null || raw.length == 0) {
+            return null;
+        }
+
+        boolean hasHeader = CodecHeader.hasHeader(raw);
+        if (verifyingConvertor != null && hasHeader && CodecHeader.hasKey(raw) && !sourceKeyEquals(key, raw)) {
+            // 哈希冲突，数据属于另一个键，按未命中处理
+            log.warn("哈希键冲突, cacheName={}, key={}", cacheName, key);
+            return null;
+        }
+
+        ValueCodecRegistry.Codec codec = hasHeader ? codecRegistry.get(CodecHeader.codecId(raw)) : null;
+        if (codec == null) {
+            // 没有编码头的历史数据
+            return legacyDecoder.decode(raw);
+        }
+        int offset = CodecHeader.payloadOffset(raw);
+        return raw.length == offset ? null
+                : ((ValueDecoder<V>) codec.getDecoder(valueType)).decode(raw, offset, raw.length - offset);
+    }
+
+    /**
+     * 读取数据中保存的写入版本号
+     *
+     * @param raw Redis中的原始数据
+     * @return 写入版本号，没有版本号时返回0
+     */
+    public long version(byte[] raw) {
+        return CodecHeader.version(raw);
+    }
+
+    /**
+     * 判断读取到的数据是否需要按当前格式重写
+     *
+     * @param raw   Redis中的原始数据
+     * @param value 解码后的值
+     * @return 是否需要重写
+     */
+    public boolean needsRewrite(byte[] raw, V value) {
+        if (!rewriteOnRead || value == null) {
+            return false;
+        }
+        return !CodecHeader.hasHeader(raw) || CodecHeader.codecId(raw) != codecId;
+    }
+
+    /**
+     * 比较数据中保存的完整键与当前键是否一致
+     *
+     * @param key 缓存键
+     * @param raw 带完整键的数据
+     * @return 是否一致
+     */
+    private boolean sourceKeyEquals(K key, byte[] raw) {
+        PooledByteArrayOutputStream source = PooledByteArrayOutputStream.acquire();
+        try {
+            verifyingConvertor.convertSource(key, source);
+            return CodecHeader.keyEquals(raw, source.buffer(), 0, source.size());
+        } finally {
+            source.release();
+        }
+    }
+}
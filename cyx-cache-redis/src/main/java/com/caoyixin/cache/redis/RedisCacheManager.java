@@ -1,36 +1,37 @@
 package com.caoyixin.cache.redis;
 
 import com.caoyixin.cache.api.Cache;
-import com.caoyixin.cache.api.CacheManager;
-import com.caoyixin.cache.api.CacheType;
 import com.caoyixin.cache.api.DistributedLock;
 import com.caoyixin.cache.config.CacheConfig;
-import com.caoyixin.cache.exception.CacheException;
-import com.caoyixin.cache.serialization.*;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReactiveRedisConnection;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.data.redis.util.ByteUtils;
 
+import java.nio.ByteBuffer;
 import java.time.Duration;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * Redis缓存管理器，同时实现分布式锁功能
  */
 @Slf4j
-public class RedisCacheManager implements CacheManager, DistributedLock<Object> {
+public class RedisCacheManager extends AbstractRedisCacheManager implements DistributedLock<Object> {
 
     private final RedisConnectionFactory connectionFactory;
     private final RedisTemplate<String, byte[]> redisTemplate;
-    private final RedisTemplate<String, String> stringRedisTemplate;
-    private final String keyPrefix;
-    private final Map<String, Cache<?, ?>> caches = new ConcurrentHashMap<>();
-    private final Map<String, KeyConvertor<?>> keyConvertors = new ConcurrentHashMap<>();
-    private final Map<String, ValueEncoder<?>> valueEncoders = new ConcurrentHashMap<>();
-    private final Map<String, ValueDecoder<?>> valueDecoders = new ConcurrentHashMap<>();
+    private final RedisLock lock;
+    /**
+     * 所有缓存共享的响应式连接，首次异步操作时创建
+     */
+    private volatile ReactiveRedisConnection reactiveConnection;
 
     /**
      * 创建Redis缓存管理器
@@ -39,19 +40,10 @@ public class RedisCacheManager implements CacheManager, DistributedLock<Object>
      * @param keyPrefix         键前缀，用于区分不同应用的缓存
      */
     public RedisCacheManager(RedisConnectionFactory connectionFactory, String keyPrefix) {
+        super(keyPrefix);
         this.connectionFactory = connectionFactory;
-        this.keyPrefix = keyPrefix == null ? "" : keyPrefix;
         this.redisTemplate = createRedisTemplate();
-        this.stringRedisTemplate = createStringRedisTemplate();
-
-        // 注册默认的键转换器
-        registerKeyConvertor("string", new StringKeyConvertor<Object>());
-        registerKeyConvertor("fastjson", new FastjsonKeyConvertor<Object>());
-        registerKeyConvertor("jackson", new JacksonKeyConvertor<Object>());
-
-        // 注册默认的值编码器和解码器
-        registerValueCodec("java", new JavaValueEncoder(), new JavaValueDecoder());
-        registerValueCodec("jackson", new Jackson2ValueEncoder<>(), new Jackson2ValueDecoder<>(Object.class));
+        this.lock = new RedisLock(connectionFactory);
 
         log.info("初始化RedisCacheManager, keyPrefix={}", this.keyPrefix);
     }
@@ -73,118 +65,49 @@ public class RedisCacheManager implements CacheManager, DistributedLock<Object>
     }
 
     /**
-     * 创建字符串Redis模板
+     * 获取共享的响应式连接，不在构造时创建，避免Redis不可用时管理器无法初始化
      *
-     * @return 字符串Redis模板
+     * @return 响应式连接
      */
-    private RedisTemplate<String, String> createStringRedisTemplate() {
-        RedisTemplate<String, String> template = new RedisTemplate<>();
-        template.setConnectionFactory(connectionFactory);
-        template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(new StringRedisSerializer());
-        template.afterPropertiesSet();
-        return template;
-    }
-
-    /**
-     * 注册键转换器
-     *
-     * @param name         转换器名称
-     * @param keyConvertor 键转换器
-     */
-    public void registerKeyConvertor(String name, KeyConvertor<?> keyConvertor) {
-        keyConvertors.put(name, keyConvertor);
-        log.info("注册键转换器: {}", name);
-    }
-
-    /**
-     * 注册值编码器和解码器
-     *
-     * @param name    编解码器名称
-     * @param encoder 值编码器
-     * @param decoder 值解码器
-     */
-    public void registerValueCodec(String name, ValueEncoder<?> encoder, ValueDecoder<?> decoder) {
-        valueEncoders.put(name, encoder);
-        valueDecoders.put(name, decoder);
-        log.info("注册值编解码器: {}", name);
-    }
-
-    @Override
-    public <K, V> Cache<K, V> getCache(String name) {
-        @SuppressWarnings("unchecked")
-        Cache<K, V> cache = (Cache<K, V>) caches.get(name);
-        return cache;
-    }
-
-    @Override
-    public <K, V> Cache<K, V> createCache(String name, CacheConfig config) {
-        validateCacheType(config);
-
-        if (caches.containsKey(name)) {
-            throw new CacheException("缓存已存在: " + name);
-        }
-
-        Cache<K, V> cache = doCreateCache(name, config);
-        caches.put(name, cache);
-
-        log.info("创建Redis缓存: {} with config: {}", name, config);
-        return cache;
-    }
-
-    @Override
-    public <K, V> Cache<K, V> getOrCreateCache(String name, CacheConfig config) {
-        @SuppressWarnings("unchecked")
-        Cache<K, V> cache = (Cache<K, V>) caches.get(name);
-        if (cache != null) {
-            return cache;
-        }
-
-        synchronized (this) {
-            @SuppressWarnings("unchecked")
-            Cache<K, V> existingCache = (Cache<K, V>) caches.get(name);
-            if (existingCache != null) {
-                return existingCache;
+    private ReactiveRedisConnection reactiveConnection() {
+        ReactiveRedisConnection connection = reactiveConnection;
+        if (connection == null) {
+            synchronized (this) {
+                connection = reactiveConnection;
+                if (connection == null) {
+                    connection = ((ReactiveRedisConnectionFactory) connectionFactory).getReactiveConnection();
+                    reactiveConnection = connection;
+                }
             }
-
-            return createCache(name, config);
         }
-    }
-
-    @Override
-    public void removeCache(String name) {
-        Cache<?, ?> cache = caches.remove(name);
-        if (cache != null) {
-            log.info("移除Redis缓存: {}", name);
-        }
-    }
-
-    @Override
-    public Set<String> getCacheNames() {
-        return caches.keySet();
+        return connection;
     }
 
     @Override
     public void close() {
-        caches.clear();
+        super.close();
+        lock.close();
+        ReactiveRedisConnection connection = reactiveConnection;
+        if (connection != null) {
+            connection.close();
+        }
         log.info("关闭RedisCacheManager");
         // 连接工厂由Spring管理，不需要关闭
     }
 
     @Override
     public boolean tryLock(Object key, Duration timeout) {
+        return tryLock(key, timeout, null);
+    }
+
+    @Override
+    public boolean tryLock(Object key, Duration waitTime, Duration leaseTime) {
         if (key == null) {
             return false;
         }
 
-        String lockKey = buildLockKey(key);
         try {
-            Duration lockDuration = timeout != null && !timeout.isZero() && !timeout.isNegative()
-                    ? timeout
-                    : Duration.ofMinutes(5);
-
-            Boolean success = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, "1", lockDuration);
-            return Boolean.TRUE.equals(success);
+            return lock.tryLock(buildLockKey(key), waitTime, leaseTime);
         } catch (Exception e) {
             log.error("获取Redis分布式锁异常, key={}", key, e);
             return false;
@@ -197,23 +120,22 @@ public class RedisCacheManager implements CacheManager, DistributedLock<Object>
             return;
         }
 
-        String lockKey = buildLockKey(key);
         try {
-            stringRedisTemplate.delete(lockKey);
+            lock.unlock(buildLockKey(key));
         } catch (Exception e) {
             log.error("释放Redis分布式锁异常, key={}", key, e);
         }
     }
 
     /**
-     * 验证缓存类型
-     *
-     * @param config 缓存配置
+     * 使用Lettuce连接工厂时返回客户端配置的命令超时时间
      */
-    private void validateCacheType(CacheConfig config) {
-        if (config.getCacheType() != CacheType.REMOTE && config.getCacheType() != CacheType.BOTH) {
-            throw new IllegalArgumentException("RedisCacheManager仅支持REMOTE、BOTH类型的缓存，当前类型: " + config.getCacheType());
+    @Override
+    protected Duration commandTimeout() {
+        if (connectionFactory instanceof LettuceConnectionFactory) {
+            return ((LettuceConnectionFactory) connectionFactory).getClientConfiguration().getCommandTimeout();
         }
+        return null;
     }
 
     /**
@@ -225,38 +147,43 @@ public class RedisCacheManager implements CacheManager, DistributedLock<Object>
      * @param <V>    值类型
      * @return Redis缓存
      */
-    @SuppressWarnings("unchecked")
-    private <K, V> Cache<K, V> doCreateCache(String name, CacheConfig config) {
-        // 获取键转换器
-        String keyConvertorName = config.getKeyConvertor() != null ? config.getKeyConvertor() : "fastjson";
-        KeyConvertor<K> keyConvertor = (KeyConvertor<K>) keyConvertors.get(keyConvertorName);
-        if (keyConvertor == null) {
-            throw new CacheException("未知的键转换器: " + keyConvertorName);
-        }
-
-        // 获取值编码器和解码器
-        String valueEncoderName = config.getValueEncoder() != null ? config.getValueEncoder() : "java";
-        ValueEncoder<V> valueEncoder = (ValueEncoder<V>) valueEncoders.get(valueEncoderName);
-        if (valueEncoder == null) {
-            throw new CacheException("未知的值编码器: " + valueEncoderName);
+    @Override
+    protected <K, V> Cache<K, V> doCreateCache(String name, CacheConfig config) {
+        RedisCacheCodec<K, V> codec = createCodec(name, config);
+        Supplier<ReactiveRedisConnection> reactive = connectionFactory instanceof ReactiveRedisConnectionFactory
+                ? this::reactiveConnection
+                : null;
+        RedisGetBatcher batcher = null;
+        if (reactive != null) {
+            batcher = createBatcher(name, config, keys -> mget(reactive, keys));
+        } else if (config.getReadBatchWindow() != null) {
+            // 同步客户端的MGET会阻塞所有缓存共享的合并调度线程，此时不启用读取合并
+            log.warn("连接工厂不支持响应式操作，忽略读取合并配置, cacheName={}", name);
         }
+        return new RedisCache<>(name, redisTemplate, connectionFactory, reactive, codec, config.getExpire(), batcher,
+                lock, RedisLoadLease.of(config), commandTimeout());
+    }
 
-        String valueDecoderName = config.getValueDecoder() != null ? config.getValueDecoder() : "java";
-        ValueDecoder<V> valueDecoder = (ValueDecoder<V>) valueDecoders.get(valueDecoderName);
-        if (valueDecoder == null) {
-            throw new CacheException("未知的值解码器: " + valueDecoderName);
+    /**
+     * 通过响应式连接异步执行MGET
+     *
+     * @param reactive 响应式连接的提供者
+     * @param keys     Redis键
+     * @return 与键顺序一致的原始数据，不存在的键为null
+     */
+    private CompletableFuture<List<byte[]>> mget(Supplier<ReactiveRedisConnection> reactive, byte[][] keys) {
+        List<ByteBuffer> buffers = new ArrayList<>(keys.length);
+        for (byte[] key : keys) {
+            buffers.add(ByteBuffer.wrap(key));
         }
-
-        // 创建Redis缓存
-        return new RedisCache<>(
-                name,
-                redisTemplate,
-                connectionFactory,
-                keyConvertor,
-                valueEncoder,
-                valueDecoder,
-                config.getExpire(),
-                keyPrefix);
+        return RedisCache.toFuture(reactive.get().stringCommands().mGet(buffers), commandTimeout()).thenApply(results -> {
+            List<byte[]> values = new ArrayList<>(results.size());
+            for (ByteBuffer buffer : results) {
+                byte[] value = buffer != null ? ByteUtils.getBytes(buffer) : null;
+                values.add(value != null && value.length > 0 ? value : null);
+            }
+            return values;
+        });
     }
 
     /**
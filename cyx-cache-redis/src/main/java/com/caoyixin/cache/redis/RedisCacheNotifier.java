@@ -1,5 +1,7 @@
 package com.caoyixin.cache.redis;
 
+import com.caoyixin.cache.consistency.VersionClock;
+import com.caoyixin.cache.notification.CacheBatchEvent;
 import com.caoyixin.cache.notification.CacheEvent;
 import com.caoyixin.cache.notification.CacheEventListener;
 import com.caoyixin.cache.notification.CacheEventType;
@@ -8,28 +10,157 @@ import com.caoyixin.cache.notification.CacheRemoveEvent;
 import com.caoyixin.cache.notification.CacheUpdateEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 
-import java.util.UUID;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 基于Redis的缓存通知实现
+ * <p>
+ * Redis发布订阅不保证送达，断线或处理不及时都会丢失通知。每个节点为每个缓存的通知分配连续的序号，
+ * 接收方按发送节点检查序号，发现丢失的通知或重新订阅后清空该缓存的本地缓存，使本地缓存可以使用较长的过期时间。
+ * 序号缺口由后台线程定期检查，缺口之后没有新的通知时也能在等待时间后发现；
+ * 长时间没有通知的发送节点(如已重启的节点)的序号窗口被移除。
+ * <p>
+ * 旧版本节点解析JSON通知时不忽略未知字段，也不认识批量事件。JSON通知默认不带序号和版本号，
+ * 批量事件逐个键以更新事件发送，与旧版本节点的消息格式相同。
+ * 滚动升级时先让所有节点运行当前版本，再开启{@link #setExtendedEvents(boolean)}或{@link #setBinaryEncoding(boolean)}，
+ * 开启后接收方才能检查序号、按版本号丢弃过期的通知；二进制格式总是带有序号和版本号。
+ * <p>
+ * 通知默认在后台线程上发送：一个合并周期内同一缓存的通知合并为一条消息，重复的键只发送一次，
+ * 调用线程不等待Redis的往返
  */
 @Slf4j
-public class RedisCacheNotifier implements CacheNotifier {
+public class RedisCacheNotifier implements CacheNotifier, AutoCloseable {
+
+    /**
+     * 默认的合并周期
+     */
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(2);
+
+    /**
+     * 默认每条消息最多携带的键数量
+     */
+    public static final int DEFAULT_MAX_BATCH_KEYS = 512;
+
+    /**
+     * 默认的序号窗口空闲时间，发送节点超过此时间没有通知时移除其序号窗口
+     */
+    public static final Duration DEFAULT_WINDOW_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    /**
+     * 检查序号缺口和空闲窗口的间隔
+     */
+    private static final long WINDOW_CHECK_INTERVAL_MILLIS = 500;
+
+    /**
+     * 节点ID的上限，48位随机数使节点ID冲突的概率可以忽略，varint编码最多7字节
+     */
+    private static final long NODE_ID_BOUND = 1L << 48;
 
     private final RedisTemplate<String, String> redisTemplate;
     private final String topicPrefix;
     private final String instanceId;
+
+    /**
+     * 启动时随机分配的节点ID，二进制消息中以varint表示发送节点，字符串形式即实例ID
+     */
+    private final long nodeId;
     private final ObjectMapper objectMapper;
     private final ConcurrentMap<String, ConcurrentMap<CacheEventListener, Boolean>> listeners;
     private final RedisMessageListener messageListener;
 
     /**
-     * 创建Redis缓存通知器
+     * 合并周期，为0时在调用线程上逐条发送
+     */
+    private final long flushIntervalNanos;
+    private final int maxBatchKeys;
+
+    /**
+     * 等待发送的通知，按缓存合并
+     */
+    private final ConcurrentMap<String, CacheEventBatch> pendingBatches = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    /**
+     * 定期检查序号缺口和空闲窗口，首次收到带序号的通知时启动
+     */
+    private volatile ScheduledExecutorService windowChecker;
+    private volatile boolean closed;
+
+    /**
+     * 序号窗口的空闲时间(纳秒)
+     */
+    private volatile long windowIdleNanos = DEFAULT_WINDOW_IDLE_TIMEOUT.toNanos();
+
+    /**
+     * 是否以二进制格式发送通知，旧版本节点只能读取JSON格式，所有节点升级后才能开启
+     */
+    private volatile boolean binaryEncoding;
+
+    /**
+     * JSON通知是否带有序号、版本号、批量事件等旧版本节点无法解析的内容，所有节点升级后才能开启
+     */
+    private volatile boolean extendedEvents;
+
+    /**
+     * 提交发送的通知数量
+     */
+    @Getter
+    private final LongAdder publishedEvents = new LongAdder();
+
+    /**
+     * 实际发送的消息数量
+     */
+    @Getter
+    private final LongAdder publishedMessages = new LongAdder();
+
+    /**
+     * 每个缓存发出的通知序号
+     */
+    private final ConcurrentMap<String, AtomicLong> sequences = new ConcurrentHashMap<>();
+
+    /**
+     * 每个缓存收到的各发送节点的通知序号
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, SequenceWindow>> windows = new ConcurrentHashMap<>();
+
+    /**
+     * 发现通知丢失的次数
+     */
+    @Getter
+    private final LongAdder gapCount = new LongAdder();
+
+    /**
+     * 丢失的通知数量
+     */
+    @Getter
+    private final LongAdder missedEvents = new LongAdder();
+
+    /**
+     * 清空本地缓存重新同步的次数
+     */
+    @Getter
+    private final LongAdder resyncCount = new LongAdder();
+
+    /**
+     * 创建Redis缓存通知器，使用默认的合并周期在后台发送
      *
      * @param redisTemplate     Redis模板
      * @param messageListener   Redis消息监听器
@@ -38,10 +169,38 @@ public class RedisCacheNotifier implements CacheNotifier {
     public RedisCacheNotifier(RedisTemplate<String, String> redisTemplate, 
                             RedisMessageListener messageListener,
                             String topicPrefix) {
+        this(redisTemplate, messageListener, topicPrefix, DEFAULT_FLUSH_INTERVAL, DEFAULT_MAX_BATCH_KEYS);
+    }
+
+    /**
+     * 创建Redis缓存通知器
+     *
+     * @param redisTemplate   Redis模板
+     * @param messageListener Redis消息监听器
+     * @param topicPrefix     主题前缀
+     * @param flushInterval   合并周期，为null或0时在调用线程上逐条发送
+     * @param maxBatchKeys    每条消息最多携带的键数量，等待发送的键达到此数量时立即发送
+     */
+    public RedisCacheNotifier(RedisTemplate<String, String> redisTemplate,
+                              RedisMessageListener messageListener,
+                              String topicPrefix,
+                              Duration flushInterval,
+                              int maxBatchKeys) {
+        if (maxBatchKeys <= 0) {
+            throw new IllegalArgumentException("每条消息的键数量必须大于0");
+        }
+        this.flushIntervalNanos = flushInterval != null && !flushInterval.isNegative() ? flushInterval.toNanos() : 0;
+        this.maxBatchKeys = maxBatchKeys;
+        this.flusher = flushIntervalNanos > 0 ? Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cyx-cache-notifier-flush");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
         this.redisTemplate = redisTemplate;
         this.messageListener = messageListener;
         this.topicPrefix = topicPrefix != null ? topicPrefix : "cyx-cache";
-        this.instanceId = UUID.randomUUID().toString();
+        this.nodeId = ThreadLocalRandom.current().nextLong(1, NODE_ID_BOUND);
+        this.instanceId = Long.toString(nodeId);
         this.objectMapper = new ObjectMapper();
         this.listeners = new ConcurrentHashMap<>();
         
@@ -60,12 +219,17 @@ public class RedisCacheNotifier implements CacheNotifier {
     
     @Override
     public void notifyRemove(String cacheName, Object key) {
+        // 键为null表示清空整个缓存，接收方按清空处理，只需要一条通知
         publish(CacheEventType.REMOVE, cacheName, key);
-        
-        // 如果key为null，表示清空整个缓存
-        if (key == null) {
-            publish(CacheEventType.CLEAR, cacheName, null);
+    }
+
+    @Override
+    public void notifyUpdateAll(String cacheName, Collection<?> keys) {
+        if (cacheName == null || keys == null || keys.isEmpty()) {
+            return;
         }
+        // 一批键合并为一条消息，避免写回策略每次刷写发送大量消息
+        publish(new CacheBatchEvent(cacheName, keys, instanceId));
     }
 
     @Override
@@ -94,8 +258,121 @@ public class RedisCacheNotifier implements CacheNotifier {
         if (event == null || event.getInstanceId().equals(instanceId)) {
             return; // 忽略自己发出的事件
         }
-        
+
         String cacheName = event.getCacheName();
+        if (event.getSequence() > 0) {
+            startWindowChecker();
+            long missed = windows.computeIfAbsent(cacheName, k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(event.getInstanceId(), k -> new SequenceWindow())
+                    .receive(event.getSequence(), System.nanoTime());
+            if (missed > 0) {
+                onMissed(cacheName, event.getInstanceId(), missed);
+            }
+        }
+        dispatch(cacheName, event);
+    }
+
+    /**
+     * 设置序号窗口的空闲时间，发送节点超过此时间没有通知时移除其序号窗口。
+     * 窗口移除后该节点的下一条通知重新开始检查，空闲期间末尾丢失的通知无法发现，应大于本地缓存的过期时间
+     *
+     * @param idleTimeout 空闲时间
+     */
+    public void setWindowIdleTimeout(Duration idleTimeout) {
+        if (idleTimeout == null || idleTimeout.isZero() || idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("序号窗口空闲时间必须大于0");
+        }
+        this.windowIdleNanos = idleTimeout.toNanos();
+    }
+
+    /**
+     * 获取正在检查序号的发送节点数量
+     *
+     * @param cacheName 缓存名称
+     * @return 发送节点数量
+     */
+    int trackedSenders(String cacheName) {
+        ConcurrentMap<String, SequenceWindow> senders = windows.get(cacheName);
+        return senders != null ? senders.size() : 0;
+    }
+
+    /**
+     * 检查所有序号窗口：缺口超过等待时间时按丢失处理，空闲的窗口被移除
+     */
+    void checkWindows() {
+        long now = System.nanoTime();
+        long idleNanos = windowIdleNanos;
+        for (Map.Entry<String, ConcurrentMap<String, SequenceWindow>> entry : windows.entrySet()) {
+            String cacheName = entry.getKey();
+            ConcurrentMap<String, SequenceWindow> senders = entry.getValue();
+            for (Map.Entry<String, SequenceWindow> sender : senders.entrySet()) {
+                SequenceWindow window = sender.getValue();
+                long missed = window.expire(now);
+                if (missed > 0) {
+                    // 清空本地缓存时移除该缓存的所有窗口
+                    onMissed(cacheName, sender.getKey(), missed);
+                    break;
+                }
+                if (window.isIdle(now, idleNanos) && senders.remove(sender.getKey(), window)) {
+                    log.debug("移除空闲的通知序号窗口, cacheName={}, instanceId={}", cacheName, sender.getKey());
+                }
+            }
+            windows.computeIfPresent(cacheName, (name, current) -> current.isEmpty() ? null : current);
+        }
+    }
+
+    private void onMissed(String cacheName, String senderId, long missed) {
+        gapCount.increment();
+        missedEvents.add(missed);
+        log.warn("发现丢失的缓存通知, cacheName={}, instanceId={}, missed={}", cacheName, senderId, missed);
+        resync(cacheName);
+    }
+
+    private void startWindowChecker() {
+        if (windowChecker != null || closed) {
+            return;
+        }
+        synchronized (windows) {
+            if (windowChecker != null || closed) {
+                return;
+            }
+            ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "cyx-cache-notifier-window-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checker.scheduleWithFixedDelay(() -> {
+                try {
+                    checkWindows();
+                } catch (Exception e) {
+                    log.warn("检查通知序号窗口失败", e);
+                }
+            }, WINDOW_CHECK_INTERVAL_MILLIS, WINDOW_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            windowChecker = checker;
+        }
+    }
+
+    /**
+     * 清空缓存的本地缓存，在无法确认是否收到全部通知时调用，例如发现丢失的通知或重新订阅之后
+     *
+     * @param cacheName 缓存名称
+     */
+    public void resync(String cacheName) {
+        // 之前的序号缺口已被这次清空覆盖，从下一条通知重新开始检查
+        windows.remove(cacheName);
+        resyncCount.increment();
+        log.info("清空本地缓存重新同步, cacheName={}", cacheName);
+        // 清空缓存的通知以键为null的删除事件发送
+        dispatch(cacheName, new CacheRemoveEvent(cacheName, null, instanceId));
+    }
+
+    /**
+     * 将事件交给缓存的本地监听器
+     *
+     * @param cacheName 缓存名称
+     * @param event     缓存事件
+     */
+    private void dispatch(String cacheName, CacheEvent event) {
         ConcurrentMap<CacheEventListener, Boolean> cacheListeners = listeners.get(cacheName);
         if (cacheListeners != null) {
             for (CacheEventListener listener : cacheListeners.keySet()) {
@@ -128,14 +405,137 @@ public class RedisCacheNotifier implements CacheNotifier {
         } else {
             event = new CacheUpdateEvent(cacheName, key, instanceId);
         }
+        publish(event);
+    }
+
+    /**
+     * 设置是否以二进制格式发送通知，接收方同时支持两种格式；使用共享频道时总是以二进制格式发送
+     *
+     * @param binaryEncoding 是否以二进制格式发送
+     */
+    public void setBinaryEncoding(boolean binaryEncoding) {
+        this.binaryEncoding = binaryEncoding;
+    }
 
+    /**
+     * 设置JSON通知是否带有序号、版本号等扩展内容，以及是否以一条批量事件发送一批键。旧版本节点无法解析带扩展内容的通知，会丢弃这些失效通知，
+     * 必须在所有节点都运行当前版本之后才能开启
+     *
+     * @param extendedEvents 是否发送扩展内容
+     */
+    public void setExtendedEvents(boolean extendedEvents) {
+        this.extendedEvents = extendedEvents;
+    }
+
+    /**
+     * 发送所有等待发送的通知并停止后台发送，之后的通知在调用线程上发送
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (windows) {
+            if (windowChecker != null) {
+                windowChecker.shutdownNow();
+            }
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * 发布缓存事件，后台发送时放入等待发送的批次
+     *
+     * @param event 缓存事件
+     */
+    private void publish(CacheEvent event) {
+        if (event.getVersion() == 0) {
+            // 通知与远程缓存中的值使用同一个写入版本号，在调用线程上取得
+            event.setVersion(VersionClock.current());
+        }
+        publishedEvents.increment();
+        if (flusher == null || closed) {
+            send(event);
+            return;
+        }
+
+        CacheEventBatch batch = pendingBatches.compute(event.getCacheName(), (name, pending) -> {
+            CacheEventBatch result = pending != null ? pending : new CacheEventBatch(name);
+            result.add(event);
+            return result;
+        });
+        try {
+            if (batch.keyCount() >= maxBatchKeys) {
+                flusher.execute(this::flush);
+            } else if (flushScheduled.compareAndSet(false, true)) {
+                flusher.schedule(this::flush, flushIntervalNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // 并发关闭时后台线程已停止
+            flush();
+        }
+    }
+
+    /**
+     * 发送所有等待发送的通知，每个缓存合并为一条消息
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        for (String cacheName : pendingBatches.keySet()) {
+            CacheEventBatch batch = pendingBatches.remove(cacheName);
+            if (batch != null) {
+                for (CacheEvent event : batch.toEvents(instanceId, maxBatchKeys)) {
+                    send(event);
+                }
+            }
+        }
+    }
+
+    /**
+     * 发送缓存事件
+     *
+     * @param event 缓存事件
+     */
+    private void send(CacheEvent event) {
+        String cacheName = event.getCacheName();
+        boolean binary = isBinary();
+        if (!binary && !extendedEvents && event instanceof CacheBatchEvent) {
+            // 旧版本节点不认识批量事件，逐个键发送更新事件
+            for (Object key : ((CacheBatchEvent) event).getKeys()) {
+                send(new CacheUpdateEvent(cacheName, key, instanceId));
+            }
+            return;
+        }
         String topic = buildTopic(cacheName);
+        AtomicLong sequence = sequences.computeIfAbsent(cacheName, k -> new AtomicLong());
 
         try {
-            String message = objectMapper.writeValueAsString(event);
-            redisTemplate.convertAndSend(topic, message);
+            // 按序号顺序发送；发送失败的序号不再使用，接收方会把它当作丢失的通知重新同步
+            synchronized (sequence) {
+                if (binary || extendedEvents) {
+                    event.setSequence(sequence.incrementAndGet());
+                } else {
+                    // 版本号为0时不输出，与旧版本节点的消息格式相同
+                    event.setVersion(0);
+                }
+                if (binary) {
+                    byte[] channel = topic.getBytes(StandardCharsets.UTF_8);
+                    byte[] message = CacheEventCodec.encode(event, nodeId);
+                    redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, message));
+                } else {
+                    String message = objectMapper.writeValueAsString(event);
+                    redisTemplate.convertAndSend(topic, message);
+                }
+            }
+            publishedMessages.increment();
             log.debug("发布缓存消息: topic={}, eventType={}, cacheName={}, key={}",
-                    topic, eventType, cacheName, key);
+                    topic, event.getEventType(), cacheName, event.getKey());
         } catch (JsonProcessingException e) {
             log.error("序列化缓存事件失败", e);
         } catch (Exception e) {
@@ -143,6 +543,15 @@ public class RedisCacheNotifier implements CacheNotifier {
         }
     }
 
+    /**
+     * 是否以二进制格式发送
+     *
+     * @return 是否以二进制格式发送
+     */
+    private boolean isBinary() {
+        return binaryEncoding || (messageListener != null && messageListener.isMultiplexed());
+    }
+
     /**
      * 构建主题名称
      *
@@ -150,6 +559,102 @@ public class RedisCacheNotifier implements CacheNotifier {
      * @return 主题名称
      */
     private String buildTopic(String cacheName) {
+        if (messageListener != null) {
+            return messageListener.topicFor(cacheName);
+        }
         return topicPrefix + ":topic:" + cacheName;
     }
-}
\ No newline at end of file
+
+    /**
+     * 一个发送节点的通知序号窗口
+     * <p>
+     * 监听容器可能在多个线程上分发消息，序号会乱序到达。窗口记录最近64个序号是否收到，
+     * 缺少的序号移出窗口或超过等待时间仍未收到时才算丢失。第一条通知之前的序号视为已收到。
+     * 等待时间由收到通知和后台定期检查两处判断
+     */
+    private static final class SequenceWindow {
+
+        private static final int SIZE = Long.SIZE;
+
+        /**
+         * 缺少的序号最多等待的时间
+         */
+        private static final long GRACE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private long highest;
+
+        /**
+         * 第i位表示序号highest - i是否收到
+         */
+        private long received = -1L;
+
+        /**
+         * 最早的缺口出现的时间，没有缺口时为0
+         */
+        private long gapSince;
+
+        /**
+         * 最近一次收到通知的时间
+         */
+        private long lastReceived;
+
+        /**
+         * 记录收到的序号
+         *
+         * @param sequence 序号
+         * @param now      当前时间
+         * @return 确认丢失的通知数量
+         */
+        synchronized long receive(long sequence, long now) {
+            lastReceived = now;
+            long missed = 0;
+            if (highest == 0) {
+                highest = sequence;
+            } else if (sequence > highest) {
+                long shift = sequence - highest;
+                if (shift >= SIZE) {
+                    missed = Long.bitCount(~received) + (shift - SIZE);
+                    received = 1L;
+                } else {
+                    missed = Long.bitCount(~received & (-1L << (SIZE - shift)));
+                    received = (received << shift) | 1L;
+                }
+                highest = sequence;
+            } else if (highest - sequence < SIZE) {
+                received |= 1L << (highest - sequence);
+            }
+
+            if (received == -1L) {
+                gapSince = 0;
+            } else if (gapSince == 0) {
+                gapSince = now;
+            } else {
+                missed += expire(now);
+            }
+            return missed;
+        }
+
+        /**
+         * 缺口超过等待时间时按丢失处理
+         *
+         * @param now 当前时间
+         * @return 确认丢失的通知数量
+         */
+        synchronized long expire(long now) {
+            if (gapSince == 0 || now - gapSince <= GRACE_NANOS) {
+                return 0;
+            }
+            long missed = Long.bitCount(~received);
+            received = -1L;
+            gapSince = 0;
+            return missed;
+        }
+
+        /**
+         * 是否超过空闲时间没有收到通知，有未确认的缺口时不算空闲
+         */
+        synchronized boolean isIdle(long now, long idleNanos) {
+            return gapSince == 0 && now - lastReceived > idleNanos;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.caoyixin.cache.redis;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 读取合并统计信息，用于按缓存调整合并窗口和批量大小
+ */
+@Getter
+@ToString
+public class RedisGetBatchStats {
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder keyCount = new LongAdder();
+    private final LongAdder sizeFlushCount = new LongAdder();
+    private final LongAdder timeFlushCount = new LongAdder();
+    private final LongAdder failedBatchCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxBatchSize = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一次发出的MGET
+     *
+     * @param requests  合并的请求数
+     * @param keys      去重后的键数
+     * @param sizeFlush 是否因达到批量大小而发出，否则为等待窗口到期
+     */
+    public void recordBatch(int requests, int keys, boolean sizeFlush) {
+        batchCount.increment();
+        requestCount.add(requests);
+        keyCount.add(keys);
+        maxBatchSize.accumulate(requests);
+        if (sizeFlush) {
+            sizeFlushCount.increment();
+        } else {
+            timeFlushCount.increment();
+        }
+    }
+
+    /**
+     * 记录一个请求在发出前的等待时间，即合并带来的额外延迟
+     *
+     * @param nanos 等待时间(纳秒)
+     */
+    public void recordWait(long nanos) {
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulate(nanos);
+    }
+
+    /**
+     * 记录一次失败的MGET
+     */
+    public void recordFailure() {
+        failedBatchCount.increment();
+    }
+
+    /**
+     * 获取平均每批合并的请求数
+     *
+     * @return 平均批量大小
+     */
+    public double avgBatchSize() {
+        long batches = batchCount.sum();
+        return batches == 0 ? 0.0 : (double) requestCount.sum() / batches;
+    }
+
+    /**
+     * 获取合并带来的平均额外延迟
+     *
+     * @return 平均等待时间(微秒)
+     */
+    public double avgWaitMicros() {
+        long requests = requestCount.sum();
+        return requests == 0 ? 0.0 : waitNanos.sum() / 1000.0 / requests;
+    }
+
+    /**
+     * 获取合并节省的Redis往返比例
+     *
+     * @return 节省比例(0 - 1)，越大越好
+     */
+    public double savedRoundTripRatio() {
+        long requests = requestCount.sum();
+        return requests == 0 ? 0.0 : 1.0 - (double) batchCount.sum() / requests;
+    }
+}
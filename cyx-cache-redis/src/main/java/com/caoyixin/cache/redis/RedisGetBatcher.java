@@ -0,0 +1,254 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.api.CacheFutures;
+import com.caoyixin.cache.exception.CacheException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 单键读取合并器，将一个很短的时间窗口内并发的GET合并为一次MGET，再把结果分发给各个调用方
+ * <p>
+ * 窗口从批次中的第一个请求开始计时，达到最大批量大小时立即发出，否则等待窗口到期后发出。
+ * 同一批次中相同的键只读取一次。合并以增加单个请求的延迟为代价减少Redis往返次数，
+ * 通过{@link RedisGetBatchStats}观察批量大小和额外延迟来调整参数。
+ * MGET超过命令超时时间仍未返回时批次中的请求以超时异常结束；调度器已关闭时等待中的请求立即以异常结束
+ */
+@Slf4j
+public class RedisGetBatcher {
+
+    private final String cacheName;
+    private final Function<byte[][], CompletableFuture<List<byte[]>>> mget;
+    private final ScheduledExecutorService scheduler;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    /**
+     * MGET的超时时间(纳秒)，为0时不限制
+     */
+    private final long timeoutNanos;
+    private final RedisGetBatchStats stats = new RedisGetBatchStats();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<PendingGet> pending;
+    /**
+     * 当前批次的编号，批次发出后递增，使已过期的定时任务失效
+     */
+    private long generation;
+
+    /**
+     * 创建读取合并器
+     *
+     * @param cacheName    缓存名称
+     * @param mget         执行MGET的函数，结果与键的顺序一致，不存在的键为null
+     * @param scheduler    窗口到期时发出批次的调度器
+     * @param window       合并窗口
+     * @param maxBatchSize 最大批量大小
+     */
+    public RedisGetBatcher(String cacheName,
+                           Function<byte[][], CompletableFuture<List<byte[]>>> mget,
+                           ScheduledExecutorService scheduler,
+                           Duration window,
+                           int maxBatchSize) {
+        this(cacheName, mget, scheduler, window, maxBatchSize, null);
+    }
+
+    /**
+     * 创建读取合并器，MGET超过超时时间未返回时批次中的请求以异常结束
+     *
+     * @param cacheName    缓存名称
+     * @param mget         执行MGET的函数，结果与键的顺序一致，不存在的键为null
+     * @param scheduler    窗口到期时发出批次和检查超时的调度器
+     * @param window       合并窗口
+     * @param maxBatchSize 最大批量大小
+     * @param timeout      MGET的超时时间，一般与客户端的命令超时时间一致，为null时不限制
+     */
+    public RedisGetBatcher(String cacheName,
+                           Function<byte[][], CompletableFuture<List<byte[]>>> mget,
+                           ScheduledExecutorService scheduler,
+                           Duration window,
+                           int maxBatchSize,
+                           Duration timeout) {
+        if (window == null || window.isZero() || window.isNegative()) {
+            throw new IllegalArgumentException("合并窗口必须大于0");
+        }
+        if (maxBatchSize < 2) {
+            throw new IllegalArgumentException("最大批量大小必须大于1");
+        }
+        this.cacheName = cacheName;
+        this.mget = mget;
+        this.scheduler = scheduler;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.timeoutNanos = timeout != null && !timeout.isNegative() ? timeout.toNanos() : 0;
+        this.pending = new ArrayList<>(maxBatchSize);
+    }
+
+    /**
+     * 读取一个键，结果在所在批次的MGET完成后返回
+     *
+     * @param redisKey Redis键
+     * @return 原始数据，不存在时为null
+     */
+    public CompletableFuture<byte[]> get(byte[] redisKey) {
+        PendingGet get = new PendingGet(redisKey, System.nanoTime());
+        List<PendingGet> full = null;
+        List<PendingGet> rejected = null;
+
+        lock.lock();
+        try {
+            pending.add(get);
+            if (scheduler.isShutdown()) {
+                // 关闭前已安排的定时任务可能已被丢弃，等待中的请求不会再被发出
+                rejected = drain();
+            } else if (pending.size() >= maxBatchSize) {
+                full = drain();
+            } else if (pending.size() == 1) {
+                long batch = generation;
+                try {
+                    scheduler.schedule(() -> flush(batch), windowNanos, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    rejected = drain();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (full != null) {
+            // 在填满批次的调用线程上直接发出
+            dispatch(full, true);
+        } else if (rejected != null) {
+            fail(rejected, new CacheException("读取合并器已关闭, cacheName=" + cacheName));
+        }
+        return get.future;
+    }
+
+    /**
+     * 获取合并统计信息
+     *
+     * @return 统计信息
+     */
+    public RedisGetBatchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 窗口到期，发出仍未发出的批次
+     */
+    private void flush(long batch) {
+        List<PendingGet> expired;
+        lock.lock();
+        try {
+            if (batch != generation || pending.isEmpty()) {
+                // 批次已因达到批量大小而发出
+                return;
+            }
+            expired = drain();
+        } finally {
+            lock.unlock();
+        }
+        dispatch(expired, false);
+    }
+
+    /**
+     * 取出当前批次，调用方持有锁
+     */
+    private List<PendingGet> drain() {
+        List<PendingGet> batch = pending;
+        pending = new ArrayList<>(maxBatchSize);
+        generation++;
+        return batch;
+    }
+
+    /**
+     * 发出MGET并把结果分发给批次中的请求
+     */
+    private void dispatch(List<PendingGet> batch, boolean sizeFlush) {
+        long now = System.nanoTime();
+        Map<ByteBuffer, Integer> slots = new HashMap<>();
+        List<byte[]> keys = new ArrayList<>(batch.size());
+        int[] slotOf = new int[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            PendingGet get = batch.get(i);
+            stats.recordWait(now - get.enqueuedAt);
+            Integer slot = slots.get(ByteBuffer.wrap(get.key));
+            if (slot == null) {
+                slot = keys.size();
+                slots.put(ByteBuffer.wrap(get.key), slot);
+                keys.add(get.key);
+            }
+            slotOf[i] = slot;
+        }
+        stats.recordBatch(batch.size(), keys.size(), sizeFlush);
+
+        CompletableFuture<List<byte[]>> result = CacheFutures.invoke(() -> mget.apply(keys.toArray(new byte[0][])));
+        if (timeoutNanos > 0 && !result.isDone()) {
+            ScheduledFuture<?> timeout = scheduleTimeout(result);
+            if (timeout != null) {
+                result.whenComplete((values, error) -> timeout.cancel(false));
+            }
+        }
+        result.whenComplete((values, error) -> {
+            Throwable failure = error != null ? CacheFutures.unwrap(error)
+                    : values == null || values.size() != keys.size()
+                    ? new IllegalStateException("MGET返回的结果数与键数不一致") : null;
+            if (failure != null) {
+                stats.recordFailure();
+                log.warn("合并读取失败, cacheName={}, batchSize={}", cacheName, batch.size(), failure);
+                fail(batch, failure);
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(values.get(slotOf[i]));
+            }
+        });
+    }
+
+    /**
+     * 超时后以异常结束MGET，调度器已关闭时立即结束
+     *
+     * @return 超时任务，已立即结束时返回null
+     */
+    private ScheduledFuture<?> scheduleTimeout(CompletableFuture<List<byte[]>> result) {
+        CacheException timeout = new CacheException("合并读取超时(" + TimeUnit.NANOSECONDS.toMillis(timeoutNanos)
+                + "ms), cacheName=" + cacheName);
+        try {
+            return scheduler.schedule(() -> result.completeExceptionally(timeout), timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new CacheException("读取合并器已关闭, cacheName=" + cacheName));
+            return null;
+        }
+    }
+
+    private static void fail(List<PendingGet> batch, Throwable failure) {
+        for (PendingGet get : batch) {
+            get.future.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * 等待合并的读取请求
+     */
+    private static final class PendingGet {
+        private final byte[] key;
+        private final long enqueuedAt;
+        private final CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+        private PendingGet(byte[] key, long enqueuedAt) {
+            this.key = key;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.config.CacheConfig;
+import com.caoyixin.cache.enums.LeaseFallback;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * Redis缓存加载租约配置
+ * <p>
+ * 远程缓存未命中时，只有取得租约的节点访问数据源，其他节点等待租约持有者写入后被唤醒
+ */
+@Getter
+@ToString
+public class RedisLoadLease {
+
+    /**
+     * 默认租约有效期
+     */
+    public static final Duration DEFAULT_LEASE_TIME = Duration.ofSeconds(10);
+
+    /**
+     * 默认最长等待时间
+     */
+    public static final Duration DEFAULT_WAIT_TIME = Duration.ofSeconds(3);
+
+    /**
+     * 租约有效期，持有者在此期间内未写入时租约失效，由其他节点重新获取
+     */
+    private final Duration leaseTime;
+    /**
+     * 等待其他节点加载的最长时间
+     */
+    private final Duration waitTime;
+    /**
+     * 等待超时后的处理方式
+     */
+    private final LeaseFallback fallback;
+
+    /**
+     * 创建加载租约配置，参数为null时使用默认值
+     *
+     * @param leaseTime 租约有效期
+     * @param waitTime  最长等待时间
+     * @param fallback  等待超时后的处理方式
+     */
+    public RedisLoadLease(Duration leaseTime, Duration waitTime, LeaseFallback fallback) {
+        this.leaseTime = leaseTime != null && leaseTime.toMillis() > 0 ? leaseTime : DEFAULT_LEASE_TIME;
+        this.waitTime = waitTime != null && !waitTime.isNegative() ? waitTime : DEFAULT_WAIT_TIME;
+        this.fallback = fallback != null ? fallback : LeaseFallback.LOAD;
+    }
+
+    /**
+     * 使用默认值创建加载租约配置
+     *
+     * @return 加载租约配置
+     */
+    public static RedisLoadLease defaults() {
+        return new RedisLoadLease(null, null, null);
+    }
+
+    /**
+     * 根据缓存配置创建加载租约配置
+     *
+     * @param config 缓存配置
+     * @return 加载租约配置
+     */
+    public static RedisLoadLease of(CacheConfig config) {
+        return new RedisLoadLease(config.getLoadLeaseTime(), config.getLoadWaitTime(), config.getLeaseFallback());
+    }
+}
@@ -0,0 +1,380 @@
+package com.caoyixin.cache.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redis的分布式锁实现
+ * <p>
+ * 每次加锁写入唯一的持有者令牌，释放和续期通过Lua脚本比较令牌后再执行，不会释放其他节点持有的锁。
+ * 锁归加锁的线程所有，其他线程调用{@link #unlock(String)}不会释放，避免锁过期后被同一节点的其他线程获取时误释放。
+ * 未指定租期时由看门狗定期续期，持有者进程退出后锁在租期到期后自动释放。
+ * 等待加锁的线程在锁释放时通过发布订阅被唤醒，消息丢失时最多等待到锁的剩余租期
+ */
+@Slf4j
+public class RedisLock implements AutoCloseable {
+
+    /**
+     * 释放锁时发布消息的频道，消息内容为锁的键
+     */
+    public static final String RELEASE_CHANNEL = "cyx-cache:lock:released";
+
+    /**
+     * 默认租期，看门狗每隔租期的三分之一续期一次
+     */
+    public static final Duration DEFAULT_LEASE_TIME = Duration.ofSeconds(30);
+
+    /**
+     * 加锁成功返回0，否则返回锁的剩余租期(毫秒)，锁没有租期时返回-1
+     */
+    private static final LuaScript ACQUIRE_SCRIPT = new LuaScript(
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return 0 end "
+                    + "local ttl = redis.call('PTTL', KEYS[1]) "
+                    + "if ttl > 0 then return ttl end "
+                    + "return -1",
+            ReturnType.INTEGER);
+
+    /**
+     * 令牌一致时删除锁并发布释放消息
+     */
+    private static final LuaScript RELEASE_SCRIPT = new LuaScript(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "redis.call('DEL', KEYS[1]) "
+                    + "redis.call('PUBLISH', ARGV[2], KEYS[1]) "
+                    + "return 1 end "
+                    + "return 0",
+            ReturnType.INTEGER);
+
+    /**
+     * 令牌一致时续期
+     */
+    private static final LuaScript RENEW_SCRIPT = new LuaScript(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end "
+                    + "return 0",
+            ReturnType.INTEGER);
+
+    private static final byte[] RELEASE_CHANNEL_BYTES = RELEASE_CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+    private final RedisConnectionFactory connectionFactory;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Duration leaseTime;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * 本实例持有的锁
+     */
+    private final Map<String, Holder> held = new ConcurrentHashMap<>();
+    /**
+     * 正在等待的锁及加载租约的唤醒信号
+     */
+    private final RedisReleaseSignals signals = new RedisReleaseSignals(this::subscribe);
+
+    private volatile ScheduledExecutorService watchdog;
+    private volatile RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 创建Redis分布式锁，使用默认租期
+     *
+     * @param connectionFactory Redis连接工厂
+     */
+    public RedisLock(RedisConnectionFactory connectionFactory) {
+        this(connectionFactory, DEFAULT_LEASE_TIME);
+    }
+
+    /**
+     * 创建Redis分布式锁
+     *
+     * @param connectionFactory Redis连接工厂
+     * @param leaseTime         看门狗续期时使用的租期
+     */
+    public RedisLock(RedisConnectionFactory connectionFactory, Duration leaseTime) {
+        if (leaseTime == null || leaseTime.toMillis() < 3) {
+            throw new IllegalArgumentException("租期过短: " + leaseTime);
+        }
+        this.connectionFactory = connectionFactory;
+        this.leaseTime = leaseTime;
+
+        RedisTemplate<String, String> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new StringRedisSerializer());
+        template.afterPropertiesSet();
+        this.redisTemplate = template;
+    }
+
+    /**
+     * 在等待时间内尝试加锁，加锁成功后由看门狗续期直到释放
+     *
+     * @param lockKey  锁的键
+     * @param waitTime 最长等待时间，为null或不大于0时只尝试一次
+     * @return 是否加锁成功
+     */
+    public boolean tryLock(String lockKey, Duration waitTime) {
+        return tryLock(lockKey, waitTime, null);
+    }
+
+    /**
+     * 在等待时间内尝试加锁
+     *
+     * @param lockKey   锁的键
+     * @param waitTime  最长等待时间，为null或不大于0时只尝试一次
+     * @param leaseTime 租期，到期后锁自动释放，为null时由看门狗续期直到释放
+     * @return 是否加锁成功
+     */
+    public boolean tryLock(String lockKey, Duration waitTime, Duration leaseTime) {
+        boolean watched = leaseTime == null || leaseTime.isZero() || leaseTime.isNegative();
+        long leaseMillis = watched ? this.leaseTime.toMillis() : leaseTime.toMillis();
+        String token = instanceId + ":" + UUID.randomUUID();
+
+        long ttl = acquire(lockKey, token, leaseMillis);
+        if (ttl == 0) {
+            onAcquired(lockKey, token, watched);
+            return true;
+        }
+
+        long waitNanos = waitTime != null && !waitTime.isNegative() ? waitTime.toNanos() : 0;
+        if (waitNanos <= 0) {
+            return false;
+        }
+
+        long deadline = System.nanoTime() + waitNanos;
+        try (RedisReleaseSignals.Waiter waiter = waiter(lockKey)) {
+            while (true) {
+                long seen = waiter.version();
+                ttl = acquire(lockKey, token, leaseMillis);
+                if (ttl == 0) {
+                    onAcquired(lockKey, token, watched);
+                    return true;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                // 等待释放消息，最多等到锁的剩余租期
+                waiter.await(seen, Math.min(remaining, waiter.slice(ttl)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 开始等待某个键的释放消息，用于锁之外同样通过{@link #RELEASE_CHANNEL}通知的场景(如加载租约)
+     * <p>
+     * 调用方先读取{@link RedisReleaseSignals.Waiter#version()}，再检查条件，条件不满足时以读取到的版本号等待，
+     * 不会丢失两次检查之间到达的消息。使用完毕后必须关闭
+     *
+     * @param key 等待的键，与释放消息的内容一致
+     * @return 等待器
+     */
+    public RedisReleaseSignals.Waiter waiter(String key) {
+        return signals.waiter(key);
+    }
+
+    /**
+     * 释放当前线程持有的锁，锁已过期并被其他线程或其他节点获取时不做任何操作
+     *
+     * @param lockKey 锁的键
+     * @return 是否释放了当前线程持有的锁
+     */
+    public boolean unlock(String lockKey) {
+        Holder holder = held.get(lockKey);
+        if (holder == null) {
+            return false;
+        }
+        if (holder.ownerThreadId != Thread.currentThread().getId()) {
+            log.warn("锁不是当前线程持有的，不释放, lockKey={}", lockKey);
+            return false;
+        }
+        return release(lockKey, holder);
+    }
+
+    /**
+     * 判断本实例是否持有锁
+     *
+     * @param lockKey 锁的键
+     * @return 是否持有
+     */
+    public boolean isHeldByCurrentInstance(String lockKey) {
+        return held.containsKey(lockKey);
+    }
+
+    /**
+     * 判断当前线程是否持有锁
+     *
+     * @param lockKey 锁的键
+     * @return 是否持有
+     */
+    public boolean isHeldByCurrentThread(String lockKey) {
+        Holder holder = held.get(lockKey);
+        return holder != null && holder.ownerThreadId == Thread.currentThread().getId();
+    }
+
+    @Override
+    public void close() {
+        // 关闭时释放本实例持有的所有锁，不区分持有线程
+        for (Map.Entry<String, Holder> entry : held.entrySet()) {
+            release(entry.getKey(), entry.getValue());
+        }
+        ScheduledExecutorService scheduler = watchdog;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        RedisMessageListenerContainer container = listenerContainer;
+        if (container != null) {
+            try {
+                container.destroy();
+            } catch (Exception e) {
+                log.warn("关闭锁释放消息监听失败", e);
+            }
+        }
+    }
+
+    /**
+     * 按持有者的令牌释放锁，持有者已被替换时不做任何操作
+     */
+    private boolean release(String lockKey, Holder holder) {
+        if (!held.remove(lockKey, holder)) {
+            return false;
+        }
+        holder.cancelRenewal();
+
+        Long result = redisTemplate.execute((RedisCallback<Long>) connection -> RELEASE_SCRIPT.eval(connection, 1,
+                bytes(lockKey), bytes(holder.token), RELEASE_CHANNEL_BYTES));
+        // 本实例的等待者不必等待消息往返
+        wakeUp(lockKey);
+        if (result == null || result == 0) {
+            log.warn("锁已过期或被其他节点持有, lockKey={}", lockKey);
+            return false;
+        }
+        return true;
+    }
+
+    private long acquire(String lockKey, String token, long leaseMillis) {
+        Long ttl = redisTemplate.execute((RedisCallback<Long>) connection -> ACQUIRE_SCRIPT.eval(connection, 1,
+                bytes(lockKey), bytes(token), bytes(String.valueOf(leaseMillis))));
+        return ttl != null ? ttl : -1;
+    }
+
+    private void onAcquired(String lockKey, String token, boolean watched) {
+        Holder holder = new Holder(token);
+        if (watched) {
+            long period = leaseTime.toMillis() / 3;
+            holder.renewal = watchdog().scheduleAtFixedRate(() -> renew(lockKey, holder),
+                    period, period, TimeUnit.MILLISECONDS);
+        }
+        // 同一节点的其他线程在锁过期后获取时替换原持有者，原持有者不再续期也不能释放
+        Holder previous = held.put(lockKey, holder);
+        if (previous != null) {
+            previous.cancelRenewal();
+        }
+    }
+
+    /**
+     * 续期，令牌不一致说明锁已丢失，停止续期
+     */
+    private void renew(String lockKey, Holder holder) {
+        try {
+            Long result = redisTemplate.execute((RedisCallback<Long>) connection -> RENEW_SCRIPT.eval(connection, 1,
+                    bytes(lockKey), bytes(holder.token), bytes(String.valueOf(leaseTime.toMillis()))));
+            if (result == null || result == 0) {
+                log.warn("锁已丢失，停止续期, lockKey={}", lockKey);
+                holder.cancelRenewal();
+                held.remove(lockKey, holder);
+            }
+        } catch (Exception e) {
+            // 续期失败时锁仍在租期内，下一次续期重试
+            log.warn("锁续期失败, lockKey={}", lockKey, e);
+        }
+    }
+
+    /**
+     * 唤醒本实例中等待该键的线程
+     */
+    void wakeUp(String lockKey) {
+        signals.wakeUp(lockKey);
+    }
+
+    /**
+     * 首次等待时订阅释放消息
+     */
+    private void subscribe() {
+        if (listenerContainer != null) {
+            return;
+        }
+        synchronized (this) {
+            if (listenerContainer != null) {
+                return;
+            }
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(connectionFactory);
+            container.addMessageListener((message, pattern) ->
+                            wakeUp(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(RELEASE_CHANNEL));
+            container.afterPropertiesSet();
+            container.start();
+            listenerContainer = container;
+        }
+    }
+
+    private ScheduledExecutorService watchdog() {
+        ScheduledExecutorService scheduler = watchdog;
+        if (scheduler == null) {
+            synchronized (this) {
+                scheduler = watchdog;
+                if (scheduler == null) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread thread = new Thread(r, "cyx-cache-lock-watchdog");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    watchdog = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 本实例持有的锁，记录加锁的令牌和线程
+     */
+    private static final class Holder {
+        private final String token;
+        private final long ownerThreadId = Thread.currentThread().getId();
+        private volatile ScheduledFuture<?> renewal;
+
+        private Holder(String token) {
+            this.token = token;
+        }
+
+        private void cancelRenewal() {
+            ScheduledFuture<?> future = renewal;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
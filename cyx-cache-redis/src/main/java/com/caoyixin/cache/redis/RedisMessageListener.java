@@ -1,31 +1,65 @@
 package com.caoyixin.cache.redis;
 
+import com.caoyixin.cache.exception.CacheException;
 import com.caoyixin.cache.notification.CacheEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Redis缓存消息监听器
+ * <p>
+ * 监听容器断线恢复后会重新订阅主题，期间发出的通知全部丢失，再次收到订阅确认时通知缓存通知器重新同步。
+ * <p>
+ * 默认每个缓存订阅单独的主题。缓存很多时可以使用共享频道：所有缓存的通知按缓存ID分布到少量频道上，
+ * 收到消息后按缓存ID查表分发，本节点没有创建的缓存的消息在解码键之前丢弃。共享频道上的消息使用二进制格式
  */
 @Slf4j
-public class RedisMessageListener implements MessageListener {
+public class RedisMessageListener implements MessageListener, SubscriptionListener {
 
     private final RedisMessageListenerContainer listenerContainer;
     private final RedisTemplate<String, String> redisTemplate;
     private final String topicPrefix;
     private final ObjectMapper objectMapper;
+
+    /**
+     * 共享频道数量，为0时每个缓存使用单独的主题
+     */
+    private final int channelShards;
+
+    /**
+     * 已订阅的主题
+     */
     private final ConcurrentHashMap<String, Boolean> subscribedTopics = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存ID对应的缓存名称，用于还原二进制消息中的缓存
+     */
+    private final ConcurrentHashMap<Integer, String> cacheNames = new ConcurrentHashMap<>();
+
+    /**
+     * 已收到过订阅确认的主题
+     */
+    private final ConcurrentHashMap<String, Boolean> confirmedTopics = new ConcurrentHashMap<>();
+
+    /**
+     * 订阅和取消订阅的锁，保证共享频道上的缓存登记与主题的订阅、取消订阅一致
+     */
+    private final Object subscriptionLock = new Object();
     private RedisCacheNotifier cacheNotifier;
 
     /**
-     * 创建Redis消息监听器
+     * 创建Redis消息监听器，每个缓存订阅单独的主题
      *
      * @param listenerContainer Redis消息监听容器
      * @param redisTemplate     Redis模板
@@ -34,11 +68,53 @@ public class RedisMessageListener implements MessageListener {
     public RedisMessageListener(RedisMessageListenerContainer listenerContainer,
                                 RedisTemplate<String, String> redisTemplate,
             String topicPrefix) {
+        this(listenerContainer, redisTemplate, topicPrefix, 0);
+    }
+
+    /**
+     * 创建Redis消息监听器
+     *
+     * @param listenerContainer Redis消息监听容器
+     * @param redisTemplate     Redis模板
+     * @param topicPrefix       主题前缀
+     * @param channelShards     共享频道数量，所有缓存的通知按缓存ID分布到这些频道上；为0时每个缓存订阅单独的主题
+     */
+    public RedisMessageListener(RedisMessageListenerContainer listenerContainer,
+                                RedisTemplate<String, String> redisTemplate,
+                                String topicPrefix,
+                                int channelShards) {
+        if (channelShards < 0) {
+            throw new IllegalArgumentException("共享频道数量不能小于0");
+        }
         this.listenerContainer = listenerContainer;
         this.redisTemplate = redisTemplate;
         this.topicPrefix = topicPrefix != null ? topicPrefix : "cyx-cache";
         this.objectMapper = new ObjectMapper();
-        log.info("初始化RedisMessageListener, topicPrefix={}", this.topicPrefix);
+        this.channelShards = channelShards;
+        log.info("初始化RedisMessageListener, topicPrefix={}, channelShards={}", this.topicPrefix, channelShards);
+    }
+
+    /**
+     * 是否使用共享频道
+     *
+     * @return 是否使用共享频道
+     */
+    public boolean isMultiplexed() {
+        return channelShards > 0;
+    }
+
+    /**
+     * 获取缓存的通知使用的主题，发送方和接收方使用相同的规则
+     *
+     * @param cacheName 缓存名称
+     * @return 主题名称
+     */
+    public String topicFor(String cacheName) {
+        if (channelShards > 0) {
+            int shard = Math.floorMod(CacheEventCodec.cacheId(cacheName), channelShards);
+            return topicPrefix + ":channel:" + shard;
+        }
+        return topicPrefix + ":topic:" + cacheName;
     }
 
     /**
@@ -56,10 +132,17 @@ public class RedisMessageListener implements MessageListener {
      * @param cacheName 缓存名称
      */
     public void subscribe(String cacheName) {
-        String topic = buildTopic(cacheName);
-        if (subscribedTopics.putIfAbsent(topic, Boolean.TRUE) == null) {
-            listenerContainer.addMessageListener(this, new ChannelTopic(topic));
-            log.info("订阅Redis主题: {}", topic);
+        synchronized (subscriptionLock) {
+            String existing = cacheNames.putIfAbsent(CacheEventCodec.cacheId(cacheName), cacheName);
+            if (existing != null && !existing.equals(cacheName)) {
+                throw new CacheException("缓存名称的哈希冲突, 请修改其中一个缓存的名称: " + existing + ", " + cacheName);
+            }
+            // 共享频道只在第一个缓存订阅时注册，之后的缓存只登记缓存ID
+            String topic = topicFor(cacheName);
+            if (subscribedTopics.putIfAbsent(topic, Boolean.TRUE) == null) {
+                listenerContainer.addMessageListener(this, new ChannelTopic(topic));
+                log.info("订阅Redis主题: {}", topic);
+            }
         }
     }
 
@@ -69,26 +152,47 @@ public class RedisMessageListener implements MessageListener {
      * @param cacheName 缓存名称
      */
     public void unsubscribe(String cacheName) {
-        String topic = buildTopic(cacheName);
-        if (subscribedTopics.remove(topic) != null) {
-            listenerContainer.removeMessageListener(this, new ChannelTopic(topic));
-            log.info("取消订阅Redis主题: {}", topic);
+        synchronized (subscriptionLock) {
+            if (!cacheNames.remove(CacheEventCodec.cacheId(cacheName), cacheName)) {
+                return;
+            }
+            String topic = topicFor(cacheName);
+            if (!cachesOn(topic).isEmpty()) {
+                // 共享频道上还有其他缓存
+                return;
+            }
+            if (subscribedTopics.remove(topic) != null) {
+                confirmedTopics.remove(topic);
+                listenerContainer.removeMessageListener(this, new ChannelTopic(topic));
+                log.info("取消订阅Redis主题: {}", topic);
+            }
         }
     }
 
     @Override
     public void onMessage(org.springframework.data.redis.connection.Message message, byte[] pattern) {
-        String body = redisTemplate.getStringSerializer().deserialize(message.getBody());
-        if (body == null) {
+        byte[] body = message.getBody();
+        if (body == null || body.length == 0) {
             return;
         }
 
         try {
-            CacheEvent event = objectMapper.readValue(body, CacheEvent.class);
+            CacheEvent event;
+            if (CacheEventCodec.isBinary(body)) {
+                // 二进制消息直接解码，本节点没有的缓存不解码键
+                event = CacheEventCodec.decode(body, cacheNames::get);
+                if (event == null) {
+                    return;
+                }
+            } else {
+                event = objectMapper.readValue(body, CacheEvent.class);
+            }
 
-            log.debug("收到Redis消息: channel={}, eventType={}, cacheName={}, key={}",
-                    redisTemplate.getStringSerializer().deserialize(message.getChannel()),
-                    event.getEventType(), event.getCacheName(), event.getKey());
+            if (log.isDebugEnabled()) {
+                log.debug("收到Redis消息: channel={}, eventType={}, cacheName={}, key={}",
+                        new String(message.getChannel(), StandardCharsets.UTF_8),
+                        event.getEventType(), event.getCacheName(), event.getKey());
+            }
 
             // 分发事件到缓存通知器
             if (cacheNotifier != null) {
@@ -101,13 +205,34 @@ public class RedisMessageListener implements MessageListener {
         }
     }
 
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        String topic = new String(channel, StandardCharsets.UTF_8);
+        if (!subscribedTopics.containsKey(topic)) {
+            return;
+        }
+        // 第一次订阅确认之前没有需要同步的数据，之后的确认说明连接断开后重新订阅
+        if (confirmedTopics.putIfAbsent(topic, Boolean.TRUE) != null && cacheNotifier != null) {
+            log.warn("重新订阅Redis主题, 期间的缓存通知可能丢失: {}", topic);
+            for (String cacheName : cachesOn(topic)) {
+                cacheNotifier.resync(cacheName);
+            }
+        }
+    }
+
     /**
-     * 构建主题名称
+     * 获取通知使用指定主题的缓存
      *
-     * @param cacheName 缓存名称
-     * @return 主题名称
+     * @param topic 主题名称
+     * @return 缓存名称
      */
-    private String buildTopic(String cacheName) {
-        return topicPrefix + ":topic:" + cacheName;
+    private List<String> cachesOn(String topic) {
+        List<String> result = new ArrayList<>();
+        for (String cacheName : cacheNames.values()) {
+            if (topic.equals(topicFor(cacheName))) {
+                result.add(cacheName);
+            }
+        }
+        return result;
     }
 }
\ No newline at end of file
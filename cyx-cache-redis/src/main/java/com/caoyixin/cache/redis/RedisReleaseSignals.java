@@ -0,0 +1,156 @@
+package com.caoyixin.cache.redis;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按键等待{@link RedisLock#RELEASE_CHANNEL}释放消息的唤醒信号
+ * <p>
+ * 收到释放消息或本节点释放时调用{@link #wakeUp(String)}唤醒等待该键的线程；
+ * 订阅方式由使用方提供，首次等待时订阅
+ */
+public class RedisReleaseSignals {
+
+    /**
+     * 收不到释放消息且键没有剩余有效期时重试的间隔(毫秒)
+     */
+    private static final long RETRY_INTERVAL_MILLIS = 50;
+
+    private final Runnable subscriber;
+    /**
+     * 正在等待的键
+     */
+    private final Map<String, Signal> signals = new ConcurrentHashMap<>();
+
+    /**
+     * 创建唤醒信号
+     *
+     * @param subscriber 订阅释放消息，每次开始等待时调用，已订阅时应直接返回
+     */
+    public RedisReleaseSignals(Runnable subscriber) {
+        this.subscriber = subscriber;
+    }
+
+    /**
+     * 开始等待某个键的释放消息
+     * <p>
+     * 调用方先读取{@link Waiter#version()}，再检查条件，条件不满足时以读取到的版本号等待，
+     * 不会丢失两次检查之间到达的消息。使用完毕后必须关闭
+     *
+     * @param key 等待的键，与释放消息的内容一致
+     * @return 等待器
+     */
+    public Waiter waiter(String key) {
+        Signal signal = register(key);
+        try {
+            subscriber.run();
+        } catch (RuntimeException e) {
+            unregister(key);
+            throw e;
+        }
+        return new Waiter(key, signal);
+    }
+
+    /**
+     * 唤醒本节点中等待该键的线程
+     *
+     * @param key 释放的键
+     */
+    public void wakeUp(String key) {
+        Signal signal = signals.get(key);
+        if (signal != null) {
+            signal.signal();
+        }
+    }
+
+    private Signal register(String key) {
+        return signals.compute(key, (k, signal) -> {
+            Signal current = signal != null ? signal : new Signal();
+            current.waiters++;
+            return current;
+        });
+    }
+
+    private void unregister(String key) {
+        signals.computeIfPresent(key, (k, signal) -> --signal.waiters == 0 ? null : signal);
+    }
+
+    /**
+     * 等待某个键释放消息的等待器
+     */
+    public final class Waiter implements AutoCloseable {
+        private final String key;
+        private final Signal signal;
+        private boolean closed;
+
+        private Waiter(String key, Signal signal) {
+            this.key = key;
+            this.signal = signal;
+        }
+
+        /**
+         * 获取当前的唤醒版本号，应在检查条件之前读取
+         *
+         * @return 版本号
+         */
+        public long version() {
+            return signal.version();
+        }
+
+        /**
+         * 等待版本号变化，即收到释放消息，或超时
+         *
+         * @param seen  检查条件前读取的版本号
+         * @param nanos 最长等待时间(纳秒)
+         * @throws InterruptedException 等待被中断
+         */
+        public void await(long seen, long nanos) throws InterruptedException {
+            signal.await(seen, nanos);
+        }
+
+        /**
+         * 根据键的剩余有效期计算单次等待时间，消息丢失时最多等到键过期
+         *
+         * @param ttlMillis 剩余有效期(毫秒)，不大于0表示未知
+         * @return 单次等待时间(纳秒)
+         */
+        public long slice(long ttlMillis) {
+            return TimeUnit.MILLISECONDS.toNanos(ttlMillis > 0 ? ttlMillis : RETRY_INTERVAL_MILLIS);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                unregister(key);
+            }
+        }
+    }
+
+    /**
+     * 等待同一个键的线程共用的唤醒信号，版本号避免丢失在两次检查之间到达的唤醒
+     */
+    private static final class Signal {
+        private int waiters;
+        private long version;
+
+        private synchronized long version() {
+            return version;
+        }
+
+        private synchronized void signal() {
+            version++;
+            notifyAll();
+        }
+
+        private synchronized void await(long seen, long nanos) throws InterruptedException {
+            long deadline = System.nanoTime() + nanos;
+            long remaining = nanos;
+            while (version == seen && remaining > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+        }
+    }
+}
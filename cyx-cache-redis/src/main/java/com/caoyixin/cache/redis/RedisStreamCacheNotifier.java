@@ -0,0 +1,405 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.consistency.VersionClock;
+import com.caoyixin.cache.notification.CacheBatchEvent;
+import com.caoyixin.cache.notification.CacheEvent;
+import com.caoyixin.cache.notification.CacheEventListener;
+import com.caoyixin.cache.notification.CacheNotifier;
+import com.caoyixin.cache.notification.CacheRemoveEvent;
+import com.caoyixin.cache.notification.CacheUpdateEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于Redis Stream的缓存通知实现
+ * <p>
+ * 每个缓存的通知写入一个按长度近似裁剪(XADD MAXLEN ~)的流，节点从上次读到的位置批量读取(XREAD COUNT)，
+ * 断线或停顿期间发出的通知在恢复后重新读到，而不是像发布订阅那样丢失。
+ * 读取失败或两次读取间隔过长(如监听器处理缓慢、长时间GC)后，发现上次读到的位置已被裁剪时，
+ * 缺少的通知无法找回，清空该缓存的本地缓存
+ */
+@Slf4j
+public class RedisStreamCacheNotifier implements CacheNotifier, AutoCloseable {
+
+    /**
+     * 默认每个流保留的通知数量
+     */
+    public static final long DEFAULT_MAX_LENGTH = 10000;
+
+    /**
+     * 默认每次读取的最大通知数量
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * 默认每次读取的最长阻塞时间，也是新订阅的缓存加入读取的最长延迟
+     */
+    public static final Duration DEFAULT_BLOCK_TIMEOUT = Duration.ofSeconds(1);
+
+    private static final byte[] EVENT_FIELD = "e".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 流为空时的读取位置
+     */
+    private static final String INITIAL_ID = "0-0";
+
+    private static final long RETRY_INTERVAL_MILLIS = 1000;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final String topicPrefix;
+    private final String instanceId;
+    private final ObjectMapper objectMapper;
+    private final RedisStreamCommands.XAddOptions addOptions;
+    private final StreamReadOptions readOptions;
+    /**
+     * 两次读取开始的间隔超过该值(纳秒)时，读取前检查读取位置是否已被裁剪
+     */
+    private final long resumeCheckNanos;
+    private final ConcurrentMap<String, ConcurrentMap<CacheEventListener, Boolean>> listeners;
+
+    /**
+     * 订阅的流及读取位置，按流的键索引
+     */
+    private final ConcurrentMap<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * 读到的其他节点的通知数量
+     */
+    @Getter
+    private final LongAdder receivedEvents = new LongAdder();
+
+    /**
+     * 读取失败的次数
+     */
+    @Getter
+    private final LongAdder readFailures = new LongAdder();
+
+    /**
+     * 读取位置已被裁剪而清空本地缓存的次数
+     */
+    @Getter
+    private final LongAdder resyncCount = new LongAdder();
+
+    private volatile Thread consumer;
+    private volatile boolean closed;
+
+    /**
+     * 创建使用默认参数的Redis Stream缓存通知器
+     *
+     * @param redisTemplate Redis模板
+     * @param topicPrefix   流的键前缀
+     */
+    public RedisStreamCacheNotifier(RedisTemplate<String, String> redisTemplate, String topicPrefix) {
+        this(redisTemplate, topicPrefix, DEFAULT_MAX_LENGTH, DEFAULT_BATCH_SIZE, DEFAULT_BLOCK_TIMEOUT);
+    }
+
+    /**
+     * 创建Redis Stream缓存通知器
+     *
+     * @param redisTemplate Redis模板
+     * @param topicPrefix   流的键前缀
+     * @param maxLength     每个流保留的通知数量，决定断线多久仍能补读全部通知
+     * @param batchSize     每次读取的最大通知数量
+     * @param blockTimeout  每次读取的最长阻塞时间
+     */
+    public RedisStreamCacheNotifier(RedisTemplate<String, String> redisTemplate,
+                                    String topicPrefix,
+                                    long maxLength,
+                                    int batchSize,
+                                    Duration blockTimeout) {
+        if (maxLength <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("流长度和读取批量必须大于0");
+        }
+        this.redisTemplate = redisTemplate;
+        this.topicPrefix = topicPrefix != null ? topicPrefix : "cyx-cache";
+        this.instanceId = UUID.randomUUID().toString();
+        this.objectMapper = new ObjectMapper();
+        this.addOptions = RedisStreamCommands.XAddOptions.maxlen(maxLength).approximateTrimming(true);
+        Duration block = blockTimeout != null ? blockTimeout : DEFAULT_BLOCK_TIMEOUT;
+        this.readOptions = StreamReadOptions.empty().count(batchSize).block(block);
+        // 正常情况下两次读取的间隔不超过一次阻塞时间加上处理时间
+        this.resumeCheckNanos = block.toNanos() * 2;
+        this.listeners = new ConcurrentHashMap<>();
+
+        log.info("初始化RedisStreamCacheNotifier, instanceId={}, topicPrefix={}, maxLength={}, batchSize={}",
+                instanceId, this.topicPrefix, maxLength, batchSize);
+    }
+
+    @Override
+    public void notifyUpdate(String cacheName, Object key) {
+        publish(new CacheUpdateEvent(cacheName, key, instanceId));
+    }
+
+    @Override
+    public void notifyAdd(String cacheName, Object key) {
+        publish(new CacheUpdateEvent(cacheName, key, instanceId));
+    }
+
+    @Override
+    public void notifyRemove(String cacheName, Object key) {
+        // 键为null表示清空整个缓存，接收方按清空处理，只需要一条通知
+        publish(new CacheRemoveEvent(cacheName, key, instanceId));
+    }
+
+    @Override
+    public void notifyUpdateAll(String cacheName, Collection<?> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+        publish(new CacheBatchEvent(cacheName, keys, instanceId));
+    }
+
+    @Override
+    public void subscribe(String cacheName, CacheEventListener listener) {
+        if (cacheName == null || listener == null) {
+            return;
+        }
+
+        listeners.computeIfAbsent(cacheName, k -> new ConcurrentHashMap<>()).put(listener, Boolean.TRUE);
+        String streamKey = buildStreamKey(cacheName);
+        // 从订阅时流的末尾开始读取，之后的通知即使在读取线程启动前发出也不会错过
+        subscriptions.computeIfAbsent(streamKey, k -> new Subscription(cacheName, k, latestId(k)));
+        startConsumer();
+
+        log.info("订阅缓存事件流: cacheName={}, stream={}", cacheName, streamKey);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Thread thread = consumer;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * 发布缓存事件
+     *
+     * @param event 缓存事件
+     */
+    private void publish(CacheEvent event) {
+        if (event.getCacheName() == null) {
+            return;
+        }
+        if (event.getVersion() == 0) {
+            event.setVersion(VersionClock.current());
+        }
+
+        byte[] streamKey = bytes(buildStreamKey(event.getCacheName()));
+        try {
+            byte[] message = objectMapper.writeValueAsBytes(event);
+            MapRecord<byte[], byte[], byte[]> record =
+                    MapRecord.create(streamKey, Collections.singletonMap(EVENT_FIELD, message));
+            redisTemplate.execute((RedisCallback<RecordId>) connection ->
+                    connection.streamCommands().xAdd(record, addOptions));
+            log.debug("发布缓存消息: cacheName={}, eventType={}, key={}",
+                    event.getCacheName(), event.getEventType(), event.getKey());
+        } catch (Exception e) {
+            log.error("发布Redis Stream消息失败, cacheName={}", event.getCacheName(), e);
+        }
+    }
+
+    private synchronized void startConsumer() {
+        if (consumer != null || closed) {
+            return;
+        }
+        Thread thread = new Thread(this::consume, "cyx-cache-stream-notifier");
+        thread.setDaemon(true);
+        consumer = thread;
+        thread.start();
+    }
+
+    /**
+     * 读取线程：从各流上次读到的位置阻塞读取，读取失败后等待重试。
+     * 读取失败后，或距上次读取开始已超过{@link #resumeCheckNanos}时，读取前检查读取位置是否已被裁剪
+     */
+    @SuppressWarnings("unchecked")
+    private void consume() {
+        boolean recovering = false;
+        long lastReadStart = System.nanoTime();
+        while (!closed) {
+            List<Subscription> current = new ArrayList<>(subscriptions.values());
+            try {
+                long now = System.nanoTime();
+                if (recovering || now - lastReadStart > resumeCheckNanos) {
+                    for (Subscription subscription : current) {
+                        checkTrimmed(subscription);
+                    }
+                    recovering = false;
+                }
+                lastReadStart = now;
+
+                StreamOffset<byte[]>[] offsets = new StreamOffset[current.size()];
+                for (int i = 0; i < offsets.length; i++) {
+                    Subscription subscription = current.get(i);
+                    offsets[i] = StreamOffset.create(subscription.keyBytes, ReadOffset.from(subscription.lastId));
+                }
+                List<ByteRecord> records = redisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                        connection.streamCommands().xRead(readOptions, offsets));
+                if (records != null && !records.isEmpty()) {
+                    apply(records);
+                }
+            } catch (Exception e) {
+                if (closed) {
+                    break;
+                }
+                readFailures.increment();
+                recovering = true;
+                log.warn("读取缓存事件流失败, {}ms后重试", RETRY_INTERVAL_MILLIS, e);
+                try {
+                    Thread.sleep(RETRY_INTERVAL_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        log.info("缓存事件流读取线程退出, instanceId={}", instanceId);
+    }
+
+    /**
+     * 将一次读到的通知按缓存合并，每个缓存只分发一次：清空之前的键被清空覆盖，其余的键合并为一个批量事件
+     *
+     * @param records 读到的记录
+     */
+    private void apply(List<ByteRecord> records) {
+        Map<Subscription, CacheEventBatch> batches = new LinkedHashMap<>();
+        for (ByteRecord record : records) {
+            Subscription subscription = subscriptions.get(new String(record.getStream(), StandardCharsets.UTF_8));
+            if (subscription == null) {
+                continue;
+            }
+            subscription.lastId = record.getId().getValue();
+            CacheEvent event = decode(record);
+            if (event == null || instanceId.equals(event.getInstanceId())) {
+                continue;
+            }
+            receivedEvents.increment();
+            batches.computeIfAbsent(subscription, k -> new CacheEventBatch(k.cacheName)).add(event);
+        }
+
+        for (Map.Entry<Subscription, CacheEventBatch> entry : batches.entrySet()) {
+            String cacheName = entry.getKey().cacheName;
+            for (CacheEvent event : entry.getValue().toEvents(instanceId, Integer.MAX_VALUE)) {
+                dispatch(cacheName, event);
+            }
+        }
+    }
+
+    private CacheEvent decode(ByteRecord record) {
+        for (Map.Entry<byte[], byte[]> field : record.getValue().entrySet()) {
+            if (Arrays.equals(EVENT_FIELD, field.getKey())) {
+                try {
+                    return objectMapper.readValue(field.getValue(), CacheEvent.class);
+                } catch (Exception e) {
+                    log.error("解析Redis Stream消息失败, id={}", record.getId(), e);
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 将事件交给缓存的本地监听器
+     *
+     * @param cacheName 缓存名称
+     * @param event     缓存事件
+     */
+    private void dispatch(String cacheName, CacheEvent event) {
+        ConcurrentMap<CacheEventListener, Boolean> cacheListeners = listeners.get(cacheName);
+        if (cacheListeners == null) {
+            return;
+        }
+        for (CacheEventListener listener : cacheListeners.keySet()) {
+            try {
+                listener.onEvent(event);
+            } catch (Exception e) {
+                log.error("处理缓存事件异常, cacheName={}, eventType={}", cacheName, event.getEventType(), e);
+            }
+        }
+    }
+
+    /**
+     * 流中最早的记录晚于上次读到的位置时，中间的记录可能已被裁剪，无法确认是否错过通知，清空本地缓存
+     *
+     * @param subscription 订阅的流
+     */
+    private void checkTrimmed(Subscription subscription) {
+        List<ByteRecord> oldest = redisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                connection.streamCommands().xRange(subscription.keyBytes, Range.unbounded(),
+                        RedisZSetCommands.Limit.limit().count(1)));
+        if (oldest == null || oldest.isEmpty()) {
+            return;
+        }
+        RecordId first = oldest.get(0).getId();
+        if (compare(first, RecordId.of(subscription.lastId)) > 0) {
+            resyncCount.increment();
+            log.warn("缓存事件流的读取位置已被裁剪, 清空本地缓存: cacheName={}, lastId={}, oldestId={}",
+                    subscription.cacheName, subscription.lastId, first.getValue());
+            dispatch(subscription.cacheName, new CacheRemoveEvent(subscription.cacheName, null, instanceId));
+        }
+    }
+
+    private String latestId(String streamKey) {
+        List<ByteRecord> latest = redisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                connection.streamCommands().xRevRange(bytes(streamKey), Range.unbounded(),
+                        RedisZSetCommands.Limit.limit().count(1)));
+        return latest == null || latest.isEmpty() ? INITIAL_ID : latest.get(0).getId().getValue();
+    }
+
+    private static int compare(RecordId left, RecordId right) {
+        int result = Long.compareUnsigned(left.getTimestamp(), right.getTimestamp());
+        return result != 0 ? result : Long.compareUnsigned(left.getSequence(), right.getSequence());
+    }
+
+    private String buildStreamKey(String cacheName) {
+        return topicPrefix + ":stream:" + cacheName;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 订阅的流及上次读到的位置，只由读取线程更新
+     */
+    private static final class Subscription {
+        private final String cacheName;
+        private final byte[] keyBytes;
+        private volatile String lastId;
+
+        private Subscription(String cacheName, String streamKey, String lastId) {
+            this.cacheName = cacheName;
+            this.keyBytes = bytes(streamKey);
+            this.lastId = lastId;
+        }
+    }
+}
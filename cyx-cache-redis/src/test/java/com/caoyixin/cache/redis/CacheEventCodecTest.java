@@ -0,0 +1,98 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.notification.CacheBatchEvent;
+import com.caoyixin.cache.notification.CacheEvent;
+import com.caoyixin.cache.notification.CacheEventType;
+import com.caoyixin.cache.notification.CacheRemoveEvent;
+import com.caoyixin.cache.notification.CacheUpdateEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * 缓存事件二进制编码测试，不需要Redis
+ */
+public class CacheEventCodecTest {
+
+    private static final String CACHE_NAME = "user";
+
+    @Test
+    public void testTypedKeys() {
+        List<Object> keys = Arrays.asList("key", 1L, Long.MIN_VALUE, -5, (short) 3, (byte) 7, true, false,
+                1.5d, 2.5f, 'c', UUID.randomUUID(), null);
+        CacheBatchEvent event = new CacheBatchEvent(CACHE_NAME, keys, "1");
+        event.setSequence(42);
+        event.setVersion(Long.MAX_VALUE - 1);
+
+        CacheEvent decoded = decode(CacheEventCodec.encode(event, 12345L));
+        assertTrue(decoded instanceof CacheBatchEvent);
+        assertEquals(CACHE_NAME, decoded.getCacheName());
+        assertEquals("12345", decoded.getInstanceId());
+        assertEquals(42, decoded.getSequence());
+        assertEquals(Long.MAX_VALUE - 1, decoded.getVersion());
+        List<Object> decodedKeys = new ArrayList<>(((CacheBatchEvent) decoded).getKeys());
+        assertEquals(keys, decodedKeys);
+        for (int i = 0; i < keys.size(); i++) {
+            if (keys.get(i) != null) {
+                // JSON消息中的Long键解码为Integer，二进制消息保留键的类型
+                assertEquals(keys.get(i).getClass(), decodedKeys.get(i).getClass());
+            }
+        }
+    }
+
+    @Test
+    public void testEventTypes() {
+        CacheEvent update = decode(CacheEventCodec.encode(new CacheUpdateEvent(CACHE_NAME, 7L, "1"), 1));
+        assertEquals(CacheEventType.UPDATE, update.getEventType());
+        assertEquals(7L, update.getKey());
+        assertEquals(0, update.getSequence());
+        assertEquals(0, update.getVersion());
+
+        CacheEvent remove = decode(CacheEventCodec.encode(new CacheRemoveEvent(CACHE_NAME, "k", "1"), 1));
+        assertEquals(CacheEventType.REMOVE, remove.getEventType());
+        assertEquals("k", remove.getKey());
+
+        CacheEvent clear = decode(CacheEventCodec.encode(new CacheRemoveEvent(CACHE_NAME, null, "1"), 1));
+        assertEquals(CacheEventType.REMOVE, clear.getEventType());
+        assertNull(clear.getKey());
+
+        // 未知类型的键按JSON编码
+        CacheEvent json = decode(CacheEventCodec.encode(new CacheUpdateEvent(CACHE_NAME, Arrays.asList("a", "b"), "1"), 1));
+        assertEquals(Arrays.asList("a", "b"), json.getKey());
+    }
+
+    @Test
+    public void testUnknownCacheIsDropped() {
+        byte[] data = CacheEventCodec.encode(new CacheUpdateEvent("other", 1L, "1"), 1);
+        assertNull(decode(data));
+    }
+
+    @Test
+    public void testMessageSize() throws Exception {
+        CacheUpdateEvent event = new CacheUpdateEvent(CACHE_NAME, 123456789L, UUID.randomUUID().toString());
+        event.setSequence(1000);
+        event.setVersion(System.currentTimeMillis() << 16);
+        byte[] json = new ObjectMapper().writeValueAsBytes(event);
+        byte[] binary = CacheEventCodec.encode(event, (1L << 48) - 1);
+        assertTrue("binary=" + binary.length + ", json=" + json.length, binary.length * 4 < json.length);
+
+        // 批量消息中每个键只占类型标记和内容
+        List<Object> keys = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            keys.add(1000000L + i);
+        }
+        byte[] batch = CacheEventCodec.encode(new CacheBatchEvent(CACHE_NAME, keys, "1"), 1);
+        assertTrue("batch=" + batch.length, batch.length < 100 * 5 + 20);
+    }
+
+    private static CacheEvent decode(byte[] data) {
+        assertTrue(CacheEventCodec.isBinary(data));
+        return CacheEventCodec.decode(data, id -> id == CacheEventCodec.cacheId(CACHE_NAME) ? CACHE_NAME : null);
+    }
+}
@@ -8,6 +8,7 @@ import com.caoyixin.cache.config.CacheConfig;
 import com.caoyixin.cache.consistency.ConsistencyStrategyFactory;
 import com.caoyixin.cache.consistency.DefaultConsistencyStrategyFactory;
 import com.caoyixin.cache.enums.ConsistencyType;
+import com.caoyixin.cache.notification.CacheBatchEvent;
 import com.caoyixin.cache.notification.CacheEvent;
 import com.caoyixin.cache.notification.CacheEventListener;
 import com.caoyixin.cache.notification.CacheNotifier;
@@ -20,6 +21,11 @@ import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -174,6 +180,91 @@ public class CacheNotificationTest {
         assertEquals("Received key should match", testKey, receivedKey.get());
     }
 
+    @Test
+    public void testStreamNotifier() throws InterruptedException {
+        String cacheName = "testStreamNotification";
+        RedisStreamCacheNotifier publisher = new RedisStreamCacheNotifier(createStringRedisTemplate(), keyPrefix);
+        RedisStreamCacheNotifier receiver = new RedisStreamCacheNotifier(createStringRedisTemplate(), keyPrefix);
+        try {
+            List<CacheEvent> events = new CopyOnWriteArrayList<>();
+            CountDownLatch latch = new CountDownLatch(1);
+            receiver.subscribe(cacheName, event -> {
+                events.add(event);
+                latch.countDown();
+            });
+
+            // 订阅之后、读取之前发出的通知也能读到，同一次读到的通知合并为一次分发
+            publisher.notifyUpdate(cacheName, "k1");
+            publisher.notifyUpdate(cacheName, "k2");
+            publisher.notifyUpdate(cacheName, "k1");
+            publisher.notifyRemove(cacheName, "k3");
+
+            assertTrue("Stream events should be received", latch.await(3, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            Set<Object> keys = new HashSet<>();
+            for (CacheEvent event : events) {
+                if (event instanceof CacheBatchEvent) {
+                    keys.addAll(((CacheBatchEvent) event).getKeys());
+                } else {
+                    keys.add(event.getKey());
+                }
+            }
+            assertEquals(new HashSet<>(Arrays.asList("k1", "k2", "k3")), keys);
+            assertEquals(4, receiver.getReceivedEvents().sum());
+        } finally {
+            publisher.close();
+            receiver.close();
+        }
+    }
+
+    @Test
+    public void testStreamNotifierResyncAfterStall() throws InterruptedException {
+        String cacheName = "testStreamStall";
+        // 发布方只保留很少的通知，读取方停顿期间读取位置被裁剪
+        RedisStreamCacheNotifier publisher = new RedisStreamCacheNotifier(createStringRedisTemplate(), keyPrefix,
+                10, RedisStreamCacheNotifier.DEFAULT_BATCH_SIZE, Duration.ofMillis(100));
+        RedisStreamCacheNotifier receiver = new RedisStreamCacheNotifier(createStringRedisTemplate(), keyPrefix,
+                10, RedisStreamCacheNotifier.DEFAULT_BATCH_SIZE, Duration.ofMillis(100));
+        try {
+            CountDownLatch stalled = new CountDownLatch(1);
+            CountDownLatch resume = new CountDownLatch(1);
+            AtomicBoolean cleared = new AtomicBoolean();
+            receiver.subscribe(cacheName, event -> {
+                if (event.getKey() == null) {
+                    cleared.set(true);
+                    return;
+                }
+                // 监听器处理缓慢，读取线程停顿，期间没有读取失败
+                stalled.countDown();
+                try {
+                    resume.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            publisher.notifyUpdate(cacheName, "first");
+            assertTrue("First event should be received", stalled.await(3, TimeUnit.SECONDS));
+            for (int i = 0; i < 1000; i++) {
+                publisher.notifyUpdate(cacheName, "k" + i);
+            }
+            // 停顿超过两倍阻塞时间
+            Thread.sleep(300);
+            resume.countDown();
+
+            long deadline = System.currentTimeMillis() + 3000;
+            while (!cleared.get() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue("Local cache should be cleared after trimmed stall", cleared.get());
+            assertEquals(1, receiver.getResyncCount().sum());
+            assertEquals(0, receiver.getReadFailures().sum());
+        } finally {
+            publisher.close();
+            receiver.close();
+        }
+    }
+
     @Test
     public void testCacheConsistencyAcrossInstances() throws InterruptedException {
         // 创建两个多级缓存
@@ -0,0 +1,158 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.api.Cache;
+import com.caoyixin.cache.api.CacheType;
+import com.caoyixin.cache.config.CacheConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 基于Lettuce异步API的Redis缓存测试
+ */
+public class LettuceRedisCacheTest {
+
+    private LettuceRedisCacheManager cacheManager;
+
+    @Before
+    public void setUp() {
+        cacheManager = new LettuceRedisCacheManager(RedisTestConfig.createRedisURI(),
+                RedisTestConfig.getTestKeyPrefix(), Duration.ofSeconds(1));
+    }
+
+    @After
+    public void tearDown() {
+        if (cacheManager != null) {
+            cacheManager.close();
+        }
+    }
+
+    @Test
+    public void testBasicOperations() {
+        Cache<String, String> cache = cacheManager.createCache("lettuceBasic", remoteConfig("lettuceBasic"));
+
+        cache.put("key", "value");
+        assertEquals("Retrieved value should match", "value", cache.get("key"));
+        assertTrue("Remove should return true for existing key", cache.remove("key"));
+        assertNull("Value should be null after removal", cache.get("key"));
+
+        cache.clear();
+    }
+
+    @Test
+    public void testAsyncOperations() throws Exception {
+        LettuceRedisCache<String, String> cache =
+                (LettuceRedisCache<String, String>) cacheManager.<String, String>createCache("lettuceAsync",
+                        remoteConfig("lettuceAsync"));
+
+        cache.putAsync("async-key", "async-value", null).get(1, TimeUnit.SECONDS);
+        assertEquals("Async get should see async put", "async-value",
+                cache.getAsync("async-key").get(1, TimeUnit.SECONDS));
+        assertTrue("Async remove should succeed", cache.removeAsync("async-key").get(1, TimeUnit.SECONDS));
+        assertNull("Value should be gone", cache.getAsync("async-key").get(1, TimeUnit.SECONDS));
+
+        cache.clear();
+    }
+
+    @Test
+    public void testPipelinedPutAll() {
+        Cache<String, String> cache = cacheManager.createCache("lettuceBatch", remoteConfig("lettuceBatch"));
+
+        Map<String, String> batch = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            batch.put("batch-key-" + i, "batch-value-" + i);
+        }
+        cache.putAll(batch);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Batch value should be stored", "batch-value-" + i, cache.get("batch-key-" + i));
+        }
+
+        cache.clear();
+    }
+
+    @Test
+    public void testCompatibleWithRedisTemplateCache() {
+        RedisConnectionFactory connectionFactory = RedisTestConfig.createConnectionFactory();
+        RedisCacheManager templateManager = new RedisCacheManager(connectionFactory, RedisTestConfig.getTestKeyPrefix());
+        try {
+            Cache<String, String> templateCache = templateManager.createCache("lettuceCompat", remoteConfig("lettuceCompat"));
+            Cache<String, String> lettuceCache = cacheManager.createCache("lettuceCompat", remoteConfig("lettuceCompat"));
+
+            templateCache.put("compat-key", "from-template");
+            assertEquals("Lettuce cache should read template data", "from-template", lettuceCache.get("compat-key"));
+
+            lettuceCache.put("compat-key", "from-lettuce");
+            assertEquals("Template cache should read lettuce data", "from-lettuce", templateCache.get("compat-key"));
+
+            lettuceCache.clear();
+        } finally {
+            templateManager.close();
+        }
+    }
+
+    @Test
+    public void testLoadLeaseWithTemplateCache() throws Exception {
+        // Lettuce缓存与RedisTemplate缓存共用加载租约
+        RedisConnectionFactory connectionFactory = RedisTestConfig.createConnectionFactory();
+        RedisCacheManager templateManager = new RedisCacheManager(connectionFactory, RedisTestConfig.getTestKeyPrefix());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Cache<String, Integer> lettuceCache = cacheManager.createCache("lettuceLease", remoteConfig("lettuceLease"));
+            Cache<String, Integer> templateCache = templateManager.createCache("lettuceLease", remoteConfig("lettuceLease"));
+
+            AtomicInteger loadCount = new AtomicInteger();
+            CountDownLatch loading = new CountDownLatch(1);
+            Future<Integer> winner = executor.submit(() -> lettuceCache.computeIfAbsent("lease-key", key -> {
+                loadCount.incrementAndGet();
+                loading.countDown();
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 42;
+            }));
+            assertTrue("Winner should start loading", loading.await(2, TimeUnit.SECONDS));
+
+            // 另一个节点等待租约持有者写入，不访问数据源
+            Integer waited = templateCache.computeIfAbsent("lease-key", key -> {
+                loadCount.incrementAndGet();
+                return -1;
+            });
+            assertEquals(Integer.valueOf(42), winner.get(2, TimeUnit.SECONDS));
+            assertEquals("Waiter should get the value written by the lease holder", Integer.valueOf(42), waited);
+            assertEquals("Only the lease holder should load", 1, loadCount.get());
+
+            // 删除值后重新加载
+            assertTrue(lettuceCache.remove("lease-key"));
+            assertEquals(Integer.valueOf(7), lettuceCache.computeIfAbsent("lease-key", key -> 7));
+
+            lettuceCache.clear();
+        } finally {
+            executor.shutdown();
+            templateManager.close();
+        }
+    }
+
+    private CacheConfig remoteConfig(String name) {
+        return CacheConfig.builder()
+                .name(name)
+                .cacheType(CacheType.REMOTE)
+                .expire(Duration.ofMinutes(5))
+                .build();
+    }
+}
@@ -0,0 +1,154 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.api.Cache;
+import com.caoyixin.cache.enums.EvictionPolicy;
+import com.caoyixin.cache.support.longkey.LongKeyCache;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * long键本地缓存测试，不需要Redis
+ */
+public class LongKeyCacheTest {
+
+    @Test
+    public void testLongValues() {
+        // 值类型为Long时，接口方法与不装箱的方法不产生重载歧义
+        LongKeyCache<Long> cache = new LongKeyCache<>("testLongValues", 16, EvictionPolicy.LRU, null);
+        cache.putLong(1L, 10L);
+        cache.put(2L, 20L);
+        assertEquals(Long.valueOf(10L), cache.get(1L));
+        assertEquals(Long.valueOf(20L), cache.getLong(2L));
+        assertEquals(Long.valueOf(30L), cache.computeIfAbsentLong(3L, key -> key * 10, null));
+
+        Cache<Long, Long> asCache = cache;
+        asCache.put(4L, 40L);
+        assertEquals(Long.valueOf(40L), cache.getLong(4L));
+    }
+
+    @Test
+    public void testDeletionChains() {
+        // 表已装满一半，探测链上有冲突的键，按不同顺序删除后其余键仍能找到
+        int count = 16;
+        int[][] orders = {
+                {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15},
+                {15, 14, 13, 12, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1, 0},
+                {7, 0, 15, 3, 11, 1, 13, 5, 9, 2, 14, 6, 10, 4, 12, 8}
+        };
+        for (int[] order : orders) {
+            LongKeyCache<String> cache = new LongKeyCache<>("testDeletionChains", count, EvictionPolicy.LRU, null);
+            for (long key = 0; key < count; key++) {
+                cache.putLong(key * 1024, "v" + key);
+            }
+            boolean[] removed = new boolean[count];
+            for (int victim : order) {
+                assertTrue(cache.removeLong(victim * 1024L));
+                assertFalse("Removed key should not be found twice", cache.removeLong(victim * 1024L));
+                removed[victim] = true;
+                for (int key = 0; key < count; key++) {
+                    if (removed[key]) {
+                        assertNull(cache.getLong(key * 1024L));
+                    } else {
+                        assertEquals("Key should survive deletion of " + victim, "v" + key, cache.getLong(key * 1024L));
+                    }
+                }
+            }
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void testRandomOperations() {
+        // 与HashMap对比随机的写入、删除和读取，覆盖冲突和删除后的条目前移
+        LongKeyCache<Long> cache = new LongKeyCache<>("testRandomOperations", 512, EvictionPolicy.CLOCK, null);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(400) - 200;
+            int op = random.nextInt(3);
+            if (op == 0) {
+                long value = random.nextLong();
+                cache.putLong(key, value);
+                expected.put(key, value);
+            } else if (op == 1) {
+                assertEquals(expected.remove(key) != null, cache.removeLong(key));
+            } else {
+                assertEquals(expected.get(key), cache.getLong(key));
+            }
+        }
+        assertEquals(expected.size(), cache.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), cache.getLong(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testLruEviction() {
+        LongKeyCache<String> cache = new LongKeyCache<>("testLruEviction", 4, EvictionPolicy.LRU, null);
+        for (long key = 1; key <= 4; key++) {
+            cache.putLong(key, "v" + key);
+        }
+        // 访问1后，最久未访问的是2
+        assertEquals("v1", cache.getLong(1));
+        cache.putLong(5, "v5");
+
+        assertEquals(4, cache.size());
+        assertNull("Least recently used key should be evicted", cache.getLong(2));
+        assertEquals("v1", cache.getLong(1));
+        assertEquals("v5", cache.getLong(5));
+        assertEquals(1, cache.stats().getEvictions().sum());
+    }
+
+    @Test
+    public void testClockEviction() {
+        LongKeyCache<String> cache = new LongKeyCache<>("testClockEviction", 4, EvictionPolicy.CLOCK, null);
+        for (long key = 1; key <= 4; key++) {
+            cache.putLong(key, "v" + key);
+        }
+        // 被访问的条目设置引用位，第一轮扫描不被淘汰
+        assertEquals("v1", cache.getLong(1));
+        cache.putLong(5, "v5");
+
+        assertEquals(4, cache.size());
+        assertEquals("v1", cache.getLong(1));
+        assertEquals("v5", cache.getLong(5));
+        assertEquals(1, cache.stats().getEvictions().sum());
+    }
+
+    @Test
+    public void testTtl() throws InterruptedException {
+        LongKeyCache<String> cache = new LongKeyCache<>("testTtl", 16, EvictionPolicy.LRU, Duration.ofMillis(100));
+        cache.putLong(1, "default");
+        cache.putLong(2, "short", Duration.ofMillis(30));
+        cache.putLong(3, "long", Duration.ofMinutes(5));
+
+        Thread.sleep(60);
+        assertEquals("default", cache.getLong(1));
+        assertNull("Entry should expire after its own ttl", cache.getLong(2));
+
+        Thread.sleep(100);
+        assertNull("Entry should expire after the default ttl", cache.getLong(1));
+        assertEquals("long", cache.getLong(3));
+    }
+
+    @Test
+    public void testExpiredEntryEvictedFirst() throws InterruptedException {
+        LongKeyCache<String> cache = new LongKeyCache<>("testExpiredEviction", 2, EvictionPolicy.LRU, null);
+        cache.putLong(1, "expiring", Duration.ofMillis(20));
+        cache.putLong(2, "kept");
+        // 最近访问过的条目过期后仍优先被淘汰
+        assertEquals("expiring", cache.getLong(1));
+        Thread.sleep(50);
+        cache.putLong(3, "new");
+
+        assertEquals("kept", cache.getLong(2));
+        assertEquals("new", cache.getLong(3));
+        assertEquals(2, cache.size());
+    }
+}
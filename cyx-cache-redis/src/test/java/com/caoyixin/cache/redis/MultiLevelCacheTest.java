@@ -1,27 +1,68 @@
 package com.caoyixin.cache.redis;
 
+import com.caoyixin.cache.api.AbstractCache;
+import com.caoyixin.cache.api.AsyncCache;
 import com.caoyixin.cache.api.Cache;
 import com.caoyixin.cache.api.CacheManager;
 import com.caoyixin.cache.api.CacheType;
+import com.caoyixin.cache.api.CacheValue;
+import com.caoyixin.cache.config.AsyncWriteConfig;
 import com.caoyixin.cache.config.CacheConfig;
+import com.caoyixin.cache.config.CircuitBreakerConfig;
+import com.caoyixin.cache.config.WriteBackConfig;
+import com.caoyixin.cache.consistency.AbstractConsistencyStrategy;
+import com.caoyixin.cache.consistency.AsyncRemoteWriter;
 import com.caoyixin.cache.consistency.ConsistencyStrategyFactory;
 import com.caoyixin.cache.consistency.DefaultConsistencyStrategyFactory;
+import com.caoyixin.cache.consistency.VersionClock;
+import com.caoyixin.cache.consistency.VersionTracker;
+import com.caoyixin.cache.consistency.WriteBackStrategy;
+import com.caoyixin.cache.consistency.WriteThroughStrategy;
 import com.caoyixin.cache.enums.ConsistencyType;
+import com.caoyixin.cache.multilevel.MultiLevelCache;
+import com.caoyixin.cache.multilevel.MultiLevelCacheManager;
+import com.caoyixin.cache.notification.CacheBatchEvent;
+import com.caoyixin.cache.notification.CacheEvent;
+import com.caoyixin.cache.notification.CacheEventListener;
+import com.caoyixin.cache.notification.CacheEventType;
+import com.caoyixin.cache.notification.CacheNotifier;
+import com.caoyixin.cache.notification.CacheRemoveEvent;
+import com.caoyixin.cache.notification.CacheUpdateEvent;
+import com.caoyixin.cache.resilience.CircuitBreaker;
+import com.caoyixin.cache.support.simple.SimpleCache;
+import com.caoyixin.cache.support.simple.SimpleCacheManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 import static org.junit.Assert.*;
@@ -169,6 +210,48 @@ public class MultiLevelCacheTest {
         assertEquals("Computed value should be cached", "computed-" + computeKey, cache.get(computeKey));
     }
 
+    @Test
+    public void testAsyncOperations() throws Exception {
+        String cacheName = "testMultiLevelAsync";
+        CacheConfig config = CacheConfig.builder()
+                .name(cacheName)
+                .cacheType(CacheType.BOTH)
+                .expire(Duration.ofMinutes(5))
+                .localExpire(Duration.ofMinutes(2))
+                .localLimit(100)
+                .consistencyType(ConsistencyType.WRITE_THROUGH)
+                .build();
+
+        Cache<String, String> cache = multiLevelCacheManager.createCache(cacheName, config);
+        AsyncCache<String, String> asyncCache = cache.async();
+
+        asyncCache.putAsync("async-key", "async-value").get(1, TimeUnit.SECONDS);
+        assertEquals("Async get should return the value", "async-value",
+                asyncCache.getAsync("async-key").get(1, TimeUnit.SECONDS));
+
+        // 写穿透后本地缓存已有数据，本地命中的结果立即完成
+        assertTrue("L1 hit should complete immediately", asyncCache.getAsync("async-key").isDone());
+
+        // 只存在于远程缓存的数据
+        Cache<String, String> remoteCache = redisCacheManager.getOrCreateCache(cacheName, CacheConfig.builder()
+                .name(cacheName)
+                .cacheType(CacheType.REMOTE)
+                .expire(Duration.ofMinutes(5))
+                .build());
+        remoteCache.put("remote-only", "remote-value");
+
+        Map<String, String> values = asyncCache.getAllAsync(Arrays.asList("async-key", "remote-only", "missing"))
+                .get(1, TimeUnit.SECONDS);
+        assertEquals("async-value", values.get("async-key"));
+        assertEquals("remote-value", values.get("remote-only"));
+        assertFalse(values.containsKey("missing"));
+
+        assertTrue("Async remove should succeed", asyncCache.removeAsync("async-key").get(1, TimeUnit.SECONDS));
+        assertNull("Value should be removed from all levels", asyncCache.getAsync("async-key").get(1, TimeUnit.SECONDS));
+
+        cache.clear();
+    }
+
     @Test
     public void testWriteThroughStrategy() {
         // 创建多级缓存，使用写穿透策略
@@ -228,6 +311,917 @@ public class MultiLevelCacheTest {
         }
     }
 
+    @Test
+    public void testRemoteCircuitBreaker() throws InterruptedException {
+        // 连接到不可用的Redis
+        LettuceConnectionFactory deadFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("localhost", 1),
+                LettuceClientConfiguration.builder().commandTimeout(Duration.ofMillis(100)).build());
+        deadFactory.afterPropertiesSet();
+        CacheNotifier noopNotifier = new CacheNotifier() {
+            @Override
+            public void notifyUpdate(String cacheName, Object key) {
+            }
+
+            @Override
+            public void notifyAdd(String cacheName, Object key) {
+            }
+
+            @Override
+            public void notifyRemove(String cacheName, Object key) {
+            }
+
+            @Override
+            public void subscribe(String cacheName, CacheEventListener listener) {
+            }
+        };
+        MultiLevelCacheManager manager = new MultiLevelCacheManager(new SimpleLocalCacheManager(),
+                new RedisCacheManager(deadFactory, keyPrefix), noopNotifier, new DefaultConsistencyStrategyFactory(),
+                null);
+        try {
+            CacheConfig config = CacheConfig.builder()
+                    .name("testCircuitBreaker")
+                    .cacheType(CacheType.BOTH)
+                    .expire(Duration.ofMinutes(5))
+                    .consistencyType(ConsistencyType.WRITE_THROUGH)
+                    .circuitBreaker(CircuitBreakerConfig.builder()
+                            .minimumCalls(5)
+                            .openDuration(Duration.ofMinutes(1))
+                            .build())
+                    .build();
+            Cache<String, String> cache = manager.createCache("testCircuitBreaker", config);
+            CircuitBreaker breaker = ((MultiLevelCache<String, String>) cache).getRemoteCircuitBreaker();
+            assertNotNull(breaker);
+
+            // 远程缓存连续失败后熔断
+            for (int i = 0; i < 10; i++) {
+                cache.get("missing-" + i);
+            }
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+            // 熔断期间只访问本地缓存，不再等待远程超时
+            long start = System.nanoTime();
+            cache.put("key", "value");
+            assertEquals("value", cache.get("key"));
+            assertNull(cache.get("other"));
+            assertTrue("Open breaker should fail fast",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+            assertTrue(breaker.getRejectedCount().sum() > 0);
+        } finally {
+            manager.close();
+            deadFactory.destroy();
+        }
+    }
+
+    @Test
+    public void testDeferredInvalidationReplay() throws InterruptedException {
+        List<String> removeThreads = new CopyOnWriteArrayList<>();
+        MapBackedCache<String, String> remote = new MapBackedCache<String, String>("testReplay") {
+            @Override
+            protected boolean doRemove(String key) {
+                removeThreads.add(Thread.currentThread().getName());
+                return super.doRemove(key);
+            }
+        };
+        CircuitBreaker breaker = new CircuitBreaker("testReplay", CircuitBreakerConfig.builder()
+                .minimumCalls(5)
+                .openDuration(Duration.ofMillis(50))
+                .halfOpenProbes(2)
+                .build());
+        remote.setCallGuard(breaker);
+        remote.put("a", "a1");
+
+        for (int i = 0; i < 5; i++) {
+            breaker.onFailure(0);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        // 熔断期间的删除暂存到恢复后补发
+        assertFalse(remote.remove("a"));
+        Thread.sleep(60);
+
+        // 半开探测成功不补发，探测结束熔断器关闭后补发
+        assertNull(remote.get("other"));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals("a1", remote.get("a"));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (removeThreads.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Collections.singletonList("cyx-cache-invalidation-replay"), removeThreads);
+        assertNull(remote.get("a"));
+    }
+
+    @Test
+    public void testWriteBackStrategy() {
+        // 记录刷写后发送的批量通知
+        List<Collection<?>> batches = new ArrayList<>();
+        CacheNotifier recordingNotifier = new CacheNotifier() {
+            @Override
+            public void notifyUpdate(String cacheName, Object key) {
+                batches.add(Collections.singletonList(key));
+            }
+
+            @Override
+            public void notifyAdd(String cacheName, Object key) {
+                fail("Write-back cache should not notify on each write");
+            }
+
+            @Override
+            public void notifyRemove(String cacheName, Object key) {
+            }
+
+            @Override
+            public void notifyUpdateAll(String cacheName, Collection<?> keys) {
+                batches.add(new ArrayList<>(keys));
+            }
+
+            @Override
+            public void subscribe(String cacheName, CacheEventListener listener) {
+            }
+        };
+        SimpleLocalCacheManager remoteManager = new SimpleLocalCacheManager();
+        MultiLevelCacheManager manager = new MultiLevelCacheManager(new SimpleLocalCacheManager(), remoteManager,
+                recordingNotifier, new DefaultConsistencyStrategyFactory(), null);
+        try {
+            String cacheName = "testWriteBack";
+            CacheConfig config = CacheConfig.builder()
+                    .name(cacheName)
+                    .cacheType(CacheType.BOTH)
+                    .expire(Duration.ofMinutes(5))
+                    .consistencyType(ConsistencyType.WRITE_BACK)
+                    .writeBack(WriteBackConfig.builder()
+                            .flushInterval(Duration.ofMinutes(1))
+                            .batchSize(100)
+                            .build())
+                    .build();
+            Cache<String, String> cache = manager.createCache(cacheName, config);
+            WriteBackStrategy<String, String> strategy = (WriteBackStrategy<String, String>)
+                    ((MultiLevelCache<String, String>) cache).getConsistencyStrategy();
+            Cache<String, String> remote = remoteManager.getCache(cacheName + ":remote");
+
+            // 写入只进入本地缓存，同一个键的多次写入合并
+            cache.put("key", "v1");
+            cache.put("key", "v2");
+            cache.put("other", "value");
+            cache.put("removed", "value");
+            cache.remove("removed");
+            assertEquals("v2", cache.get("key"));
+            assertNull(cache.get("removed"));
+            assertNull("Remote should not be written before flush", remote.get("key"));
+            assertEquals(3, strategy.getPendingCount());
+            assertTrue(batches.isEmpty());
+
+            // 一次刷写写入远程缓存并发送一条批量通知
+            strategy.flush();
+            assertEquals("v2", remote.get("key"));
+            assertEquals("value", remote.get("other"));
+            assertNull(remote.get("removed"));
+            assertEquals(0, strategy.getPendingCount());
+            assertEquals(1, batches.size());
+            assertEquals(3, batches.get(0).size());
+
+            // 关闭时写入剩余的数据
+            cache.put("last", "value");
+            manager.close();
+            assertEquals("value", remote.get("last"));
+            assertEquals(2, batches.size());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testWriteBackFlushFailure() {
+        List<Object> notified = new CopyOnWriteArrayList<>();
+        CacheNotifier recordingNotifier = new CacheNotifier() {
+            @Override
+            public void notifyUpdate(String cacheName, Object key) {
+            }
+
+            @Override
+            public void notifyAdd(String cacheName, Object key) {
+            }
+
+            @Override
+            public void notifyRemove(String cacheName, Object key) {
+            }
+
+            @Override
+            public void notifyUpdateAll(String cacheName, Collection<?> keys) {
+                notified.addAll(keys);
+            }
+
+            @Override
+            public void subscribe(String cacheName, CacheEventListener listener) {
+            }
+        };
+        // 批量写入期间有一次读取失败，不影响本批写入的结果
+        MapBackedCache<String, String> remote = new MapBackedCache<String, String>("testWriteBackFailure:remote") {
+            @Override
+            protected void doPutAll(Map<? extends String, ? extends String> map) {
+                super.doPutAll(map);
+                handleException("获取缓存值异常", new IllegalStateException("read timeout"), "unrelated");
+            }
+        };
+        SimpleLocalCacheManager remoteManager = new SimpleLocalCacheManager() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Cache<K, V> createCache(String name, CacheConfig config) {
+                return (Cache<K, V>) remote;
+            }
+        };
+        MultiLevelCacheManager manager = new MultiLevelCacheManager(new SimpleLocalCacheManager(), remoteManager,
+                recordingNotifier, new DefaultConsistencyStrategyFactory(), null);
+        try {
+            CacheConfig config = CacheConfig.builder()
+                    .name("testWriteBackFailure")
+                    .cacheType(CacheType.BOTH)
+                    .expire(Duration.ofMinutes(5))
+                    .consistencyType(ConsistencyType.WRITE_BACK)
+                    .writeBack(WriteBackConfig.builder()
+                            .flushInterval(Duration.ofMinutes(1))
+                            .batchSize(100)
+                            .build())
+                    .build();
+            Cache<String, String> cache = manager.createCache("testWriteBackFailure", config);
+            WriteBackStrategy<String, String> strategy = (WriteBackStrategy<String, String>)
+                    ((MultiLevelCache<String, String>) cache).getConsistencyStrategy();
+
+            // 远程缓存写入失败时保留待写入的数据，不通知其他节点
+            remote.failing = true;
+            cache.put("a", "v1");
+            cache.put("b", "v2", Duration.ofMinutes(1));
+            strategy.flush();
+            assertEquals(2, strategy.getPendingCount());
+            assertTrue(notified.isEmpty());
+
+            remote.failing = false;
+            strategy.flush();
+            assertEquals(0, strategy.getPendingCount());
+            assertEquals("v1", remote.data.get("a"));
+            assertEquals("v2", remote.data.get("b"));
+            assertEquals(new HashSet<>(Arrays.asList("a", "b")), new HashSet<>(notified));
+
+            // 直接写入远程缓存时取代该键较早的待写入数据，之后的刷写不会以旧值覆盖
+            remote.failing = true;
+            cache.put("a", "old");
+            strategy.close();
+            assertEquals(1, strategy.getPendingCount());
+            remote.failing = false;
+            cache.put("a", "new");
+            assertEquals(1, strategy.getDirectWriteCount().sum());
+            assertEquals(0, strategy.getPendingCount());
+            strategy.flush();
+            assertEquals("new", remote.data.get("a"));
+            assertEquals("new", cache.get("a"));
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testReadOnlyStrategy() {
+        // 记录多级缓存注册的监听器，模拟其他服务发出的通知
+        AtomicReference<CacheEventListener> subscribed = new AtomicReference<>();
+        CacheNotifier capturingNotifier = new CacheNotifier() {
+            @Override
+            public void notifyUpdate(String cacheName, Object key) {
+            }
+
+            @Override
+            public void notifyAdd(String cacheName, Object key) {
+            }
+
+            @Override
+            public void notifyRemove(String cacheName, Object key) {
+            }
+
+            @Override
+            public void subscribe(String cacheName, CacheEventListener listener) {
+                subscribed.set(listener);
+            }
+        };
+        SimpleLocalCacheManager localManager = new SimpleLocalCacheManager();
+        SimpleLocalCacheManager remoteManager = new SimpleLocalCacheManager();
+        MultiLevelCacheManager manager = new MultiLevelCacheManager(localManager, remoteManager,
+                capturingNotifier, new DefaultConsistencyStrategyFactory(), null);
+        try {
+            String cacheName = "testReadOnly";
+            CacheConfig config = CacheConfig.builder()
+                    .name(cacheName)
+                    .cacheType(CacheType.BOTH)
+                    .expire(Duration.ofMinutes(5))
+                    .consistencyType(ConsistencyType.READ_ONLY)
+                    .build();
+            Cache<String, String> cache = manager.createCache(cacheName, config);
+            assertNotNull("Multi-level cache should subscribe to invalidations", subscribed.get());
+            Cache<String, String> local = localManager.getCache(cacheName + ":local");
+            Cache<String, String> remote = remoteManager.getCache(cacheName + ":remote");
+
+            // 读取时从远程缓存回填本地缓存
+            remote.put("a", "a1");
+            remote.put("b", "b1");
+            assertEquals("a1", cache.get("a"));
+            assertEquals("b1", cache.get("b"));
+            assertEquals("a1", local.get("a"));
+
+            // 其他服务更新远程缓存后，本地缓存在收到通知前保持不变
+            remote.put("a", "a2");
+            assertEquals("a1", cache.get("a"));
+            subscribed.get().onEvent(new CacheUpdateEvent(cacheName, "a", "other-service"));
+            assertNull(local.get("a"));
+            assertEquals("a2", cache.get("a"));
+
+            // 本地写入直接写入远程缓存，并使本地缓存失效
+            cache.put("c", "c1");
+            assertEquals("c1", remote.get("c"));
+            assertNull(local.get("c"));
+
+            // 清空通知后批量重新加载已缓存的键
+            remote.put("b", "b2");
+            subscribed.get().onEvent(new CacheRemoveEvent(cacheName, null, "other-service"));
+            assertEquals("a2", local.get("a"));
+            assertEquals("b2", local.get("b"));
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testAsyncWriteRetry() throws InterruptedException {
+        List<Object> notified = new CopyOnWriteArrayList<>();
+        CacheNotifier recordingNotifier = new CacheNotifier() {
+            @Override
+            public void notifyUpdate(String cacheName, Object key) {
+            }
+
+            @Override
+            public void notifyAdd(String cacheName, Object key) {
+            }
+
+            @Override
+            public void notifyRemove(String cacheName, Object key) {
+            }
+
+            @Override
+            public void notifyUpdateAll(String cacheName, Collection<?> keys) {
+                notified.addAll(keys);
+            }
+
+            @Override
+            public void subscribe(String cacheName, CacheEventListener listener) {
+            }
+        };
+        // 远程缓存的异常被缓存自身吞掉，写入器仍能得知每次写入的结果
+        MapBackedCache<String, String> remote = new MapBackedCache<>("testAsyncRetry");
+        remote.data.put("c", "old");
+        remote.failing = true;
+        AsyncRemoteWriter<String, String> writer = new AsyncRemoteWriter<>(remote, remote,
+                AsyncWriteConfig.builder().lanes(1).build());
+        writer.bind("testAsyncRetry", recordingNotifier);
+        try {
+            writer.submit("a", "v1", null);
+            writer.submit("b", "v2", Duration.ofMinutes(1));
+            writer.submit("c", null, null);
+
+            long deadline = System.currentTimeMillis() + 2000;
+            while (writer.getFailedCount().sum() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(writer.getFailedCount().sum() > 0);
+            assertEquals(0, writer.getReplicatedCount().sum());
+            assertEquals(3, writer.getQueueDepth());
+            assertTrue("Failed writes should not be notified", notified.isEmpty());
+
+            // 远程缓存恢复后重试写入
+            remote.failing = false;
+            deadline = System.currentTimeMillis() + 5000;
+            while (writer.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, writer.getQueueDepth());
+            assertEquals("v1", remote.data.get("a"));
+            assertEquals("v2", remote.data.get("b"));
+            assertFalse(remote.data.containsKey("c"));
+            assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), new HashSet<>(notified));
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testAsyncWritersShareThreads() throws InterruptedException {
+        List<AsyncRemoteWriter<String, String>> writers = new ArrayList<>();
+        List<MapBackedCache<String, String>> remotes = new ArrayList<>();
+        try {
+            for (int i = 0; i < 50; i++) {
+                MapBackedCache<String, String> remote = new MapBackedCache<>("testAsyncShared" + i);
+                AsyncRemoteWriter<String, String> writer = new AsyncRemoteWriter<>(remote, remote,
+                        AsyncWriteConfig.builder().build());
+                writer.submit("key", "v" + i, null);
+                remotes.add(remote);
+                writers.add(writer);
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            for (AsyncRemoteWriter<String, String> writer : writers) {
+                while (writer.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+            }
+            for (int i = 0; i < remotes.size(); i++) {
+                assertEquals("v" + i, remotes.get(i).data.get("key"));
+            }
+
+            // 所有缓存的队列共用后台线程，线程数量与缓存数量无关
+            long workers = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().startsWith("cyx-cache-async-write-"))
+                    .count();
+            assertTrue("workers=" + workers, workers <= Math.max(2, Runtime.getRuntime().availableProcessors()));
+        } finally {
+            writers.forEach(AsyncRemoteWriter::close);
+        }
+    }
+
+    @Test
+    public void testAsyncWriteThrough() throws InterruptedException {
+        List<Collection<?>> batches = new CopyOnWriteArrayList<>();
+        CacheNotifier recordingNotifier = new CacheNotifier() {
+            @Override
+            public void notifyUpdate(String cacheName, Object key) {
+            }
+
+            @Override
+            public void notifyAdd(String cacheName, Object key) {
+                fail("Async write-through should notify after the remote write");
+            }
+
+            @Override
+            public void notifyRemove(String cacheName, Object key) {
+            }
+
+            @Override
+            public void notifyUpdateAll(String cacheName, Collection<?> keys) {
+                batches.add(new ArrayList<>(keys));
+            }
+
+            @Override
+            public void subscribe(String cacheName, CacheEventListener listener) {
+            }
+        };
+        // 远程缓存的写入在打开闸门前阻塞，模拟慢速的Redis
+        CountDownLatch gate = new CountDownLatch(1);
+        GatedCache<String, String> remote = new GatedCache<>("testAsyncWrite:remote", gate);
+        SimpleLocalCacheManager localManager = new SimpleLocalCacheManager();
+        SimpleLocalCacheManager remoteManager = new SimpleLocalCacheManager() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Cache<K, V> createCache(String name, CacheConfig config) {
+                return (Cache<K, V>) remote;
+            }
+        };
+        MultiLevelCacheManager manager = new MultiLevelCacheManager(localManager, remoteManager,
+                recordingNotifier, new DefaultConsistencyStrategyFactory(), null);
+        try {
+            String cacheName = "testAsyncWrite";
+            CacheConfig config = CacheConfig.builder()
+                    .name(cacheName)
+                    .cacheType(CacheType.BOTH)
+                    .expire(Duration.ofMinutes(5))
+                    .consistencyType(ConsistencyType.WRITE_THROUGH)
+                    .asyncWrite(AsyncWriteConfig.builder().lanes(2).build())
+                    .build();
+            Cache<String, String> cache = manager.createCache(cacheName, config);
+            Cache<String, String> local = localManager.getCache(cacheName + ":local");
+            AsyncRemoteWriter<String, String> writer = ((WriteThroughStrategy<String, String>)
+                    ((MultiLevelCache<String, String>) cache).getConsistencyStrategy()).getRemoteWriter();
+            assertNotNull(writer);
+
+            // 写入本地缓存后立即返回，不等待远程缓存
+            long start = System.nanoTime();
+            cache.put("key", "v1");
+            cache.put("key", "v2");
+            cache.put("removed", "value");
+            cache.remove("removed");
+            assertTrue("Put should not wait for the remote write",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+            // 被后续写入覆盖的数据可能在开闸前被跳过，每个键的最后一次写入一定仍在等待
+            assertTrue(writer.getQueueDepth() >= 2);
+            assertNull(remote.get("key"));
+
+            // 本地缓存被淘汰后仍能读到自己的写入
+            local.remove("key");
+            assertEquals("v2", cache.get("key"));
+            assertNull(cache.get("removed"));
+
+            // 打开闸门后按顺序写入远程缓存，并以批量消息通知
+            gate.countDown();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (writer.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, writer.getQueueDepth());
+            assertEquals("v2", remote.get("key"));
+            assertNull(remote.get("removed"));
+            assertEquals(4, writer.getReplicatedCount().sum());
+            assertTrue(writer.getReplicationLagMillis() >= 0);
+            assertFalse(batches.isEmpty());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testBackfillWithRemainingTtl() throws InterruptedException {
+        SimpleCacheManager localManager = new SimpleCacheManager();
+        SimpleCacheManager remoteManager = new SimpleCacheManager();
+        MultiLevelCacheManager manager = new MultiLevelCacheManager(localManager, remoteManager,
+                null, new DefaultConsistencyStrategyFactory(), null);
+        try {
+            String cacheName = "testBackfillTtl";
+            CacheConfig config = CacheConfig.builder()
+                    .name(cacheName)
+                    .cacheType(CacheType.BOTH)
+                    .expire(Duration.ofMinutes(5))
+                    .localExpire(Duration.ofMinutes(1))
+                    .consistencyType(ConsistencyType.WRITE_THROUGH)
+                    .build();
+            Cache<String, String> cache = manager.createCache(cacheName, config);
+            Cache<String, String> local = localManager.getCache(cacheName + ":local");
+            Cache<String, String> remote = remoteManager.getCache(cacheName + ":remote");
+
+            // 远程缓存中即将过期的值回填后不会比远程缓存存活更久
+            remote.put("short", "s1", Duration.ofMillis(200));
+            assertEquals("s1", cache.get("short"));
+            CacheValue<String> backfilled = local.getWithTtl("short");
+            assertNotNull(backfilled);
+            assertTrue(backfilled.getTtl().toMillis() <= 200);
+
+            // 远程缓存中没有过期时间的值按本地缓存过期时间回填
+            remote.put("long", "l1");
+            assertEquals("l1", cache.get("long"));
+            Duration localTtl = local.getWithTtl("long").getTtl();
+            assertTrue(localTtl.compareTo(Duration.ofMinutes(1)) <= 0);
+            assertTrue(localTtl.compareTo(Duration.ofSeconds(50)) > 0);
+
+            Thread.sleep(300);
+            assertNull(local.get("short"));
+            assertEquals("l1", local.get("long"));
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testVersionedBackfill() {
+        String cacheName = "testVersionedBackfill";
+        AtomicReference<Runnable> onRemoteRead = new AtomicReference<>();
+        // 读取远程缓存后执行钩子，模拟读取期间其他节点写入新值并发出通知
+        SimpleCache<String, String> remote = new SimpleCache<String, String>(cacheName + ":remote", 100) {
+            @Override
+            public CacheValue<String> getWithTtl(String key) {
+                CacheValue<String> found = super.getWithTtl(key);
+                Runnable hook = onRemoteRead.getAndSet(null);
+                if (hook != null) {
+                    hook.run();
+                }
+                return found;
+            }
+        };
+        SimpleCacheManager localManager = new SimpleCacheManager();
+        SimpleLocalCacheManager remoteManager = new SimpleLocalCacheManager() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Cache<K, V> createCache(String name, CacheConfig config) {
+                return (Cache<K, V>) remote;
+            }
+        };
+        MultiLevelCacheManager manager = new MultiLevelCacheManager(localManager, remoteManager,
+                null, new DefaultConsistencyStrategyFactory(), null);
+        try {
+            CacheConfig config = CacheConfig.builder()
+                    .name(cacheName)
+                    .cacheType(CacheType.BOTH)
+                    .expire(Duration.ofMinutes(5))
+                    .consistencyType(ConsistencyType.WRITE_THROUGH)
+                    .build();
+            Cache<String, String> cache = manager.createCache(cacheName, config);
+            Cache<String, String> local = localManager.getCache(cacheName + ":local");
+            VersionTracker<String> tracker = ((AbstractConsistencyStrategy<String, String>)
+                    ((MultiLevelCache<String, String>) cache).getConsistencyStrategy()).getVersionTracker();
+
+            long v1 = VersionClock.next();
+            VersionClock.runWith(v1, () -> remote.put("key", "v1"));
+            onRemoteRead.set(() -> {
+                long v2 = VersionClock.next();
+                VersionClock.runWith(v2, () -> remote.put("key", "v2"));
+                CacheUpdateEvent event = new CacheUpdateEvent(cacheName, "key", "node-b");
+                event.setVersion(v2);
+                manager.handleCacheUpdateEvent(event);
+            });
+
+            // 读到的旧值返回给调用方，但不回填本地缓存
+            assertEquals("v1", cache.get("key"));
+            assertNull(local.get("key"));
+            assertEquals(1, tracker.getDiscardedBackfills().sum());
+
+            assertEquals("v2", cache.get("key"));
+            assertEquals("v2", local.get("key"));
+
+            // 迟到的旧通知不会删除本地缓存中的新值
+            CacheUpdateEvent stale = new CacheUpdateEvent(cacheName, "key", "node-c");
+            stale.setVersion(v1);
+            manager.handleCacheUpdateEvent(stale);
+            assertEquals("v2", local.get("key"));
+            assertEquals(1, tracker.getDiscardedEvents().sum());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testNotificationGapResync() {
+        String cacheName = "testGapResync";
+        String prefix = "test-gap";
+        // 监听容器未启动，只登记主题，不连接Redis
+        RedisMessageListener messageListener = new RedisMessageListener(
+                new RedisMessageListenerContainer(), null, prefix);
+        RedisCacheNotifier notifier = new RedisCacheNotifier(null, messageListener, prefix);
+        messageListener.setCacheNotifier(notifier);
+        SimpleCacheManager localManager = new SimpleCacheManager();
+        MultiLevelCacheManager manager = new MultiLevelCacheManager(localManager, new SimpleCacheManager(),
+                notifier, new DefaultConsistencyStrategyFactory(), null);
+        try {
+            CacheConfig config = CacheConfig.builder()
+                    .name(cacheName)
+                    .cacheType(CacheType.BOTH)
+                    .expire(Duration.ofMinutes(5))
+                    .consistencyType(ConsistencyType.WRITE_THROUGH)
+                    .build();
+            Cache<String, String> cache = manager.createCache(cacheName, config);
+            Cache<String, String> local = localManager.getCache(cacheName + ":local");
+            cache.put("a", "a1");
+            cache.put("b", "b1");
+
+            notifier.dispatchEvent(sequenced(cacheName, "a", 1));
+            assertNull(local.get("a"));
+            assertEquals("b1", local.get("b"));
+
+            // 乱序到达的通知不算丢失
+            notifier.dispatchEvent(sequenced(cacheName, "x", 2));
+            notifier.dispatchEvent(sequenced(cacheName, "x", 4));
+            notifier.dispatchEvent(sequenced(cacheName, "x", 3));
+            assertEquals(0, notifier.getGapCount().sum());
+            assertEquals("b1", local.get("b"));
+
+            // 缺少的序号移出窗口后清空本地缓存
+            notifier.dispatchEvent(sequenced(cacheName, "x", 70));
+            assertEquals(1, notifier.getGapCount().sum());
+            assertTrue(notifier.getMissedEvents().sum() > 0);
+            assertNull(local.get("b"));
+            assertEquals("b1", cache.get("b"));
+
+            // 重新订阅后清空本地缓存
+            byte[] channel = (prefix + ":topic:" + cacheName).getBytes(StandardCharsets.UTF_8);
+            messageListener.onChannelSubscribed(channel, 1);
+            assertEquals("b1", local.get("b"));
+            messageListener.onChannelSubscribed(channel, 1);
+            assertNull(local.get("b"));
+            assertEquals(2, notifier.getResyncCount().sum());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testNotificationGapCheckedPeriodically() throws Exception {
+        String cacheName = "testGapCheck";
+        String prefix = "test-gap-check";
+        RedisMessageListener messageListener = new RedisMessageListener(
+                new RedisMessageListenerContainer(), null, prefix);
+        RedisCacheNotifier notifier = new RedisCacheNotifier(null, messageListener, prefix);
+        messageListener.setCacheNotifier(notifier);
+        SimpleCacheManager localManager = new SimpleCacheManager();
+        MultiLevelCacheManager manager = new MultiLevelCacheManager(localManager, new SimpleCacheManager(),
+                notifier, new DefaultConsistencyStrategyFactory(), null);
+        try {
+            CacheConfig config = CacheConfig.builder()
+                    .name(cacheName)
+                    .cacheType(CacheType.BOTH)
+                    .expire(Duration.ofMinutes(5))
+                    .consistencyType(ConsistencyType.WRITE_THROUGH)
+                    .build();
+            Cache<String, String> cache = manager.createCache(cacheName, config);
+            Cache<String, String> local = localManager.getCache(cacheName + ":local");
+            cache.put("b", "b1");
+
+            // 缺口之后没有新的通知，等待时间过后由后台检查发现
+            notifier.dispatchEvent(sequenced(cacheName, "x", 1));
+            notifier.dispatchEvent(sequenced(cacheName, "x", 3));
+            assertEquals(0, notifier.getGapCount().sum());
+            assertEquals("b1", local.get("b"));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (notifier.getGapCount().sum() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, notifier.getGapCount().sum());
+            assertEquals(1, notifier.getMissedEvents().sum());
+            assertNull(local.get("b"));
+
+            // 长时间没有通知的发送节点的窗口被移除
+            notifier.setWindowIdleTimeout(Duration.ofMillis(100));
+            notifier.dispatchEvent(sequenced(cacheName, "x", 4));
+            assertEquals(1, notifier.trackedSenders(cacheName));
+            Thread.sleep(200);
+            notifier.checkWindows();
+            assertEquals(0, notifier.trackedSenders(cacheName));
+            assertEquals(1, notifier.getGapCount().sum());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testCoalescedPublishing() throws Exception {
+        String cacheName = "testCoalesced";
+        String prefix = "test-coalesced";
+        List<String> messages = new CopyOnWriteArrayList<>();
+        // 只记录发出的消息，不连接Redis
+        RedisTemplate<String, String> capturingTemplate = new RedisTemplate<String, String>() {
+            @Override
+            public void convertAndSend(String channel, Object message) {
+                messages.add((String) message);
+            }
+        };
+        RedisCacheNotifier notifier = new RedisCacheNotifier(capturingTemplate,
+                new RedisMessageListener(new RedisMessageListenerContainer(), null, prefix), prefix,
+                Duration.ofMillis(50), RedisCacheNotifier.DEFAULT_MAX_BATCH_KEYS);
+        notifier.setExtendedEvents(true);
+        MultiLevelCacheManager manager = new MultiLevelCacheManager(new SimpleCacheManager(), new SimpleCacheManager(),
+                notifier, new DefaultConsistencyStrategyFactory(), null);
+        try {
+            CacheConfig config = CacheConfig.builder()
+                    .name(cacheName)
+                    .cacheType(CacheType.BOTH)
+                    .expire(Duration.ofMinutes(5))
+                    .consistencyType(ConsistencyType.WRITE_THROUGH)
+                    .build();
+            Cache<String, String> cache = manager.createCache(cacheName, config);
+
+            // 合并周期内的写入合并为一条消息，重复的键只发送一次
+            cache.put("a", "a1");
+            cache.put("b", "b1");
+            cache.put("a", "a2");
+            Map<String, String> batch = new HashMap<>();
+            batch.put("c", "c1");
+            batch.put("d", "d1");
+            cache.putAll(batch);
+            awaitMessages(messages, 1);
+            assertEquals(1, messages.size());
+            CacheEvent event = new ObjectMapper().readValue(messages.get(0), CacheEvent.class);
+            assertTrue(event instanceof CacheBatchEvent);
+            assertEquals(new HashSet<>(Arrays.asList("a", "b", "c", "d")),
+                    new HashSet<>(((CacheBatchEvent) event).getKeys()));
+            assertEquals(4, notifier.getPublishedEvents().sum());
+
+            // 清空缓存只发送一条消息
+            cache.clear();
+            awaitMessages(messages, 2);
+            Thread.sleep(100);
+            assertEquals(2, messages.size());
+            CacheEvent clear = new ObjectMapper().readValue(messages.get(1), CacheEvent.class);
+            assertEquals(CacheEventType.REMOVE, clear.getEventType());
+            assertNull(clear.getKey());
+
+            // 关闭管理器时发出等待发送的通知
+            cache.put("e", "e1");
+            manager.close();
+            assertEquals(3, messages.size());
+            assertEquals("e", new ObjectMapper().readValue(messages.get(2), CacheEvent.class).getKey());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testCompatibleJsonEvents() throws Exception {
+        String cacheName = "testCompatibleJson";
+        String prefix = "test-compatible";
+        List<String> messages = new CopyOnWriteArrayList<>();
+        RedisTemplate<String, String> capturingTemplate = new RedisTemplate<String, String>() {
+            @Override
+            public void convertAndSend(String channel, Object message) {
+                messages.add((String) message);
+            }
+        };
+        // 在调用线程上逐条发送
+        RedisCacheNotifier notifier = new RedisCacheNotifier(capturingTemplate,
+                new RedisMessageListener(new RedisMessageListenerContainer(), null, prefix), prefix,
+                Duration.ZERO, RedisCacheNotifier.DEFAULT_MAX_BATCH_KEYS);
+        try {
+            // 默认的JSON通知只有旧版本节点认识的字段，写入时带有版本号也不输出
+            VersionClock.runWith(VersionClock.next(), () -> notifier.notifyUpdate(cacheName, "a"));
+            Map<?, ?> compatible = new ObjectMapper().readValue(messages.get(0), Map.class);
+            assertEquals(new HashSet<>(Arrays.asList("cacheName", "key", "eventType", "instanceId")),
+                    compatible.keySet());
+            // 旧版本节点不认识批量事件，一批键逐个发送更新事件
+            notifier.notifyUpdateAll(cacheName, Arrays.asList("c", "d"));
+            assertEquals(3, messages.size());
+            for (String message : messages.subList(1, 3)) {
+                assertEquals("UPDATE", new ObjectMapper().readValue(message, Map.class).get("eventType"));
+            }
+            messages.clear();
+
+            // 所有节点升级后开启扩展内容，接收方可以检查序号和版本号
+            notifier.setExtendedEvents(true);
+            long version = VersionClock.next();
+            VersionClock.runWith(version, () -> notifier.notifyUpdate(cacheName, "b"));
+            CacheEvent extended = new ObjectMapper().readValue(messages.get(0), CacheEvent.class);
+            assertEquals(1, extended.getSequence());
+            assertEquals(version, extended.getVersion());
+        } finally {
+            notifier.close();
+        }
+    }
+
+    @Test
+    public void testMultiplexedChannel() {
+        String prefix = "test-mux";
+        // 监听容器未启动，只登记主题，不连接Redis
+        RedisMessageListener messageListener = new RedisMessageListener(
+                new RedisMessageListenerContainer(), null, prefix, 4);
+        RedisCacheNotifier notifier = new RedisCacheNotifier(null, messageListener, prefix);
+        messageListener.setCacheNotifier(notifier);
+        SimpleCacheManager localManager = new SimpleCacheManager();
+        MultiLevelCacheManager manager = new MultiLevelCacheManager(localManager, new SimpleCacheManager(),
+                notifier, new DefaultConsistencyStrategyFactory(), null);
+        try {
+            assertTrue(messageListener.isMultiplexed());
+            Set<String> channels = new HashSet<>();
+            for (int i = 0; i < 100; i++) {
+                String topic = messageListener.topicFor("cache" + i);
+                assertTrue(topic, topic.startsWith(prefix + ":channel:"));
+                channels.add(topic);
+            }
+            assertEquals(4, channels.size());
+
+            List<Cache<String, String>> locals = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                String cacheName = "testMux" + i;
+                CacheConfig config = CacheConfig.builder()
+                        .name(cacheName)
+                        .cacheType(CacheType.BOTH)
+                        .expire(Duration.ofMinutes(5))
+                        .consistencyType(ConsistencyType.WRITE_THROUGH)
+                        .build();
+                Cache<String, String> cache = manager.createCache(cacheName, config);
+                cache.put("a", "a1");
+                locals.add(localManager.getCache(cacheName + ":local"));
+            }
+
+            // 共享频道上的消息按缓存ID分发
+            String cacheName = "testMux1";
+            byte[] channel = messageListener.topicFor(cacheName).getBytes(StandardCharsets.UTF_8);
+            messageListener.onMessage(new DefaultMessage(channel,
+                    CacheEventCodec.encode(new CacheUpdateEvent(cacheName, "a", "2"), 2)), null);
+            assertEquals("a1", locals.get(0).get("a"));
+            assertNull(locals.get(1).get("a"));
+            assertEquals("a1", locals.get(2).get("a"));
+
+            // 本节点没有的缓存的消息直接丢弃
+            messageListener.onMessage(new DefaultMessage(channel,
+                    CacheEventCodec.encode(new CacheRemoveEvent("testMuxOther", null, "2"), 2)), null);
+            assertEquals("a1", locals.get(0).get("a"));
+            assertEquals("a1", locals.get(2).get("a"));
+
+            // 重新订阅共享频道时同步该频道上的所有缓存
+            messageListener.onChannelSubscribed(channel, 1);
+            messageListener.onChannelSubscribed(channel, 1);
+            for (int i = 0; i < 3; i++) {
+                boolean sameChannel = messageListener.topicFor("testMux" + i)
+                        .equals(messageListener.topicFor(cacheName));
+                assertEquals(sameChannel || i == 1 ? null : "a1", locals.get(i).get("a"));
+            }
+        } finally {
+            manager.close();
+        }
+    }
+
+    private static void awaitMessages(List<String> messages, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (messages.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static CacheUpdateEvent sequenced(String cacheName, String key, long sequence) {
+        CacheUpdateEvent event = new CacheUpdateEvent(cacheName, key, "node-b");
+        event.setSequence(sequence);
+        return event;
+    }
+
     @Test
     public void testConsistency() throws InterruptedException {
         // 创建多级缓存
@@ -394,4 +1388,133 @@ class SimpleLocalCache<K, V> implements Cache<K, V> {
     public com.caoyixin.cache.api.CacheStats stats() {
         return new com.caoyixin.cache.api.CacheStats(name);
     }
-}
\ No newline at end of file
+}
+
+/**
+ * 写入在闸门打开前阻塞的缓存，用于模拟慢速的远程缓存
+ */
+class GatedCache<K, V> implements Cache<K, V> {
+    private final String name;
+    private final CountDownLatch gate;
+    private final Map<K, V> store = new ConcurrentHashMap<>();
+
+    public GatedCache(String name, CountDownLatch gate) {
+        this.name = name;
+        this.gate = gate;
+    }
+
+    private void await() {
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        return store.get(key);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        await();
+        store.put(key, value);
+    }
+
+    @Override
+    public void put(K key, V value, Duration ttl) {
+        put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        await();
+        store.putAll(map);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<K, V> loader) {
+        return store.computeIfAbsent(key, loader);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<K, V> loader, Duration ttl) {
+        return computeIfAbsent(key, loader);
+    }
+
+    @Override
+    public boolean remove(K key) {
+        await();
+        return store.remove(key) != null;
+    }
+
+    @Override
+    public void clear() {
+        store.clear();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public com.caoyixin.cache.api.CacheStats stats() {
+        return new com.caoyixin.cache.api.CacheStats(name);
+    }
+}
+
+/**
+ * 基于Map的远程缓存，用于测试调用保护和写入失败，failing为true时所有操作抛出异常
+ */
+class MapBackedCache<K, V> extends AbstractCache<K, V> {
+    final Map<K, V> data = new ConcurrentHashMap<>();
+    volatile boolean failing;
+
+    MapBackedCache(String name) {
+        super(name);
+    }
+
+    private void checkFailing() {
+        if (failing) {
+            throw new IllegalStateException("远程缓存不可用");
+        }
+    }
+
+    @Override
+    protected V doGet(K key) {
+        checkFailing();
+        return data.get(key);
+    }
+
+    @Override
+    protected void doPut(K key, V value, Duration ttl) {
+        checkFailing();
+        data.put(key, value);
+    }
+
+    @Override
+    protected void doPutAll(Map<? extends K, ? extends V> map) {
+        checkFailing();
+        data.putAll(map);
+    }
+
+    @Override
+    protected V doComputeIfAbsent(K key, Function<K, V> loader, Duration ttl) {
+        checkFailing();
+        return data.computeIfAbsent(key, loader);
+    }
+
+    @Override
+    protected boolean doRemove(K key) {
+        checkFailing();
+        return data.remove(key) != null;
+    }
+
+    @Override
+    protected void doClear() {
+        checkFailing();
+        data.clear();
+    }
+}
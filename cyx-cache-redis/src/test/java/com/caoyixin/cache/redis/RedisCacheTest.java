@@ -1,23 +1,39 @@
 package com.caoyixin.cache.redis;
 
+import com.caoyixin.cache.api.AsyncCache;
 import com.caoyixin.cache.api.Cache;
 import com.caoyixin.cache.config.CacheConfig;
+import com.caoyixin.cache.config.ConcurrencyLimitConfig;
+import com.caoyixin.cache.enums.LeaseFallback;
+import com.caoyixin.cache.enums.OverloadPolicy;
+import com.caoyixin.cache.exception.CacheException;
+import com.caoyixin.cache.exception.CacheRejectedException;
+import com.caoyixin.cache.resilience.AdaptiveConcurrencyLimiter;
+import com.caoyixin.cache.serialization.CodecHeader;
 import com.caoyixin.cache.serialization.FastjsonKeyConvertor;
+import com.caoyixin.cache.serialization.HashedKeyConvertor;
 import com.caoyixin.cache.serialization.JavaValueDecoder;
 import com.caoyixin.cache.serialization.JavaValueEncoder;
+import com.caoyixin.cache.serialization.JsonbValueDecoder;
+import com.caoyixin.cache.serialization.JsonbValueEncoder;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
@@ -225,4 +241,459 @@ public class RedisCacheTest {
 
         executor.shutdown();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLoadLeaseAcrossNodes() throws Exception {
+        // 两个管理器模拟两个节点
+        String cacheName = "testLoadLease";
+        CacheConfig config = CacheConfig.builder()
+                .name(cacheName)
+                .cacheType(com.caoyixin.cache.api.CacheType.REMOTE)
+                .expire(Duration.ofMinutes(5))
+                .loadWaitTime(Duration.ofSeconds(3))
+                .build();
+        RedisCacheManager otherManager = new RedisCacheManager(connectionFactory, keyPrefix);
+        try {
+            Cache<String, Integer> node1 = cacheManager.createCache(cacheName, config);
+            Cache<String, Integer> node2 = otherManager.createCache(cacheName, config);
+
+            AtomicInteger loadCount = new AtomicInteger();
+            CountDownLatch loading = new CountDownLatch(1);
+            Function<String, Integer> slowLoader = key -> {
+                loadCount.incrementAndGet();
+                loading.countDown();
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 42;
+            };
+
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            Future<Integer> winner = executor.submit(() -> node1.computeIfAbsent("lease-key", slowLoader));
+            assertTrue("Winner should start loading", loading.await(2, TimeUnit.SECONDS));
+
+            // 另一个节点等待租约持有者写入，不访问数据源
+            long start = System.nanoTime();
+            Integer waited = node2.computeIfAbsent("lease-key", key -> {
+                loadCount.incrementAndGet();
+                return -1;
+            });
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(Integer.valueOf(42), winner.get(2, TimeUnit.SECONDS));
+            assertEquals("Waiter should get the value written by the lease holder", Integer.valueOf(42), waited);
+            assertEquals("Only the lease holder should load", 1, loadCount.get());
+            assertTrue("Waiter should be woken up when the value is written", waitedMillis < 2000);
+
+            // 删除值后重新加载
+            assertTrue(node1.remove("lease-key"));
+            assertEquals(Integer.valueOf(7), node2.computeIfAbsent("lease-key", key -> 7));
+
+            executor.shutdown();
+            node1.clear();
+        } finally {
+            otherManager.close();
+        }
+    }
+
+    @Test
+    public void testLoadLeaseFallback() throws Exception {
+        String cacheName = "testLoadLeaseFallback";
+        CacheConfig config = CacheConfig.builder()
+                .name(cacheName)
+                .cacheType(com.caoyixin.cache.api.CacheType.REMOTE)
+                .expire(Duration.ofMinutes(5))
+                .loadWaitTime(Duration.ofMillis(100))
+                .leaseFallback(LeaseFallback.RETURN_NULL)
+                .build();
+        Cache<String, Integer> cache = cacheManager.createCache(cacheName, config);
+
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Integer> winner = executor.submit(() -> cache.computeIfAbsent("slow-key", key -> {
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        }));
+        assertTrue(loading.await(2, TimeUnit.SECONDS));
+
+        // 租约持有者未在等待时间内写入，按配置返回null且不访问数据源
+        AtomicInteger fallbackLoads = new AtomicInteger();
+        assertNull(cache.computeIfAbsent("slow-key", key -> fallbackLoads.incrementAndGet()));
+        assertEquals(0, fallbackLoads.get());
+
+        release.countDown();
+        assertEquals(Integer.valueOf(1), winner.get(2, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(1), cache.get("slow-key"));
+
+        executor.shutdown();
+        cache.clear();
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        String cacheName = "testConcurrencyLimit";
+        CacheConfig config = CacheConfig.builder()
+                .name(cacheName)
+                .cacheType(com.caoyixin.cache.api.CacheType.REMOTE)
+                .expire(Duration.ofMinutes(5))
+                .concurrencyLimit(ConcurrencyLimitConfig.builder()
+                        .initialLimit(1)
+                        .minLimit(1)
+                        .maxLimit(1)
+                        .overloadPolicy(OverloadPolicy.FAIL_FAST)
+                        .build())
+                .build();
+        Cache<String, String> cache = cacheManager.createCache(cacheName, config);
+        AdaptiveConcurrencyLimiter limiter = ((RedisCache<String, String>) cache).getCallGuard()
+                .unwrap(AdaptiveConcurrencyLimiter.class);
+        assertNotNull(limiter);
+
+        cache.put("key", "value");
+        assertEquals("value", cache.get("key"));
+        assertEquals("Permits should be released", 0, limiter.getInflight());
+
+        // 许可被占用时，超过限制的调用快速失败
+        assertTrue(limiter.tryAcquire());
+        try {
+            cache.get("key");
+            fail("Over-limit call should fail fast");
+        } catch (CacheRejectedException e) {
+            assertEquals(1, limiter.getRejectedCount().sum());
+            assertEquals(1, cache.stats().getRejections().sum());
+        } finally {
+            limiter.onIgnored();
+        }
+
+        // 加载函数执行期间不占用许可，其他调用不受慢加载影响
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> loader = executor.submit(() -> cache.computeIfAbsent("slow-key", key -> {
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "loaded";
+        }));
+        assertTrue(loading.await(2, TimeUnit.SECONDS));
+        assertEquals("Permit should be returned while loading", 0, limiter.getInflight());
+        assertEquals("value", cache.get("key"));
+        assertEquals(1, limiter.getRejectedCount().sum());
+
+        release.countDown();
+        assertEquals("loaded", loader.get(2, TimeUnit.SECONDS));
+        assertEquals("value", cache.get("key"));
+        assertEquals(0, limiter.getInflight());
+
+        executor.shutdown();
+        cache.clear();
+    }
+
+    @Test
+    public void testReactiveCommandTimeout() throws Exception {
+        // 响应式命令一直不返回时，超过命令超时时间后以异常结束
+        CompletableFuture<String> future = RedisCache.toFuture(Mono.never(), Duration.ofMillis(50));
+        try {
+            future.get(2, TimeUnit.SECONDS);
+            fail("Reactive command should time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CacheException);
+        }
+        assertEquals("value", RedisCache.toFuture(Mono.just("value"), Duration.ofMillis(50)).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCodecMigration() {
+        String cacheName = "testCodecMigration";
+        CacheConfig javaConfig = CacheConfig.builder()
+                .name(cacheName)
+                .cacheType(com.caoyixin.cache.api.CacheType.REMOTE)
+                .expire(Duration.ofMinutes(5))
+                .valueEncoder("java")
+                .valueDecoder("java")
+                .build();
+
+        Cache<String, String> javaCache = cacheManager.createCache(cacheName, javaConfig);
+        javaCache.put("migrate-key", "migrate-value");
+
+        // 写入一条没有编码头的历史数据
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(RedisValueSerializer.INSTANCE);
+        template.afterPropertiesSet();
+        String legacyRedisKey = keyPrefix + cacheName + ":legacy-key";
+        template.opsForValue().set(legacyRedisKey, new JavaValueEncoder().encode("legacy-value"));
+
+        // 切换为jackson编码，历史数据和java编码的数据仍然可读，并在读取时重写为新格式
+        RedisCacheManager jacksonManager = new RedisCacheManager(connectionFactory, keyPrefix);
+        try {
+            CacheConfig jacksonConfig = CacheConfig.builder()
+                    .name(cacheName)
+                    .cacheType(com.caoyixin.cache.api.CacheType.REMOTE)
+                    .expire(Duration.ofMinutes(5))
+                    .valueEncoder("jackson")
+                    .valueDecoder("java")
+                    .rewriteOnRead(true)
+                    .build();
+            Cache<String, String> jacksonCache = jacksonManager.createCache(cacheName, jacksonConfig);
+
+            assertEquals("Java encoded value should be readable", "migrate-value", jacksonCache.get("migrate-key"));
+            assertEquals("Legacy value should be readable", "legacy-value", jacksonCache.get("legacy-key"));
+
+            byte[] rewritten = template.opsForValue().get(legacyRedisKey);
+            assertNotNull("Legacy value should still exist", rewritten);
+            assertEquals("Legacy value should be rewritten with header", CodecHeader.MAGIC_V1, rewritten[0]);
+            assertEquals("Legacy value should be rewritten as jackson", 2, CodecHeader.codecId(rewritten));
+            assertTrue("Rewrite should keep the remaining TTL",
+                    template.getExpire(legacyRedisKey) == -1 || template.getExpire(legacyRedisKey) > 0);
+
+            // 旧节点仍能读取新格式的数据
+            assertEquals("Old node should read rewritten value", "legacy-value", javaCache.get("legacy-key"));
+        } finally {
+            clearCache(jacksonManager, cacheName);
+            jacksonManager.close();
+        }
+    }
+
+    @Test
+    public void testHashedKeyVerification() {
+        String cacheName = "testHashedKey";
+        CacheConfig config = CacheConfig.builder()
+                .name(cacheName)
+                .cacheType(com.caoyixin.cache.api.CacheType.REMOTE)
+                .expire(Duration.ofMinutes(5))
+                .keyConvertor("hash64")
+                .verifyHashedKey(true)
+                .build();
+
+        Cache<Map<String, Object>, String> cache = cacheManager.createCache(cacheName, config);
+        Map<String, Object> key = new HashMap<>();
+        key.put("tenant", "t-1");
+        key.put("userId", 10086L);
+        cache.put(key, "hashed-value");
+        assertEquals("Value should be readable by composite key", "hashed-value", cache.get(key));
+
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(RedisValueSerializer.INSTANCE);
+        template.afterPropertiesSet();
+        HashedKeyConvertor<Map<String, Object>> convertor =
+                new HashedKeyConvertor<>(new FastjsonKeyConvertor<>(), 64);
+        String redisKey = keyPrefix + cacheName + ":" + convertor.convert(key);
+        assertEquals("Hashed key should have fixed length", 11, convertor.convert(key).length());
+
+        byte[] raw = template.opsForValue().get(redisKey);
+        assertNotNull("Value should be stored under hashed key", raw);
+        assertEquals("Value should carry the full key", CodecHeader.MAGIC_V2, raw[0]);
+
+        // 模拟哈希冲突：另一个键的数据写到了同一个Redis键
+        Map<String, Object> otherKey = new HashMap<>();
+        otherKey.put("tenant", "t-2");
+        String otherRedisKey = keyPrefix + cacheName + ":" + convertor.convert(otherKey);
+        template.opsForValue().set(otherRedisKey, raw);
+        assertNull("Colliding value should be treated as a miss", cache.get(otherKey));
+
+        cache.clear();
+    }
+
+    @Test
+    public void testTypedSmileCodec() {
+        String cacheName = "testTypedSmile";
+        CacheConfig config = CacheConfig.builder()
+                .name(cacheName)
+                .cacheType(com.caoyixin.cache.api.CacheType.REMOTE)
+                .expire(Duration.ofMinutes(5))
+                .valueEncoder("smile")
+                .valueType(TestUser.class)
+                .build();
+
+        Cache<String, TestUser> cache = cacheManager.createCache(cacheName, config);
+        cache.put("user-1", new TestUser("alice", 30));
+
+        TestUser user = cache.get("user-1");
+        assertNotNull("Typed value should be readable", user);
+        assertEquals("Name should match", "alice", user.getName());
+        assertEquals("Age should match", 30, user.getAge());
+
+        cache.clear();
+    }
+
+    @Test
+    public void testJsonbClassNameCodec() {
+        String cacheName = "testJsonbClassName";
+        // 值类型为Object，按数据中的类名还原为原类型
+        cacheManager.registerValueCodec("jsonb-typed", 16, new JsonbValueEncoder<>(true),
+                new JsonbValueDecoder<>(Object.class, "com.caoyixin.cache.redis."));
+        CacheConfig config = CacheConfig.builder()
+                .name(cacheName)
+                .cacheType(com.caoyixin.cache.api.CacheType.REMOTE)
+                .expire(Duration.ofMinutes(5))
+                .valueEncoder("jsonb-typed")
+                .valueDecoder("jsonb-typed")
+                .build();
+
+        Cache<String, Object> cache = cacheManager.createCache(cacheName, config);
+        cache.put("user-1", new TestUser("bob", 25));
+
+        Object value = cache.get("user-1");
+        assertTrue("Value should be restored as its own class", value instanceof TestUser);
+        assertEquals("bob", ((TestUser) value).getName());
+        assertEquals(25, ((TestUser) value).getAge());
+
+        cache.clear();
+    }
+
+    @Test
+    public void testJsonbRejectsUnacceptedClass() {
+        byte[] bytes = new JsonbValueEncoder<TestUser>(true).encode(new TestUser("eve", 40));
+
+        JsonbValueDecoder<Object> accepting = new JsonbValueDecoder<>(Object.class, "com.caoyixin.cache.redis.");
+        assertTrue(accepting.decode(bytes) instanceof TestUser);
+
+        // 类名不匹配任何允许的前缀时不加载该类
+        JsonbValueDecoder<Object> rejecting = new JsonbValueDecoder<>(Object.class, "com.example.", "java.util.");
+        try {
+            rejecting.decode(bytes);
+            fail("Class outside the accept list should be rejected");
+        } catch (CacheException e) {
+            assertTrue(e.getMessage().contains(TestUser.class.getName()));
+        }
+    }
+
+    @Test
+    public void testAsyncOperations() throws Exception {
+        String cacheName = "testAsyncOps";
+        CacheConfig config = CacheConfig.builder()
+                .name(cacheName)
+                .cacheType(com.caoyixin.cache.api.CacheType.REMOTE)
+                .expire(Duration.ofMinutes(5))
+                .build();
+
+        cacheManager.createCache(cacheName, config);
+        AsyncCache<String, String> cache = cacheManager.getAsyncCache(cacheName);
+        assertNotNull("Async view should exist", cache);
+
+        cache.putAsync("async-1", "value-1").get(1, TimeUnit.SECONDS);
+        cache.putAsync("async-2", "value-2").get(1, TimeUnit.SECONDS);
+        assertEquals("Async get should see async put", "value-1", cache.getAsync("async-1").get(1, TimeUnit.SECONDS));
+
+        Map<String, String> values = cache.getAllAsync(Arrays.asList("async-1", "async-2", "async-3"))
+                .get(1, TimeUnit.SECONDS);
+        assertEquals("Only existing keys should be returned", 2, values.size());
+        assertEquals("value-2", values.get("async-2"));
+
+        AtomicInteger loads = new AtomicInteger();
+        String loaded = cache.computeIfAbsentAsync("async-3", k -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("loaded-" + k);
+        }, null).get(1, TimeUnit.SECONDS);
+        assertEquals("loaded-async-3", loaded);
+        assertEquals("Loaded value should be cached", "loaded-async-3", cache.sync().get("async-3"));
+        assertEquals(1, loads.get());
+
+        assertTrue("Async remove should succeed", cache.removeAsync("async-1").get(1, TimeUnit.SECONDS));
+        assertNull("Value should be gone", cache.getAsync("async-1").get(1, TimeUnit.SECONDS));
+
+        cache.sync().clear();
+    }
+
+    @Test
+    public void testReadBatching() throws InterruptedException {
+        String cacheName = "testReadBatching";
+        CacheConfig config = CacheConfig.builder()
+                .name(cacheName)
+                .cacheType(com.caoyixin.cache.api.CacheType.REMOTE)
+                .expire(Duration.ofMinutes(5))
+                .readBatchWindow(Duration.ofNanos(200_000))
+                .readBatchSize(64)
+                .build();
+
+        Cache<String, String> cache = cacheManager.createCache(cacheName, config);
+        for (int i = 0; i < 50; i++) {
+            cache.put("batch-key-" + i, "batch-value-" + i);
+        }
+
+        int threadCount = 20;
+        int readsPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        AtomicInteger mismatches = new AtomicInteger();
+        for (int t = 0; t < threadCount; t++) {
+            executor.submit(() -> {
+                try {
+                    for (int i = 0; i < readsPerThread; i++) {
+                        int n = i % 60;
+                        String expected = n < 50 ? "batch-value-" + n : null;
+                        String actual = cache.get("batch-key-" + n);
+                        if (expected == null ? actual != null : !expected.equals(actual)) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals("Every caller should get its own value", 0, mismatches.get());
+        RedisGetBatchStats stats = ((RedisCache<String, String>) cache).batchStats();
+        assertNotNull("Batch stats should be available", stats);
+        assertEquals(threadCount * readsPerThread, stats.getRequestCount().sum());
+        assertTrue("Concurrent gets should be coalesced", stats.getBatchCount().sum() < threadCount * readsPerThread);
+
+        cache.clear();
+    }
+
+    /**
+     * 类型化解码测试使用的值对象
+     */
+    public static class TestUser {
+        private String name;
+        private int age;
+
+        public TestUser() {
+        }
+
+        public TestUser(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+    }
+
+    private void clearCache(RedisCacheManager manager, String cacheName) {
+        Cache<String, String> cache = manager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
         RedisCacheTest.class,
+        LettuceRedisCacheTest.class,
         RedisDistributedLockTest.class,
         MultiLevelCacheTest.class,
         CacheNotificationTest.class
@@ -58,11 +58,11 @@ public class RedisDistributedLockTest {
         DistributedLock<Object> lock = cacheManager;
         String key = "timeout-lock-key";
 
-        // 获取锁
-        assertTrue("Should be able to acquire lock", lock.tryLock(key, Duration.ofMillis(200)));
+        // 获取租期为200ms的锁，不续期
+        assertTrue("Should be able to acquire lock", lock.tryLock(key, Duration.ZERO, Duration.ofMillis(200)));
 
-        // 在锁过期前，另一个尝试应该失败
-        assertFalse("Should not be able to acquire lock while held", lock.tryLock(key, Duration.ofSeconds(10)));
+        // 在锁过期前，只尝试一次应该失败
+        assertFalse("Should not be able to acquire lock while held", lock.tryLock(key, Duration.ZERO));
 
         try {
             Thread.sleep(300); // 等待锁过期
@@ -75,6 +75,116 @@ public class RedisDistributedLockTest {
         lock.unlock(key);
     }
 
+    @Test
+    public void testWaitTime() {
+        DistributedLock<Object> lock = cacheManager;
+        String key = "wait-lock-key";
+
+        assertTrue("Should be able to acquire lock", lock.tryLock(key, Duration.ZERO));
+
+        // 等待时间内锁没有释放，返回false
+        long start = System.currentTimeMillis();
+        assertFalse("Should time out while lock is held", lock.tryLock(key, Duration.ofMillis(300)));
+        assertTrue("Should wait for the given time", System.currentTimeMillis() - start >= 250);
+
+        lock.unlock(key);
+    }
+
+    @Test
+    public void testWaiterWokenOnUnlock() throws InterruptedException {
+        DistributedLock<Object> lock = cacheManager;
+        String key = "wakeup-lock-key";
+
+        assertTrue("Should be able to acquire lock", lock.tryLock(key, Duration.ZERO));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch acquired = new CountDownLatch(1);
+        executor.submit(() -> {
+            if (lock.tryLock(key, Duration.ofSeconds(10))) {
+                acquired.countDown();
+            }
+        });
+
+        Thread.sleep(200);
+        long releasedAt = System.currentTimeMillis();
+        lock.unlock(key);
+
+        // 释放后等待者立即被唤醒，而不是等到锁的租期结束
+        assertTrue("Waiter should acquire lock after unlock", acquired.await(2, TimeUnit.SECONDS));
+        assertTrue("Waiter should be woken promptly", System.currentTimeMillis() - releasedAt < 1000);
+
+        lock.unlock(key);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testUnlockDoesNotReleaseOtherOwner() {
+        String key = "owner-lock-key";
+        RedisCacheManager otherNode = new RedisCacheManager(connectionFactory, keyPrefix);
+        try {
+            // 当前节点的锁过期后被另一个节点获取
+            assertTrue(cacheManager.tryLock(key, Duration.ZERO, Duration.ofMillis(100)));
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertTrue("Other node should acquire expired lock", otherNode.tryLock(key, Duration.ZERO));
+
+            // 当前节点延迟释放，不能释放另一个节点持有的锁
+            cacheManager.unlock(key);
+            assertFalse("Lock should still be held by other node", cacheManager.tryLock(key, Duration.ZERO));
+
+            otherNode.unlock(key);
+        } finally {
+            otherNode.close();
+        }
+    }
+
+    @Test
+    public void testUnlockDoesNotReleaseOtherThread() throws Exception {
+        String key = "thread-owner-lock-key";
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 当前线程的锁过期后被同一节点的另一个线程获取
+            assertTrue(cacheManager.tryLock(key, Duration.ZERO, Duration.ofMillis(100)));
+            Thread.sleep(200);
+            assertTrue("Other thread should acquire expired lock",
+                    executor.submit(() -> cacheManager.tryLock(key, Duration.ZERO)).get());
+
+            // 当前线程延迟释放，不能释放另一个线程持有的锁
+            cacheManager.unlock(key);
+            assertFalse("Lock should still be held by other thread",
+                    executor.submit(() -> cacheManager.tryLock(key, Duration.ZERO)).get());
+
+            executor.submit(() -> cacheManager.unlock(key)).get();
+            assertTrue("Lock should be released by its owner", cacheManager.tryLock(key, Duration.ZERO));
+            cacheManager.unlock(key);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLeaseRenewal() throws InterruptedException {
+        String key = "renew-lock-key";
+        RedisCacheManager shortLeaseNode = new RedisCacheManager(connectionFactory, keyPrefix);
+        RedisLock renewingLock = new RedisLock(connectionFactory, Duration.ofMillis(300));
+        try {
+            String lockKey = keyPrefix + "lock:" + key;
+            assertTrue(renewingLock.tryLock(lockKey, Duration.ZERO));
+
+            // 持有时间超过租期，看门狗续期后锁仍然有效
+            Thread.sleep(1000);
+            assertFalse("Renewed lock should still be held", shortLeaseNode.tryLock(key, Duration.ZERO));
+
+            assertTrue("Owner should release the lock", renewingLock.unlock(lockKey));
+        } finally {
+            renewingLock.close();
+            shortLeaseNode.close();
+        }
+    }
+
     @Test
     public void testConcurrentLockAcquisition() throws InterruptedException {
         DistributedLock<Object> lock = cacheManager;
@@ -95,8 +205,8 @@ public class RedisDistributedLockTest {
                     readyLatch.countDown();
                     startLatch.await(); // 等待所有线程就绪后一起开始
 
-                    // 尝试获取锁
-                    if (lock.tryLock(key, Duration.ofSeconds(1))) {
+                    // 只尝试一次获取锁
+                    if (lock.tryLock(key, Duration.ZERO)) {
                         try {
                             successCount.incrementAndGet();
                             Thread.sleep(100); // 模拟持有锁的操作
@@ -136,7 +246,7 @@ public class RedisDistributedLockTest {
 
         // Redis分布式锁不支持可重入，第二次获取应该失败
         assertTrue("First lock acquisition should succeed", lock.tryLock(key, Duration.ofSeconds(10)));
-        assertFalse("Second lock acquisition should fail (not reentrant)", lock.tryLock(key, Duration.ofSeconds(10)));
+        assertFalse("Second lock acquisition should fail (not reentrant)", lock.tryLock(key, Duration.ofMillis(100)));
 
         // 释放锁
         lock.unlock(key);
@@ -0,0 +1,92 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.exception.CacheException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 读取合并器测试，MGET由测试提供，不需要Redis
+ */
+public class RedisGetBatcherTest {
+
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testBatchedGet() throws Exception {
+        List<Integer> batchSizes = new ArrayList<>();
+        RedisGetBatcher batcher = new RedisGetBatcher("test", keys -> {
+            batchSizes.add(keys.length);
+            List<byte[]> values = new ArrayList<>();
+            for (byte[] key : keys) {
+                values.add(("v-" + new String(key, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8));
+            }
+            return CompletableFuture.completedFuture(values);
+        }, scheduler, Duration.ofMillis(20), 64, Duration.ofSeconds(1));
+
+        CompletableFuture<byte[]> a = batcher.get(bytes("a"));
+        CompletableFuture<byte[]> b = batcher.get(bytes("b"));
+        CompletableFuture<byte[]> again = batcher.get(bytes("a"));
+        assertEquals("v-a", new String(a.get(1, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+        assertEquals("v-b", new String(b.get(1, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+        assertEquals("v-a", new String(again.get(1, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+        // 同一批次中相同的键只读取一次
+        assertEquals(1, batchSizes.size());
+        assertEquals(2, (int) batchSizes.get(0));
+    }
+
+    @Test
+    public void testMgetTimeout() throws Exception {
+        // MGET一直不返回
+        RedisGetBatcher batcher = new RedisGetBatcher("test", keys -> new CompletableFuture<>(),
+                scheduler, Duration.ofMillis(1), 64, Duration.ofMillis(50));
+
+        CompletableFuture<byte[]> future = batcher.get(bytes("a"));
+        try {
+            future.get(2, TimeUnit.SECONDS);
+            fail("Batched get should time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CacheException);
+        }
+        assertEquals(1, batcher.getStats().getFailedBatchCount().sum());
+    }
+
+    @Test
+    public void testSchedulerShutdown() throws Exception {
+        RedisGetBatcher batcher = new RedisGetBatcher("test", keys -> new CompletableFuture<>(),
+                scheduler, Duration.ofSeconds(10), 64, Duration.ofSeconds(10));
+
+        // 窗口到期前调度器关闭，已等待的请求和之后的请求都立即结束
+        CompletableFuture<byte[]> waiting = batcher.get(bytes("a"));
+        scheduler.shutdownNow();
+        CompletableFuture<byte[]> late = batcher.get(bytes("b"));
+        assertTrue(waiting.isCompletedExceptionally());
+        assertTrue(late.isCompletedExceptionally());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
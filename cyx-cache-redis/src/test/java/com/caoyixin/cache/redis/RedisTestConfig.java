@@ -1,5 +1,6 @@
 package com.caoyixin.cache.redis;
 
+import io.lettuce.core.RedisURI;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisPassword;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
@@ -32,6 +33,17 @@ public class RedisTestConfig {
         return factory;
     }
 
+    /**
+     * 创建Lettuce使用的Redis地址
+     */
+    public static RedisURI createRedisURI() {
+        return RedisURI.builder()
+                .withHost(REDIS_HOST)
+                .withPort(REDIS_PORT)
+                .withPassword(REDIS_PASSWORD.toCharArray())
+                .build();
+    }
+
     /**
      * 获取测试用的键前缀
      */
@@ -0,0 +1,159 @@
+package com.caoyixin.cache.redis;
+
+import com.caoyixin.cache.exception.CacheException;
+import com.caoyixin.cache.serialization.CompressingValueDecoder;
+import com.caoyixin.cache.serialization.CompressingValueEncoder;
+import com.caoyixin.cache.serialization.CompressionStats;
+import com.caoyixin.cache.serialization.DeflateCompressor;
+import com.caoyixin.cache.serialization.KryoValueDecoder;
+import com.caoyixin.cache.serialization.KryoValueEncoder;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 值编解码器测试，不需要Redis
+ */
+public class ValueCodecTest {
+
+    @Test
+    public void testKryoStreamRoundTrip() {
+        KryoValueEncoder encoder = new KryoValueEncoder();
+        KryoValueDecoder decoder = new KryoValueDecoder();
+
+        // 超过缓冲区大小的值，写入和读取时都需要多次刷新缓冲区
+        Map<String, Object> value = largeValue();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.encode(value, out);
+        byte[] bytes = out.toByteArray();
+        assertTrue(bytes.length > 4096);
+        assertArrayEquals("Stream and array encoding should match", encoder.encode(value), bytes);
+
+        assertEquals(value, decoder.decode(new ByteArrayInputStream(bytes)));
+        assertEquals(value, decoder.decode(bytes));
+    }
+
+    @Test
+    public void testKryoDecodeWithOffset() {
+        KryoValueEncoder encoder = new KryoValueEncoder();
+        KryoValueDecoder decoder = new KryoValueDecoder();
+
+        byte[] encoded = encoder.encode("offset-value");
+        byte[] framed = new byte[encoded.length + 8];
+        Arrays.fill(framed, (byte) 0x7f);
+        System.arraycopy(encoded, 0, framed, 5, encoded.length);
+
+        assertEquals("offset-value", decoder.decode(framed, 5, encoded.length));
+        assertNull(decoder.decode(framed, 5, 0));
+    }
+
+    @Test
+    public void testKryoBuffersReused() {
+        KryoValueEncoder encoder = new KryoValueEncoder();
+        KryoValueDecoder decoder = new KryoValueDecoder();
+
+        // 池化的读写缓冲区交替用于流和字节数组，不能串用或修改调用方的数组
+        byte[] small = encoder.encode("small");
+        byte[] smallCopy = small.clone();
+        Map<String, Object> large = largeValue();
+        byte[] largeBytes = encoder.encode(large);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("small", decoder.decode(small));
+            assertEquals(large, decoder.decode(new ByteArrayInputStream(largeBytes)));
+            assertEquals("small", decoder.decode(new ByteArrayInputStream(small)));
+            assertEquals(large, decoder.decode(largeBytes));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            encoder.encode("small", out);
+            assertArrayEquals(smallCopy, out.toByteArray());
+        }
+        assertArrayEquals("Caller array should not be modified", smallCopy, small);
+    }
+
+    @Test
+    public void testCompressingRoundTrip() throws Exception {
+        CompressionStats stats = new CompressionStats();
+        DeflateCompressor compressor = new DeflateCompressor();
+        CompressingValueEncoder<Object> encoder =
+                new CompressingValueEncoder<>(new KryoValueEncoder(), compressor, 256, stats);
+        CompressingValueDecoder<Object> decoder =
+                new CompressingValueDecoder<>(new KryoValueDecoder(), compressor, stats);
+
+        Map<String, Object> value = largeValue();
+        byte[] bytes = encoder.encode(value);
+        assertEquals(DeflateCompressor.ID, bytes[0]);
+        assertTrue("Compressed payload should be smaller",
+                bytes.length < new KryoValueEncoder().encode(value).length);
+        assertEquals(value, decoder.decode(bytes));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.encode(value, out);
+        assertEquals(value, decoder.decode(out.toByteArray()));
+
+        // 低于阈值的数据不压缩
+        byte[] small = encoder.encode("small");
+        assertEquals(CompressingValueEncoder.UNCOMPRESSED, small[0]);
+        assertEquals("small", decoder.decode(small));
+
+        assertEquals(2, stats.getCompressCount().sum());
+        assertEquals(1, stats.getSkipCount().sum());
+        assertEquals(2, stats.getDecompressCount().sum());
+        assertTrue(stats.compressionRatio() < 1.0);
+    }
+
+    @Test
+    public void testCompressionSkippedWhenNotSmaller() {
+        CompressionStats stats = new CompressionStats();
+        DeflateCompressor compressor = new DeflateCompressor();
+        CompressingValueEncoder<Object> encoder =
+                new CompressingValueEncoder<>(new KryoValueEncoder(), compressor, 0, stats);
+        CompressingValueDecoder<Object> decoder =
+                new CompressingValueDecoder<>(new KryoValueDecoder(), compressor, stats);
+
+        // 随机数据压缩后不会变小，按未压缩写出
+        byte[] random = new byte[2048];
+        new Random(42).nextBytes(random);
+        byte[] bytes = encoder.encode(random);
+        assertEquals(CompressingValueEncoder.UNCOMPRESSED, bytes[0]);
+        assertArrayEquals(random, (byte[]) decoder.decode(bytes));
+
+        assertEquals(0, stats.getCompressCount().sum());
+        assertEquals(1, stats.getSkipCount().sum());
+        assertEquals(0, stats.getDecompressCount().sum());
+    }
+
+    @Test
+    public void testDecompressSizeLimit() {
+        byte[] raw = new byte[100_000];
+        byte[] compressed = new DeflateCompressor().compress(raw, 0, raw.length);
+
+        assertArrayEquals(raw, new DeflateCompressor(6, raw.length).decompress(compressed, 0, compressed.length));
+        try {
+            new DeflateCompressor(6, raw.length - 1).decompress(compressed, 0, compressed.length);
+            fail("Decompressing beyond the limit should fail");
+        } catch (CacheException e) {
+            assertTrue(e.getMessage().contains(String.valueOf(raw.length - 1)));
+        }
+    }
+
+    private static Map<String, Object> largeValue() {
+        Map<String, Object> value = new HashMap<>();
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            items.add("item-" + i);
+        }
+        value.put("items", items);
+        value.put("name", "large");
+        value.put("count", 2000);
+        return value;
+    }
+}